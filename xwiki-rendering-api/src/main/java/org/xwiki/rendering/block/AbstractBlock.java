@@ -31,6 +31,7 @@
 import org.xwiki.rendering.block.match.BlockMatcher;
 import org.xwiki.rendering.block.match.BlockNavigator;
 import org.xwiki.rendering.listener.Listener;
+import org.xwiki.stability.Unstable;
 
 /**
  * Implementation for Block operations. All blocks should extend this class. Supports the notion of generic parameters
@@ -66,6 +67,11 @@ public abstract class AbstractBlock implements Block
      */
     private Block previousSiblingBlock;
 
+    /**
+     * The structural hash of the block, {@code null} when it was not computed since the last modification.
+     */
+    private StructuralHash structuralHash;
+
     /**
      * Empty constructor to construct an empty block.
      */
@@ -158,6 +164,15 @@ public void addChildren(List<? extends Block> blocksToAdd)
     @Override
     public void setChildren(List<? extends Block> children)
     {
+        invalidateStructuralHash();
+
+        XDOMIndex index = onChildrenModified();
+        if (index != null) {
+            for (Block child : getChildren()) {
+                index.remove(child);
+            }
+        }
+
         if (children.isEmpty()) {
             if (this.childrenBlocks != null) {
                 this.childrenBlocks.clear();
@@ -186,6 +201,8 @@ public void setPreviousSiblingBlock(Block previousSiblingBlock)
     @Override
     public void insertChildBefore(Block blockToInsert, Block nextBlock)
     {
+        invalidateStructuralHash();
+
         blockToInsert.setParent(this);
 
         if (nextBlock == null) {
@@ -221,6 +238,11 @@ public void insertChildBefore(Block blockToInsert, Block nextBlock)
                 this.childrenBlocks.add(indexOfChild(nextBlock), blockToInsert);
             }
         }
+
+        XDOMIndex index = onChildrenModified();
+        if (index != null) {
+            index.add(blockToInsert);
+        }
     }
 
     @Override
@@ -229,6 +251,8 @@ public void insertChildAfter(Block blockToInsert, Block previousBlock)
         if (previousBlock == null) {
             insertChildBefore(blockToInsert, null);
         } else {
+            invalidateStructuralHash();
+
             // If there's a next block to previousBlock then get it to set its previous sibling
             Block nextBlock = previousBlock.getNextSibling();
             if (nextBlock != null) {
@@ -243,6 +267,11 @@ public void insertChildAfter(Block blockToInsert, Block previousBlock)
                 this.childrenBlocks = new ArrayList<Block>(1);
             }
             this.childrenBlocks.add(indexOfChild(previousBlock) + 1, blockToInsert);
+
+            XDOMIndex index = onChildrenModified();
+            if (index != null) {
+                index.add(blockToInsert);
+            }
         }
     }
 
@@ -261,6 +290,8 @@ public void replaceChild(List<Block> newBlocks, Block oldBlock)
             throw new InvalidParameterException("Provided Block to replace is not a child");
         }
 
+        invalidateStructuralHash();
+
         List<Block> blocks = getChildren();
 
         // Remove old child
@@ -294,6 +325,15 @@ public void replaceChild(List<Block> newBlocks, Block oldBlock)
 
         oldBlock.setNextSiblingBlock(null);
         oldBlock.setPreviousSiblingBlock(null);
+
+        // The new blocks can be descendants of the old block
+        XDOMIndex index = onChildrenModified();
+        if (index != null) {
+            index.remove(oldBlock);
+            for (Block block : newBlocks) {
+                index.add(block);
+            }
+        }
     }
 
     /**
@@ -336,6 +376,25 @@ private int indexOfBlock(Block block, List<Block> blocks)
         return -1;
     }
 
+    /**
+     * Count a modification of the children of this block in the document containing it.
+     *
+     * @return the index of the document containing this block, {@code null} if the document is not indexed
+     */
+    private XDOMIndex onChildrenModified()
+    {
+        Block root = getRoot();
+
+        if (root instanceof XDOM) {
+            XDOM xdom = (XDOM) root;
+            xdom.incrementModificationCount();
+
+            return xdom.getIndex();
+        }
+
+        return null;
+    }
+
     @Override
     public List<Block> getChildren()
     {
@@ -364,6 +423,8 @@ public String getParameter(String name)
     @Override
     public void setParameter(String name, String value)
     {
+        invalidateStructuralHash();
+
         if (this.parameters == null) {
             this.parameters = new LinkedHashMap<>(1);
         }
@@ -374,6 +435,8 @@ public void setParameter(String name, String value)
     @Override
     public void setParameters(Map<String, String> parameters)
     {
+        invalidateStructuralHash();
+
         if (this.parameters == null) {
             this.parameters = new LinkedHashMap<>(parameters);
         } else {
@@ -421,6 +484,8 @@ public void removeBlock(Block childBlockToRemove)
         if (position == -1) {
             throw new InvalidParameterException("Provided Block to remove is not a child");
         }
+
+        invalidateStructuralHash();
         getChildren().remove(position);
 
         // Re-calculate internal links between blocks
@@ -435,6 +500,11 @@ public void removeBlock(Block childBlockToRemove)
             }
             childBlockToRemove.setNextSiblingBlock(null);
             childBlockToRemove.setPreviousSiblingBlock(null);
+
+            XDOMIndex index = onChildrenModified();
+            if (index != null) {
+                index.remove(childBlockToRemove);
+            }
         }
     }
 
@@ -468,6 +538,79 @@ public int hashCode()
         return builder.toHashCode();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The structural hash is computed bottom-up and kept until the block is modified through the methods of
+     * {@link Block}, the modification invalidating the structural hash of the block and of its ancestors. The list
+     * returned by {@link #getChildren()} should not be modified directly.
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    public StructuralHash getStructuralHash()
+    {
+        StructuralHash hash = this.structuralHash;
+
+        return hash != null ? hash : getStructuralHash(new StructuralHashBuilder());
+    }
+
+    private StructuralHash getStructuralHash(StructuralHashBuilder builder)
+    {
+        if (this.structuralHash == null) {
+            // The children are hashed first since the builder can only compute one digest at a time
+            List<Block> children = getChildren();
+            StructuralHash[] childHashes = new StructuralHash[children.size()];
+            for (int i = 0; i < childHashes.length; ++i) {
+                Block child = children.get(i);
+                childHashes[i] = child instanceof AbstractBlock ? ((AbstractBlock) child).getStructuralHash(builder)
+                    : child.getStructuralHash();
+            }
+
+            builder.append(getClass().getName());
+            appendStructuralData(builder);
+            builder.append(this.parameters != null ? this.parameters : Collections.<String, String>emptyMap());
+            builder.append(childHashes.length);
+            for (StructuralHash childHash : childHashes) {
+                builder.append(childHash);
+            }
+
+            this.structuralHash = builder.build();
+        }
+
+        return this.structuralHash;
+    }
+
+    /**
+     * Append the data of the block which is not stored in its parameters or its children to the structural hash
+     * (see {@link #getStructuralHash()}). Nothing is appended by default.
+     *
+     * @param builder the builder of the structural hash
+     * @since 10.4RC1
+     */
+    @Unstable
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        // Nothing to append by default
+    }
+
+    /**
+     * Invalidate the structural hash of the block and of its ancestors, to call when the data appended in
+     * {@link #appendStructuralData(StructuralHashBuilder)} is modified.
+     *
+     * @since 10.4RC1
+     */
+    @Unstable
+    protected void invalidateStructuralHash()
+    {
+        // An ancestor can only have a structural hash if its descendants have one
+        Block block = this;
+        while (block instanceof AbstractBlock && ((AbstractBlock) block).structuralHash != null) {
+            ((AbstractBlock) block).structuralHash = null;
+            block = block.getParent();
+        }
+    }
+
     @Override
     public Block clone()
     {
@@ -490,6 +633,14 @@ public Block clone(BlockFilter blockFilter)
             throw new RuntimeException("Failed to clone object", e);
         }
 
+        // Also makes sure adding the cloned children does not invalidate the ancestors of the original block
+        ((AbstractBlock) block).structuralHash = null;
+
+        // Detach the clone while its children are added so that they are not indexed in the document of the original
+        // block
+        Block parent = this.parentBlock;
+        ((AbstractBlock) block).parentBlock = null;
+
         if (this.parameters != null) {
             ((AbstractBlock) block).parameters = new LinkedHashMap<>(this.parameters);
         }
@@ -513,6 +664,8 @@ public Block clone(BlockFilter blockFilter)
             }
         }
 
+        ((AbstractBlock) block).parentBlock = parent;
+
         return block;
     }
 
@@ -89,6 +89,19 @@ public boolean isInline()
         return inline;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getId());
+        builder.append(getContent());
+        builder.append(isInline());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
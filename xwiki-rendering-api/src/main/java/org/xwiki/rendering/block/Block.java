@@ -24,6 +24,7 @@
 
 import org.xwiki.rendering.block.match.BlockMatcher;
 import org.xwiki.rendering.listener.Listener;
+import org.xwiki.stability.Unstable;
 
 /**
  * Represents an element of a XWiki Document's content. For example there are Blocks for Paragraphs, Bold parts,
@@ -292,4 +293,33 @@ public interface Block extends Cloneable
      * @since 3.0M3
      */
     <T extends Block> T getFirstBlock(BlockMatcher matcher, Axes axes);
+
+    /**
+     * Get a digest of the class, data, parameters and descendants of this block. Contrary to {@link #hashCode()}, it
+     * depends on the class of the blocks and two blocks with the same structural hash can be considered identical.
+     * <p>
+     * The default implementation computes it each time from the class, the parameters and the children of the block.
+     *
+     * @return the structural hash of the block
+     * @since 10.4RC1
+     */
+    @Unstable
+    default StructuralHash getStructuralHash()
+    {
+        List<Block> children = getChildren();
+        StructuralHash[] childHashes = new StructuralHash[children.size()];
+        for (int i = 0; i < childHashes.length; ++i) {
+            childHashes[i] = children.get(i).getStructuralHash();
+        }
+
+        StructuralHashBuilder builder = new StructuralHashBuilder();
+        builder.append(getClass().getName());
+        builder.append(getParameters());
+        builder.append(childHashes.length);
+        for (StructuralHash childHash : childHashes) {
+            builder.append(childHash);
+        }
+
+        return builder.build();
+    }
 }
@@ -59,6 +59,8 @@ public int getEmptyLinesCount()
     public void setEmptyLinesCount(int count)
     {
         this.count = count;
+
+        invalidateStructuralHash();
     }
 
     @Override
@@ -67,6 +69,17 @@ public void traverse(Listener listener)
         listener.onEmptyLines(getEmptyLinesCount());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getEmptyLinesCount());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -80,6 +80,17 @@ public void after(Listener listener)
         listener.endFormat(getFormat(), getParameters());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getFormat());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
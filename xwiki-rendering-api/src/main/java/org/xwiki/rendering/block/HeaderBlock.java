@@ -127,6 +127,18 @@ public void after(Listener listener)
         listener.endHeader(getLevel(), getId(), getParameters());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getLevel());
+        builder.append(getId());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -60,6 +60,17 @@ public void traverse(Listener listener)
         listener.onId(getName());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getName());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -116,6 +116,18 @@ public LinkBlock clone(BlockFilter blockFilter)
         return clone;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getReference());
+        builder.append(isFreeStandingURI());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
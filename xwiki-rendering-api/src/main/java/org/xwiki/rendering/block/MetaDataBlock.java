@@ -104,6 +104,17 @@ public MetaDataBlock clone()
         return cloned;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getMetaData().getMetaData());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -76,6 +76,18 @@ public Syntax getSyntax()
         return this.syntax;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getRawContent());
+        builder.append(getSyntax());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -68,6 +68,17 @@ public String toString()
         return String.valueOf(getSymbol());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getSymbol());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -0,0 +1,114 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.block;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * A 128 bits digest of the content of a {@link Block} and of its descendants (see {@link Block#getStructuralHash()}).
+ * Two blocks with the same structural hash can be considered identical, which makes it suitable for cache keys and
+ * for the deduplication of subtrees.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public final class StructuralHash
+{
+    private static final int HEX_DIGITS_PER_LONG = 16;
+
+    private static final int BITS_PER_HEX_DIGIT = 4;
+
+    private static final int HEX_DIGIT_MASK = 0xF;
+
+    private final long high;
+
+    private final long low;
+
+    /**
+     * @param high the 64 most significant bits of the digest
+     * @param low the 64 least significant bits of the digest
+     */
+    public StructuralHash(long high, long low)
+    {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * @return the 64 most significant bits of the digest
+     */
+    public long getHigh()
+    {
+        return this.high;
+    }
+
+    /**
+     * @return the 64 least significant bits of the digest
+     */
+    public long getLow()
+    {
+        return this.low;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == this) {
+            return true;
+        }
+
+        if (obj instanceof StructuralHash) {
+            StructuralHash otherHash = (StructuralHash) obj;
+
+            return this.high == otherHash.high && this.low == otherHash.low;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        // The bits of a digest are already evenly distributed
+        return (int) this.low;
+    }
+
+    /**
+     * @return the digest as 32 hexadecimal digits
+     */
+    @Override
+    public String toString()
+    {
+        char[] digits = new char[HEX_DIGITS_PER_LONG * 2];
+        appendHex(this.high, digits, 0);
+        appendHex(this.low, digits, HEX_DIGITS_PER_LONG);
+
+        return new String(digits);
+    }
+
+    private static void appendHex(long value, char[] digits, int offset)
+    {
+        for (int i = 0; i < HEX_DIGITS_PER_LONG; ++i) {
+            int digit = (int) (value >>> ((HEX_DIGITS_PER_LONG - 1 - i) * BITS_PER_HEX_DIGIT)) & HEX_DIGIT_MASK;
+            digits[offset + i] = Character.forDigit(digit, HEX_DIGITS_PER_LONG);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.block;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Compute the {@link StructuralHash} of a {@link Block} from its class, its own data, its parameters and the
+ * structural hashes of its children. Blocks holding data outside of their parameters and children append it in
+ * {@link AbstractBlock#appendStructuralData(StructuralHashBuilder)}.
+ * <p>
+ * Each value is written with its type and length so that different sequences of values can't produce the same digest.
+ * A builder is not thread safe.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public final class StructuralHashBuilder
+{
+    private static final String ALGORITHM = "MD5";
+
+    private static final int BUFFER_SIZE = 256;
+
+    private static final int BYTE_SIZE = 8;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private static final int LONG_BYTES = 8;
+
+    private static final int INT_BYTES = 4;
+
+    private static final byte NULL = 0;
+
+    private static final byte STRING = 1;
+
+    private static final byte INT = 2;
+
+    private static final byte BOOLEAN = 3;
+
+    private static final byte MAP = 4;
+
+    private static final byte HASH = 5;
+
+    private final MessageDigest digest;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int length;
+
+    /**
+     * Create a builder for a new computation.
+     */
+    public StructuralHashBuilder()
+    {
+        try {
+            this.digest = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // Every implementation of the Java platform is required to support MD5
+            throw new IllegalStateException("Failed to get the [" + ALGORITHM + "] message digest", e);
+        }
+    }
+
+    /**
+     * @param value the string to append, can be {@code null}
+     * @return this builder
+     */
+    public StructuralHashBuilder append(String value)
+    {
+        if (value == null) {
+            writeByte(NULL);
+        } else {
+            writeByte(STRING);
+            writeInt(value.length());
+            for (int i = 0; i < value.length(); ++i) {
+                char c = value.charAt(i);
+                writeByte((byte) (c >>> BYTE_SIZE));
+                writeByte((byte) c);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * @param value the integer to append
+     * @return this builder
+     */
+    public StructuralHashBuilder append(int value)
+    {
+        writeByte(INT);
+        writeInt(value);
+
+        return this;
+    }
+
+    /**
+     * @param value the boolean to append
+     * @return this builder
+     */
+    public StructuralHashBuilder append(boolean value)
+    {
+        writeByte(BOOLEAN);
+        writeByte(value ? (byte) 1 : (byte) 0);
+
+        return this;
+    }
+
+    /**
+     * Append an object using its string representation.
+     *
+     * @param value the object to append, can be {@code null}
+     * @return this builder
+     */
+    public StructuralHashBuilder append(Object value)
+    {
+        return append(value != null ? value.toString() : null);
+    }
+
+    /**
+     * Append the entries of a map in iteration order, the values being appended using their string representation.
+     *
+     * @param map the map to append, can be {@code null}
+     * @return this builder
+     */
+    public StructuralHashBuilder append(Map<String, ?> map)
+    {
+        if (map == null) {
+            writeByte(NULL);
+        } else {
+            writeByte(MAP);
+            writeInt(map.size());
+            for (Map.Entry<String, ?> entry : map.entrySet()) {
+                append(entry.getKey());
+                append(entry.getValue());
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * @param hash the structural hash to append (usually the hash of a child block)
+     * @return this builder
+     */
+    public StructuralHashBuilder append(StructuralHash hash)
+    {
+        writeByte(HASH);
+        writeLong(hash.getHigh());
+        writeLong(hash.getLow());
+
+        return this;
+    }
+
+    /**
+     * Compute the digest of the appended values and reset the builder for a new computation.
+     *
+     * @return the structural hash
+     */
+    public StructuralHash build()
+    {
+        flushBuffer();
+        byte[] bytes = this.digest.digest();
+
+        return new StructuralHash(readLong(bytes, 0), readLong(bytes, LONG_BYTES));
+    }
+
+    private void writeInt(int value)
+    {
+        for (int shift = (INT_BYTES - 1) * BYTE_SIZE; shift >= 0; shift -= BYTE_SIZE) {
+            writeByte((byte) (value >>> shift));
+        }
+    }
+
+    private void writeLong(long value)
+    {
+        for (int shift = (LONG_BYTES - 1) * BYTE_SIZE; shift >= 0; shift -= BYTE_SIZE) {
+            writeByte((byte) (value >>> shift));
+        }
+    }
+
+    private void writeByte(byte value)
+    {
+        if (this.length == this.buffer.length) {
+            flushBuffer();
+        }
+        this.buffer[this.length++] = value;
+    }
+
+    private void flushBuffer()
+    {
+        this.digest.update(this.buffer, 0, this.length);
+        this.length = 0;
+    }
+
+    private static long readLong(byte[] bytes, int offset)
+    {
+        long value = 0;
+        for (int i = 0; i < LONG_BYTES; ++i) {
+            value = (value << BYTE_SIZE) | (bytes[offset + i] & BYTE_MASK);
+        }
+
+        return value;
+    }
+}
@@ -99,6 +99,18 @@ public String toString()
         return getProtectedString();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getProtectedString());
+        builder.append(isInline());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -65,6 +65,17 @@ public String toString()
         return getWord();
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    protected void appendStructuralData(StructuralHashBuilder builder)
+    {
+        builder.append(getWord());
+    }
+
     @Override
     public boolean equals(Object obj)
     {
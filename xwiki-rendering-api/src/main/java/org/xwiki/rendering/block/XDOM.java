@@ -25,6 +25,7 @@
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.util.IdGenerator;
+import org.xwiki.stability.Unstable;
 
 /**
  * Contains the full tree of {@link Block} that represent a XWiki Document's content.
@@ -47,6 +48,16 @@ public class XDOM extends MetaDataBlock
      */
     private transient IdGenerator idGenerator;
 
+    /**
+     * The index of the blocks of the document, {@code null} when the document is not indexed.
+     */
+    private transient XDOMIndex index;
+
+    /**
+     * @see #getModificationCount()
+     */
+    private transient int modificationCount;
+
     /**
      * @param childBlocks the list of children blocks of the block to construct
      * @see AbstractBlock#AbstractBlock(List)
@@ -104,6 +115,70 @@ public void setIdGenerator(IdGenerator idGenerator)
         this.idGenerator = idGenerator;
     }
 
+    /**
+     * Enable or disable the index of the blocks of this document, which makes the searches of blocks by class, macro
+     * id or metadata key (see {@link org.xwiki.rendering.block.match.ClassBlockMatcher},
+     * {@link org.xwiki.rendering.block.match.MacroBlockMatcher} and
+     * {@link org.xwiki.rendering.block.match.MetadataBlockMatcher}) in the descendants of any of its blocks depend on
+     * the number of candidate blocks (blocks of the searched class, macro blocks with the searched id or
+     * {@link MetaDataBlock}s) instead of the size of the document. The index is maintained when the document is
+     * modified and is dropped when the document is inserted in another block.
+     *
+     * @param indexed true to index the blocks of the document, false to drop the index
+     * @since 10.4RC1
+     */
+    @Unstable
+    public void setIndexed(boolean indexed)
+    {
+        if (!indexed) {
+            this.index = null;
+        } else if (getIndex() == null) {
+            this.index = new XDOMIndex(this);
+        }
+    }
+
+    /**
+     * @return the index of the blocks of this document, {@code null} if the document is not indexed
+     * @see #setIndexed(boolean)
+     * @since 10.4RC1
+     */
+    @Unstable
+    public XDOMIndex getIndex()
+    {
+        // A clone shares the index of the original document until it gets its own
+        return this.index != null && this.index.getXDOM() == this ? this.index : null;
+    }
+
+    /**
+     * @return a counter incremented each time blocks are added, removed or replaced in this document through the
+     *         methods of {@link Block}, which can be used to know if the document was modified between two calls
+     * @since 10.4RC1
+     */
+    @Unstable
+    public int getModificationCount()
+    {
+        return this.modificationCount;
+    }
+
+    /**
+     * Count a modification of the blocks of this document.
+     */
+    void incrementModificationCount()
+    {
+        ++this.modificationCount;
+    }
+
+    @Override
+    public void setParent(Block parentBlock)
+    {
+        super.setParent(parentBlock);
+
+        // The index is only maintained for the root block
+        if (parentBlock != null) {
+            this.index = null;
+        }
+    }
+
     @Override
     public void before(Listener listener)
     {
@@ -119,6 +194,12 @@ public void after(Listener listener)
     @Override
     public XDOM clone()
     {
-        return (XDOM) super.clone();
+        XDOM xdom = (XDOM) super.clone();
+        xdom.index = null;
+        if (getIndex() != null) {
+            xdom.setIndexed(true);
+        }
+
+        return xdom;
     }
 }
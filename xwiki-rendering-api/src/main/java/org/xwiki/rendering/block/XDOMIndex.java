@@ -0,0 +1,204 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.block;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Index of the blocks of a {@link XDOM} by class and macro id (see {@link XDOM#setIndexed(boolean)}).
+ * <p>
+ * The index is maintained when the document is modified through the methods of {@link Block} (adding, inserting,
+ * replacing and removing children). It does not see the modifications made directly on the list returned by
+ * {@link Block#getChildren()}, so the returned blocks are only candidates which should still be checked. The
+ * {@link org.xwiki.rendering.listener.MetaData} of a block can be modified at any time so it's checked when the blocks
+ * are requested. The returned collections are in no particular order.
+ * <p>
+ * The index is not thread safe.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public final class XDOMIndex
+{
+    private final XDOM xdom;
+
+    private final Map<Class<? extends Block>, Set<Block>> blocksByClass = new HashMap<>();
+
+    private final Map<String, Set<Block>> macroBlocksById = new HashMap<>();
+
+    /**
+     * @param xdom the indexed document
+     */
+    XDOMIndex(XDOM xdom)
+    {
+        this.xdom = xdom;
+
+        add(xdom);
+    }
+
+    /**
+     * @return the indexed document
+     */
+    XDOM getXDOM()
+    {
+        return this.xdom;
+    }
+
+    /**
+     * @param blockClass the class of the blocks to return
+     * @return the blocks which are instances of the passed class
+     */
+    public Collection<Block> getBlocks(Class<? extends Block> blockClass)
+    {
+        Set<Block> sameClassBlocks = null;
+        List<Block> blocks = null;
+        for (Map.Entry<Class<? extends Block>, Set<Block>> entry : this.blocksByClass.entrySet()) {
+            if (blockClass.isAssignableFrom(entry.getKey())) {
+                if (sameClassBlocks == null) {
+                    sameClassBlocks = entry.getValue();
+                } else {
+                    if (blocks == null) {
+                        blocks = new ArrayList<>(sameClassBlocks);
+                    }
+                    blocks.addAll(entry.getValue());
+                }
+            }
+        }
+
+        if (blocks != null) {
+            return blocks;
+        }
+
+        return sameClassBlocks != null ? Collections.unmodifiableSet(sameClassBlocks)
+            : Collections.<Block>emptySet();
+    }
+
+    /**
+     * @param macroId the id of the macro
+     * @return the {@link MacroBlock}s with the passed macro id
+     */
+    public Collection<Block> getMacroBlocks(String macroId)
+    {
+        return get(this.macroBlocksById, macroId);
+    }
+
+    /**
+     * @param metaDataKey the metadata key
+     * @return the {@link MetaDataBlock}s currently having metadata with the passed key
+     */
+    public Collection<Block> getMetaDataBlocks(String metaDataKey)
+    {
+        List<Block> blocks = new ArrayList<>();
+        for (Block block : getBlocks(MetaDataBlock.class)) {
+            if (((MetaDataBlock) block).getMetaData().contains(metaDataKey)) {
+                blocks.add(block);
+            }
+        }
+
+        return blocks;
+    }
+
+    private static <K> Collection<Block> get(Map<K, Set<Block>> map, K key)
+    {
+        Set<Block> blocks = map.get(key);
+
+        return blocks != null ? Collections.unmodifiableSet(blocks) : Collections.<Block>emptySet();
+    }
+
+    /**
+     * Index a block and its descendants.
+     *
+     * @param block the block added to the document
+     */
+    void add(Block block)
+    {
+        Deque<Block> stack = new ArrayDeque<>();
+        stack.push(block);
+        while (!stack.isEmpty()) {
+            Block current = stack.pop();
+
+            put(this.blocksByClass, current.getClass(), current);
+            if (current instanceof MacroBlock) {
+                put(this.macroBlocksById, ((MacroBlock) current).getId(), current);
+            }
+
+            for (Block child : current.getChildren()) {
+                stack.push(child);
+            }
+        }
+    }
+
+    /**
+     * Remove a block and its descendants from the index.
+     *
+     * @param block the block removed from the document
+     */
+    void remove(Block block)
+    {
+        Deque<Block> stack = new ArrayDeque<>();
+        stack.push(block);
+        while (!stack.isEmpty()) {
+            Block current = stack.pop();
+
+            delete(this.blocksByClass, current.getClass(), current);
+            if (current instanceof MacroBlock) {
+                delete(this.macroBlocksById, ((MacroBlock) current).getId(), current);
+            }
+
+            for (Block child : current.getChildren()) {
+                stack.push(child);
+            }
+        }
+    }
+
+    private static <K> void put(Map<K, Set<Block>> map, K key, Block block)
+    {
+        Set<Block> blocks = map.get(key);
+        if (blocks == null) {
+            // Blocks are compared by identity since equals() compares their content
+            blocks = Collections.newSetFromMap(new IdentityHashMap<Block, Boolean>());
+            map.put(key, blocks);
+        }
+        blocks.add(block);
+    }
+
+    private static <K> void delete(Map<K, Set<Block>> map, K key, Block block)
+    {
+        Set<Block> blocks = map.get(key);
+        if (blocks != null) {
+            blocks.remove(block);
+            if (blocks.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.block.match;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.Block.Axes;
+
+/**
+ * Lazily iterate over the blocks matched in the provided {@link Axes}, in the same order as
+ * {@link BlockNavigator#getBlocks(Block, Axes)}.
+ * <p>
+ * The tree is walked with an explicit stack of children iterators instead of recursive calls so that deeply nested
+ * blocks can't overflow the call stack and no intermediate list of blocks is created. The children lists must not
+ * be modified while iterating.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+final class BlockIterator implements Iterator<Block>
+{
+    /**
+     * How to go from a searched block to the next one when not going through the descendants.
+     */
+    private enum Step
+    {
+        /**
+         * The search stops after the block.
+         */
+        NONE,
+
+        /**
+         * The search continues with the parent of the block.
+         */
+        PARENT,
+
+        /**
+         * The search continues with the next sibling of the block.
+         */
+        NEXT_SIBLING,
+
+        /**
+         * The search continues with the previous sibling of the block.
+         */
+        PREVIOUS_SIBLING
+    }
+
+    private final BlockMatcher matcher;
+
+    /**
+     * The iterators over the children of the blocks being searched, the innermost first.
+     */
+    private final Deque<Iterator<Block>> stack = new ArrayDeque<>();
+
+    /**
+     * True if the descendants of the searched blocks are searched too.
+     */
+    private final boolean descendants;
+
+    private final Step step;
+
+    /**
+     * The next block to search once the stack is empty.
+     */
+    private Block nextRoot;
+
+    /**
+     * The next matched block, {@code null} when not yet found.
+     */
+    private Block nextBlock;
+
+    /**
+     * @param currentBlock the block to start searching from
+     * @param axes the search axes
+     * @param matcher used to filter the blocks
+     */
+    BlockIterator(Block currentBlock, Axes axes, BlockMatcher matcher)
+    {
+        this.matcher = matcher;
+
+        switch (axes) {
+            // SELF
+            case SELF:
+                this.nextRoot = currentBlock;
+                this.step = Step.NONE;
+                this.descendants = false;
+                break;
+            // ANCESTOR
+            case ANCESTOR_OR_SELF:
+                this.nextRoot = currentBlock;
+                this.step = Step.PARENT;
+                this.descendants = false;
+                break;
+            case ANCESTOR:
+                this.nextRoot = currentBlock.getParent();
+                this.step = Step.PARENT;
+                this.descendants = false;
+                break;
+            case PARENT:
+                this.nextRoot = currentBlock.getParent();
+                this.step = Step.NONE;
+                this.descendants = false;
+                break;
+            // DESCENDANT
+            case CHILD:
+                pushChildren(currentBlock);
+                this.step = Step.NONE;
+                this.descendants = false;
+                break;
+            case DESCENDANT_OR_SELF:
+                this.nextRoot = currentBlock;
+                this.step = Step.NONE;
+                this.descendants = true;
+                break;
+            case DESCENDANT:
+                pushChildren(currentBlock);
+                this.step = Step.NONE;
+                this.descendants = true;
+                break;
+            // FOLLOWING
+            case FOLLOWING_SIBLING:
+            case FOLLOWING:
+                this.nextRoot = currentBlock.getNextSibling();
+                this.step = Step.NEXT_SIBLING;
+                this.descendants = axes == Axes.FOLLOWING;
+                break;
+            // PRECEDING
+            case PRECEDING_SIBLING:
+            case PRECEDING:
+                this.nextRoot = currentBlock.getPreviousSibling();
+                this.step = Step.PREVIOUS_SIBLING;
+                this.descendants = axes == Axes.PRECEDING;
+                break;
+            default:
+                this.step = Step.NONE;
+                this.descendants = false;
+                break;
+        }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        while (this.nextBlock == null) {
+            Block block = nextSearchedBlock();
+            if (block == null) {
+                return false;
+            }
+            if (this.matcher.match(block)) {
+                this.nextBlock = block;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public Block next()
+    {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Block block = this.nextBlock;
+        this.nextBlock = null;
+
+        return block;
+    }
+
+    /**
+     * @return the next block in the search axes, matched or not, {@code null} when there's no more
+     */
+    private Block nextSearchedBlock()
+    {
+        // Continue with the descendants of the current block
+        while (!this.stack.isEmpty()) {
+            Iterator<Block> children = this.stack.peek();
+            if (children.hasNext()) {
+                Block block = children.next();
+                if (this.descendants) {
+                    pushChildren(block);
+                }
+
+                return block;
+            }
+            this.stack.pop();
+        }
+
+        Block block = this.nextRoot;
+        if (block != null) {
+            this.nextRoot = getNextRoot(block);
+            if (this.descendants) {
+                pushChildren(block);
+            }
+        }
+
+        return block;
+    }
+
+    private Block getNextRoot(Block block)
+    {
+        switch (this.step) {
+            case PARENT:
+                return block.getParent();
+            case NEXT_SIBLING:
+                return block.getNextSibling();
+            case PREVIOUS_SIBLING:
+                return block.getPreviousSibling();
+            default:
+                return null;
+        }
+    }
+
+    private void pushChildren(Block block)
+    {
+        List<Block> children = block.getChildren();
+        if (!children.isEmpty()) {
+            this.stack.push(children.iterator());
+        }
+    }
+}
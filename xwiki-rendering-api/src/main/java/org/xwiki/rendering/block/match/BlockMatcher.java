@@ -19,7 +19,11 @@
  */
 package org.xwiki.rendering.block.match;
 
+import java.util.Collection;
+
 import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOMIndex;
+import org.xwiki.stability.Unstable;
 
 /**
  * Used by {@link Block} search method to select {@link Block}.
@@ -36,4 +40,19 @@
      * @return true if the provided block is matched, false otherwise
      */
     boolean match(Block block);
+
+    /**
+     * Find the blocks which can be matched in the index of a document (see
+     * {@link org.xwiki.rendering.block.XDOM#setIndexed(boolean)}), to avoid going through all the blocks of the
+     * document. The returned blocks are still passed to {@link #match(Block)}.
+     *
+     * @param index the index of the document
+     * @return the only blocks of the document which can be matched, {@code null} if the index can't be used
+     * @since 10.4RC1
+     */
+    @Unstable
+    default Collection<Block> getCandidates(XDOMIndex index)
+    {
+        return null;
+    }
 }
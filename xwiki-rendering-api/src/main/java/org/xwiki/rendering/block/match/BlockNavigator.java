@@ -20,11 +20,22 @@
 package org.xwiki.rendering.block.match;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.Block.Axes;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.XDOMIndex;
+import org.xwiki.stability.Unstable;
 
 /**
  * Tool to navigate in a tree of blocks and extract them based on configurable criteria.
@@ -67,239 +78,240 @@ public BlockNavigator(BlockMatcher matcher)
      */
     public <T extends Block> List<T> getBlocks(Block currentBlock, Axes currentAxes)
     {
-        List<T> blocks = new ArrayList<T>();
-
-        Block block = currentBlock;
-        Axes axes = currentAxes;
-
-        while (block != null) {
-            Block nextBlock = null;
-
-            switch (axes) {
-            // SELF
-                case SELF:
-                    addBlock(block, blocks);
-                    break;
-                // ANCESTOR
-                case ANCESTOR_OR_SELF:
-                    addBlock(block, blocks);
-                    nextBlock = block.getParent();
-                    break;
-                case ANCESTOR:
-                    nextBlock = block.getParent();
-                    axes = Axes.ANCESTOR_OR_SELF;
-                    break;
-                case PARENT:
-                    nextBlock = block.getParent();
-                    axes = Axes.SELF;
-                    break;
-                // DESCENDANT
-                case CHILD:
-                    if (!block.getChildren().isEmpty()) {
-                        nextBlock = block.getChildren().get(0);
-                        axes = Axes.FOLLOWING_SIBLING;
-                        addBlock(nextBlock, blocks);
-                    }
-                    break;
-                case DESCENDANT_OR_SELF:
-                    addBlock(block, blocks);
-                    blocks = getBlocks(block.getChildren(), Axes.DESCENDANT_OR_SELF, blocks);
-                    break;
-                case DESCENDANT:
-                    blocks = getBlocks(block.getChildren(), Axes.DESCENDANT_OR_SELF, blocks);
-                    break;
-                // FOLLOWING
-                case FOLLOWING_SIBLING:
-                    nextBlock = block.getNextSibling();
-                    addBlock(nextBlock, blocks);
-                    break;
-                case FOLLOWING:
-                    for (Block nextSibling = block.getNextSibling(); nextSibling != null;
-                        nextSibling = nextSibling.getNextSibling()) {
-                        blocks = getBlocks(nextSibling, Axes.DESCENDANT_OR_SELF, blocks);
-                    }
-                    break;
-                // PRECEDING
-                case PRECEDING_SIBLING:
-                    nextBlock = block.getPreviousSibling();
-                    addBlock(nextBlock, blocks);
-                    break;
-                case PRECEDING:
-                    for (Block previousSibling = block.getPreviousSibling(); previousSibling != null;
-                        previousSibling = previousSibling.getPreviousSibling()) {
-                        blocks = getBlocks(previousSibling, Axes.DESCENDANT_OR_SELF, blocks);
-                    }
-                    break;
-                default:
-                    break;
+        List<IndexedBlock> indexedBlocks = getIndexedBlocks(currentBlock, currentAxes);
+        if (indexedBlocks != null) {
+            Collections.sort(indexedBlocks);
+
+            List<T> blocks = new ArrayList<>(indexedBlocks.size());
+            for (IndexedBlock indexedBlock : indexedBlocks) {
+                blocks.add((T) indexedBlock.block);
             }
 
-            block = nextBlock;
+            return blocks;
+        }
+
+        return findBlocks(currentBlock, currentAxes);
+    }
+
+    private <T extends Block> List<T> findBlocks(Block currentBlock, Axes currentAxes)
+    {
+        List<T> blocks = new ArrayList<>();
+
+        Iterator<T> iterator = iterator(currentBlock, currentAxes);
+        while (iterator.hasNext()) {
+            blocks.add(iterator.next());
         }
 
-        return blocks != null ? blocks : Collections.<T>emptyList();
+        return blocks;
     }
 
+    // First block
+
     /**
-     * Add provided {@link Block} to provided list (or create list of null) if block validate the provided
-     * {@link BlockMatcher}.
+     * Get the first matched block in the provided {@link Axes}.
      *
-     * @param <T> the class of the Blocks to return
-     * @param currentBlock the block to search from
-     * @param blocks the list of blocks to fill
+     * @param <T> the class of the Block to return
+     * @param currentBlock the block to start searching from
+     * @param currentAxes indicate the search axes
+     * @return the matched {@link Block}, null if none was found
      */
-    private <T extends Block> void addBlock(Block currentBlock, List<T> blocks)
+    public <T extends Block> T getFirstBlock(Block currentBlock, Axes currentAxes)
     {
-        if (currentBlock != null && this.matcher.match(currentBlock)) {
-            blocks.add((T) currentBlock);
+        List<IndexedBlock> indexedBlocks = getIndexedBlocks(currentBlock, currentAxes);
+        if (indexedBlocks != null) {
+            return indexedBlocks.isEmpty() ? null : (T) Collections.min(indexedBlocks).block;
         }
+
+        return findFirstBlock(currentBlock, currentAxes);
     }
 
+    private <T extends Block> T findFirstBlock(Block currentBlock, Axes currentAxes)
+    {
+        Iterator<T> iterator = iterator(currentBlock, currentAxes);
+
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    // Lazy search
+
     /**
-     * Add all blocks following provided {@link BlockMatcher} and {@link Axes} in the provide list (or create a new list
-     * of provided list is null).
+     * Iterate over the blocks following provided {@link BlockMatcher} and {@link Axes}, in the same order as
+     * {@link #getBlocks(Block, Axes)}. The blocks are searched only when requested and the children lists of the
+     * searched blocks must not be modified while iterating.
      *
      * @param <T> the class of the Blocks to return
-     * @param blocks the blocks from where to search
-     * @param axes the axes
-     * @param blocksOut the list of blocks to fill
-     * @return the modified list, null if provided list is null and provided {@link Block} does not validate provided
-     *         {@link BlockMatcher}
+     * @param currentBlock the block to start searching from
+     * @param axes indicate the search axes
+     * @return an iterator over the matched {@link Block}s
+     * @since 10.4RC1
      */
-    private <T extends Block> List<T> getBlocks(List<Block> blocks, Axes axes, List<T> blocksOut)
+    @Unstable
+    public <T extends Block> Iterator<T> iterator(Block currentBlock, Axes axes)
     {
-        List<T> newBlocks = blocksOut;
+        return (Iterator<T>) new BlockIterator(currentBlock, axes, this.matcher);
+    }
 
-        for (Block block : blocks) {
-            newBlocks = getBlocks(block, axes, newBlocks);
-        }
+    /**
+     * Same as {@link #iterator(Block, Axes)} but as a sequential {@link Stream}.
+     *
+     * @param <T> the class of the Blocks to return
+     * @param currentBlock the block to start searching from
+     * @param axes indicate the search axes
+     * @return a stream of the matched {@link Block}s
+     * @since 10.4RC1
+     */
+    @Unstable
+    public <T extends Block> Stream<T> stream(Block currentBlock, Axes axes)
+    {
+        Iterator<T> iterator = iterator(currentBlock, axes);
 
-        return newBlocks;
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
     /**
-     * Add all blocks following provided {@link BlockMatcher} and {@link Axes} in the provide list (or create a new list
-     * of provided list is null).
+     * Pass the blocks following provided {@link BlockMatcher} and {@link Axes} to the visitor, in the same order as
+     * {@link #getBlocks(Block, Axes)}, until it asks to stop. The children lists of the searched blocks must not be
+     * modified by the visitor.
      *
-     * @param <T> the class of the Blocks to return
-     * @param currentBlock the block to search from
-     * @param axes the axes
-     * @param blocksOut the list of blocks to fill
-     * @return the modified list, null if provided list is null and provided {@link Block} does not validate provided
-     *         {@link BlockMatcher}
+     * @param <T> the class of the visited Blocks
+     * @param currentBlock the block to start searching from
+     * @param axes indicate the search axes
+     * @param visitor called for each matched {@link Block}
+     * @return false if the visitor stopped the search, true otherwise
+     * @since 10.4RC1
      */
-    private <T extends Block> List<T> getBlocks(Block currentBlock, Axes axes, List<T> blocksOut)
+    @Unstable
+    public <T extends Block> boolean visit(Block currentBlock, Axes axes, BlockVisitor<T> visitor)
     {
-        List<T> newBlocks = blocksOut;
-
-        List<T> nextBlocks = getBlocks(currentBlock, axes);
-        if (!nextBlocks.isEmpty()) {
-            if (newBlocks == null) {
-                newBlocks = nextBlocks;
-            } else {
-                newBlocks.addAll(nextBlocks);
+        Iterator<T> iterator = iterator(currentBlock, axes);
+        while (iterator.hasNext()) {
+            if (!visitor.visit(iterator.next())) {
+                return false;
             }
         }
 
-        return newBlocks;
+        return true;
     }
 
-    // First block
+    // Index
 
     /**
-     * Get the first matched block in the provided {@link Axes}.
+     * Find the matched descendants of the passed block using the index of the document.
      *
-     * @param <T> the class of the Block to return
      * @param currentBlock the block to start searching from
-     * @param currentAxes indicate the search axes
-     * @return the matched {@link Block}, null if none was found
+     * @param axes the search axes
+     * @return the matched blocks, in no particular order, or {@code null} if the index can't be used
      */
-    public <T extends Block> T getFirstBlock(Block currentBlock, Axes currentAxes)
+    private List<IndexedBlock> getIndexedBlocks(Block currentBlock, Axes axes)
+    {
+        if (axes != Axes.DESCENDANT && axes != Axes.DESCENDANT_OR_SELF) {
+            return null;
+        }
+
+        Block root = currentBlock.getRoot();
+        XDOMIndex index = root instanceof XDOM ? ((XDOM) root).getIndex() : null;
+        Collection<Block> candidates = index != null ? this.matcher.getCandidates(index) : null;
+        if (candidates == null) {
+            return null;
+        }
+
+        List<IndexedBlock> blocks = new ArrayList<>();
+        Map<Block, Map<Block, Integer>> positions = new IdentityHashMap<>();
+        for (Block candidate : candidates) {
+            if ((axes == Axes.DESCENDANT_OR_SELF || candidate != currentBlock) && this.matcher.match(candidate)) {
+                int[] path = getPath(candidate, currentBlock, positions);
+                if (path != null) {
+                    blocks.add(new IndexedBlock(candidate, path));
+                }
+            }
+        }
+
+        return blocks;
+    }
+
+    /**
+     * @param block the block
+     * @param ancestor an ancestor of the block
+     * @param positions the positions of the children of the parents already met, indexed by parent
+     * @return the positions of the block and of its ancestors in their parent, starting from the passed ancestor, or
+     *         {@code null} if the block is not a descendant (or the block itself) of the passed ancestor
+     */
+    private static int[] getPath(Block block, Block ancestor, Map<Block, Map<Block, Integer>> positions)
+    {
+        int depth = 0;
+        for (Block current = block; current != ancestor; current = current.getParent()) {
+            if (current == null) {
+                return null;
+            }
+            ++depth;
+        }
+
+        int[] path = new int[depth];
+        Block current = block;
+        for (int i = depth - 1; i >= 0; --i) {
+            Block parent = current.getParent();
+            Integer position = getPositions(parent, positions).get(current);
+            if (position == null) {
+                // The block was not removed from its parent through the block methods
+                return null;
+            }
+            path[i] = position;
+            current = parent;
+        }
+
+        return path;
+    }
+
+    /**
+     * Index the children of a parent once, so that many candidates in a wide parent don't each search the children
+     * list.
+     */
+    private static Map<Block, Integer> getPositions(Block parent, Map<Block, Map<Block, Integer>> positions)
     {
-        Block block = currentBlock;
-        Axes axes = currentAxes;
-
-        while (block != null) {
-            Block nextBlock = null;
-            switch (axes) {
-            // SELF
-                case SELF:
-                    if (this.matcher.match(block)) {
-                        return (T) block;
-                    }
-                    break;
-                // ANCESTOR
-                case ANCESTOR_OR_SELF:
-                    if (this.matcher.match(block)) {
-                        return (T) block;
-                    }
-                case ANCESTOR:
-                case PARENT:
-                    axes = axes == Axes.PARENT ? Axes.SELF : Axes.ANCESTOR_OR_SELF;
-                    nextBlock = block.getParent();
-                    break;
-                // DESCENDANT
-                case CHILD:
-                    List<Block> children = block.getChildren();
-                    if (!children.isEmpty()) {
-                        nextBlock = children.get(0);
-                        axes = Axes.FOLLOWING_SIBLING;
-                        if (this.matcher.match(nextBlock)) {
-                            return (T) nextBlock;
-                        }
-                    }
-                    break;
-                case DESCENDANT_OR_SELF:
-                    if (this.matcher.match(block)) {
-                        return (T) block;
-                    }
-                case DESCENDANT:
-                    for (Block child : block.getChildren()) {
-                        Block matchedBlock = getFirstBlock(child, Axes.DESCENDANT_OR_SELF);
-                        if (matchedBlock != null) {
-                            return (T) matchedBlock;
-                        }
-                    }
-                    break;
-                // FOLLOWING
-                case FOLLOWING_SIBLING:
-                    nextBlock = block.getNextSibling();
-                    if (nextBlock != null && this.matcher.match(nextBlock)) {
-                        return (T) nextBlock;
-                    }
-                    break;
-                case FOLLOWING:
-                    for (Block nextSibling = block.getNextSibling(); nextSibling != null;
-                        nextSibling = nextSibling.getNextSibling()) {
-                        Block matchedBlock = getFirstBlock(nextSibling, Axes.DESCENDANT_OR_SELF);
-                        if (matchedBlock != null) {
-                            return (T) matchedBlock;
-                        }
-                    }
-                    break;
-                // PRECEDING
-                case PRECEDING_SIBLING:
-                    nextBlock = block.getPreviousSibling();
-                    if (nextBlock != null && this.matcher.match(nextBlock)) {
-                        return (T) nextBlock;
-                    }
-                    break;
-                case PRECEDING:
-                    for (Block previousSibling = block.getPreviousSibling(); previousSibling != null;
-                        previousSibling = previousSibling.getPreviousSibling()) {
-                        Block matchedBlock = getFirstBlock(previousSibling, Axes.DESCENDANT_OR_SELF);
-                        if (matchedBlock != null) {
-                            return (T) matchedBlock;
-                        }
-                    }
-                    break;
-                default:
-                    break;
+        Map<Block, Integer> parentPositions = positions.get(parent);
+        if (parentPositions == null) {
+            List<Block> children = parent.getChildren();
+            // Blocks are compared by identity since equals() compares their content
+            parentPositions = new IdentityHashMap<>(children.size());
+            for (int i = 0; i < children.size(); ++i) {
+                parentPositions.put(children.get(i), i);
             }
+            positions.put(parent, parentPositions);
+        }
+
+        return parentPositions;
+    }
+
+    /**
+     * A block found in the index, with its position in the document.
+     */
+    private static final class IndexedBlock implements Comparable<IndexedBlock>
+    {
+        private final Block block;
 
-            block = nextBlock;
+        private final int[] path;
+
+        IndexedBlock(Block block, int[] path)
+        {
+            this.block = block;
+            this.path = path;
         }
 
-        return (T) block;
+        /**
+         * Compare the positions of the blocks in document order, an ancestor coming before its descendants.
+         */
+        @Override
+        public int compareTo(IndexedBlock other)
+        {
+            int length = Math.min(this.path.length, other.path.length);
+            for (int i = 0; i < length; ++i) {
+                if (this.path[i] != other.path[i]) {
+                    return this.path[i] < other.path[i] ? -1 : 1;
+                }
+            }
+
+            return this.path.length - other.path.length;
+        }
     }
 }
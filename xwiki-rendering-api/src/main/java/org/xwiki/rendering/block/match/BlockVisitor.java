@@ -0,0 +1,41 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.block.match;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Called by {@link BlockNavigator#visit(Block, org.xwiki.rendering.block.Block.Axes, BlockVisitor)} for each matched
+ * {@link Block}, in the order of the search axes.
+ *
+ * @param <T> the class of the visited blocks
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public interface BlockVisitor<T extends Block>
+{
+    /**
+     * @param block the matched block
+     * @return true to continue with the next matched block, false to stop the search
+     */
+    boolean visit(T block);
+}
@@ -19,7 +19,10 @@
  */
 package org.xwiki.rendering.block.match;
 
+import java.util.Collection;
+
 import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOMIndex;
 
 /**
  * Implementation of {@link BlockMatcher} which match any {@link Block} with the provided class.
@@ -47,4 +50,15 @@ public boolean match(Block block)
     {
         return this.blockClass.isAssignableFrom(block.getClass());
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    public Collection<Block> getCandidates(XDOMIndex index)
+    {
+        return index.getBlocks(this.blockClass);
+    }
 }
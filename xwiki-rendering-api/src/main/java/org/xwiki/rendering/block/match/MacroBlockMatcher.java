@@ -19,8 +19,11 @@
  */
 package org.xwiki.rendering.block.match;
 
+import java.util.Collection;
+
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.XDOMIndex;
 
 /**
  * Implementation of {@link BlockMatcher} which matches {@link org.xwiki.rendering.block.MacroBlock}s.
@@ -51,4 +54,15 @@ public boolean match(Block block)
     {
         return super.match(block) && ((MacroBlock) block).getId().equals(this.macroId);
     }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    public Collection<Block> getCandidates(XDOMIndex index)
+    {
+        return index.getMacroBlocks(this.macroId);
+    }
 }
@@ -19,8 +19,11 @@
  */
 package org.xwiki.rendering.block.match;
 
+import java.util.Collection;
+
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.block.XDOMIndex;
 import org.xwiki.rendering.listener.MetaData;
 
 /**
@@ -71,6 +74,17 @@ public boolean match(Block block)
         return super.match(block) && matchMetadata(((MetaDataBlock) block).getMetaData());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 10.4RC1
+     */
+    @Override
+    public Collection<Block> getCandidates(XDOMIndex index)
+    {
+        return index.getMetaDataBlocks(this.metadataKey);
+    }
+
     /**
      * Matches the {@link MetaData} for provided key and value.
      *
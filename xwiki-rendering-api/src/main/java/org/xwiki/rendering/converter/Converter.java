@@ -24,6 +24,7 @@
 import org.xwiki.component.annotation.Role;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
 
 /**
  * Convert source content in a given Syntax to another Syntax.
@@ -45,4 +46,27 @@
      */
     void convert(Reader source, Syntax sourceSyntax, Syntax targetSyntax, WikiPrinter printer)
         throws ConversionException;
+
+    /**
+     * Converts content from a Syntax to another, optionally executing the registered Transformations on the parsed
+     * content. When no transformation needs to be executed the content can be streamed from the parser to the
+     * renderer without building the intermediate {@link org.xwiki.rendering.block.XDOM}, which allows converting
+     * large contents in constant memory.
+     * <p>
+     * The default implementation ignores the {@code transform} parameter and always executes the transformations.
+     *
+     * @param source the content to be converted
+     * @param sourceSyntax the Syntax in which the content is represented
+     * @param targetSyntax the Syntax to which to convert to
+     * @param printer the printer that will receive the result of the conversion
+     * @param transform true if the registered transformations should be executed, false otherwise
+     * @throws ConversionException in case of a conversion error (invalid Syntax, etc)
+     * @since 10.4RC1
+     */
+    @Unstable
+    default void convert(Reader source, Syntax sourceSyntax, Syntax targetSyntax, WikiPrinter printer,
+        boolean transform) throws ConversionException
+    {
+        convert(source, sourceSyntax, targetSyntax, printer);
+    }
 }
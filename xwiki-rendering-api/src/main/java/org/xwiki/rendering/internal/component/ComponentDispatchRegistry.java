@@ -0,0 +1,61 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.component;
+
+import java.lang.reflect.Type;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.component.manager.ComponentManager;
+
+/**
+ * Keep, for each role, a snapshot of the available implementations indexed by hint. Used to dispatch to the component
+ * matching a resource type scheme (type parsers, link and image type renderers, label generators, etc.) without
+ * asking the {@link ComponentManager} for each link or image.
+ * <p>
+ * The snapshots are invalidated when a component is registered or unregistered. Component managers which can't
+ * report these changes get live tables instead, which ask them each time.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Role
+public interface ComponentDispatchRegistry
+{
+    /**
+     * @param <T> the type of the components
+     * @param componentManager the component manager in which to look for the components
+     * @param role the role of the components
+     * @return the current snapshot of the components implementing the passed role, or a live table when the passed
+     *         component manager can't be snapshotted
+     */
+    <T> ComponentDispatchTable<T> getTable(ComponentManager componentManager, Type role);
+
+    /**
+     * Forget all the snapshots, so that the next calls to {@link #getTable(ComponentManager, Type)} take into account
+     * the current components.
+     */
+    void invalidate();
+
+    /**
+     * @return a number which changes each time the snapshots are invalidated, which allows other caches of objects
+     *         depending on the current components to know when they are outdated
+     */
+    long getGeneration();
+}
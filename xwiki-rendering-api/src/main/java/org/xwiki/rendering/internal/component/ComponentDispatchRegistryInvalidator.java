@@ -0,0 +1,68 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.component;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.event.ComponentDescriptorAddedEvent;
+import org.xwiki.component.event.ComponentDescriptorRemovedEvent;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+/**
+ * Invalidate the {@link ComponentDispatchRegistry} snapshots when a component is registered or unregistered.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Component
+@Named(ComponentDispatchRegistryInvalidator.NAME)
+@Singleton
+public class ComponentDispatchRegistryInvalidator extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "org.xwiki.rendering.internal.component.ComponentDispatchRegistryInvalidator";
+
+    /**
+     * Lazily loaded to avoid loading the registry before it's actually used.
+     */
+    @Inject
+    private Provider<ComponentDispatchRegistry> registryProvider;
+
+    /**
+     * Default constructor.
+     */
+    public ComponentDispatchRegistryInvalidator()
+    {
+        super(NAME, new ComponentDescriptorAddedEvent(), new ComponentDescriptorRemovedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        this.registryProvider.get().invalidate();
+    }
+}
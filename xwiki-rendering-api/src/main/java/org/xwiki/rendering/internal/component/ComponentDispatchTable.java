@@ -0,0 +1,170 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.component;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.xwiki.component.descriptor.ComponentDescriptor;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+
+/**
+ * The components implementing a given role in a given {@link ComponentManager}, indexed by hint. A snapshot table is
+ * an immutable copy of the registered descriptors in which singleton components are looked up only once. A live table
+ * asks the component manager each time, for component managers whose components can change without notice.
+ *
+ * @param <T> the type of the components
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public final class ComponentDispatchTable<T>
+{
+    private final ComponentManager componentManager;
+
+    private final Type role;
+
+    /**
+     * The descriptors indexed by hint, {@code null} for a live table.
+     */
+    private final Map<String, ComponentDescriptor<T>> descriptors;
+
+    private final ConcurrentMap<String, T> singletons;
+
+    /**
+     * Create a snapshot of the components currently registered.
+     *
+     * @param componentManager the component manager in which to look for the components
+     * @param role the role of the components
+     */
+    public ComponentDispatchTable(ComponentManager componentManager, Type role)
+    {
+        this(componentManager, role, index(componentManager.<T>getComponentDescriptorList(role)));
+    }
+
+    private ComponentDispatchTable(ComponentManager componentManager, Type role,
+        Map<String, ComponentDescriptor<T>> descriptors)
+    {
+        this.componentManager = componentManager;
+        this.role = role;
+        this.descriptors = descriptors;
+        this.singletons = descriptors != null ? new ConcurrentHashMap<String, T>() : null;
+    }
+
+    /**
+     * @param <T> the type of the components
+     * @param componentManager the component manager in which to look for the components
+     * @param role the role of the components
+     * @return a table looking up the components in the passed component manager each time
+     */
+    public static <T> ComponentDispatchTable<T> live(ComponentManager componentManager, Type role)
+    {
+        return new ComponentDispatchTable<>(componentManager, role, null);
+    }
+
+    /**
+     * @return true if this table asks the component manager each time, false if it's a snapshot
+     */
+    public boolean isLive()
+    {
+        return this.descriptors == null;
+    }
+
+    /**
+     * @param hint the hint of the component
+     * @return true if a component is registered with the passed hint
+     */
+    public boolean hasComponent(String hint)
+    {
+        if (isLive()) {
+            return this.componentManager.hasComponent(this.role, hint);
+        }
+
+        return this.descriptors.containsKey(hint);
+    }
+
+    /**
+     * @param hint the hint of the component
+     * @return true if the component registered with the passed hint is a singleton, in which case the instance
+     *         returned by {@link #getInstance(String)} is always the same
+     */
+    public boolean isSingleton(String hint)
+    {
+        ComponentDescriptor<T> descriptor = getDescriptor(hint);
+
+        return descriptor != null
+            && descriptor.getInstantiationStrategy() == ComponentInstantiationStrategy.SINGLETON;
+    }
+
+    /**
+     * @param hint the hint of the component
+     * @return the component registered with the passed hint or {@code null} if there is none
+     * @throws ComponentLookupException when the component failed to be initialized
+     */
+    public T getInstance(String hint) throws ComponentLookupException
+    {
+        if (isLive()) {
+            return hasComponent(hint) ? this.componentManager.<T>getInstance(this.role, hint) : null;
+        }
+
+        ComponentDescriptor<T> descriptor = this.descriptors.get(hint);
+
+        if (descriptor == null) {
+            return null;
+        }
+
+        if (descriptor.getInstantiationStrategy() != ComponentInstantiationStrategy.SINGLETON) {
+            return this.componentManager.getInstance(this.role, hint);
+        }
+
+        T instance = this.singletons.get(hint);
+        if (instance == null) {
+            instance = this.componentManager.getInstance(this.role, hint);
+            this.singletons.put(hint, instance);
+        }
+
+        return instance;
+    }
+
+    private ComponentDescriptor<T> getDescriptor(String hint)
+    {
+        if (isLive()) {
+            return this.componentManager.getComponentDescriptor(this.role, hint);
+        }
+
+        return this.descriptors.get(hint);
+    }
+
+    private static <T> Map<String, ComponentDescriptor<T>> index(List<ComponentDescriptor<T>> descriptorList)
+    {
+        Map<String, ComponentDescriptor<T>> map = new HashMap<>(descriptorList.size() * 2);
+        for (ComponentDescriptor<T> descriptor : descriptorList) {
+            map.put(descriptor.getRoleHint(), descriptor);
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+}
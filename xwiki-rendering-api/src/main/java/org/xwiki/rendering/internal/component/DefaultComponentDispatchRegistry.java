@@ -0,0 +1,97 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.component;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentManager;
+
+/**
+ * Default implementation of {@link ComponentDispatchRegistry}.
+ * <p>
+ * Snapshots are only kept for the component manager in which this registry is registered, and only when that
+ * component manager sends events when its components change, since the snapshots are dropped on these events. Any
+ * other component manager (like the context one, whose components depend on the current wiki, user, etc.) gets a live
+ * table.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Component
+@Singleton
+public class DefaultComponentDispatchRegistry implements ComponentDispatchRegistry
+{
+    /**
+     * The component manager owning the components of the snapshots.
+     */
+    @Inject
+    private ComponentManager componentManager;
+
+    /**
+     * The snapshots indexed by role, replaced by a new empty map when invalidated so that a snapshot computed
+     * concurrently with the invalidation is not kept.
+     */
+    private volatile ConcurrentMap<Type, ComponentDispatchTable<?>> tables = new ConcurrentHashMap<>();
+
+    /**
+     * @see #getGeneration()
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> ComponentDispatchTable<T> getTable(ComponentManager componentManager, Type role)
+    {
+        if (componentManager != this.componentManager || componentManager.getComponentEventManager() == null) {
+            // Nothing would tell when a snapshot becomes outdated
+            return ComponentDispatchTable.live(componentManager, role);
+        }
+
+        ConcurrentMap<Type, ComponentDispatchTable<?>> currentTables = this.tables;
+
+        ComponentDispatchTable<T> table = (ComponentDispatchTable<T>) currentTables.get(role);
+        if (table == null) {
+            table = new ComponentDispatchTable<>(componentManager, role);
+            currentTables.put(role, table);
+        }
+
+        return table;
+    }
+
+    @Override
+    public void invalidate()
+    {
+        this.tables = new ConcurrentHashMap<>();
+        this.generation.incrementAndGet();
+    }
+
+    @Override
+    public long getGeneration()
+    {
+        return this.generation.get();
+    }
+}
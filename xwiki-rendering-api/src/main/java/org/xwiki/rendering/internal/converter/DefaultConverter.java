@@ -19,6 +19,8 @@
  */
 package org.xwiki.rendering.internal.converter;
 
+import java.io.Flushable;
+import java.io.IOException;
 import java.io.Reader;
 
 import javax.inject.Inject;
@@ -30,19 +32,31 @@
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.configuration.RenderingConfiguration;
 import org.xwiki.rendering.converter.ConversionException;
 import org.xwiki.rendering.converter.Converter;
+import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.parser.ParseException;
 import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.parser.StreamParser;
 import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.Transformation;
 import org.xwiki.rendering.transformation.TransformationContext;
 import org.xwiki.rendering.transformation.TransformationException;
 import org.xwiki.rendering.transformation.TransformationManager;
 
 /**
  * Default implementation for {@link Converter}.
+ * <p>
+ * When a {@link StreamParser} and a {@link PrintRendererFactory} are available for the source and target syntaxes and
+ * there's no transformation to execute (none is configured or the caller asked to not execute them) or all of them can
+ * be executed on a stream of events (see {@link TransformationManager#createStreamingListener(Listener,
+ * TransformationContext)}), the parser events are sent directly to the renderer instead of building a {@link XDOM}
+ * first.
  *
  * @version $Id$
  */
@@ -63,14 +77,41 @@ public class DefaultConverter implements Converter
     @Inject
     private TransformationManager transformationManager;
 
+    /**
+     * Used to know if there's any transformation to execute.
+     */
+    @Inject
+    private RenderingConfiguration configuration;
+
     @Override
     public void convert(Reader source, Syntax sourceSyntax, Syntax targetSyntax, WikiPrinter printer)
         throws ConversionException
+    {
+        convert(source, sourceSyntax, targetSyntax, printer, true);
+    }
+
+    @Override
+    public void convert(Reader source, Syntax sourceSyntax, Syntax targetSyntax, WikiPrinter printer,
+        boolean transform) throws ConversionException
+    {
+        ComponentManager componentManager = this.componentManagerProvider.get();
+
+        boolean runTransformations = transform && hasTransformations(componentManager);
+
+        if (!componentManager.hasComponent(StreamParser.class, sourceSyntax.toIdString())
+            || !componentManager.hasComponent(PrintRendererFactory.class, targetSyntax.toIdString())
+            || !stream(source, sourceSyntax, targetSyntax, printer, runTransformations, componentManager)) {
+            convert(source, sourceSyntax, targetSyntax, printer, runTransformations, componentManager);
+        }
+    }
+
+    private void convert(Reader source, Syntax sourceSyntax, Syntax targetSyntax, WikiPrinter printer,
+        boolean transform, ComponentManager componentManager) throws ConversionException
     {
         // Step 1: Find the parser and generate a XDOM
         XDOM xdom;
         try {
-            Parser parser = this.componentManagerProvider.get().getInstance(Parser.class, sourceSyntax.toIdString());
+            Parser parser = componentManager.getInstance(Parser.class, sourceSyntax.toIdString());
             xdom = parser.parse(source);
         } catch (ComponentLookupException e) {
             throw new ConversionException("Failed to locate Parser for syntax [" + sourceSyntax + "]", e);
@@ -79,21 +120,94 @@ public void convert(Reader source, Syntax sourceSyntax, Syntax targetSyntax, Wik
         }
 
         // Step 2: Run transformations
-        try {
-            TransformationContext context = new TransformationContext(xdom, sourceSyntax);
-            context.setTargetSyntax(targetSyntax);
-            this.transformationManager.performTransformations(xdom, context);
-        } catch (TransformationException e) {
-            throw new ConversionException("Failed to execute some transformations", e);
+        if (transform) {
+            try {
+                TransformationContext context = new TransformationContext(xdom, sourceSyntax);
+                context.setTargetSyntax(targetSyntax);
+                this.transformationManager.performTransformations(xdom, context);
+            } catch (TransformationException e) {
+                throw new ConversionException("Failed to execute some transformations", e);
+            }
         }
 
         // Step 3: Locate the Renderer and render the content in the passed printer
         BlockRenderer renderer;
         try {
-            renderer = this.componentManagerProvider.get().getInstance(BlockRenderer.class, targetSyntax.toIdString());
+            renderer = componentManager.getInstance(BlockRenderer.class, targetSyntax.toIdString());
         } catch (ComponentLookupException e) {
             throw new ConversionException("Failed to locate Renderer for syntax [" + targetSyntax + "]", e);
         }
         renderer.render(xdom, printer);
     }
+
+    /**
+     * @return false if some of the transformations to execute can't be executed on a stream of events, in which case
+     *         nothing has been read from the source
+     */
+    private boolean stream(Reader source, Syntax sourceSyntax, Syntax targetSyntax, WikiPrinter printer,
+        boolean transform, ComponentManager componentManager) throws ConversionException
+    {
+        PrintRendererFactory rendererFactory;
+        PrintRenderer renderer;
+        try {
+            rendererFactory = componentManager.getInstance(PrintRendererFactory.class, targetSyntax.toIdString());
+            renderer = rendererFactory.createRenderer(printer);
+        } catch (ComponentLookupException e) {
+            throw new ConversionException("Failed to locate Renderer for syntax [" + targetSyntax + "]", e);
+        }
+
+        Listener listener = renderer;
+        if (transform) {
+            TransformationContext context = new TransformationContext();
+            context.setSyntax(sourceSyntax);
+            context.setTargetSyntax(targetSyntax);
+            listener = this.transformationManager.createStreamingListener(renderer, context);
+
+            if (listener == null) {
+                // At least one of the transformations needs the whole XDOM
+                rendererFactory.releaseRenderer(renderer);
+
+                return false;
+            }
+        }
+
+        StreamParser parser;
+        try {
+            parser = componentManager.getInstance(StreamParser.class, sourceSyntax.toIdString());
+        } catch (ComponentLookupException e) {
+            throw new ConversionException("Failed to locate Stream Parser for syntax [" + sourceSyntax + "]", e);
+        }
+
+        try {
+            parser.parse(source, listener);
+        } catch (ParseException e) {
+            throw new ConversionException("Failed to parse input source", e);
+        }
+
+        if (renderer instanceof Flushable) {
+            try {
+                ((Flushable) renderer).flush();
+            } catch (IOException e) {
+                throw new ConversionException("Failed to flush renderer [" + renderer + "]", e);
+            }
+        }
+
+        rendererFactory.releaseRenderer(renderer);
+
+        return true;
+    }
+
+    /**
+     * @return true if at least one of the configured transformations is available
+     */
+    private boolean hasTransformations(ComponentManager componentManager)
+    {
+        for (String hint : this.configuration.getTransformationNames()) {
+            if (componentManager.hasComponent(Transformation.class, hint)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
 }
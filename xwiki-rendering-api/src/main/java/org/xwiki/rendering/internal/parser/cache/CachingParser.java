@@ -0,0 +1,113 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.cache;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * {@link Parser} looking in a {@link XDOMCache} before delegating the parsing to the wrapped parser. The cache key is
+ * made of the syntax of the parser and of a digest of the parsed content.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class CachingParser implements Parser
+{
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Parser parser;
+
+    private final XDOMCache cache;
+
+    /**
+     * @param parser the parser to use when the content is not in the cache
+     * @param cache the cache where to store the parsed contents
+     */
+    public CachingParser(Parser parser, XDOMCache cache)
+    {
+        this.parser = parser;
+        this.cache = cache;
+    }
+
+    @Override
+    public Syntax getSyntax()
+    {
+        return this.parser.getSyntax();
+    }
+
+    @Override
+    public XDOM parse(Reader source) throws ParseException
+    {
+        String content = read(source);
+        String key = getKey(content);
+
+        XDOM xdom = this.cache.get(key);
+
+        if (xdom == null) {
+            xdom = this.parser.parse(new StringReader(content));
+
+            this.cache.put(key, xdom, content.length());
+        }
+
+        return xdom;
+    }
+
+    private String getKey(String content) throws ParseException
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new ParseException("Failed to compute the cache key of the content to parse", e);
+        }
+
+        byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+
+        return getSyntax().toIdString() + '/' + Base64.getEncoder().encodeToString(hash);
+    }
+
+    private String read(Reader source) throws ParseException
+    {
+        StringBuilder builder = new StringBuilder();
+        char[] buffer = new char[BUFFER_SIZE];
+        try {
+            for (int length = source.read(buffer); length != -1; length = source.read(buffer)) {
+                builder.append(buffer, 0, length);
+            }
+        } catch (IOException e) {
+            throw new ParseException("Failed to read the content to parse", e);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.cache;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.parser.CachingParserFactory;
+import org.xwiki.rendering.parser.Parser;
+
+/**
+ * Default implementation of {@link CachingParserFactory}, keeping by default up to {@value #DEFAULT_MAX_ENTRIES}
+ * parsed contents for a maximum total of {@value #DEFAULT_MAX_WEIGHT} parsed characters.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Component
+@Singleton
+public class DefaultCachingParserFactory implements CachingParserFactory
+{
+    /**
+     * The default maximum number of parsed contents to keep.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /**
+     * The default maximum total size (in characters) of the parsed contents to keep.
+     */
+    public static final long DEFAULT_MAX_WEIGHT = 10000000L;
+
+    /**
+     * Used to lookup the parsers to wrap.
+     */
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    private final XDOMCache cache = new XDOMCache(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+
+    @Override
+    public Parser createParser(String hint) throws ComponentLookupException
+    {
+        return createParser(this.componentManagerProvider.get().<Parser>getInstance(Parser.class, hint));
+    }
+
+    @Override
+    public Parser createParser(Parser parser)
+    {
+        return new CachingParser(parser, this.cache);
+    }
+
+    @Override
+    public long getHitCount()
+    {
+        return this.cache.getHitCount();
+    }
+
+    @Override
+    public long getMissCount()
+    {
+        return this.cache.getMissCount();
+    }
+
+    @Override
+    public long getEvictionCount()
+    {
+        return this.cache.getEvictionCount();
+    }
+
+    @Override
+    public void clear()
+    {
+        this.cache.clear();
+    }
+
+    /**
+     * Change the number of parsed contents shared by the created parsers. The least recently used ones are evicted
+     * right away when the cache holds more.
+     *
+     * @param maxEntries the maximum number of parsed contents to keep
+     */
+    public void setMaxEntries(int maxEntries)
+    {
+        this.cache.setMaxEntries(maxEntries);
+    }
+
+    /**
+     * Change the total size of the parsed contents shared by the created parsers. The least recently used ones are
+     * evicted right away when the cache holds more.
+     *
+     * @param maxWeight the maximum total size (in characters) of the parsed contents to keep
+     */
+    public void setMaxWeight(long maxWeight)
+    {
+        this.cache.setMaxWeight(maxWeight);
+    }
+}
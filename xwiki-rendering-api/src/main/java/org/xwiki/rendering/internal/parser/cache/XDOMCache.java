@@ -0,0 +1,207 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.util.IdGenerator;
+
+/**
+ * Least recently used cache of parsed {@link XDOM}s, bounded both by number of entries and by total weight (the size of
+ * the parsed contents).
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class XDOMCache
+{
+    private static class Entry
+    {
+        private final XDOM xdom;
+
+        private final long weight;
+
+        Entry(XDOM xdom, long weight)
+        {
+            this.xdom = xdom;
+            this.weight = weight;
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+
+    private int maxEntries;
+
+    private long maxWeight;
+
+    private long weight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * @param maxEntries the maximum number of {@link XDOM}s to keep
+     * @param maxWeight the maximum total weight of the {@link XDOM}s to keep
+     */
+    public XDOMCache(int maxEntries, long maxWeight)
+    {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @param key the key of the parsed content
+     * @return a copy of the cached {@link XDOM} or null if it's not in the cache
+     */
+    public XDOM get(String key)
+    {
+        Entry entry;
+        synchronized (this) {
+            entry = this.entries.get(key);
+        }
+
+        if (entry == null) {
+            this.missCount.incrementAndGet();
+
+            return null;
+        }
+
+        this.hitCount.incrementAndGet();
+
+        return copy(entry.xdom);
+    }
+
+    /**
+     * @param key the key of the parsed content
+     * @param xdom the result of the parsing, the cache keeps a copy so the passed instance can be modified afterward
+     * @param xdomWeight the weight of the {@link XDOM} (usually the size of the parsed content)
+     */
+    public void put(String key, XDOM xdom, long xdomWeight)
+    {
+        if (xdomWeight > this.maxWeight) {
+            // Too big to be cached
+            return;
+        }
+
+        Entry entry = new Entry(copy(xdom), xdomWeight);
+
+        synchronized (this) {
+            Entry previous = this.entries.put(key, entry);
+            if (previous != null) {
+                this.weight -= previous.weight;
+            }
+            this.weight += xdomWeight;
+
+            evict();
+        }
+    }
+
+    /**
+     * Remove all the entries.
+     */
+    public synchronized void clear()
+    {
+        this.entries.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * @param maxEntries the maximum number of {@link XDOM}s to keep
+     */
+    public synchronized void setMaxEntries(int maxEntries)
+    {
+        this.maxEntries = maxEntries;
+
+        evict();
+    }
+
+    /**
+     * @param maxWeight the maximum total weight of the {@link XDOM}s to keep
+     */
+    public synchronized void setMaxWeight(long maxWeight)
+    {
+        this.maxWeight = maxWeight;
+
+        evict();
+    }
+
+    /**
+     * @return the number of entries currently in the cache
+     */
+    public synchronized int size()
+    {
+        return this.entries.size();
+    }
+
+    /**
+     * @return the number of times a {@link XDOM} was found in the cache
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of times a {@link XDOM} was not found in the cache
+     */
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
+    /**
+     * @return the number of {@link XDOM}s removed from the cache to make room for new ones
+     */
+    public long getEvictionCount()
+    {
+        return this.evictionCount.get();
+    }
+
+    private void evict()
+    {
+        Iterator<Entry> iterator = this.entries.values().iterator();
+        while ((this.entries.size() > this.maxEntries || this.weight > this.maxWeight) && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            this.weight -= eldest.weight;
+            this.evictionCount.incrementAndGet();
+        }
+    }
+
+    private XDOM copy(XDOM xdom)
+    {
+        XDOM clone = xdom.clone();
+
+        // XDOM#clone() does not duplicate the id generator and we don't want the ids generated while transforming the
+        // returned XDOM to leak in the cached one
+        if (xdom.getIdGenerator() != null) {
+            clone.setIdGenerator(new IdGenerator(xdom.getIdGenerator()));
+        }
+
+        return clone;
+    }
+}
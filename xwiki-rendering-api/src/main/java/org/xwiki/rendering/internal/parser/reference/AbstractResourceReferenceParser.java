@@ -25,7 +25,9 @@
 
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.internal.component.ComponentDispatchRegistry;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
+import org.xwiki.rendering.parser.ResourceReferenceTypeParser;
 import org.xwiki.rendering.wiki.WikiModel;
 
 /**
@@ -44,6 +46,12 @@ public abstract class AbstractResourceReferenceParser implements ResourceReferen
     @Named("context")
     protected Provider<ComponentManager> componentManagerProvider;
 
+    /**
+     * Used to find the resource reference type parsers without looking them up for each reference.
+     */
+    @Inject
+    private ComponentDispatchRegistry dispatchRegistry;
+
     /**
      * @return true if we're in wiki mode (i.e. an implementing class for {@link org.xwiki.rendering.wiki.WikiModel}
      *         exists)
@@ -59,4 +67,16 @@ protected boolean isInWikiMode()
 
         return result;
     }
+
+    /**
+     * @param type the resource type scheme (e.g. "mailto")
+     * @return the resource reference type parser registered for the passed type or {@code null} if there is none
+     * @throws ComponentLookupException when the parser failed to be initialized
+     * @since 10.4RC1
+     */
+    protected ResourceReferenceTypeParser getResourceReferenceTypeParser(String type) throws ComponentLookupException
+    {
+        return this.dispatchRegistry.<ResourceReferenceTypeParser>getTable(this.componentManagerProvider.get(),
+            ResourceReferenceTypeParser.class).getInstance(type);
+    }
 }
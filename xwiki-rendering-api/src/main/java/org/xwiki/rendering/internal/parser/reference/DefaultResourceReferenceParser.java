@@ -28,7 +28,6 @@
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
-import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
 import org.xwiki.rendering.parser.ResourceReferenceTypeParser;
@@ -88,15 +87,13 @@ public ResourceReference parse(String rawReference)
             String typePrefix = rawReference.substring(0, pos);
             String reference = rawReference.substring(pos + 1);
 
-            ComponentManager componentManager = this.componentManagerProvider.get();
-            if (componentManager.hasComponent(ResourceReferenceTypeParser.class, typePrefix)) {
-                try {
-                    ResourceReferenceTypeParser parser =
-                        componentManager.getInstance(ResourceReferenceTypeParser.class, typePrefix);
+            try {
+                ResourceReferenceTypeParser parser = getResourceReferenceTypeParser(typePrefix);
+                if (parser != null) {
                     parsedResourceReference = parser.parse(reference);
-                } catch (ComponentLookupException e) {
-                    this.logger.error("Failed to initialize resource type parser", e);
                 }
+            } catch (ComponentLookupException e) {
+                this.logger.error("Failed to initialize resource type parser", e);
             }
         }
 
@@ -211,11 +211,9 @@ private ResourceReference parseURILinks(String rawLink)
             String reference = rawLink.substring(uriSchemeDelimiterPos + 1);
             if (getAllowedURIPrefixes().contains(scheme)) {
                 try {
-                    ResourceReferenceTypeParser parser =
-                        this.componentManagerProvider.get().getInstance(ResourceReferenceTypeParser.class, scheme);
-                    ResourceReference resourceReference = parser.parse(reference);
-                    if (resourceReference != null) {
-                        result = resourceReference;
+                    ResourceReferenceTypeParser parser = getResourceReferenceTypeParser(scheme);
+                    if (parser != null) {
+                        result = parser.parse(reference);
                     }
                 } catch (ComponentLookupException e) {
                     // Failed to lookup component, this shouldn't happen but ignore it.
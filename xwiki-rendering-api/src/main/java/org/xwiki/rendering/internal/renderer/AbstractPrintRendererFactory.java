@@ -19,41 +19,160 @@
  */
 package org.xwiki.rendering.internal.renderer;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.inject.Inject;
 
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.internal.component.ComponentDispatchRegistry;
 import org.xwiki.rendering.renderer.PrintRenderer;
 import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.Resettable;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 
 /**
  * Common code for {@link org.xwiki.rendering.renderer.PrintRendererFactory}, implements the logic to lookup and call
  * the matching Print Renderer.
+ * <p>
+ * Released renderers which are {@link Resettable} are kept in a small per thread pool and reused by the next calls to
+ * {@link #createRenderer(WikiPrinter)} made by the same thread, which avoids instantiating and injecting the whole
+ * component graph of the renderer each time. The pooled renderers hold the components injected when they were
+ * created, so the pools are emptied when a component is registered or unregistered, and nothing is pooled when the
+ * component manager doesn't report these changes. A pool keeps a few renderers for as long as its
+ * thread lives (or until the next component change), which matters for long lived threads like the ones of a server
+ * or of an executor.
  *
  * @version $Id$
  * @since 2.0M3
  */
 public abstract class AbstractPrintRendererFactory implements PrintRendererFactory
 {
+    /**
+     * The maximum number of released renderers kept for each thread.
+     */
+    private static final int POOL_SIZE = 4;
+
     /**
      * Used to lookup the {@link PrintRenderer}.
      */
     @Inject
     private ComponentManager componentManager;
 
+    /**
+     * Used to know when the components change.
+     */
+    @Inject
+    private ComponentDispatchRegistry componentRegistry;
+
+    /**
+     * The released renderers available for reuse, per thread.
+     */
+    private final ThreadLocal<RendererPool> pool = new ThreadLocal<RendererPool>()
+    {
+        @Override
+        protected RendererPool initialValue()
+        {
+            return new RendererPool();
+        }
+    };
+
+    private final AtomicLong poolHits = new AtomicLong();
+
+    private final AtomicLong poolMisses = new AtomicLong();
+
     @Override
     public PrintRenderer createRenderer(WikiPrinter printer)
     {
-        PrintRenderer renderer;
-        try {
-            renderer = this.componentManager.getInstance(PrintRenderer.class, getSyntax().toIdString());
-        } catch (ComponentLookupException e) {
-            throw new RuntimeException("Failed to create [" + getSyntax().toString() + "] renderer", e);
+        PrintRenderer renderer = getRenderers().poll();
+
+        if (renderer != null) {
+            this.poolHits.incrementAndGet();
+        } else {
+            this.poolMisses.incrementAndGet();
+
+            try {
+                renderer = this.componentManager.getInstance(PrintRenderer.class, getSyntax().toIdString());
+            } catch (ComponentLookupException e) {
+                throw new RuntimeException("Failed to create [" + getSyntax().toString() + "] renderer", e);
+            }
         }
 
         renderer.setPrinter(printer);
 
         return renderer;
     }
+
+    @Override
+    public void releaseRenderer(PrintRenderer renderer)
+    {
+        if (this.componentManager.getComponentEventManager() == null) {
+            // Nothing would tell when the renderer becomes outdated
+            return;
+        }
+
+        RendererPool rendererPool = this.pool.get();
+        if (rendererPool.generation != this.componentRegistry.getGeneration()) {
+            // The components changed since the pool was last used, possibly after the renderer was created
+            getRenderers();
+            return;
+        }
+
+        Deque<PrintRenderer> renderers = rendererPool.renderers;
+        if (renderers.size() < POOL_SIZE && renderer instanceof Resettable && !renderers.contains(renderer)
+            && ((Resettable) renderer).reset()) {
+            renderers.push(renderer);
+        }
+    }
+
+    /**
+     * @return the number of renderers which have been reused from the pool instead of being created
+     * @since 10.4RC1
+     */
+    public long getPoolHits()
+    {
+        return this.poolHits.get();
+    }
+
+    /**
+     * @return the number of renderers which had to be created because no released renderer was available
+     * @since 10.4RC1
+     */
+    public long getPoolMisses()
+    {
+        return this.poolMisses.get();
+    }
+
+    /**
+     * @return the released renderers of the current thread, emptied first if the components changed since they were
+     *         released
+     */
+    private Deque<PrintRenderer> getRenderers()
+    {
+        RendererPool rendererPool = this.pool.get();
+
+        long generation = this.componentRegistry.getGeneration();
+        if (rendererPool.generation != generation) {
+            rendererPool.renderers.clear();
+            rendererPool.generation = generation;
+        }
+
+        return rendererPool.renderers;
+    }
+
+    /**
+     * The released renderers of a thread.
+     */
+    private static final class RendererPool
+    {
+        private final Deque<PrintRenderer> renderers = new ArrayDeque<>(POOL_SIZE);
+
+        /**
+         * The {@link ComponentDispatchRegistry#getGeneration() generation} of the components when the renderers were
+         * released.
+         */
+        private long generation;
+    }
 }
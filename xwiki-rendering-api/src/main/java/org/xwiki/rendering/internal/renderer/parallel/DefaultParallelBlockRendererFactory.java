@@ -0,0 +1,71 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.parallel;
+
+import java.util.concurrent.ForkJoinPool;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.ParallelBlockRendererFactory;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+
+/**
+ * Default implementation of {@link ParallelBlockRendererFactory}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Component
+@Singleton
+public class DefaultParallelBlockRendererFactory implements ParallelBlockRendererFactory
+{
+    /**
+     * Used to lookup the print renderer factories.
+     */
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Override
+    public BlockRenderer createRenderer(String hint) throws ComponentLookupException
+    {
+        return createRenderer(
+            this.componentManagerProvider.get().<PrintRendererFactory>getInstance(PrintRendererFactory.class, hint));
+    }
+
+    @Override
+    public BlockRenderer createRenderer(PrintRendererFactory printRendererFactory)
+    {
+        return createRenderer(printRendererFactory, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public BlockRenderer createRenderer(PrintRendererFactory printRendererFactory, ForkJoinPool pool)
+    {
+        return new ParallelBlockRenderer(printRendererFactory, pool);
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.parallel;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.xwiki.rendering.block.AbstractBlock;
+import org.xwiki.rendering.block.AbstractMacroBlock;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.EmptyLinesBlock;
+import org.xwiki.rendering.block.FigureBlock;
+import org.xwiki.rendering.block.GroupBlock;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.HorizontalLineBlock;
+import org.xwiki.rendering.block.ListBLock;
+import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.QuotationBlock;
+import org.xwiki.rendering.block.SectionBlock;
+import org.xwiki.rendering.block.TableBlock;
+import org.xwiki.rendering.block.VerbatimBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+/**
+ * Render the children of the passed blocks concurrently, see
+ * {@link org.xwiki.rendering.renderer.ParallelBlockRendererFactory}.
+ * <p>
+ * When there's a single block to render and it's a {@link XDOM} or a {@link MetaDataBlock}, its children are rendered
+ * instead (and so on) so that the content wrapped in these blocks is rendered concurrently too.
+ * <p>
+ * Only top-level blocks (blocks whose ancestors are all {@link XDOM}s or {@link MetaDataBlock}s) are split. The state
+ * of a renderer at the start of a list item, a table row, a quotation line, etc. depends on all the previous items
+ * (their index is counted), not only on the previous one, so these are always rendered sequentially.
+ * <p>
+ * The blocks are only split between two standalone blocks (paragraphs, lists, tables, etc.): the state of a renderer
+ * between inline blocks (pending spaces, unclosed elements, etc.) isn't rebuilt by rendering only the previous
+ * sibling.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class ParallelBlockRenderer implements BlockRenderer
+{
+    /**
+     * The minimum number of blocks to render in each task. Below that the cost of rendering the previous sibling of the
+     * first block (to initialize the state of the renderer) becomes noticeable.
+     */
+    private static final int MINIMUM_BLOCKS_PER_TASK = 8;
+
+    /**
+     * The number of tasks to create for each thread of the pool, to balance blocks of different sizes.
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final PrintRendererFactory printRendererFactory;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * @param printRendererFactory the factory used to create the renderers
+     * @param pool the pool in which to render the blocks
+     */
+    public ParallelBlockRenderer(PrintRendererFactory printRendererFactory, ForkJoinPool pool)
+    {
+        this.printRendererFactory = printRendererFactory;
+        this.pool = pool;
+    }
+
+    @Override
+    public void render(Block block, WikiPrinter printer)
+    {
+        render(Collections.singletonList(block), printer);
+    }
+
+    @Override
+    public void render(Collection<Block> blocks, WikiPrinter printer)
+    {
+        // Find the blocks to split
+        List<AbstractBlock> ancestors = new ArrayList<>();
+        List<Block> children = new ArrayList<>(blocks);
+        while (children.size() == 1 && isTransparent(children.get(0))
+            && !children.get(0).getChildren().isEmpty()) {
+            AbstractBlock ancestor = (AbstractBlock) children.get(0);
+            ancestors.add(ancestor);
+            children = ancestor.getChildren();
+        }
+
+        List<Integer> splitPoints = Collections.emptyList();
+        if (isTopLevel(blocks)) {
+            int taskCount = Math.min(children.size() / MINIMUM_BLOCKS_PER_TASK, this.pool.getParallelism()
+                * TASKS_PER_THREAD);
+            splitPoints = getSplitPoints(children, taskCount);
+        }
+
+        // Render sequentially when there's less than two tasks
+        if (splitPoints.size() < 3) {
+            PrintRenderer renderer = this.printRendererFactory.createRenderer(printer);
+            try {
+                for (Block block : blocks) {
+                    block.traverse(renderer);
+                }
+                flush(renderer);
+            } finally {
+                this.printRendererFactory.releaseRenderer(renderer);
+            }
+        } else {
+            render(ancestors, children, splitPoints, printer);
+        }
+    }
+
+    /**
+     * @param children the blocks to split
+     * @param taskCount the number of tasks wanted
+     * @return the indexes at which the blocks are split, starting with 0 and ending with the number of blocks
+     */
+    private static List<Integer> getSplitPoints(List<Block> children, int taskCount)
+    {
+        List<Integer> splitPoints = new ArrayList<>(taskCount + 1);
+        splitPoints.add(0);
+        int index = 0;
+        for (int i = 1; i < taskCount; ++i) {
+            // Move the split point forward until it's between two standalone blocks
+            index = Math.max(index + 1, i * children.size() / taskCount);
+            while (index < children.size()
+                && !(isStandalone(children.get(index - 1)) && isStandalone(children.get(index)))) {
+                ++index;
+            }
+            if (index >= children.size()) {
+                break;
+            }
+            splitPoints.add(index);
+        }
+        splitPoints.add(children.size());
+
+        return splitPoints;
+    }
+
+    private void render(List<AbstractBlock> ancestors, List<Block> children, List<Integer> splitPoints,
+        WikiPrinter printer)
+    {
+        int taskCount = splitPoints.size() - 1;
+        // Create the renderers in the current thread since the lookup of components is not always thread safe
+        List<RecordingWikiPrinter> printers = new ArrayList<>(taskCount);
+        List<PrintRenderer> renderers = new ArrayList<>(taskCount);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(taskCount);
+        try {
+            for (int i = 0; i < taskCount; ++i) {
+                int start = splitPoints.get(i);
+                int end = splitPoints.get(i + 1);
+
+                RecordingWikiPrinter taskPrinter = new RecordingWikiPrinter();
+                printers.add(taskPrinter);
+                PrintRenderer renderer = this.printRendererFactory.createRenderer(taskPrinter);
+                renderers.add(renderer);
+                tasks.add(
+                    this.pool.submit(new RenderingTask(ancestors, children, start, end, renderer, taskPrinter)));
+            }
+
+            // Print the rendered blocks in document order
+            for (int i = 0; i < taskCount; ++i) {
+                tasks.get(i).join();
+                printers.get(i).replay(printer);
+            }
+        } finally {
+            // A renderer can only be released once its task is over, even when another task failed
+            for (ForkJoinTask<?> task : tasks) {
+                task.quietlyJoin();
+            }
+            for (PrintRenderer renderer : renderers) {
+                this.printRendererFactory.releaseRenderer(renderer);
+            }
+        }
+    }
+
+    /**
+     * @param block a block
+     * @return true if the state of the renderer at the start of the children of the block only depends on the
+     *         previous sibling
+     */
+    private static boolean isTransparent(Block block)
+    {
+        return block instanceof XDOM || block instanceof MetaDataBlock;
+    }
+
+    /**
+     * @param block a block
+     * @return true if the block is a standalone block, i.e. the state of the renderer is the same before and after it
+     *         whatever its content
+     */
+    private static boolean isStandalone(Block block)
+    {
+        if (block instanceof AbstractMacroBlock) {
+            return !((AbstractMacroBlock) block).isInline();
+        } else if (block instanceof VerbatimBlock) {
+            return !((VerbatimBlock) block).isInline();
+        }
+
+        return block instanceof ParagraphBlock || block instanceof HeaderBlock || block instanceof SectionBlock
+            || block instanceof ListBLock || block instanceof TableBlock
+            || block instanceof QuotationBlock || block instanceof GroupBlock || block instanceof FigureBlock
+            || block instanceof HorizontalLineBlock || block instanceof EmptyLinesBlock;
+    }
+
+    /**
+     * @param blocks the blocks to render
+     * @return true if the blocks are top-level blocks, i.e. their ancestors are all transparent
+     */
+    private static boolean isTopLevel(Collection<Block> blocks)
+    {
+        for (Block block : blocks) {
+            for (Block parent = block.getParent(); parent != null; parent = parent.getParent()) {
+                if (!isTransparent(parent)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static void flush(PrintRenderer renderer)
+    {
+        if (renderer instanceof Flushable) {
+            try {
+                ((Flushable) renderer).flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to flush renderer [" + renderer + "]", e);
+            }
+        }
+    }
+
+    /**
+     * Render a range of children blocks.
+     */
+    private static final class RenderingTask implements Runnable
+    {
+        private final List<AbstractBlock> ancestors;
+
+        private final List<Block> children;
+
+        private final int start;
+
+        private final int end;
+
+        private final PrintRenderer renderer;
+
+        private final RecordingWikiPrinter printer;
+
+        RenderingTask(List<AbstractBlock> ancestors, List<Block> children, int start, int end,
+            PrintRenderer renderer, RecordingWikiPrinter printer)
+        {
+            this.ancestors = ancestors;
+            this.children = children;
+            this.start = start;
+            this.end = end;
+            this.renderer = renderer;
+            this.printer = printer;
+        }
+
+        @Override
+        public void run()
+        {
+            boolean first = this.start == 0;
+            boolean last = this.end == this.children.size();
+
+            // Put the renderer in the state it would have at the start of the first block: only the first task
+            // prints the start of the enclosing blocks
+            this.printer.setEnabled(first);
+            for (AbstractBlock ancestor : this.ancestors) {
+                ancestor.before(this.renderer);
+            }
+            if (!first) {
+                this.children.get(this.start - 1).traverse(this.renderer);
+            }
+
+            this.printer.setEnabled(true);
+            for (int i = this.start; i < this.end; ++i) {
+                this.children.get(i).traverse(this.renderer);
+            }
+
+            // Only the last task prints the end of the enclosing blocks and what the renderer kept for the end
+            this.printer.setEnabled(last);
+            for (int i = this.ancestors.size() - 1; i >= 0; --i) {
+                this.ancestors.get(i).after(this.renderer);
+            }
+            flush(this.renderer);
+        }
+    }
+}
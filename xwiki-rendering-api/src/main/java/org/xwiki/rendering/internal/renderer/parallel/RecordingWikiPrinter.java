@@ -0,0 +1,90 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+/**
+ * Record the calls made to the printer so that they can be replayed later on the target printer (which is not
+ * necessarily using the same end of line as the other printers). The output can be disabled, in which case the printed
+ * text is dropped.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class RecordingWikiPrinter implements WikiPrinter
+{
+    /**
+     * The text printed since the last call to {@link #println(String)}.
+     */
+    private StringBuilder current = new StringBuilder();
+
+    /**
+     * The text passed to the calls to {@link #println(String)}, prefixed with the text printed before them.
+     */
+    private final List<String> lines = new ArrayList<>();
+
+    private boolean enabled = true;
+
+    /**
+     * @param enabled true if the printed text should be recorded, false if it should be dropped
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void print(String text)
+    {
+        if (this.enabled) {
+            this.current.append(text);
+        }
+    }
+
+    @Override
+    public void println(String text)
+    {
+        if (this.enabled) {
+            this.current.append(text);
+            this.lines.add(this.current.toString());
+            this.current.setLength(0);
+        }
+    }
+
+    /**
+     * Print the recorded text in the passed printer.
+     *
+     * @param printer the printer to print to
+     */
+    public void replay(WikiPrinter printer)
+    {
+        for (String line : this.lines) {
+            printer.println(line);
+        }
+
+        if (this.current.length() > 0) {
+            printer.print(this.current.toString());
+        }
+    }
+}
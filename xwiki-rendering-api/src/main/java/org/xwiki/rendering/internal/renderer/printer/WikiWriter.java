@@ -70,7 +70,7 @@ public void flush() throws IOException
     @Override
     public void write(char[] cbuf, int off, int len) throws IOException
     {
-        getWikiPrinter().print(String.valueOf(cbuf, off, len));
+        getWikiPrinter().print(cbuf, off, len);
     }
 
     /**
@@ -86,4 +86,17 @@ public void write(String str) throws IOException
         getWikiPrinter().print(str);
     }
 
+    @Override
+    public void write(String str, int off, int len) throws IOException
+    {
+        getWikiPrinter().print(str, off, off + len);
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) throws IOException
+    {
+        getWikiPrinter().print(csq != null ? csq : "null", start, end);
+
+        return this;
+    }
 }
@@ -22,6 +22,8 @@
 
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -186,6 +188,46 @@ public void transformInContext(Transformation transformation, TransformationCont
         }
     }
 
+    @Override
+    public <V> Callable<V> wrap(final Callable<V> task, Block currentBlock)
+    {
+        final ExecutionContext executionContext = this.execution.getContext();
+        if (executionContext == null) {
+            // There's no rendering context to copy
+            return task;
+        }
+
+        // Copy the stack in the current thread
+        final Deque<Context> stack = new ArrayDeque<>();
+        Deque<Context> currentStack = getContextStack(false);
+        if (currentStack != null && !currentStack.isEmpty()) {
+            stack.addAll(currentStack);
+            Context context = stack.pop().clone();
+            context.currentBlock = currentBlock;
+            stack.push(context);
+        }
+
+        return new Callable<V>()
+        {
+            @Override
+            public V call() throws Exception
+            {
+                ExecutionContext taskContext = new ExecutionContext();
+                for (Map.Entry<String, Object> entry : executionContext.getProperties().entrySet()) {
+                    taskContext.setProperty(entry.getKey(), entry.getValue());
+                }
+                taskContext.setProperty(EXECUTION_CONTEXT_KEY, stack);
+
+                DefaultRenderingContext.this.execution.pushContext(taskContext);
+                try {
+                    return task.call();
+                } finally {
+                    DefaultRenderingContext.this.execution.popContext();
+                }
+            }
+        };
+    }
+
     @SuppressWarnings("unchecked")
     private Deque<Context> getContextStack(boolean create)
     {
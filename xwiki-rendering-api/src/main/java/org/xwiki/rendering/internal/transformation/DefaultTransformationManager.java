@@ -36,8 +36,12 @@
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.configuration.RenderingConfiguration;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.chaining.ChainingListener;
+import org.xwiki.rendering.listener.chaining.ListenerChain;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.transformation.RenderingContext;
+import org.xwiki.rendering.transformation.StreamingTransformation;
 import org.xwiki.rendering.transformation.Transformation;
 import org.xwiki.rendering.transformation.TransformationContext;
 import org.xwiki.rendering.transformation.TransformationException;
@@ -111,6 +115,37 @@ public void performTransformations(Block block, TransformationContext context) t
         }
     }
 
+    @Override
+    public Listener createStreamingListener(Listener listener, TransformationContext context)
+    {
+        List<Transformation> transformations = getTransformations();
+
+        if (transformations.isEmpty()) {
+            return listener;
+        }
+
+        for (Transformation transformation : transformations) {
+            if (!(transformation instanceof StreamingTransformation)) {
+                // This transformation needs the whole XDOM
+                return null;
+            }
+        }
+
+        ListenerChain chain = new ListenerChain();
+        Listener first = null;
+        for (Transformation transformation : transformations) {
+            ChainingListener chainingListener =
+                ((StreamingTransformation) transformation).createChainingListener(chain, context);
+            chain.addListener(chainingListener);
+            if (first == null) {
+                first = chainingListener;
+            }
+        }
+        chain.addListener(new OutputChainingListener(chain, listener));
+
+        return first;
+    }
+
     /**
      * @return the ordered list of Transformations to execute
      */
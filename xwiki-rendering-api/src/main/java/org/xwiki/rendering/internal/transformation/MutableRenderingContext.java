@@ -20,6 +20,8 @@
 
 package org.xwiki.rendering.internal.transformation;
 
+import java.util.concurrent.Callable;
+
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.syntax.Syntax;
@@ -86,4 +88,16 @@ void transformInContext(Transformation transformation, TransformationContext con
      * @param targetSyntax the target syntax
      */
     void setTargetSyntax(Syntax targetSyntax);
+
+    /**
+     * Wrap the passed task so that, whatever the thread executing it, it sees a copy of the current rendering context
+     * in which the current block is the passed block. Used to execute several macros concurrently.
+     *
+     * @param task the task to wrap
+     * @param currentBlock the block processed by the task
+     * @param <V> the type of the result of the task
+     * @return the wrapped task
+     * @since 10.4RC1
+     */
+    <V> Callable<V> wrap(Callable<V> task, Block currentBlock);
 }
@@ -0,0 +1,52 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation;
+
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.WrappingListener;
+import org.xwiki.rendering.listener.chaining.ChainingListener;
+import org.xwiki.rendering.listener.chaining.ListenerChain;
+
+/**
+ * The last listener of a chain of streaming transformations, sending the transformed events to the target listener.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class OutputChainingListener extends WrappingListener implements ChainingListener
+{
+    private final ListenerChain listenerChain;
+
+    /**
+     * @param listenerChain the chain this listener is part of
+     * @param listener the listener receiving the transformed events
+     */
+    public OutputChainingListener(ListenerChain listenerChain, Listener listener)
+    {
+        this.listenerChain = listenerChain;
+        setWrappedListener(listener);
+    }
+
+    @Override
+    public ListenerChain getListenerChain()
+    {
+        return this.listenerChain;
+    }
+}
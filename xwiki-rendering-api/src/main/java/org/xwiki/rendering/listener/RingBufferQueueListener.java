@@ -0,0 +1,655 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.listener;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Manage a queue of events without allocating anything per event.
+ * <p>
+ * Contrary to {@link QueueListener} the events are not stored as objects: the type of each event is stored in a
+ * {@code byte[]} ring and its parameters in a parallel {@code Object[]} ring with a fixed number of slots per event.
+ * Both are reused from one event to the next and only grow when the queue is full, and any event in the queue can be
+ * accessed in constant time.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public class RingBufferQueueListener implements Listener
+{
+    /**
+     * The maximum number of parameters of an event.
+     */
+    private static final int MAX_PARAMETERS = 4;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    /**
+     * The ordinal of the type of each event.
+     */
+    private byte[] types;
+
+    /**
+     * The number of parameters of each event.
+     */
+    private byte[] parameterCounts;
+
+    /**
+     * The parameters of each event, {@link #MAX_PARAMETERS} slots per event.
+     */
+    private Object[] parameters;
+
+    /**
+     * Reusable arrays used to fire events, indexed by number of parameters.
+     */
+    private final Object[][] fireParameters = new Object[MAX_PARAMETERS + 1][];
+
+    /**
+     * The index of the first event of the queue.
+     */
+    private int head;
+
+    /**
+     * The number of events in the queue.
+     */
+    private int size;
+
+    /**
+     * Default constructor.
+     */
+    public RingBufferQueueListener()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity the number of events which can be stored before growing the queue
+     */
+    public RingBufferQueueListener(int initialCapacity)
+    {
+        int capacity = Math.max(1, initialCapacity);
+
+        this.types = new byte[capacity];
+        this.parameterCounts = new byte[capacity];
+        this.parameters = new Object[capacity * MAX_PARAMETERS];
+
+        for (int i = 0; i < this.fireParameters.length; ++i) {
+            this.fireParameters[i] = new Object[i];
+        }
+    }
+
+    /**
+     * @return the number of events in the queue
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * @return true if there's no event in the queue
+     */
+    public boolean isEmpty()
+    {
+        return this.size == 0;
+    }
+
+    /**
+     * Remove all the events from the queue.
+     */
+    public void clear()
+    {
+        Arrays.fill(this.parameters, null);
+        this.head = 0;
+        this.size = 0;
+    }
+
+    /**
+     * Returns the type of the event at the specified position in this queue.
+     *
+     * @param depth position of the event in the queue, starting at 1
+     * @return the type of the event or null if there's no event at this position
+     */
+    public EventType getEventType(int depth)
+    {
+        if (depth > 0 && depth <= this.size) {
+            return EVENT_TYPES[this.types[index(depth - 1)]];
+        }
+
+        return null;
+    }
+
+    /**
+     * @param depth position of the event in the queue, starting at 1
+     * @return the number of parameters of the event at the specified position in this queue
+     * @throws IndexOutOfBoundsException if there's no event at this position
+     */
+    public int getEventParameterCount(int depth)
+    {
+        return this.parameterCounts[checkedIndex(depth)];
+    }
+
+    /**
+     * @param depth position of the event in the queue, starting at 1
+     * @param parameterIndex the index of the parameter
+     * @return the parameter of the event at the specified position in this queue
+     * @throws IndexOutOfBoundsException if there's no event or parameter at this position
+     */
+    public Object getEventParameter(int depth, int parameterIndex)
+    {
+        int index = checkedIndex(depth);
+
+        if (parameterIndex < 0 || parameterIndex >= this.parameterCounts[index]) {
+            throw new IndexOutOfBoundsException("Event at depth [" + depth + "] has no parameter at index ["
+                + parameterIndex + "]");
+        }
+
+        return this.parameters[index * MAX_PARAMETERS + parameterIndex];
+    }
+
+    /**
+     * Remove the first event of the queue and send it to the provided {@link Listener}.
+     *
+     * @param listener the {@link Listener} on which to send the event
+     * @return false if the queue was empty
+     */
+    public boolean consumeEvent(Listener listener)
+    {
+        if (this.size == 0) {
+            return false;
+        }
+
+        int index = this.head;
+        int offset = index * MAX_PARAMETERS;
+        EventType eventType = EVENT_TYPES[this.types[index]];
+        Object[] eventParameters = this.fireParameters[this.parameterCounts[index]];
+        for (int i = 0; i < eventParameters.length; ++i) {
+            eventParameters[i] = this.parameters[offset + i];
+            this.parameters[offset + i] = null;
+        }
+
+        this.head = (this.head + 1) % this.types.length;
+        --this.size;
+
+        // The event parameters are unpacked before the listener is called so the array can be reused right away, even
+        // if the listener sends new events to this queue
+        try {
+            eventType.fireEvent(listener, eventParameters);
+        } finally {
+            Arrays.fill(eventParameters, null);
+        }
+
+        return true;
+    }
+
+    /**
+     * Send all stored events to provided {@link Listener}.
+     *
+     * @param listener the {@link Listener} on which to send events
+     */
+    public void consumeEvents(Listener listener)
+    {
+        while (consumeEvent(listener)) {
+            // Continue until the queue is empty
+        }
+    }
+
+    private int index(int position)
+    {
+        return (this.head + position) % this.types.length;
+    }
+
+    private int checkedIndex(int depth)
+    {
+        if (depth <= 0 || depth > this.size) {
+            throw new IndexOutOfBoundsException("No event at depth [" + depth + "], queue size is [" + this.size
+                + "]");
+        }
+
+        return index(depth - 1);
+    }
+
+    private int reserve(EventType eventType, int parameterCount)
+    {
+        if (this.size == this.types.length) {
+            grow();
+        }
+
+        int index = index(this.size);
+        this.types[index] = (byte) eventType.ordinal();
+        this.parameterCounts[index] = (byte) parameterCount;
+        ++this.size;
+
+        return index * MAX_PARAMETERS;
+    }
+
+    private void grow()
+    {
+        int capacity = this.types.length;
+        int newCapacity = capacity * 2;
+
+        byte[] newTypes = new byte[newCapacity];
+        byte[] newParameterCounts = new byte[newCapacity];
+        Object[] newParameters = new Object[newCapacity * MAX_PARAMETERS];
+
+        // Unwrap the ring so that the first event is at index 0
+        int firstPart = capacity - this.head;
+        System.arraycopy(this.types, this.head, newTypes, 0, firstPart);
+        System.arraycopy(this.types, 0, newTypes, firstPart, this.head);
+        System.arraycopy(this.parameterCounts, this.head, newParameterCounts, 0, firstPart);
+        System.arraycopy(this.parameterCounts, 0, newParameterCounts, firstPart, this.head);
+        System.arraycopy(this.parameters, this.head * MAX_PARAMETERS, newParameters, 0, firstPart * MAX_PARAMETERS);
+        System.arraycopy(this.parameters, 0, newParameters, firstPart * MAX_PARAMETERS, this.head * MAX_PARAMETERS);
+
+        this.types = newTypes;
+        this.parameterCounts = newParameterCounts;
+        this.parameters = newParameters;
+        this.head = 0;
+    }
+
+    // Dedicated methods for each number of parameters to avoid allocating a varargs array for each event
+
+    private void saveEvent(EventType eventType)
+    {
+        reserve(eventType, 0);
+    }
+
+    private void saveEvent(EventType eventType, Object parameter0)
+    {
+        int offset = reserve(eventType, 1);
+        this.parameters[offset] = parameter0;
+    }
+
+    private void saveEvent(EventType eventType, Object parameter0, Object parameter1)
+    {
+        int offset = reserve(eventType, 2);
+        this.parameters[offset] = parameter0;
+        this.parameters[offset + 1] = parameter1;
+    }
+
+    private void saveEvent(EventType eventType, Object parameter0, Object parameter1, Object parameter2)
+    {
+        int offset = reserve(eventType, 3);
+        this.parameters[offset] = parameter0;
+        this.parameters[offset + 1] = parameter1;
+        this.parameters[offset + 2] = parameter2;
+    }
+
+    private void saveEvent(EventType eventType, Object parameter0, Object parameter1, Object parameter2,
+        Object parameter3)
+    {
+        int offset = reserve(eventType, 4);
+        this.parameters[offset] = parameter0;
+        this.parameters[offset + 1] = parameter1;
+        this.parameters[offset + 2] = parameter2;
+        this.parameters[offset + 3] = parameter3;
+    }
+
+    @Override
+    public void beginDefinitionDescription()
+    {
+        saveEvent(EventType.BEGIN_DEFINITION_DESCRIPTION);
+    }
+
+    @Override
+    public void beginDefinitionList(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_DEFINITION_LIST, parameters);
+    }
+
+    @Override
+    public void beginDefinitionTerm()
+    {
+        saveEvent(EventType.BEGIN_DEFINITION_TERM);
+    }
+
+    @Override
+    public void beginDocument(MetaData metadata)
+    {
+        saveEvent(EventType.BEGIN_DOCUMENT, metadata);
+    }
+
+    @Override
+    public void beginGroup(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_GROUP, parameters);
+    }
+
+    @Override
+    public void beginFormat(Format format, Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_FORMAT, format, parameters);
+    }
+
+    @Override
+    public void beginHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_HEADER, level, id, parameters);
+    }
+
+    @Override
+    public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_LINK, reference, freestanding, parameters);
+    }
+
+    @Override
+    public void beginList(ListType type, Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_LIST, type, parameters);
+    }
+
+    @Override
+    public void beginListItem()
+    {
+        saveEvent(EventType.BEGIN_LIST_ITEM);
+    }
+
+    @Override
+    public void beginListItem(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_LIST_ITEM, parameters);
+    }
+
+    @Override
+    public void beginMacroMarker(String name, Map<String, String> parameters, String content, boolean isInline)
+    {
+        saveEvent(EventType.BEGIN_MACRO_MARKER, name, parameters, content, isInline);
+    }
+
+    @Override
+    public void beginParagraph(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_PARAGRAPH, parameters);
+    }
+
+    @Override
+    public void beginQuotation(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_QUOTATION, parameters);
+    }
+
+    @Override
+    public void beginQuotationLine()
+    {
+        saveEvent(EventType.BEGIN_QUOTATION_LINE);
+    }
+
+    @Override
+    public void beginSection(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_SECTION, parameters);
+    }
+
+    @Override
+    public void beginTable(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_TABLE, parameters);
+    }
+
+    @Override
+    public void beginTableCell(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_TABLE_CELL, parameters);
+    }
+
+    @Override
+    public void beginTableHeadCell(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_TABLE_HEAD_CELL, parameters);
+    }
+
+    @Override
+    public void beginTableRow(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_TABLE_ROW, parameters);
+    }
+
+    @Override
+    public void beginMetaData(MetaData metadata)
+    {
+        saveEvent(EventType.BEGIN_METADATA, metadata);
+    }
+
+    @Override
+    public void endDefinitionDescription()
+    {
+        saveEvent(EventType.END_DEFINITION_DESCRIPTION);
+    }
+
+    @Override
+    public void endDefinitionList(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_DEFINITION_LIST, parameters);
+    }
+
+    @Override
+    public void endDefinitionTerm()
+    {
+        saveEvent(EventType.END_DEFINITION_TERM);
+    }
+
+    @Override
+    public void endDocument(MetaData metadata)
+    {
+        saveEvent(EventType.END_DOCUMENT, metadata);
+    }
+
+    @Override
+    public void endGroup(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_GROUP, parameters);
+    }
+
+    @Override
+    public void endFormat(Format format, Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_FORMAT, format, parameters);
+    }
+
+    @Override
+    public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_HEADER, level, id, parameters);
+    }
+
+    @Override
+    public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_LINK, reference, freestanding, parameters);
+    }
+
+    @Override
+    public void endList(ListType type, Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_LIST, type, parameters);
+    }
+
+    @Override
+    public void endListItem()
+    {
+        saveEvent(EventType.END_LIST_ITEM);
+    }
+
+    @Override
+    public void endListItem(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_LIST_ITEM, parameters);
+    }
+
+    @Override
+    public void endMacroMarker(String name, Map<String, String> parameters, String content, boolean isInline)
+    {
+        saveEvent(EventType.END_MACRO_MARKER, name, parameters, content, isInline);
+    }
+
+    @Override
+    public void endParagraph(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_PARAGRAPH, parameters);
+    }
+
+    @Override
+    public void endQuotation(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_QUOTATION, parameters);
+    }
+
+    @Override
+    public void endQuotationLine()
+    {
+        saveEvent(EventType.END_QUOTATION_LINE);
+    }
+
+    @Override
+    public void endSection(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_SECTION, parameters);
+    }
+
+    @Override
+    public void endTable(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_TABLE, parameters);
+    }
+
+    @Override
+    public void endTableCell(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_TABLE_CELL, parameters);
+    }
+
+    @Override
+    public void endTableHeadCell(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_TABLE_HEAD_CELL, parameters);
+    }
+
+    @Override
+    public void endTableRow(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_TABLE_ROW, parameters);
+    }
+
+    @Override
+    public void endMetaData(MetaData metadata)
+    {
+        saveEvent(EventType.END_METADATA, metadata);
+    }
+
+    @Override
+    public void onRawText(String text, Syntax syntax)
+    {
+        saveEvent(EventType.ON_RAW_TEXT, text, syntax);
+    }
+
+    @Override
+    public void onEmptyLines(int count)
+    {
+        saveEvent(EventType.ON_EMPTY_LINES, count);
+    }
+
+    @Override
+    public void onHorizontalLine(Map<String, String> parameters)
+    {
+        saveEvent(EventType.ON_HORIZONTAL_LINE, parameters);
+    }
+
+    @Override
+    public void onId(String name)
+    {
+        saveEvent(EventType.ON_ID, name);
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        saveEvent(EventType.ON_IMAGE, reference, freestanding, parameters);
+    }
+
+    @Override
+    public void onMacro(String id, Map<String, String> parameters, String content, boolean inline)
+    {
+        saveEvent(EventType.ON_MACRO, id, parameters, content, inline);
+    }
+
+    @Override
+    public void onNewLine()
+    {
+        saveEvent(EventType.ON_NEW_LINE);
+    }
+
+    @Override
+    public void onSpace()
+    {
+        saveEvent(EventType.ON_SPACE);
+    }
+
+    @Override
+    public void onSpecialSymbol(char symbol)
+    {
+        saveEvent(EventType.ON_SPECIAL_SYMBOL, symbol);
+    }
+
+    @Override
+    public void onVerbatim(String content, boolean inline, Map<String, String> parameters)
+    {
+        saveEvent(EventType.ON_VERBATIM, content, inline, parameters);
+    }
+
+    @Override
+    public void onWord(String word)
+    {
+        saveEvent(EventType.ON_WORD, word);
+    }
+
+    @Override
+    public void beginFigure(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_FIGURE, parameters);
+    }
+
+    @Override
+    public void beginFigureCaption(Map<String, String> parameters)
+    {
+        saveEvent(EventType.BEGIN_FIGURE_CAPTION, parameters);
+    }
+
+    @Override
+    public void endFigure(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_FIGURE, parameters);
+    }
+
+    @Override
+    public void endFigureCaption(Map<String, String> parameters)
+    {
+        saveEvent(EventType.END_FIGURE_CAPTION, parameters);
+    }
+}
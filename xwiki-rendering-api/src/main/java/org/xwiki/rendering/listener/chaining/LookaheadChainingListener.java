@@ -27,8 +27,10 @@
 import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.listener.QueueListener;
 import org.xwiki.rendering.listener.QueueListener.Event;
+import org.xwiki.rendering.listener.RingBufferQueueListener;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
 
 /**
  * Stores events without emitting them back in order to accumulate them and to provide a lookahead feature. The
@@ -39,7 +41,12 @@
  */
 public class LookaheadChainingListener extends AbstractChainingListener
 {
-    private QueueListener previousEvents = new QueueListener();
+    /**
+     * Only used to create {@link Event} instances on demand.
+     */
+    private static final QueueListener EVENT_FACTORY = new QueueListener();
+
+    private RingBufferQueueListener previousEvents = new RingBufferQueueListener();
 
     private int lookaheadDepth;
 
@@ -54,9 +61,48 @@ public Event getNextEvent()
         return getNextEvent(1);
     }
 
+    /**
+     * Note that this method creates a new {@link Event} instance for each call, use {@link #getNextEventType(int)}
+     * when only the type of the event is needed.
+     *
+     * @param depth the position of the event in the lookahead queue, starting at 1
+     * @return the event or null if there's no event at this position
+     */
     public Event getNextEvent(int depth)
     {
-        return this.previousEvents.getEvent(depth);
+        EventType eventType = this.previousEvents.getEventType(depth);
+
+        if (eventType == null) {
+            return null;
+        }
+
+        Object[] eventParameters = new Object[this.previousEvents.getEventParameterCount(depth)];
+        for (int i = 0; i < eventParameters.length; ++i) {
+            eventParameters[i] = this.previousEvents.getEventParameter(depth, i);
+        }
+
+        return EVENT_FACTORY.new Event(eventType, eventParameters);
+    }
+
+    /**
+     * @return the type of the next event or null if there's none
+     * @since 10.4RC1
+     */
+    @Unstable
+    public EventType getNextEventType()
+    {
+        return getNextEventType(1);
+    }
+
+    /**
+     * @param depth the position of the event in the lookahead queue, starting at 1
+     * @return the type of the event or null if there's no event at this position
+     * @since 10.4RC1
+     */
+    @Unstable
+    public EventType getNextEventType(int depth)
+    {
+        return this.previousEvents.getEventType(depth);
     }
 
     @Override
@@ -506,17 +552,15 @@ public void onWord(String word)
     private void firePreviousEvent()
     {
         if (this.previousEvents.size() > this.lookaheadDepth) {
-            Event event = this.previousEvents.remove();
-            event.eventType.fireEvent(getListenerChain().getNextListener(getClass()), event.eventParameters);
+            this.previousEvents.consumeEvent(getListenerChain().getNextListener(getClass()));
         }
     }
 
     private void flush()
     {
         // Ensure that all remaining events are flushed
-        while (!this.previousEvents.isEmpty()) {
-            Event event = this.previousEvents.remove();
-            event.eventType.fireEvent(getListenerChain().getNextListener(getClass()), event.eventParameters);
+        while (this.previousEvents.consumeEvent(getListenerChain().getNextListener(getClass()))) {
+            // Continue until all events are sent
         }
     }
 }
@@ -0,0 +1,71 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.parser;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.component.manager.ComponentLookupException;
+
+/**
+ * Create {@link Parser}s which keep the {@link org.xwiki.rendering.block.XDOM} generated for a given content and syntax
+ * in a bounded cache so that the same content is not parsed again and again. Each call to {@link Parser#parse} returns
+ * a new copy of the cached {@link org.xwiki.rendering.block.XDOM} (including its
+ * {@link org.xwiki.rendering.util.IdGenerator} state) which can be safely modified, transformed, etc.
+ * <p>
+ * The cache is shared between all the parsers created by the factory.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Role
+public interface CachingParserFactory
+{
+    /**
+     * @param hint the hint of the {@link Parser} component to wrap (usually the syntax id, e.g. "xwiki/2.1")
+     * @return a caching parser wrapping the parser with the passed hint
+     * @throws ComponentLookupException when no parser can be found for the passed hint
+     */
+    Parser createParser(String hint) throws ComponentLookupException;
+
+    /**
+     * @param parser the parser to wrap
+     * @return a caching parser wrapping the passed parser
+     */
+    Parser createParser(Parser parser);
+
+    /**
+     * @return the number of times a parsed content was found in the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of times a content had to be parsed because it was not found in the cache
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of parsed contents which have been removed from the cache to make room for new ones
+     */
+    long getEvictionCount();
+
+    /**
+     * Remove all the parsed contents from the cache.
+     */
+    void clear();
+}
@@ -25,6 +25,7 @@
 import org.xwiki.rendering.listener.chaining.AbstractChainingListener;
 import org.xwiki.rendering.listener.chaining.ChainingListener;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.stability.Unstable;
 
 /**
  * @version $Id$
@@ -90,4 +91,15 @@ protected void popPrinter()
     {
         this.printers.pop();
     }
+
+    /**
+     * Removes all the {@link WikiPrinter}s, typically when resetting the renderer before reusing it.
+     *
+     * @since 10.4RC1
+     */
+    @Unstable
+    protected void resetPrinters()
+    {
+        this.printers.clear();
+    }
 }
@@ -0,0 +1,68 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.renderer;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.component.manager.ComponentLookupException;
+
+/**
+ * Create {@link BlockRenderer}s rendering the children of large blocks (typically the top-level sections of a long
+ * {@link org.xwiki.rendering.block.XDOM}) concurrently, each group of children being rendered in a separate buffer by a
+ * separate {@link PrintRenderer}, the buffers being then printed in document order.
+ * <p>
+ * The output is identical to the output of the sequential rendering as long as the state of the {@link PrintRenderer}
+ * at the start of a block only depends on the enclosing blocks and on the previous sibling (which is the case for the
+ * standard renderers): before rendering its first block, each renderer receives, without printing anything, the events
+ * of the enclosing blocks and of the previous sibling. Since the standard renderers count list items, table rows,
+ * quotation lines, etc., only top-level blocks (directly in {@link org.xwiki.rendering.block.XDOM}s and
+ * {@link org.xwiki.rendering.block.MetaDataBlock}s) are rendered concurrently.
+ * <p>
+ * Note that the blocks are rendered in the threads of a {@link ForkJoinPool} so the renderers should not rely on any
+ * thread local context.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Role
+public interface ParallelBlockRendererFactory
+{
+    /**
+     * @param hint the hint of the {@link PrintRendererFactory} component to use (usually the syntax id, e.g.
+     *            "xhtml/1.0")
+     * @return a block renderer using the common {@link ForkJoinPool}
+     * @throws ComponentLookupException when no print renderer factory can be found for the passed hint
+     */
+    BlockRenderer createRenderer(String hint) throws ComponentLookupException;
+
+    /**
+     * @param printRendererFactory the factory used to create the renderers
+     * @return a block renderer using the common {@link ForkJoinPool}
+     */
+    BlockRenderer createRenderer(PrintRendererFactory printRendererFactory);
+
+    /**
+     * @param printRendererFactory the factory used to create the renderers
+     * @param pool the pool in which to render the blocks
+     * @return a block renderer using the passed pool
+     */
+    BlockRenderer createRenderer(PrintRendererFactory printRendererFactory, ForkJoinPool pool);
+}
@@ -22,6 +22,7 @@
 import org.xwiki.component.annotation.Role;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
 
 /**
  * Allows creating {@link Renderer}s of a given type (one factory implementation per Renderer type).
@@ -47,4 +48,18 @@
      * @since 2.0M3
      */
     PrintRenderer createRenderer(WikiPrinter printer);
+
+    /**
+     * Indicate that the passed renderer, created by this factory, is not going to be used anymore. The factory is then
+     * free to reuse it (when it's {@link Resettable}) instead of creating a new instance on a next call to
+     * {@link #createRenderer(WikiPrinter)}. The caller must not use the renderer after releasing it.
+     *
+     * @param renderer the renderer to release
+     * @since 10.4RC1
+     */
+    @Unstable
+    default void releaseRenderer(PrintRenderer renderer)
+    {
+        // Nothing to release by default
+    }
 }
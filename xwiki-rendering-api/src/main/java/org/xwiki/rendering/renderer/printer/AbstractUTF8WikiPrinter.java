@@ -0,0 +1,248 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.renderer.printer;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Base class for printers encoding the printed characters as UTF-8 bytes directly, without creating intermediate
+ * {@link String}s. The bytes are accumulated in a fixed size buffer which is passed to
+ * {@link #flushBuffer(byte[], int, int)} when it's full or when {@link #flush()} is called. Printers whose target is
+ * itself an array can make the bytes be encoded directly into it with {@link #setBuffer(byte[], int, int)}.
+ * <p>
+ * Invalid surrogate pairs are encoded as {@code ?}, like {@link String#getBytes(java.nio.charset.Charset)} does. A
+ * high surrogate printed last is encoded as {@code ?} by {@link #flush()}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public abstract class AbstractUTF8WikiPrinter implements WikiPrinter
+{
+    /**
+     * The default size of the byte buffer.
+     */
+    protected static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * The maximum number of bytes needed to encode a code point in UTF-8.
+     */
+    protected static final int MAX_BYTES_PER_CODE_POINT = 4;
+
+    private static final byte REPLACEMENT = '?';
+
+    private byte[] bytes;
+
+    /**
+     * The index of the first byte not passed to {@link #flushBuffer(byte[], int, int)} yet.
+     */
+    private int start;
+
+    private int position;
+
+    private int limit;
+
+    /**
+     * A high surrogate waiting for the following low surrogate, which can come in the next print call.
+     */
+    private char highSurrogate;
+
+    /**
+     * @param bufferSize the size of the byte buffer
+     */
+    protected AbstractUTF8WikiPrinter(int bufferSize)
+    {
+        byte[] buffer = new byte[Math.max(bufferSize, MAX_BYTES_PER_CODE_POINT)];
+        setBuffer(buffer, 0, buffer.length);
+    }
+
+    /**
+     * Create a printer without buffer: {@link #setBuffer(byte[], int, int)} has to be called before anything is
+     * printed.
+     */
+    protected AbstractUTF8WikiPrinter()
+    {
+    }
+
+    /**
+     * This method is protected to allow classes extending this one to override what a new line is.
+     *
+     * @return a new line symbols
+     */
+    protected String getEOL()
+    {
+        return "\n";
+    }
+
+    @Override
+    public void print(String text)
+    {
+        print(text, 0, text.length());
+    }
+
+    @Override
+    public void println(String text)
+    {
+        print(text);
+        print(getEOL());
+    }
+
+    @Override
+    public void print(char[] text, int offset, int length)
+    {
+        for (int i = offset; i < offset + length; ++i) {
+            encode(text[i]);
+        }
+    }
+
+    @Override
+    public void print(CharSequence text, int start, int end)
+    {
+        for (int i = start; i < end; ++i) {
+            encode(text.charAt(i));
+        }
+    }
+
+    /**
+     * Pass everything printed so far to {@link #flushBuffer(byte[], int, int)}. A high surrogate printed last can't be
+     * completed anymore and is encoded as {@code ?}.
+     */
+    public void flush()
+    {
+        if (this.highSurrogate != 0) {
+            this.highSurrogate = 0;
+            write(REPLACEMENT);
+        }
+
+        flushBytes();
+    }
+
+    /**
+     * @return the high surrogate printed last, which is not encoded yet because it's waiting for the following low
+     *         surrogate, or {@code 0} if there is none
+     */
+    protected char getPendingHighSurrogate()
+    {
+        return this.highSurrogate;
+    }
+
+    /**
+     * Forget the bytes accumulated so far, without flushing them.
+     */
+    protected void reset()
+    {
+        this.position = this.start;
+        this.highSurrogate = 0;
+    }
+
+    /**
+     * Make the next bytes be encoded into the passed array. The bytes already encoded must have been flushed.
+     *
+     * @param buffer the array where to encode the next bytes
+     * @param offset the index of the next byte to write
+     * @param limit the index after the last byte which can be written, at least 4 bytes after the offset
+     */
+    protected void setBuffer(byte[] buffer, int offset, int limit)
+    {
+        this.bytes = buffer;
+        this.start = offset;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    /**
+     * Write encoded bytes to the actual target. The same buffer area is reused for the next bytes, unless
+     * {@link #setBuffer(byte[], int, int)} is called from this method.
+     *
+     * @param buffer the buffer containing the bytes to write
+     * @param offset the index of the first byte to write
+     * @param length the number of bytes to write
+     */
+    protected abstract void flushBuffer(byte[] buffer, int offset, int length);
+
+    private void encode(char c)
+    {
+        if (this.highSurrogate != 0) {
+            char high = this.highSurrogate;
+            this.highSurrogate = 0;
+
+            if (Character.isLowSurrogate(c)) {
+                encodeSupplementary(Character.toCodePoint(high, c));
+
+                return;
+            }
+
+            write(REPLACEMENT);
+        }
+
+        if (c < 0x80) {
+            write((byte) c);
+        } else if (c < 0x800) {
+            ensureCapacity(2);
+            this.bytes[this.position++] = (byte) (0xC0 | (c >> 6));
+            this.bytes[this.position++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            this.highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            write(REPLACEMENT);
+        } else {
+            ensureCapacity(3);
+            this.bytes[this.position++] = (byte) (0xE0 | (c >> 12));
+            this.bytes[this.position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            this.bytes[this.position++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void encodeSupplementary(int codePoint)
+    {
+        ensureCapacity(MAX_BYTES_PER_CODE_POINT);
+        this.bytes[this.position++] = (byte) (0xF0 | (codePoint >> 18));
+        this.bytes[this.position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        this.bytes[this.position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        this.bytes[this.position++] = (byte) (0x80 | (codePoint & 0x3F));
+    }
+
+    private void write(byte b)
+    {
+        ensureCapacity(1);
+        this.bytes[this.position++] = b;
+    }
+
+    private void ensureCapacity(int length)
+    {
+        if (this.position + length > this.limit) {
+            flushBytes();
+        }
+    }
+
+    /**
+     * Pass the bytes encoded so far to {@link #flushBuffer(byte[], int, int)}, keeping a pending high surrogate so
+     * that it can still be completed by the next printed character.
+     */
+    protected void flushBytes()
+    {
+        if (this.position > this.start) {
+            int offset = this.start;
+            int length = this.position - offset;
+            this.position = offset;
+            flushBuffer(this.bytes, offset, length);
+        }
+    }
+}
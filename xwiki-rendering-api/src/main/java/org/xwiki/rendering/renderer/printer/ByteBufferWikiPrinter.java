@@ -0,0 +1,140 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.renderer.printer;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Printer encoding the printed characters as UTF-8 into a {@link ByteBuffer}. The buffer can be provided by the
+ * caller (typically taken from a pool) and is replaced by a bigger one when it's full.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public class ByteBufferWikiPrinter extends AbstractUTF8WikiPrinter
+{
+    private ByteBuffer buffer;
+
+    /**
+     * The bytes are encoded in this array and then copied when the buffer doesn't give access to its own array (direct
+     * or read-only buffer). {@code null} when the bytes are encoded directly into the buffer's array.
+     */
+    private final byte[] encodingBuffer;
+
+    /**
+     * Create a printer writing into a new heap buffer.
+     */
+    public ByteBufferWikiPrinter()
+    {
+        this(ByteBuffer.allocate(DEFAULT_BUFFER_SIZE));
+    }
+
+    /**
+     * @param buffer the buffer where to write the UTF-8 bytes, starting at its current position
+     */
+    public ByteBufferWikiPrinter(ByteBuffer buffer)
+    {
+        this.buffer = buffer;
+        this.encodingBuffer = buffer.hasArray() ? null : new byte[DEFAULT_BUFFER_SIZE];
+
+        resetBuffer();
+    }
+
+    /**
+     * @return the buffer containing the UTF-8 bytes, in write mode (the bytes are located before the position). It
+     *         may be a different instance than the one passed to the constructor if it had to be enlarged. A high
+     *         surrogate printed last isn't in the buffer until the following low surrogate is printed or
+     *         {@link #flush()} is called.
+     */
+    public ByteBuffer getByteBuffer()
+    {
+        flushBytes();
+
+        return this.buffer;
+    }
+
+    /**
+     * Removes the buffer's content which allows the printer to be reused.
+     */
+    public void clear()
+    {
+        reset();
+        // Call the Buffer methods through Buffer since ByteBuffer overrides them only since Java 9
+        ((Buffer) this.buffer).clear();
+        resetBuffer();
+    }
+
+    @Override
+    protected void flushBuffer(byte[] bytes, int offset, int length)
+    {
+        if (this.encodingBuffer == null) {
+            // The bytes are already in the buffer's array
+            ((Buffer) this.buffer).position(this.buffer.position() + length);
+            resetBuffer();
+        } else {
+            if (this.buffer.remaining() < length) {
+                enlarge(length);
+            }
+            this.buffer.put(bytes, offset, length);
+        }
+    }
+
+    private void resetBuffer()
+    {
+        if (this.encodingBuffer == null) {
+            if (this.buffer.remaining() < MAX_BYTES_PER_CODE_POINT) {
+                enlarge(MAX_BYTES_PER_CODE_POINT);
+            }
+            int offset = this.buffer.arrayOffset();
+            setBuffer(this.buffer.array(), offset + this.buffer.position(), offset + this.buffer.limit());
+        } else {
+            setBuffer(this.encodingBuffer, 0, this.encodingBuffer.length);
+        }
+    }
+
+    private void enlarge(int length)
+    {
+        int capacity = Math.max(this.buffer.capacity() * 2, this.buffer.position() + length);
+        ByteBuffer newBuffer =
+            this.buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        ((Buffer) this.buffer).flip();
+        newBuffer.put(this.buffer);
+        this.buffer = newBuffer;
+    }
+
+    @Override
+    public String toString()
+    {
+        ByteBuffer content = getByteBuffer().duplicate();
+        ((Buffer) content).flip();
+
+        String text = StandardCharsets.UTF_8.decode(content).toString();
+
+        // Include the high surrogate waiting for the following low surrogate, as it was printed
+        char highSurrogate = getPendingHighSurrogate();
+
+        return highSurrogate != 0 ? text + highSurrogate : text;
+    }
+}
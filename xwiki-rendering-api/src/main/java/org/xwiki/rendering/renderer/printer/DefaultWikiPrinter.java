@@ -78,6 +78,18 @@ public void println(String text)
         getBuffer().append(text).append(getEOL());
     }
 
+    @Override
+    public void print(char[] text, int offset, int length)
+    {
+        getBuffer().append(text, offset, length);
+    }
+
+    @Override
+    public void print(CharSequence text, int start, int end)
+    {
+        getBuffer().append(text, start, end);
+    }
+
     @Override
     public String toString()
     {
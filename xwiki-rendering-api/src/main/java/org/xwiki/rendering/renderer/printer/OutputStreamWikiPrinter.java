@@ -0,0 +1,84 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.renderer.printer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import org.xwiki.stability.Unstable;
+
+/**
+ * Printer encoding the printed characters as UTF-8 directly into an {@link OutputStream}. Don't forget to call
+ * {@link #flush()} once everything has been printed.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public class OutputStreamWikiPrinter extends AbstractUTF8WikiPrinter
+{
+    private final OutputStream stream;
+
+    /**
+     * @param stream the stream where to write the UTF-8 bytes
+     */
+    public OutputStreamWikiPrinter(OutputStream stream)
+    {
+        this(stream, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param stream the stream where to write the UTF-8 bytes
+     * @param bufferSize the number of bytes to accumulate before writing them to the stream
+     */
+    public OutputStreamWikiPrinter(OutputStream stream, int bufferSize)
+    {
+        super(bufferSize);
+
+        this.stream = stream;
+    }
+
+    /**
+     * @return the stream where the UTF-8 bytes are written
+     */
+    public OutputStream getOutputStream()
+    {
+        return this.stream;
+    }
+
+    @Override
+    protected void flushBuffer(byte[] buffer, int offset, int length)
+    {
+        try {
+            this.stream.write(buffer, offset, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write", e);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        flush();
+
+        return this.stream.toString();
+    }
+}
@@ -49,4 +49,16 @@ public void println(String text)
     {
         // Don't do anything
     }
+
+    @Override
+    public void print(char[] text, int offset, int length)
+    {
+        // Don't do anything
+    }
+
+    @Override
+    public void print(CharSequence text, int start, int end)
+    {
+        // Don't do anything
+    }
 }
@@ -19,6 +19,8 @@
  */
 package org.xwiki.rendering.renderer.printer;
 
+import org.xwiki.stability.Unstable;
+
 /**
  * Printer for {@link org.xwiki.rendering.renderer.PrintRenderer}s.
  *
@@ -36,4 +38,34 @@
      * @param text print the provided {@link String} and add a new line.
      */
     void println(String text);
+
+    /**
+     * Print a range of characters without requiring the caller to create a {@link String} for it. Printers writing to
+     * a target able to receive characters directly should override it to avoid the copy.
+     *
+     * @param text the characters to print
+     * @param offset the index of the first character to print
+     * @param length the number of characters to print
+     * @since 10.4RC1
+     */
+    @Unstable
+    default void print(char[] text, int offset, int length)
+    {
+        print(String.valueOf(text, offset, length));
+    }
+
+    /**
+     * Print a range of a {@link CharSequence} without requiring the caller to create a {@link String} for it. Printers
+     * writing to a target able to receive characters directly should override it to avoid the copy.
+     *
+     * @param text the characters to print
+     * @param start the index of the first character to print
+     * @param end the index after the last character to print
+     * @since 10.4RC1
+     */
+    @Unstable
+    default void print(CharSequence text, int start, int end)
+    {
+        print(text.subSequence(start, end).toString());
+    }
 }
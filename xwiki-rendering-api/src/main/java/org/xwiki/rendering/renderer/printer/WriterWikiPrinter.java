@@ -78,6 +78,26 @@ public void println(String text)
         print(getEOL());
     }
 
+    @Override
+    public void print(char[] text, int offset, int length)
+    {
+        try {
+            this.writer.write(text, offset, length);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write", e);
+        }
+    }
+
+    @Override
+    public void print(CharSequence text, int start, int end)
+    {
+        try {
+            this.writer.append(text, start, end);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write", e);
+        }
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,52 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.transformation;
+
+import org.xwiki.rendering.listener.chaining.ChainingListener;
+import org.xwiki.rendering.listener.chaining.ListenerChain;
+import org.xwiki.stability.Unstable;
+
+/**
+ * A {@link Transformation} which only needs a local view of the content and can thus also be executed on a stream of
+ * events, while the content is being parsed, instead of on a fully built XDOM. See
+ * {@link TransformationManager#createStreamingListener(org.xwiki.rendering.listener.Listener, TransformationContext)}.
+ * <p>
+ * Transformations needing the whole content (for example to look at the siblings or the ancestors of a block, or to
+ * modify blocks located before the current one) should only implement {@link Transformation}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public interface StreamingTransformation extends Transformation
+{
+    /**
+     * Create a new listener executing the transformation on the events it receives and sending the resulting events to
+     * the next listener in the passed chain.
+     * <p>
+     * Note that {@link TransformationContext#getXDOM()} is null when the transformation is executed on a stream of
+     * events.
+     *
+     * @param listenerChain the chain to which the created listener will be added
+     * @param context the context of the transformation process (syntax, transformation id, etc)
+     * @return the listener executing the transformation
+     */
+    ChainingListener createChainingListener(ListenerChain listenerChain, TransformationContext context);
+}
@@ -19,6 +19,8 @@
  */
 package org.xwiki.rendering.transformation;
 
+import java.util.concurrent.ExecutorService;
+
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.syntax.Syntax;
 
@@ -55,6 +57,11 @@ public class TransformationContext implements Cloneable
      */
     private Syntax targetSyntax;
 
+    /**
+     * @see #getExecutor()
+     */
+    private ExecutorService executor;
+
     /**
      * Default constructor that doesn't set the XDOM or the Syntax. This is because setting the XDOM and the Syntax is
      * optional and only required by some Macros to behave as expected.
@@ -174,6 +181,27 @@ public void setTargetSyntax(Syntax targetSyntax)
         this.targetSyntax = targetSyntax;
     }
 
+    /**
+     * @return the executor that transformations can use to perform some work concurrently (e.g. the macro
+     *         transformation executes with it the isolated macros having the same priority), null (the default) to
+     *         perform all the work in the current thread
+     * @since 10.4RC1
+     */
+    public ExecutorService getExecutor()
+    {
+        return this.executor;
+    }
+
+    /**
+     * @param executor the executor that transformations can use to perform some work concurrently
+     * @since 10.4RC1
+     * @see #getExecutor()
+     */
+    public void setExecutor(ExecutorService executor)
+    {
+        this.executor = executor;
+    }
+
     @Override
     public TransformationContext clone()
     {
@@ -22,7 +22,9 @@
 import org.xwiki.component.annotation.Role;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
 
 /**
  * Executes a set of transformations, in the correct order.
@@ -49,4 +51,22 @@
      * @since 2.4M1
      */
     void performTransformations(Block block, TransformationContext context) throws TransformationException;
+
+    /**
+     * Create a listener executing the transformations on the events it receives before sending them to the passed
+     * listener, so that the transformations can be executed while the content is being parsed, without building a
+     * XDOM. This is only possible when all the transformations to execute are {@link StreamingTransformation}s.
+     *
+     * @param listener the listener receiving the transformed events
+     * @param context the context of the transformation process
+     * @return the listener to send the events to (the passed listener if there's no transformation to execute), or
+     *         null if at least one of the transformations needs the whole XDOM, in which case
+     *         {@link #performTransformations(Block, TransformationContext)} should be used instead
+     * @since 10.4RC1
+     */
+    @Unstable
+    default Listener createStreamingListener(Listener listener, TransformationContext context)
+    {
+        return null;
+    }
 }
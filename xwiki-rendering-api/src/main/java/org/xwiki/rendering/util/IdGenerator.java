@@ -20,6 +20,7 @@
 package org.xwiki.rendering.util;
 
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -69,6 +70,26 @@
      */
     private Set<String> generatedIds = new HashSet<String>();
 
+    /**
+     * Create a new id generator which did not generate any id yet.
+     */
+    public IdGenerator()
+    {
+        // Nothing to do
+    }
+
+    /**
+     * Create a new id generator which knows the ids already generated by the passed generator. Both generators are then
+     * independent: the ids generated by one are not known by the other.
+     *
+     * @param idGenerator the generator to copy
+     * @since 10.4RC1
+     */
+    public IdGenerator(IdGenerator idGenerator)
+    {
+        this.generatedIds.addAll(idGenerator.generatedIds);
+    }
+
     /**
      * Same as {@link #generateUniqueId(String, String)} but with a fixed prefix of "I".
      *
@@ -191,6 +212,26 @@ public void remove(String id)
         this.generatedIds.remove(id);
     }
 
+    /**
+     * Mark the passed id as already generated so that it won't be generated again.
+     *
+     * @param id the id to add to the generated ids
+     * @since 10.4RC1
+     */
+    public void add(String id)
+    {
+        this.generatedIds.add(id);
+    }
+
+    /**
+     * @return the ids generated so far (read only)
+     * @since 10.4RC1
+     */
+    public Set<String> getGeneratedIds()
+    {
+        return Collections.unmodifiableSet(this.generatedIds);
+    }
+
     /**
      * Reset the known generated ids.
      */
@@ -351,4 +351,58 @@ public void testAbstractBlockEquals()
         //hashCode must be equal.
         Assert.assertEquals(macroMarkerBlock1.hashCode(), macroMarkerBlock2.hashCode());
     }
+
+    @Test
+    public void testGetStructuralHash()
+    {
+        ParagraphBlock paragraph = new ParagraphBlock(Arrays.<Block>asList(new WordBlock("a"), new SpaceBlock(),
+            new WordBlock("b")));
+        ParagraphBlock otherParagraph = new ParagraphBlock(Arrays.<Block>asList(new WordBlock("a"),
+            new NewLineBlock(), new WordBlock("b")));
+
+        // Contrary to equals() the structural hash depends on the class of the blocks
+        Assert.assertEquals(paragraph, otherParagraph);
+        Assert.assertNotEquals(paragraph.getStructuralHash(), otherParagraph.getStructuralHash());
+
+        XDOM xdom = new XDOM(Arrays.<Block>asList(paragraph));
+        StructuralHash hash = xdom.getStructuralHash();
+        Assert.assertSame(hash, xdom.getStructuralHash());
+        Assert.assertEquals(hash, xdom.clone().getStructuralHash());
+        Assert.assertNotEquals(hash, new XDOM(Arrays.<Block>asList(new ParagraphBlock(Arrays.<Block>asList(
+            new WordBlock("a"), new SpaceBlock(), new WordBlock("c"))))).getStructuralHash());
+        Assert.assertEquals(32, hash.toString().length());
+    }
+
+    @Test
+    public void testGetStructuralHashAfterModification()
+    {
+        WordBlock word = new WordBlock("a");
+        ParagraphBlock paragraph = new ParagraphBlock(Arrays.<Block>asList(word));
+        EmptyLinesBlock emptyLines = new EmptyLinesBlock(1);
+        XDOM xdom = new XDOM(Arrays.<Block>asList(paragraph, emptyLines));
+        StructuralHash hash = xdom.getStructuralHash();
+
+        word.setParameter("name", "value");
+        StructuralHash modifiedHash = xdom.getStructuralHash();
+        Assert.assertNotEquals(hash, modifiedHash);
+
+        word.setParameters(Collections.<String, String>emptyMap());
+        Assert.assertEquals(hash, xdom.getStructuralHash());
+
+        WordBlock otherWord = new WordBlock("b");
+        paragraph.addChild(otherWord);
+        Assert.assertNotEquals(hash, xdom.getStructuralHash());
+
+        paragraph.removeBlock(otherWord);
+        Assert.assertEquals(hash, xdom.getStructuralHash());
+
+        paragraph.replaceChild(new WordBlock("b"), word);
+        Assert.assertNotEquals(hash, xdom.getStructuralHash());
+
+        paragraph.setChildren(Arrays.<Block>asList(new WordBlock("a")));
+        Assert.assertEquals(hash, xdom.getStructuralHash());
+
+        emptyLines.setEmptyLinesCount(2);
+        Assert.assertNotEquals(hash, xdom.getStructuralHash());
+    }
 }
@@ -19,13 +19,25 @@
  */
 package org.xwiki.rendering.block.match;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MetaDataBlock;
 import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.SectionBlock;
 import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.MetaData;
 
 public class BlockNavigatorTest
 {
@@ -196,4 +208,133 @@ public void testGetFirstBlock()
         Assert.assertNull(navigator.getFirstBlock(contextBlock, Block.Axes.FOLLOWING_SIBLING));
         Assert.assertNull(navigator.getFirstBlock(contextBlock, Block.Axes.SELF));
     }
+
+    @Test
+    public void testGetBlocksWithIndex()
+    {
+        HeaderBlock header1 = new HeaderBlock(Arrays.<Block>asList(new WordBlock("h1")), HeaderLevel.LEVEL1);
+        HeaderBlock header2 = new HeaderBlock(Arrays.<Block>asList(new WordBlock("h2")), HeaderLevel.LEVEL2);
+        MacroBlock macro = new MacroBlock("macro", Collections.<String, String>emptyMap(), false);
+        SectionBlock subSection = new SectionBlock(Arrays.<Block>asList(header2, macro));
+        SectionBlock section = new SectionBlock(Arrays.<Block>asList(header1, subSection));
+        XDOM xdom = new XDOM(Arrays.<Block>asList(new ParagraphBlock(Arrays.<Block>asList(new WordBlock("p"))),
+            section));
+        xdom.setIndexed(true);
+
+        Assert.assertEquals(Arrays.asList(header1, header2),
+            xdom.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT));
+        Assert.assertSame(header2,
+            subSection.getFirstBlock(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT));
+        Assert.assertEquals(Arrays.asList(section, subSection),
+            section.getBlocks(new ClassBlockMatcher(SectionBlock.class), Block.Axes.DESCENDANT_OR_SELF));
+        Assert.assertSame(macro, xdom.getFirstBlock(new MacroBlockMatcher("macro"), Block.Axes.DESCENDANT));
+
+        // The index is updated when the document is modified
+        MetaDataBlock metaData = new MetaDataBlock(Arrays.<Block>asList(new WordBlock("m")),
+            new MetaData(Collections.<String, Object>singletonMap("key", "value")));
+        subSection.replaceChild(metaData, macro);
+        HeaderBlock header0 = new HeaderBlock(Arrays.<Block>asList(new WordBlock("h0")), HeaderLevel.LEVEL1);
+        xdom.insertChildBefore(header0, section);
+        section.removeBlock(header1);
+
+        Assert.assertNull(xdom.getFirstBlock(new MacroBlockMatcher("macro"), Block.Axes.DESCENDANT));
+        Assert.assertEquals(Arrays.asList(header0, header2),
+            xdom.getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT));
+        Assert.assertEquals(Arrays.asList(metaData),
+            xdom.getBlocks(new MetadataBlockMatcher("key", "value"), Block.Axes.DESCENDANT));
+        Assert.assertEquals(Arrays.asList(xdom, metaData),
+            xdom.getBlocks(new ClassBlockMatcher(MetaDataBlock.class), Block.Axes.DESCENDANT_OR_SELF));
+        Assert.assertEquals(xdom.getBlocks(AnyBlockMatcher.ANYBLOCKMATCHER, Block.Axes.DESCENDANT),
+            xdom.getBlocks(new ClassBlockMatcher(Block.class), Block.Axes.DESCENDANT));
+    }
+
+    @Test
+    public void testGetBlocksWithIndexAfterMetaDataModification()
+    {
+        MetaDataBlock metaData = new MetaDataBlock(Arrays.<Block>asList(new WordBlock("m")));
+        XDOM xdom =
+            new XDOM(Arrays.<Block>asList(new ParagraphBlock(Arrays.<Block>asList(metaData))), new MetaData());
+        xdom.setIndexed(true);
+
+        Assert.assertEquals(Collections.emptyList(),
+            xdom.getBlocks(new MetadataBlockMatcher("key"), Block.Axes.DESCENDANT_OR_SELF));
+
+        // Metadata added after the blocks have been indexed
+        metaData.getMetaData().addMetaData("key", "value");
+        xdom.getMetaData().addMetaData("key", "value");
+
+        Assert.assertEquals(Arrays.asList(xdom, metaData),
+            xdom.getBlocks(new MetadataBlockMatcher("key"), Block.Axes.DESCENDANT_OR_SELF));
+        Assert.assertSame(metaData,
+            xdom.getFirstBlock(new MetadataBlockMatcher("key", "value"), Block.Axes.DESCENDANT));
+    }
+
+    @Test
+    public void testGetBlocksWithIndexInWideParent()
+    {
+        List<Block> words = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            words.add(new WordBlock("w" + i));
+        }
+        XDOM xdom = new XDOM(Arrays.<Block>asList(new ParagraphBlock(words)));
+        xdom.setIndexed(true);
+
+        Assert.assertEquals(words, xdom.getBlocks(new ClassBlockMatcher(WordBlock.class), Block.Axes.DESCENDANT));
+    }
+
+    @Test
+    public void testIteratorAndStream()
+    {
+        BlockNavigator navigator = new BlockNavigator(new ClassBlockMatcher(WordBlock.class));
+
+        for (Block.Axes axes : Block.Axes.values()) {
+            List<Block> expected = navigator.getBlocks(contextBlock, axes);
+
+            List<Block> blocks = new ArrayList<>();
+            for (Iterator<Block> iterator = navigator.iterator(contextBlock, axes); iterator.hasNext();) {
+                blocks.add(iterator.next());
+            }
+            Assert.assertEquals(expected, blocks);
+
+            Assert.assertEquals(expected,
+                navigator.<Block>stream(contextBlock, axes).collect(Collectors.<Block>toList()));
+        }
+
+        Assert.assertEquals(Arrays.asList(contextBlockChild11, contextBlockChild12),
+            new BlockNavigator().stream(contextBlock, Block.Axes.DESCENDANT).filter(WordBlock.class::isInstance)
+                .limit(2).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testVisit()
+    {
+        BlockNavigator navigator = new BlockNavigator(new ClassBlockMatcher(WordBlock.class));
+
+        List<WordBlock> visited = new ArrayList<>();
+        Assert.assertFalse(navigator.visit(parentBlock, Block.Axes.DESCENDANT, (WordBlock block) -> {
+            visited.add(block);
+            return block != contextBlockChild12;
+        }));
+        Assert.assertEquals(Arrays.asList(precedingBlockChild1, precedingBlockChild2, contextBlockChild11,
+            contextBlockChild12), visited);
+
+        visited.clear();
+        Assert.assertTrue(navigator.visit(contextBlock, Block.Axes.FOLLOWING, (WordBlock block) -> visited.add(block)));
+        Assert.assertEquals(Arrays.asList(followingBlockChild1, followingBlockChild2), visited);
+    }
+
+    @Test
+    public void testGetBlocksInDeepTree()
+    {
+        WordBlock leaf = new WordBlock("leaf");
+        Block root = leaf;
+        for (int i = 0; i < 100000; ++i) {
+            root = new ParagraphBlock(Collections.singletonList(root));
+        }
+
+        Assert.assertEquals(Arrays.asList(leaf),
+            root.getBlocks(new ClassBlockMatcher(WordBlock.class), Block.Axes.DESCENDANT));
+        Assert.assertSame(leaf, root.getFirstBlock(new ClassBlockMatcher(WordBlock.class), Block.Axes.DESCENDANT));
+        Assert.assertSame(root, leaf.getFirstBlock(new SameBlockMatcher(root), Block.Axes.ANCESTOR));
+    }
 }
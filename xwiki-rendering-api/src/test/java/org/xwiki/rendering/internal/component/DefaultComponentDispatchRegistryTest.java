@@ -0,0 +1,183 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.component;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.manager.ComponentEventManager;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.util.ReflectionUtils;
+import org.xwiki.rendering.parser.ResourceReferenceTypeParser;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultComponentDispatchRegistry}.
+ *
+ * @version $Id$
+ */
+public class DefaultComponentDispatchRegistryTest
+{
+    @Rule
+    public MockitoComponentMockingRule<ComponentDispatchRegistry> mocker =
+        new MockitoComponentMockingRule<ComponentDispatchRegistry>(DefaultComponentDispatchRegistry.class);
+
+    private ComponentManager componentManager;
+
+    private ResourceReferenceTypeParser singletonParser;
+
+    private ComponentDispatchRegistry registry;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.componentManager = mock(ComponentManager.class);
+        when(this.componentManager.getComponentEventManager()).thenReturn(mock(ComponentEventManager.class));
+
+        // Snapshots are only taken for the component manager owning the registry
+        this.registry = this.mocker.getComponentUnderTest();
+        ReflectionUtils.setFieldValue(this.registry, "componentManager", this.componentManager);
+
+        DefaultComponentDescriptor<ResourceReferenceTypeParser> singletonDescriptor =
+            new DefaultComponentDescriptor<>();
+        singletonDescriptor.setRoleType(ResourceReferenceTypeParser.class);
+        singletonDescriptor.setRoleHint("singleton");
+        singletonDescriptor.setInstantiationStrategy(ComponentInstantiationStrategy.SINGLETON);
+
+        DefaultComponentDescriptor<ResourceReferenceTypeParser> perLookupDescriptor =
+            new DefaultComponentDescriptor<>();
+        perLookupDescriptor.setRoleType(ResourceReferenceTypeParser.class);
+        perLookupDescriptor.setRoleHint("perlookup");
+        perLookupDescriptor.setInstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP);
+
+        when(this.componentManager.<ResourceReferenceTypeParser>getComponentDescriptorList(
+            (Type) ResourceReferenceTypeParser.class))
+            .thenReturn(Arrays.asList(singletonDescriptor, perLookupDescriptor));
+
+        this.singletonParser = mock(ResourceReferenceTypeParser.class, "singleton");
+        when(this.componentManager.getInstance(ResourceReferenceTypeParser.class, "singleton"))
+            .thenReturn(this.singletonParser);
+        when(this.componentManager.getInstance(ResourceReferenceTypeParser.class, "perlookup")).thenReturn(
+            mock(ResourceReferenceTypeParser.class, "perlookup1"),
+            mock(ResourceReferenceTypeParser.class, "perlookup2"));
+    }
+
+    @Test
+    public void getTable() throws Exception
+    {
+        ComponentDispatchTable<ResourceReferenceTypeParser> table =
+            this.registry.getTable(this.componentManager, ResourceReferenceTypeParser.class);
+
+        assertFalse(table.isLive());
+        assertSame(table,
+            this.registry.getTable(this.componentManager, ResourceReferenceTypeParser.class));
+
+        assertTrue(table.hasComponent("singleton"));
+        assertTrue(table.isSingleton("singleton"));
+        assertTrue(table.hasComponent("perlookup"));
+        assertFalse(table.isSingleton("perlookup"));
+        assertFalse(table.hasComponent("unknown"));
+        assertNull(table.getInstance("unknown"));
+
+        assertSame(this.singletonParser, table.getInstance("singleton"));
+        assertSame(this.singletonParser, table.getInstance("singleton"));
+        verify(this.componentManager).getInstance(ResourceReferenceTypeParser.class, "singleton");
+
+        assertNotSame(table.getInstance("perlookup"), table.getInstance("perlookup"));
+        verify(this.componentManager, times(2)).getInstance(ResourceReferenceTypeParser.class, "perlookup");
+
+        // Only the descriptors have been looked up
+        verify(this.componentManager).getComponentDescriptorList((Type) ResourceReferenceTypeParser.class);
+    }
+
+    @Test
+    public void invalidate() throws Exception
+    {
+        ComponentDispatchTable<ResourceReferenceTypeParser> table =
+            this.registry.getTable(this.componentManager, ResourceReferenceTypeParser.class);
+
+        this.registry.invalidate();
+
+        ComponentDispatchTable<ResourceReferenceTypeParser> newTable =
+            this.registry.getTable(this.componentManager, ResourceReferenceTypeParser.class);
+
+        assertNotSame(table, newTable);
+        verify(this.componentManager, times(2)).getComponentDescriptorList((Type) ResourceReferenceTypeParser.class);
+    }
+
+    @Test
+    public void getTableWithoutComponentEventManager() throws Exception
+    {
+        when(this.componentManager.getComponentEventManager()).thenReturn(null);
+
+        assertLiveTable(this.componentManager);
+    }
+
+    @Test
+    public void getTableForOtherComponentManager() throws Exception
+    {
+        ComponentManager otherComponentManager = mock(ComponentManager.class, "other");
+        when(otherComponentManager.getComponentEventManager()).thenReturn(mock(ComponentEventManager.class));
+        when(otherComponentManager.getInstance(ResourceReferenceTypeParser.class, "singleton"))
+            .thenReturn(this.singletonParser);
+
+        assertLiveTable(otherComponentManager);
+    }
+
+    private void assertLiveTable(ComponentManager componentManager) throws Exception
+    {
+        when(componentManager.hasComponent(ResourceReferenceTypeParser.class, "singleton")).thenReturn(true);
+
+        ComponentDispatchTable<ResourceReferenceTypeParser> table =
+            this.registry.getTable(componentManager, ResourceReferenceTypeParser.class);
+
+        assertTrue(table.isLive());
+        assertTrue(table.hasComponent("singleton"));
+        assertSame(this.singletonParser, table.getInstance("singleton"));
+        assertNull(table.getInstance("unknown"));
+
+        // A component registered later is found
+        ResourceReferenceTypeParser newParser = mock(ResourceReferenceTypeParser.class, "new");
+        when(componentManager.hasComponent(ResourceReferenceTypeParser.class, "new")).thenReturn(true);
+        when(componentManager.getInstance(ResourceReferenceTypeParser.class, "new")).thenReturn(newParser);
+
+        assertSame(newParser,
+            this.registry.<ResourceReferenceTypeParser>getTable(componentManager, ResourceReferenceTypeParser.class)
+                .getInstance("new"));
+
+        verify(componentManager, never()).getComponentDescriptorList((Type) ResourceReferenceTypeParser.class);
+    }
+}
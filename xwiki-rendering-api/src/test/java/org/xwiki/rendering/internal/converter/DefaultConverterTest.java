@@ -0,0 +1,176 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.converter;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.configuration.RenderingConfiguration;
+import org.xwiki.rendering.converter.Converter;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.parser.StreamParser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationManager;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultConverter}.
+ *
+ * @version $Id$
+ */
+public class DefaultConverterTest
+{
+    @Rule
+    public MockitoComponentMockingRule<Converter> mocker =
+        new MockitoComponentMockingRule<Converter>(DefaultConverter.class);
+
+    private StringReader source = new StringReader("content");
+
+    private WikiPrinter printer = new DefaultWikiPrinter();
+
+    private StreamParser streamParser;
+
+    private PrintRenderer printRenderer;
+
+    private XDOM xdom = new XDOM(Collections.<Block>emptyList());
+
+    private Parser parser;
+
+    private BlockRenderer blockRenderer;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.mocker.registerComponent(ComponentManager.class, "context", this.mocker);
+
+        this.streamParser = this.mocker.registerMockComponent(StreamParser.class, Syntax.XWIKI_2_1.toIdString());
+        this.parser = this.mocker.registerMockComponent(Parser.class, Syntax.XWIKI_2_1.toIdString());
+        when(this.parser.parse(this.source)).thenReturn(this.xdom);
+
+        PrintRendererFactory rendererFactory =
+            this.mocker.registerMockComponent(PrintRendererFactory.class, Syntax.XHTML_1_0.toIdString());
+        this.printRenderer = mock(PrintRenderer.class);
+        when(rendererFactory.createRenderer(this.printer)).thenReturn(this.printRenderer);
+        this.blockRenderer = this.mocker.registerMockComponent(BlockRenderer.class, Syntax.XHTML_1_0.toIdString());
+    }
+
+    private void configureTransformations(String... hints) throws Exception
+    {
+        RenderingConfiguration configuration = this.mocker.getInstance(RenderingConfiguration.class);
+        when(configuration.getTransformationNames()).thenReturn(Arrays.asList(hints));
+        for (String hint : hints) {
+            this.mocker.registerMockComponent(Transformation.class, hint);
+        }
+    }
+
+    private void assertStreamed() throws Exception
+    {
+        verify(this.streamParser).parse(this.source, this.printRenderer);
+        verify(this.parser, never()).parse(any());
+        verify(this.mocker.<TransformationManager>getInstance(TransformationManager.class), never())
+            .performTransformations(any(XDOM.class), any(TransformationContext.class));
+    }
+
+    @Test
+    public void convertWithoutTransformationIsStreamed() throws Exception
+    {
+        configureTransformations();
+
+        this.mocker.getComponentUnderTest().convert(this.source, Syntax.XWIKI_2_1, Syntax.XHTML_1_0, this.printer);
+
+        assertStreamed();
+    }
+
+    @Test
+    public void convertWithTransformationsBuildsXDOM() throws Exception
+    {
+        configureTransformations("macro");
+
+        this.mocker.getComponentUnderTest().convert(this.source, Syntax.XWIKI_2_1, Syntax.XHTML_1_0, this.printer);
+
+        verify(this.mocker.<TransformationManager>getInstance(TransformationManager.class))
+            .performTransformations(same(this.xdom), any(TransformationContext.class));
+        verify(this.blockRenderer).render(this.xdom, this.printer);
+        verify(this.streamParser, never()).parse(any(), any());
+    }
+
+    @Test
+    public void convertWithStreamingTransformationsIsStreamed() throws Exception
+    {
+        configureTransformations("wikiword");
+        Listener transformingListener = mock(Listener.class);
+        when(this.mocker.<TransformationManager>getInstance(TransformationManager.class)
+            .createStreamingListener(same(this.printRenderer), any(TransformationContext.class)))
+                .thenReturn(transformingListener);
+
+        this.mocker.getComponentUnderTest().convert(this.source, Syntax.XWIKI_2_1, Syntax.XHTML_1_0, this.printer);
+
+        verify(this.streamParser).parse(this.source, transformingListener);
+        verify(this.parser, never()).parse(any());
+        verify(this.mocker.<TransformationManager>getInstance(TransformationManager.class), never())
+            .performTransformations(any(XDOM.class), any(TransformationContext.class));
+    }
+
+    @Test
+    public void convertWhenNotTransformingIsStreamed() throws Exception
+    {
+        configureTransformations("macro");
+
+        this.mocker.getComponentUnderTest().convert(this.source, Syntax.XWIKI_2_1, Syntax.XHTML_1_0, this.printer,
+            false);
+
+        assertStreamed();
+    }
+
+    @Test
+    public void convertWithoutStreamParserBuildsXDOM() throws Exception
+    {
+        configureTransformations();
+        this.mocker.unregisterComponent(StreamParser.class, Syntax.XWIKI_2_1.toIdString());
+
+        this.mocker.getComponentUnderTest().convert(this.source, Syntax.XWIKI_2_1, Syntax.XHTML_1_0, this.printer);
+
+        verify(this.blockRenderer).render(this.xdom, this.printer);
+        verify(this.mocker.<TransformationManager>getInstance(TransformationManager.class), never())
+            .performTransformations(any(XDOM.class), any(TransformationContext.class));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.parser.cache;
+
+import java.io.StringReader;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.CachingParserFactory;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.util.IdGenerator;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultCachingParserFactory}.
+ *
+ * @version $Id$
+ */
+public class DefaultCachingParserFactoryTest
+{
+    @Rule
+    public MockitoComponentMockingRule<CachingParserFactory> mocker =
+        new MockitoComponentMockingRule<CachingParserFactory>(DefaultCachingParserFactory.class);
+
+    private Parser mockParser() throws Exception
+    {
+        Parser parser = mock(Parser.class);
+        when(parser.getSyntax()).thenReturn(Syntax.XWIKI_2_1);
+        when(parser.parse(any(StringReader.class))).then(new Answer<XDOM>()
+        {
+            @Override
+            public XDOM answer(InvocationOnMock invocation)
+            {
+                IdGenerator idGenerator = new IdGenerator();
+                idGenerator.generateUniqueId("H", "title");
+                return new XDOM(Arrays.<Block>asList(new WordBlock("word")), idGenerator);
+            }
+        });
+
+        return parser;
+    }
+
+    @Test
+    public void parseSameContentTwice() throws Exception
+    {
+        Parser parser = mockParser();
+        Parser cachingParser = this.mocker.getComponentUnderTest().createParser(parser);
+
+        XDOM xdom1 = cachingParser.parse(new StringReader("content"));
+        XDOM xdom2 = cachingParser.parse(new StringReader("content"));
+
+        verify(parser, times(1)).parse(any(StringReader.class));
+        Assert.assertNotSame(xdom1, xdom2);
+        Assert.assertEquals(xdom1, xdom2);
+        Assert.assertEquals(1, this.mocker.getComponentUnderTest().getHitCount());
+        Assert.assertEquals(1, this.mocker.getComponentUnderTest().getMissCount());
+
+        // The id generator state is kept but is not shared
+        Assert.assertNotSame(xdom1.getIdGenerator(), xdom2.getIdGenerator());
+        Assert.assertEquals("Htitle-1", xdom2.getIdGenerator().generateUniqueId("H", "title"));
+        Assert.assertEquals("Htitle-1", cachingParser.parse(new StringReader("content")).getIdGenerator()
+            .generateUniqueId("H", "title"));
+    }
+
+    @Test
+    public void parseDifferentContents() throws Exception
+    {
+        Parser parser = mockParser();
+        Parser cachingParser = this.mocker.getComponentUnderTest().createParser(parser);
+
+        cachingParser.parse(new StringReader("content1"));
+        cachingParser.parse(new StringReader("content2"));
+
+        verify(parser, times(2)).parse(any(StringReader.class));
+        Assert.assertEquals(0, this.mocker.getComponentUnderTest().getHitCount());
+        Assert.assertEquals(2, this.mocker.getComponentUnderTest().getMissCount());
+    }
+
+    @Test
+    public void evictWhenFull() throws Exception
+    {
+        ((DefaultCachingParserFactory) this.mocker.getComponentUnderTest()).setMaxEntries(1);
+
+        Parser parser = mockParser();
+        Parser cachingParser = this.mocker.getComponentUnderTest().createParser(parser);
+
+        cachingParser.parse(new StringReader("content1"));
+        cachingParser.parse(new StringReader("content2"));
+        cachingParser.parse(new StringReader("content1"));
+
+        verify(parser, times(3)).parse(any(StringReader.class));
+        Assert.assertEquals(2, this.mocker.getComponentUnderTest().getEvictionCount());
+    }
+
+    @Test
+    public void evictWhenTooHeavy() throws Exception
+    {
+        ((DefaultCachingParserFactory) this.mocker.getComponentUnderTest()).setMaxWeight(10);
+
+        Parser parser = mockParser();
+        Parser cachingParser = this.mocker.getComponentUnderTest().createParser(parser);
+
+        cachingParser.parse(new StringReader("content1"));
+        cachingParser.parse(new StringReader("content2"));
+        cachingParser.parse(new StringReader("content2"));
+
+        verify(parser, times(2)).parse(any(StringReader.class));
+        Assert.assertEquals(1, this.mocker.getComponentUnderTest().getHitCount());
+        Assert.assertEquals(1, this.mocker.getComponentUnderTest().getEvictionCount());
+    }
+}
@@ -28,10 +28,13 @@
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
+import org.xwiki.rendering.parser.ResourceReferenceTypeParser;
 import org.xwiki.rendering.wiki.WikiModel;
 import org.xwiki.test.annotation.AllComponents;
 import org.xwiki.test.mockito.MockitoComponentManagerRule;
 
+import static org.mockito.Mockito.when;
+
 /**
  * Unit tests for {@link DefaultLinkReferenceParser}.
  *
@@ -208,4 +211,23 @@ public void testParseWhenNotInWikiMode() throws Exception
         Assert.assertEquals(ResourceType.URL, reference.getType());
         Assert.assertEquals("Typed = [false] Type = [url] Reference = [attach:something]", reference.toString());
     }
+
+    @Test
+    public void testParseWithTypeParserRegisteredAfterFirstUse() throws Exception
+    {
+        this.componentManager.registerMockComponent(WikiModel.class);
+
+        ResourceReference reference = this.parser.parse("custom:content");
+        Assert.assertFalse(reference.isTyped());
+        Assert.assertEquals(ResourceType.DOCUMENT, reference.getType());
+
+        ResourceType customType = new ResourceType("custom");
+        ResourceReferenceTypeParser customParser =
+            this.componentManager.registerMockComponent(ResourceReferenceTypeParser.class, "custom");
+        when(customParser.parse("content")).thenReturn(new ResourceReference("content", customType));
+
+        reference = this.parser.parse("custom:content");
+        Assert.assertEquals(customType, reference.getType());
+        Assert.assertEquals("content", reference.getReference());
+    }
 }
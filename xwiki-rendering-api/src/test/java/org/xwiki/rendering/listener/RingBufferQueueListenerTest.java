@@ -0,0 +1,109 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.listener;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xwiki.rendering.listener.chaining.EventType;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+
+/**
+ * Unit tests for {@link RingBufferQueueListener}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class RingBufferQueueListenerTest
+{
+    private static final Map<String, String> PARAMETERS = Collections.singletonMap("key", "value");
+
+    @Test
+    public void getEvent()
+    {
+        RingBufferQueueListener queue = new RingBufferQueueListener();
+
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.getEventType(1));
+
+        queue.beginParagraph(PARAMETERS);
+        queue.onWord("word");
+        queue.endListItem();
+
+        Assert.assertEquals(3, queue.size());
+        Assert.assertEquals(EventType.BEGIN_PARAGRAPH, queue.getEventType(1));
+        Assert.assertEquals(EventType.ON_WORD, queue.getEventType(2));
+        Assert.assertEquals(EventType.END_LIST_ITEM, queue.getEventType(3));
+        Assert.assertNull(queue.getEventType(0));
+        Assert.assertNull(queue.getEventType(4));
+
+        Assert.assertEquals(1, queue.getEventParameterCount(1));
+        Assert.assertSame(PARAMETERS, queue.getEventParameter(1, 0));
+        Assert.assertEquals("word", queue.getEventParameter(2, 0));
+        Assert.assertEquals(0, queue.getEventParameterCount(3));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getEventParameterOutOfBounds()
+    {
+        RingBufferQueueListener queue = new RingBufferQueueListener();
+
+        queue.onWord("word");
+
+        queue.getEventParameter(1, 1);
+    }
+
+    @Test
+    public void consumeEventsAfterWrappingAndGrowing()
+    {
+        RingBufferQueueListener queue = new RingBufferQueueListener(2);
+        ResourceReference reference = new ResourceReference("reference", ResourceType.URL);
+
+        // Move the head of the ring before growing it
+        queue.onSpace();
+        queue.onSpace();
+        Assert.assertTrue(queue.consumeEvent(new QueueListener()));
+
+        queue.beginLink(reference, true, PARAMETERS);
+        queue.onMacro("macro", PARAMETERS, "content", false);
+        queue.endLink(reference, true, PARAMETERS);
+        queue.onEmptyLines(2);
+
+        QueueListener result = new QueueListener();
+        queue.consumeEvents(result);
+
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertFalse(queue.consumeEvent(result));
+
+        Assert.assertEquals(5, result.size());
+        Assert.assertEquals(EventType.ON_SPACE, result.getEvent(1).eventType);
+        Assert.assertEquals(EventType.BEGIN_LINK, result.getEvent(2).eventType);
+        Assert.assertArrayEquals(new Object[] {reference, true, PARAMETERS}, result.getEvent(2).eventParameters);
+        Assert.assertEquals(EventType.ON_MACRO, result.getEvent(3).eventType);
+        Assert.assertArrayEquals(new Object[] {"macro", PARAMETERS, "content", false},
+            result.getEvent(3).eventParameters);
+        Assert.assertEquals(EventType.END_LINK, result.getEvent(4).eventType);
+        Assert.assertEquals(EventType.ON_EMPTY_LINES, result.getEvent(5).eventType);
+        Assert.assertArrayEquals(new Object[] {2}, result.getEvent(5).eventParameters);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.renderer.printer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validate {@link ByteBufferWikiPrinter} and {@link OutputStreamWikiPrinter}.
+ *
+ * @version $Id$
+ */
+public class ByteBufferWikiPrinterTest
+{
+    private static final String TEXT = "ascii \u00e9t\u00e9 \u20ac \ud83d\ude00 end";
+
+    @Test
+    public void printEncodesUTF8()
+    {
+        ByteBufferWikiPrinter printer = new ByteBufferWikiPrinter(ByteBuffer.allocate(4));
+
+        printer.print(TEXT);
+        printer.println("");
+        printer.print(TEXT.toCharArray(), 1, 4);
+        printer.print(new StringBuilder(TEXT), 6, 9);
+
+        String expected = TEXT + "\n" + TEXT.substring(1, 5) + TEXT.substring(6, 9);
+        ByteBuffer buffer = printer.getByteBuffer();
+        Assert.assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8),
+            Arrays.copyOf(buffer.array(), buffer.position()));
+        Assert.assertEquals(expected, printer.toString());
+
+        printer.clear();
+        Assert.assertEquals("", printer.toString());
+    }
+
+    @Test
+    public void printSurrogatePairSplitAcrossCalls()
+    {
+        ByteBufferWikiPrinter printer = new ByteBufferWikiPrinter();
+
+        printer.print("\ud83d");
+        printer.print("\ude00");
+        // Lone surrogates are replaced like String#getBytes does
+        printer.print("\ude00a\ud83d");
+        printer.print("b");
+
+        Assert.assertEquals("\ud83d\ude00?a?b", printer.toString());
+
+        // A high surrogate printed last is flushed as a replacement
+        printer.clear();
+        printer.print("c\ud83d");
+        printer.flush();
+
+        Assert.assertEquals("c?", printer.toString());
+    }
+
+    @Test
+    public void toStringBetweenSurrogatePairHalves()
+    {
+        ByteBufferWikiPrinter printer = new ByteBufferWikiPrinter();
+
+        printer.print("c\ud83d");
+
+        // Looking at the content doesn't prevent the pair from being completed
+        Assert.assertEquals("c\ud83d", printer.toString());
+        Assert.assertEquals(1, printer.getByteBuffer().position());
+
+        printer.print("\ude00");
+
+        Assert.assertEquals("c\ud83d\ude00", printer.toString());
+        Assert.assertEquals(5, printer.getByteBuffer().position());
+    }
+
+    @Test
+    public void printIntoDirectBuffer()
+    {
+        ByteBufferWikiPrinter printer = new ByteBufferWikiPrinter(ByteBuffer.allocateDirect(4));
+
+        printer.print(TEXT);
+        printer.print(TEXT);
+
+        Assert.assertTrue(printer.getByteBuffer().isDirect());
+        Assert.assertEquals(TEXT + TEXT, printer.toString());
+    }
+
+    @Test
+    public void printIntoSlicedHeapBuffer()
+    {
+        ByteBuffer array = ByteBuffer.allocate(64);
+        ((Buffer) array).position(10);
+        ByteBuffer slice = array.slice();
+        slice.put((byte) 'x');
+        ByteBufferWikiPrinter printer = new ByteBufferWikiPrinter(slice);
+
+        printer.print(TEXT);
+
+        Assert.assertEquals("x" + TEXT, printer.toString());
+        Assert.assertArrayEquals(("x" + TEXT).getBytes(StandardCharsets.UTF_8),
+            Arrays.copyOfRange(array.array(), 10, 10 + printer.getByteBuffer().position()));
+    }
+
+    @Test
+    public void printToOutputStream()
+    {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        OutputStreamWikiPrinter printer = new OutputStreamWikiPrinter(stream, 5);
+
+        printer.print(TEXT);
+        printer.flush();
+
+        Assert.assertArrayEquals(TEXT.getBytes(StandardCharsets.UTF_8), stream.toByteArray());
+    }
+}
@@ -82,4 +82,16 @@ public void testGenerateUniqueIdWhenInvalidNonAlphaPrefix()
         this.thrown.expectMessage("The prefix [a-b] should only contain alphanumerical characters and not be empty.");
         this.idGenerator.generateUniqueId("a-b", "whatever");
     }
+
+    @Test
+    public void testCopy()
+    {
+        Assert.assertEquals("Itext", this.idGenerator.generateUniqueId("text"));
+
+        IdGenerator copy = new IdGenerator(this.idGenerator);
+        Assert.assertEquals("Itext-1", copy.generateUniqueId("text"));
+
+        // Both generators are independent
+        Assert.assertEquals("Itext-1", this.idGenerator.generateUniqueId("text"));
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xwiki.component.embed.EmbeddableComponentManager;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationException;
+
+/**
+ * Base class for the Rendering benchmarks: initialize a Component Manager containing all the components found in the
+ * classpath (the same way a standalone usage of the Rendering would) and provide helpers to prepare the inputs.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class AbstractRenderingBenchmark
+{
+    /**
+     * The hint of the macro transformation.
+     */
+    protected static final String MACRO_TRANSFORMATION = "macro";
+
+    private EmbeddableComponentManager componentManager;
+
+    /**
+     * Initialize the Component Manager and then the benchmark.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+    {
+        this.componentManager = new EmbeddableComponentManager();
+        this.componentManager.initialize(getClass().getClassLoader());
+
+        initialize();
+    }
+
+    /**
+     * Dispose the Component Manager.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        this.componentManager.dispose();
+    }
+
+    /**
+     * Prepare the inputs of the benchmark, called once the Component Manager is ready.
+     *
+     * @throws Exception when failing to initialize the benchmark
+     */
+    protected abstract void initialize() throws Exception;
+
+    /**
+     * @param <T> the component role type
+     * @param roleType the class of the component role
+     * @param roleHint the hint of the component
+     * @return the component instance
+     * @throws ComponentLookupException when the component is not available
+     */
+    protected <T> T getComponent(Type roleType, String roleHint) throws ComponentLookupException
+    {
+        return this.componentManager.getInstance(roleType, roleHint);
+    }
+
+    /**
+     * @param syntaxId the syntax of the inputs
+     * @param inputs the inputs to parse
+     * @return the parsed inputs
+     * @throws ComponentLookupException when there's no parser for the passed syntax
+     * @throws ParseException when failing to parse one of the inputs
+     */
+    protected List<XDOM> parse(String syntaxId, List<String> inputs) throws ComponentLookupException, ParseException
+    {
+        Parser parser = getComponent(Parser.class, syntaxId);
+
+        List<XDOM> xdoms = new ArrayList<>(inputs.size());
+        for (String input : inputs) {
+            xdoms.add(parser.parse(new StringReader(input)));
+        }
+
+        return xdoms;
+    }
+
+    /**
+     * Execute the macro transformation on the passed XDOM.
+     *
+     * @param xdom the XDOM to transform
+     * @param parser the parser used to produce the XDOM
+     * @throws ComponentLookupException when the macro transformation is not available
+     * @throws TransformationException when the transformation fails
+     */
+    protected void transform(XDOM xdom, Parser parser) throws ComponentLookupException, TransformationException
+    {
+        Transformation transformation = getComponent(Transformation.class, MACRO_TRANSFORMATION);
+        transformation.transform(xdom, new TransformationContext(xdom, parser.getSyntax()));
+    }
+}
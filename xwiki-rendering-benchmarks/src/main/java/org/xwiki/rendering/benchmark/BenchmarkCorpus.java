@@ -0,0 +1,150 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.reflections.Reflections;
+import org.reflections.scanners.ResourcesScanner;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+import org.xwiki.rendering.test.cts.Scope;
+import org.xwiki.rendering.test.cts.TestData;
+import org.xwiki.rendering.test.cts.TestDataParser;
+
+/**
+ * Collect the benchmark inputs written in a given syntax from the test data found in the classpath: the syntax
+ * specific inputs of the Compatibility Test Suite (see {@link org.xwiki.rendering.test.cts.CompatibilityTestSuite})
+ * and the inputs of the {@code *.test} files (see {@link org.xwiki.rendering.test.integration.TestDataParser}).
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public final class BenchmarkCorpus
+{
+    private static final String CTS_ROOT_PACKAGE = "cts";
+
+    private static final Pattern INTEGRATION_TEST_PATTERN = Pattern.compile(".*\\.test");
+
+    private static final String XHTML_1_0 = "xhtml/1.0";
+
+    private static final String DOCBOOK_4_4 = "docbook/4.4";
+
+    private BenchmarkCorpus()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param syntaxId the syntax of the inputs
+     * @return the CTS and {@code *.test} inputs written in the passed syntax
+     * @throws Exception when failing to read the test data
+     */
+    public static List<String> getInputs(String syntaxId) throws Exception
+    {
+        List<String> inputs = new ArrayList<>();
+        inputs.addAll(getCTSInputs(syntaxId));
+        inputs.addAll(getIntegrationTestInputs(syntaxId, false));
+
+        if (inputs.isEmpty()) {
+            throw new IllegalStateException("No test data found for syntax [" + syntaxId + "] in the classpath");
+        }
+
+        return inputs;
+    }
+
+    /**
+     * @param syntaxId the syntax of the inputs
+     * @return the CTS inputs written in the passed syntax, excluding the ones marked as not applicable or failing
+     * @throws Exception when failing to read the test data
+     */
+    public static List<String> getCTSInputs(String syntaxId) throws Exception
+    {
+        List<String> inputs = new ArrayList<>();
+
+        for (TestData data : new TestDataParser().parseTestData(syntaxId, CTS_ROOT_PACKAGE, "",
+            Scope.DEFAULT_PATTERN)) {
+            if (data.isSyntaxInputTest && data.syntaxData != null && !data.isNotApplicable()
+                && !data.isFailingTest()) {
+                inputs.add(data.syntaxData);
+            }
+        }
+
+        return inputs;
+    }
+
+    /**
+     * @param syntaxId the syntax of the inputs
+     * @param transformationsOnly true to only return the inputs of the tests executing transformations
+     * @return the {@code *.test} inputs written in the passed syntax
+     * @throws IOException when failing to read the test data
+     */
+    public static List<String> getIntegrationTestInputs(String syntaxId, boolean transformationsOnly)
+        throws IOException
+    {
+        Reflections reflections = new Reflections(
+            new ConfigurationBuilder().setScanners(new ResourcesScanner()).setUrls(ClasspathHelper.forPackage("")));
+        // Sort the resources to always get the inputs in the same order
+        Set<String> resourceNames = new TreeSet<>(reflections.getResources(INTEGRATION_TEST_PATTERN));
+
+        org.xwiki.rendering.test.integration.TestDataParser parser =
+            new org.xwiki.rendering.test.integration.TestDataParser();
+
+        List<String> inputs = new ArrayList<>();
+        for (String resourceName : resourceNames) {
+            InputStream source = BenchmarkCorpus.class.getResourceAsStream('/' + resourceName);
+            org.xwiki.rendering.test.integration.TestData data = parser.parse(source, resourceName);
+
+            String input = data.inputs.get(syntaxId);
+            if (input != null && (!transformationsOnly || data.transformations != null)) {
+                inputs.add(normalize(input, syntaxId));
+            }
+        }
+
+        return inputs;
+    }
+
+    /**
+     * Same normalization as the one done when executing the {@code *.test} files.
+     */
+    private static String normalize(String input, String syntaxId)
+    {
+        String normalized = input;
+
+        if (!input.startsWith("<?xml") && !input.startsWith("<!DOCTYPE")) {
+            if (XHTML_1_0.equals(syntaxId)) {
+                normalized = "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Strict//EN\" "
+                    + "\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-strict.dtd\"><html>" + input + "</html>";
+            } else if (DOCBOOK_4_4.equals(syntaxId)) {
+                normalized = "<?xml version=\"1.0\"?>"
+                    + "<!DOCTYPE article PUBLIC \"-//OASIS//DTD Simplified DocBook XML V1.1//EN\" "
+                    + "\"http://www.oasis-open.org/docbook/xml/simple/1.1/sdocbook.dtd\">" + input;
+            }
+        }
+
+        return normalized;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Execute the benchmarks with the GC profiler enabled, in order to get the allocation rate along with the time
+ * measurements.
+ * <p>
+ * Accepts the standard JMH command line options, for example
+ * {@code java -jar target/benchmarks.jar ParserBenchmark -p syntaxId=xwiki/2.1} to execute only the XWiki Syntax 2.1
+ * parser benchmark, or {@code java -jar target/benchmarks.jar -h} to list all the options.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public final class BenchmarkRunner
+{
+    private BenchmarkRunner()
+    {
+        // Main class
+    }
+
+    /**
+     * @param args the JMH command line options
+     * @throws Exception when failing to execute the benchmarks
+     */
+    public static void main(String[] args) throws Exception
+    {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()
+            || commandLineOptions.shouldListProfilers()) {
+            // Let JMH handle the informative options
+            org.openjdk.jmh.Main.main(args);
+        } else {
+            OptionsBuilder options = new OptionsBuilder();
+            options.parent(commandLineOptions);
+            if (!hasGCProfiler(commandLineOptions)) {
+                options.addProfiler(GCProfiler.class);
+            }
+            // Execute all the Rendering benchmarks by default
+            if (commandLineOptions.getIncludes().isEmpty()) {
+                options.include(BenchmarkRunner.class.getPackage().getName() + ".*");
+            }
+
+            new Runner(options.build()).run();
+        }
+    }
+
+    private static boolean hasGCProfiler(CommandLineOptions commandLineOptions)
+    {
+        for (ProfilerConfig profiler : commandLineOptions.getProfilers()) {
+            if (profiler.getKlass().equals(GCProfiler.class.getName()) || "gc".equals(profiler.getKlass())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.io.StringReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+
+/**
+ * Measure how the XWiki Syntax 2.x parsers scale with the size of macro and verbatim contents, using documents
+ * produced by {@link SyntheticDocumentGenerator#generateLargeContent(int)}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@State(Scope.Benchmark)
+public class LargeContentBenchmark extends AbstractRenderingBenchmark
+{
+    @Param({ "xwiki/2.0", "xwiki/2.1" })
+    private String syntaxId;
+
+    /**
+     * The approximate size of each large content, in kilobytes.
+     */
+    @Param({ "10", "100", "1000" })
+    private int size;
+
+    private Parser parser;
+
+    private String content;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        this.parser = getComponent(Parser.class, this.syntaxId);
+        this.content = new SyntheticDocumentGenerator().generateLargeContent(this.size);
+    }
+
+    /**
+     * @return the parsed content
+     * @throws ParseException when failing to parse the content
+     */
+    @Benchmark
+    public XDOM parse() throws ParseException
+    {
+        return this.parser.parse(new StringReader(this.content));
+    }
+}
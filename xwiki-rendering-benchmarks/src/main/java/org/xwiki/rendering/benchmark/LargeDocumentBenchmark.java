@@ -0,0 +1,147 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.io.StringReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationException;
+
+/**
+ * Measure how parsing, executing macros and rendering scale with the size of the content, using documents produced
+ * by {@link SyntheticDocumentGenerator}.
+ * <p>
+ * As with {@link MacroTransformationBenchmark} the cost of {@link #cloneXDOM()} should be subtracted from the result
+ * of {@link #transform()}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@State(Scope.Benchmark)
+public class LargeDocumentBenchmark extends AbstractRenderingBenchmark
+{
+    /**
+     * The kind of document to generate.
+     */
+    public enum Kind
+    {
+        /**
+         * See {@link SyntheticDocumentGenerator#generateText(int)}.
+         */
+        TEXT,
+
+        /**
+         * See {@link SyntheticDocumentGenerator#generateStructured(int)}.
+         */
+        STRUCTURED
+    }
+
+    @Param({ "TEXT", "STRUCTURED" })
+    private Kind kind;
+
+    @Param({ "10", "100", "1000" })
+    private int size;
+
+    private Parser parser;
+
+    private Transformation transformation;
+
+    private PrintRendererFactory rendererFactory;
+
+    private String content;
+
+    private XDOM xdom;
+
+    private XDOM transformedXDOM;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        this.parser = getComponent(Parser.class, Syntax.XWIKI_2_1.toIdString());
+        this.transformation = getComponent(Transformation.class, MACRO_TRANSFORMATION);
+        this.rendererFactory = getComponent(PrintRendererFactory.class, Syntax.XHTML_1_0.toIdString());
+
+        SyntheticDocumentGenerator generator = new SyntheticDocumentGenerator();
+        if (this.kind == Kind.TEXT) {
+            this.content = generator.generateText(this.size);
+        } else {
+            this.content = generator.generateStructured(this.size);
+        }
+
+        this.xdom = this.parser.parse(new StringReader(this.content));
+        this.transformedXDOM = this.xdom.clone();
+        transform(this.transformedXDOM, this.parser);
+    }
+
+    /**
+     * @return the parsed content
+     * @throws ParseException when failing to parse the content
+     */
+    @Benchmark
+    public XDOM parse() throws ParseException
+    {
+        return this.parser.parse(new StringReader(this.content));
+    }
+
+    /**
+     * @return the cloned XDOM
+     */
+    @Benchmark
+    public XDOM cloneXDOM()
+    {
+        return this.xdom.clone();
+    }
+
+    /**
+     * @return the transformed XDOM
+     * @throws TransformationException when the transformation fails
+     */
+    @Benchmark
+    public XDOM transform() throws TransformationException
+    {
+        XDOM clone = this.xdom.clone();
+        this.transformation.transform(clone, new TransformationContext(clone, this.parser.getSyntax()));
+
+        return clone;
+    }
+
+    /**
+     * @return the XHTML rendering of the transformed XDOM
+     */
+    @Benchmark
+    public String render()
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.transformedXDOM.traverse(this.rendererFactory.createRenderer(printer));
+
+        return printer.toString();
+    }
+}
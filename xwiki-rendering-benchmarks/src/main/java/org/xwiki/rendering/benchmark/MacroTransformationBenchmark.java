@@ -0,0 +1,91 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationException;
+
+/**
+ * Measure the cost of the macro transformation on the {@code *.test} inputs which are executing transformations.
+ * <p>
+ * The transformation modifies the XDOM so each invocation works on a clone of the parsed content: the cost of the
+ * clone alone is measured by {@link #cloneXDOM(Blackhole)} and should be subtracted from the result of
+ * {@link #transform(Blackhole)}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@State(Scope.Benchmark)
+public class MacroTransformationBenchmark extends AbstractRenderingBenchmark
+{
+    @Param({ "xwiki/2.0", "xwiki/2.1" })
+    private String syntaxId;
+
+    private Transformation transformation;
+
+    private Syntax syntax;
+
+    private List<XDOM> xdoms;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        this.transformation = getComponent(Transformation.class, MACRO_TRANSFORMATION);
+        Parser parser = getComponent(Parser.class, this.syntaxId);
+        this.syntax = parser.getSyntax();
+        this.xdoms = parse(this.syntaxId, BenchmarkCorpus.getIntegrationTestInputs(this.syntaxId, true));
+    }
+
+    /**
+     * @param blackhole used to consume the results
+     */
+    @Benchmark
+    public void cloneXDOM(Blackhole blackhole)
+    {
+        for (XDOM xdom : this.xdoms) {
+            blackhole.consume(xdom.clone());
+        }
+    }
+
+    /**
+     * @param blackhole used to consume the results
+     * @throws TransformationException when the transformation fails
+     */
+    @Benchmark
+    public void transform(Blackhole blackhole) throws TransformationException
+    {
+        for (XDOM xdom : this.xdoms) {
+            XDOM clone = xdom.clone();
+            this.transformation.transform(clone, new TransformationContext(clone, this.syntax));
+            blackhole.consume(clone);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+
+/**
+ * Measure the time needed by each {@link Parser} to parse all the test data available for its syntax.
+ * <p>
+ * Since the amount of test data differs from one syntax to another, the results should be compared between runs for
+ * the same syntax and not between syntaxes.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@State(Scope.Benchmark)
+public class ParserBenchmark extends AbstractRenderingBenchmark
+{
+    @Param({ "xwiki/2.0", "xwiki/2.1", "xhtml/1.0", "html/4.01", "docbook/4.4", "creole/1.0", "jspwiki/1.0",
+        "twiki/1.0", "apt/1.0", "plain/1.0" })
+    private String syntaxId;
+
+    private Parser parser;
+
+    private List<String> inputs;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        this.parser = getComponent(Parser.class, this.syntaxId);
+        this.inputs = BenchmarkCorpus.getInputs(this.syntaxId);
+    }
+
+    /**
+     * @param blackhole used to consume the results
+     * @throws ParseException when failing to parse an input
+     */
+    @Benchmark
+    public void parse(Blackhole blackhole) throws ParseException
+    {
+        for (String input : this.inputs) {
+            blackhole.consume(this.parser.parse(new StringReader(input)));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Measure the time needed by each {@link PrintRendererFactory} to render the XWiki Syntax 2.0 and 2.1 test data, once
+ * the macros have been executed.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@State(Scope.Benchmark)
+public class RendererBenchmark extends AbstractRenderingBenchmark
+{
+    @Param({ "xhtml/1.0", "html/5.0", "annotatedxhtml/1.0", "annotatedhtml/5.0", "xwiki/2.0", "xwiki/2.1",
+        "docbook/4.4", "apt/1.0", "plain/1.0", "event/1.0" })
+    private String syntaxId;
+
+    private PrintRendererFactory rendererFactory;
+
+    private List<XDOM> xdoms;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        this.rendererFactory = getComponent(PrintRendererFactory.class, this.syntaxId);
+
+        this.xdoms = new ArrayList<>();
+        for (Syntax syntax : new Syntax[] { Syntax.XWIKI_2_0, Syntax.XWIKI_2_1 }) {
+            Parser parser = getComponent(Parser.class, syntax.toIdString());
+            for (XDOM xdom : parse(syntax.toIdString(), BenchmarkCorpus.getInputs(syntax.toIdString()))) {
+                transform(xdom, parser);
+                this.xdoms.add(xdom);
+            }
+        }
+    }
+
+    /**
+     * @param blackhole used to consume the results
+     */
+    @Benchmark
+    public void render(Blackhole blackhole)
+    {
+        for (XDOM xdom : this.xdoms) {
+            DefaultWikiPrinter printer = new DefaultWikiPrinter();
+            xdom.traverse(this.rendererFactory.createRenderer(printer));
+            blackhole.consume(printer.toString());
+        }
+    }
+}
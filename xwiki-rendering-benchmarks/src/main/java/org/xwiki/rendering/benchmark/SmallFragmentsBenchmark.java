@@ -0,0 +1,88 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+
+/**
+ * Measure the time needed to parse many small fragments, like macro contents, table cells and link labels, for which
+ * the setup of the parser weighs as much as the parsing itself.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@State(Scope.Benchmark)
+public class SmallFragmentsBenchmark extends AbstractRenderingBenchmark
+{
+    private static final List<String> XWIKI_FRAGMENTS = Arrays.asList("Some **bold** text",
+        "[[label with //italic//>>Space.Page]]", "A message for the info box", "* item one\n* item two",
+        "|=Name|=Value\n|a|1", "(% class=\"note\" %)Styled //text//", "== Title ==", "Text with a {{id name=\"a\"/}}",
+        "{{{verbatim}}} text", "https://www.xwiki.org");
+
+    private static final List<String> CREOLE_FRAGMENTS = Arrays.asList("Some **bold** text",
+        "[[Space.Page|label]]", "A message for the info box", "* item one\n* item two", "|=Name|=Value\n|a|1",
+        "== Title ==", "{{{verbatim}}} text", "https://www.xwiki.org");
+
+    private static final List<String> JSPWIKI_FRAGMENTS = Arrays.asList("Some __bold__ text",
+        "[label|Space.Page]", "A message for the info box", "* item one\n* item two", "||Name||Value\n|a|1",
+        "!! Title", "{{{verbatim}}} text", "https://www.xwiki.org");
+
+    @Param({ "xwiki/2.0", "xwiki/2.1", "creole/1.0", "jspwiki/1.0" })
+    private String syntaxId;
+
+    private Parser parser;
+
+    private List<String> fragments;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        this.parser = getComponent(Parser.class, this.syntaxId);
+        if (this.syntaxId.startsWith("creole")) {
+            this.fragments = CREOLE_FRAGMENTS;
+        } else if (this.syntaxId.startsWith("jspwiki")) {
+            this.fragments = JSPWIKI_FRAGMENTS;
+        } else {
+            this.fragments = XWIKI_FRAGMENTS;
+        }
+    }
+
+    /**
+     * @param blackhole used to consume the results
+     * @throws ParseException when failing to parse a fragment
+     */
+    @Benchmark
+    public void parse(Blackhole blackhole) throws ParseException
+    {
+        for (String fragment : this.fragments) {
+            blackhole.consume(this.parser.parse(new StringReader(fragment)));
+        }
+    }
+}
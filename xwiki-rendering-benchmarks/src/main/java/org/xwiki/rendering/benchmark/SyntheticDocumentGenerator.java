@@ -0,0 +1,257 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generate large documents in XWiki Syntax 2.1 in order to measure how the Rendering scales with the size of the
+ * content. The generated content only depends on the seed and on the requested size so that the results of
+ * different runs can be compared.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class SyntheticDocumentGenerator
+{
+    private static final long DEFAULT_SEED = 42;
+
+    private static final String[] WORDS = { "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing",
+        "elit", "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua",
+        "wiki", "rendering", "syntax", "parser", "renderer", "macro", "block", "listener", "event" };
+
+    private static final String NL = "\n";
+
+    private static final String NLNL = "\n\n";
+
+    private static final String SPACE = " ";
+
+    private final long seed;
+
+    /**
+     * Use a default seed.
+     */
+    public SyntheticDocumentGenerator()
+    {
+        this(DEFAULT_SEED);
+    }
+
+    /**
+     * @param seed the seed of the random generator used to produce the content
+     */
+    public SyntheticDocumentGenerator(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * Generate a document made of paragraphs of formatted text, links and images only (no macro), to stress the
+     * inline parsing and rendering.
+     *
+     * @param paragraphs the number of paragraphs to generate
+     * @return the generated content
+     */
+    public String generateText(int paragraphs)
+    {
+        Random random = new Random(this.seed);
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < paragraphs; ++i) {
+            appendText(builder, random, i, 10);
+            builder.append(NLNL);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Generate a document made of sections containing headings, paragraphs, lists, tables, groups, verbatim content
+     * and macros (the ones bundled with the Rendering: toc, id, box, message, footnote and comment), to stress all
+     * the parsers, the macro transformation and the renderers.
+     *
+     * @param sections the number of sections to generate
+     * @return the generated content
+     */
+    public String generateStructured(int sections)
+    {
+        Random random = new Random(this.seed);
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("{{toc/}}").append(NLNL);
+
+        for (int i = 0; i < sections; ++i) {
+            appendSection(builder, random, i);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Generate a document made of a few macros and a verbatim block with large contents looking like code and markup
+     * (with braces, escaped characters and nested macros of the same name), to stress the scanning of macro and
+     * verbatim contents by the XWiki Syntax 2.x parsers.
+     *
+     * @param kilobytes the approximate size of each large content, in kilobytes
+     * @return the generated content
+     */
+    public String generateLargeContent(int kilobytes)
+    {
+        Random random = new Random(this.seed);
+        StringBuilder builder = new StringBuilder();
+
+        builder.append("{{code language=\"java\"}}").append(NL);
+        appendCode(builder, random, kilobytes);
+        builder.append("{{/code}}").append(NLNL);
+
+        builder.append("{{html}}").append(NL);
+        appendMarkup(builder, random, kilobytes);
+        builder.append("{{/html}}").append(NLNL);
+
+        builder.append("{{{").append(NL);
+        appendCode(builder, random, kilobytes);
+        builder.append("}}}").append(NLNL);
+
+        return builder.toString();
+    }
+
+    private void appendCode(StringBuilder builder, Random random, int kilobytes)
+    {
+        int size = builder.length() + kilobytes * 1024;
+        for (int i = 0; builder.length() < size; ++i) {
+            builder.append("public void ").append(randomWords(random, 1)).append(i).append("() {").append(NL);
+            builder.append("    // ").append(randomWords(random, 6)).append(" ~ {{code}}{{/code}}").append(NL);
+            builder.append("    map.put(\"").append(randomWords(random, 1)).append("\", new int[] { ").append(i)
+                .append(" });").append(NL);
+            builder.append('}').append(NL);
+        }
+    }
+
+    private void appendMarkup(StringBuilder builder, Random random, int kilobytes)
+    {
+        int size = builder.length() + kilobytes * 1024;
+        for (int i = 0; builder.length() < size; ++i) {
+            builder.append("<div class=\"item").append(i).append("\"><p>").append(randomWords(random, 8))
+                .append("</p><script>var data = { id: ").append(i).append(" };</script></div>").append(NL);
+        }
+    }
+
+    private void appendSection(StringBuilder builder, Random random, int index)
+    {
+        String level = "===".substring(0, 1 + index % 3);
+        builder.append(level).append(" Section ").append(index).append(' ').append(level).append(NLNL);
+
+        builder.append("{{id name=\"anchor").append(index).append("\"/}}").append(NLNL);
+
+        appendText(builder, random, index, 3);
+        builder.append("{{footnote}}Note ").append(index).append("{{/footnote}}").append(NLNL);
+
+        switch (index % 4) {
+            case 0:
+                appendList(builder, random, index);
+                break;
+            case 1:
+                appendTable(builder, random, index);
+                break;
+            case 2:
+                builder.append("(% class=\"group").append(index).append("\" %)(((").append(NL);
+                appendText(builder, random, index, 2);
+                builder.append(NL).append("{{{verbatim **content** ").append(index).append("}}}").append(NL)
+                    .append(")))").append(NLNL);
+                break;
+            default:
+                builder.append("{{box title=\"Box ").append(index).append("\"}}").append(NL);
+                appendText(builder, random, index, 2);
+                builder.append(NL).append("{{/box}}").append(NLNL);
+                builder.append(index % 8 == 3 ? "{{info}}" : "{{warning}}").append(randomWords(random, 8))
+                    .append(index % 8 == 3 ? "{{/info}}" : "{{/warning}}").append(NLNL);
+                builder.append("{{comment}}").append(randomWords(random, 5)).append("{{/comment}}").append(NLNL);
+                break;
+        }
+
+        builder.append("----").append(NLNL);
+    }
+
+    private void appendText(StringBuilder builder, Random random, int index, int sentences)
+    {
+        for (int i = 0; i < sentences; ++i) {
+            builder.append(randomWords(random, 5));
+            switch ((index + i) % 7) {
+                case 0:
+                    builder.append(" **").append(randomWords(random, 2)).append("** ");
+                    break;
+                case 1:
+                    builder.append(" //").append(randomWords(random, 2)).append("// ");
+                    break;
+                case 2:
+                    builder.append(" ##").append(randomWords(random, 1)).append("## ");
+                    break;
+                case 3:
+                    builder.append(" [[").append(randomWords(random, 2)).append(">>doc:Space.Page").append(index)
+                        .append("]] ");
+                    break;
+                case 4:
+                    builder.append(" https://www.xwiki.org/page").append(index).append(SPACE);
+                    break;
+                case 5:
+                    builder.append(" [[image:Space.Page@image").append(index).append(".png]] ");
+                    break;
+                default:
+                    builder.append(" (% style=\"color:red\" %)").append(randomWords(random, 2)).append("(%%) ");
+                    break;
+            }
+            builder.append(randomWords(random, 5)).append(". ");
+        }
+    }
+
+    private void appendList(StringBuilder builder, Random random, int index)
+    {
+        for (int i = 0; i < 5; ++i) {
+            builder.append(i % 2 == 0 ? "*" : "**").append(SPACE).append(randomWords(random, 4)).append(NL);
+        }
+        for (int i = 0; i < 3; ++i) {
+            builder.append("1. ").append(randomWords(random, 4)).append(" **").append(index).append("**").append(NL);
+        }
+        builder.append(NL);
+    }
+
+    private void appendTable(StringBuilder builder, Random random, int index)
+    {
+        builder.append("|=Name|=Value|=Description").append(NL);
+        for (int i = 0; i < 5; ++i) {
+            builder.append('|').append(randomWords(random, 1)).append('|').append(index * 10 + i).append('|')
+                .append(randomWords(random, 3)).append(NL);
+        }
+        builder.append(NL);
+    }
+
+    private String randomWords(Random random, int count)
+    {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < count; ++i) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+
+        return builder.toString();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.io.StringReader;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.snapshot.XDOMSnapshot;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Compare the cost of getting a {@link XDOM} (and rendering it) from a {@link XDOMSnapshot} with the cost of parsing
+ * the content again and with the cost of cloning a cached {@link XDOM}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@State(Scope.Benchmark)
+public class XDOMSnapshotBenchmark extends AbstractRenderingBenchmark
+{
+    private static final String SECTION = "= Title =\n\n"
+        + "Some **bold** and //italic// text with a [[link>>doc:Space.Page]] and an [[image:attach:Space.Page@i.png]] "
+        + "and an url http://www.xwiki.org and a {{macro param=\"value\"/}}\n\n"
+        + "* item 1\n** item 1.1\n* item 2\n\n"
+        + "|=Header|=Header 2\n|Cell|(% style=\"color:red\" %)Cell 2\n\n"
+        + "(% class=\"group\" %)(((\n{{{verbatim}}}\n\n----\n)))\n\n";
+
+    @Param({ "1", "100" })
+    private int sections;
+
+    private Parser parser;
+
+    private PrintRendererFactory rendererFactory;
+
+    private String content;
+
+    private XDOM xdom;
+
+    private XDOMSnapshot snapshot;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        this.parser = getComponent(Parser.class, Syntax.XWIKI_2_1.toIdString());
+        this.rendererFactory = getComponent(PrintRendererFactory.class, Syntax.XHTML_1_0.toIdString());
+
+        this.content = StringUtils.repeat(SECTION, this.sections);
+        this.xdom = this.parser.parse(new StringReader(this.content));
+        this.snapshot = XDOMSnapshot.create(this.xdom);
+    }
+
+    /**
+     * @return the parsed content
+     * @throws ParseException when failing to parse the content
+     */
+    @Benchmark
+    public XDOM reparse() throws ParseException
+    {
+        return this.parser.parse(new StringReader(this.content));
+    }
+
+    /**
+     * @return the cloned XDOM
+     */
+    @Benchmark
+    public XDOM cloneXDOM()
+    {
+        return this.xdom.clone();
+    }
+
+    /**
+     * @return the XDOM created from the snapshot
+     * @throws ParseException when failing to read the snapshot
+     */
+    @Benchmark
+    public XDOM snapshotToXDOM() throws ParseException
+    {
+        return this.snapshot.toXDOM();
+    }
+
+    /**
+     * @return the rendered content
+     * @throws ParseException when failing to parse the content
+     */
+    @Benchmark
+    public String renderReparse() throws ParseException
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.parser.parse(new StringReader(this.content)).traverse(this.rendererFactory.createRenderer(printer));
+
+        return printer.toString();
+    }
+
+    /**
+     * @return the rendered XDOM clone
+     */
+    @Benchmark
+    public String renderClone()
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.xdom.clone().traverse(this.rendererFactory.createRenderer(printer));
+
+        return printer.toString();
+    }
+
+    /**
+     * @return the rendered snapshot
+     * @throws ParseException when failing to read the snapshot
+     */
+    @Benchmark
+    public String renderSnapshot() throws ParseException
+    {
+        DefaultWikiPrinter printer = new DefaultWikiPrinter();
+        this.snapshot.replay(this.rendererFactory.createRenderer(printer));
+
+        return printer.toString();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.benchmark;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+
+/**
+ * Measure the latency of parsing small XHTML fragments, like the ones submitted by the WYSIWYG editor or converted
+ * from inline HTML, for which the setup of the XML reader weighs as much as the parsing itself.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@State(Scope.Benchmark)
+public class XHTMLFragmentsBenchmark extends AbstractRenderingBenchmark
+{
+    private static final List<String> FRAGMENTS = Arrays.asList("<p>Some <strong>bold</strong> text</p>",
+        "<p><!--startwikilink:false|-|doc|-|Space.Page--><span class=\"wikilink\"><a href=\"/Space/Page\">label</a>"
+            + "</span><!--stopwikilink--></p>",
+        "<ul><li>item one</li><li>item two</li></ul>",
+        "<table><tbody><tr><th>Name</th><th>Value</th></tr><tr><td>a</td><td>1</td></tr></tbody></table>",
+        "<h2 id=\"HTitle\"><span>Title</span></h2>",
+        "<p><span style=\"color: red;\">Styled <em>text</em></span></p>",
+        "<!--startmacro:info|-||-|A message--><div class=\"box infomessage\">A message</div><!--stopmacro-->",
+        "<p><img src=\"image.png\" alt=\"image.png\"/></p>");
+
+    @Param({ "xhtml/1.0", "html/4.01" })
+    private String syntaxId;
+
+    private Parser parser;
+
+    @Override
+    protected void initialize() throws Exception
+    {
+        this.parser = getComponent(Parser.class, this.syntaxId);
+    }
+
+    /**
+     * @param blackhole used to consume the results
+     * @throws ParseException when failing to parse a fragment
+     */
+    @Benchmark
+    public void parse(Blackhole blackhole) throws ParseException
+    {
+        for (String fragment : FRAGMENTS) {
+            blackhole.consume(this.parser.parse(new StringReader(fragment)));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.FormatBlock;
+import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.block.SpaceBlock;
+import org.xwiki.rendering.block.WordBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.ParallelBlockRendererFactory;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.ComponentManagerRule;
+import org.xwiki.test.annotation.AllComponents;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verify that rendering blocks concurrently with the renderers created by {@link ParallelBlockRendererFactory}
+ * produces the same output as the sequential renderers.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@AllComponents
+public class ParallelRenderingTest
+{
+    private static final String CONTENT = "= Section {{id name=\"anchor\"/}} =\n\n"
+        + "A **bold** paragraph  with  spaces \\\\ and a [[link>>http://xwiki.org]]\n\n"
+        + "* item 1\n** item 1.1\n* item 2\n\n"
+        + "1. one\n1. two\n\n"
+        + "|=Header|=Header\n|cell|cell\n\n"
+        + ">quote\n>>nested quote\n\n\n\n"
+        + "; term\n: definition\n\n"
+        + "(((group content)))\n\n"
+        + "{{{verbatim}}}\n\n"
+        + "----\n\n"
+        + "== Sub section ==\n\n"
+        + "paragraph\n";
+
+    private static final List<Syntax> SYNTAXES =
+        Arrays.asList(Syntax.XHTML_1_0, Syntax.XWIKI_2_1, Syntax.EVENT_1_0, Syntax.PLAIN_1_0);
+
+    @Rule
+    public ComponentManagerRule componentManager = new ComponentManagerRule();
+
+    private ParallelBlockRendererFactory parallelBlockRendererFactory;
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.parallelBlockRendererFactory = this.componentManager.getInstance(ParallelBlockRendererFactory.class);
+        this.pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.pool.shutdown();
+    }
+
+    @Test
+    public void renderParsedContent() throws Exception
+    {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; ++i) {
+            content.append(CONTENT).append('\n');
+        }
+
+        Parser parser = this.componentManager.getInstance(Parser.class, Syntax.XWIKI_2_1.toIdString());
+        XDOM xdom = parser.parse(new StringReader(content.toString()));
+
+        assertSameOutput(xdom);
+    }
+
+    @Test
+    public void renderInlineContentWrappedInMetaData() throws Exception
+    {
+        // Spaces and inline content at the boundaries between the blocks rendered by the different tasks
+        List<Block> blocks = new ArrayList<>();
+        for (int i = 0; i < 200; ++i) {
+            blocks.add(new WordBlock("word" + i));
+            blocks.add(new SpaceBlock());
+            blocks.add(new SpaceBlock());
+            blocks.add(new FormatBlock(Arrays.<Block>asList(new WordBlock("bold")), Format.BOLD));
+            blocks.add(new SpaceBlock());
+        }
+
+        MetaData metaData = new MetaData();
+        metaData.addMetaData(MetaData.SOURCE, "source");
+        XDOM xdom = new XDOM(Arrays.<Block>asList(new MetaDataBlock(blocks, metaData)));
+
+        assertSameOutput(xdom);
+    }
+
+    @Test
+    public void renderLargeListTableAndQuotation() throws Exception
+    {
+        // Each item depends on the number of items before it, so these blocks must not be split
+        Parser parser = this.componentManager.getInstance(Parser.class, Syntax.XWIKI_2_1.toIdString());
+        for (String line : Arrays.asList("* item %d\n", "|cell %d|cell\n", ">quote %d\n", "; term %d\n: def\n")) {
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 200; ++i) {
+                content.append(String.format(line, i));
+            }
+
+            assertSameOutput(parser.parse(new StringReader(content.toString())));
+        }
+    }
+
+    private void assertSameOutput(XDOM xdom) throws Exception
+    {
+        for (Syntax syntax : SYNTAXES) {
+            WikiPrinter expected = new DefaultWikiPrinter();
+            this.componentManager.<BlockRenderer>getInstance(BlockRenderer.class, syntax.toIdString())
+                .render(xdom, expected);
+
+            WikiPrinter actual = new DefaultWikiPrinter();
+            this.parallelBlockRendererFactory.createRenderer(this.componentManager
+                .<PrintRendererFactory>getInstance(PrintRendererFactory.class, syntax.toIdString()), this.pool)
+                .render(xdom, actual);
+
+            assertEquals("Wrong output for syntax [" + syntax + "]", expected.toString(), actual.toString());
+        }
+    }
+}
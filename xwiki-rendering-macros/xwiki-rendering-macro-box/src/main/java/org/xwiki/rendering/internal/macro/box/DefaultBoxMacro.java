@@ -61,6 +61,7 @@ public DefaultBoxMacro()
     {
         super("Box", DESCRIPTION, new DefaultContentDescriptor(CONTENT_DESCRIPTION), BoxMacroParameters.class);
         setDefaultCategory(DEFAULT_CATEGORY_FORMATTING);
+        setIsolated(true);
     }
 
     @Override
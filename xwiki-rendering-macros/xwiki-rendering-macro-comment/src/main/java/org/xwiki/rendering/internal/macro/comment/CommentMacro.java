@@ -61,6 +61,7 @@ public CommentMacro()
     {
         super("Comment", DESCRIPTION, new DefaultContentDescriptor(CONTENT_DESCRIPTION));
         setDefaultCategory(DEFAULT_CATEGORY_DEVELOPMENT);
+        setIsolated(true);
     }
 
     @Override
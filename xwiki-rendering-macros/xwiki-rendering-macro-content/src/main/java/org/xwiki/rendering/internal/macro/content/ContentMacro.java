@@ -74,6 +74,7 @@ public ContentMacro()
     {
         super("Content", DESCRIPTION, new DefaultContentDescriptor(CONTENT_DESCRIPTION), ContentMacroParameters.class);
         setDefaultCategory(DEFAULT_CATEGORY_CONTENT);
+        setIsolated(true);
     }
 
     @Override
@@ -67,6 +67,7 @@ public FigureMacro()
     {
         super("Figure", DESCRIPTION, new DefaultContentDescriptor(CONTENT_DESCRIPTION));
         setDefaultCategory(DEFAULT_CATEGORY_DEVELOPMENT);
+        setIsolated(true);
     }
 
     @Override
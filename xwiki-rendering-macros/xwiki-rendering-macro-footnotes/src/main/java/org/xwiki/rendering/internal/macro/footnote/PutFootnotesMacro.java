@@ -174,8 +174,7 @@ private ListItemBlock processFootnote(MacroMarkerBlock footnoteMacro, int counte
      */
     private void addFootnoteRef(MacroMarkerBlock footnoteMacro, Block footnoteRef)
     {
-        footnoteMacro.getChildren().clear();
-        footnoteMacro.addChild(footnoteRef);
+        footnoteMacro.setChildren(Collections.singletonList(footnoteRef));
     }
 
     /**
@@ -0,0 +1,107 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.macro.footnote;
+
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.transformation.MutableRenderingContext;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.RenderingContext;
+import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.macro.IncrementalRenderer;
+import org.xwiki.rendering.transformation.macro.IncrementalRendererFactory;
+import org.xwiki.test.ComponentManagerRule;
+import org.xwiki.test.annotation.AllComponents;
+
+/**
+ * Validate that the incremental rendering of a document using the footnote macros produces the same result as
+ * its complete rendering.
+ *
+ * @version $Id$
+ */
+@AllComponents
+public class IncrementalRenderingTest
+{
+    @Rule
+    public final ComponentManagerRule componentManager = new ComponentManagerRule();
+
+    private Parser parser;
+
+    private IncrementalRenderer incrementalRenderer;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.parser = this.componentManager.getInstance(Parser.class, Syntax.XWIKI_2_1.toIdString());
+        this.incrementalRenderer = this.componentManager.<IncrementalRendererFactory>getInstance(
+            IncrementalRendererFactory.class).createRenderer(Syntax.XHTML_1_0.toIdString());
+    }
+
+    @Test
+    public void editParagraph() throws Exception
+    {
+        assertRendering("= Title =\n\nfirst{{footnote}}one{{/footnote}}\n\nsecond\n\n"
+            + "third{{footnote}}two{{/footnote}}");
+        assertRendering("= Title =\n\nfirst{{footnote}}one{{/footnote}}\n\nsecond edited\n\n"
+            + "third{{footnote}}two{{/footnote}}");
+    }
+
+    @Test
+    public void addFootnote() throws Exception
+    {
+        assertRendering("= Title =\n\nfirst{{footnote}}one{{/footnote}}\n\nsecond\n\n{{putFootnotes/}}\n\nlast");
+        // The numbers of the following footnotes change
+        assertRendering("= Title =\n\nnew{{footnote}}new{{/footnote}}\n\nfirst{{footnote}}one{{/footnote}}\n\n"
+            + "second\n\n{{putFootnotes/}}\n\nlast");
+    }
+
+    private void assertRendering(String source) throws Exception
+    {
+        XDOM xdom = this.parser.parse(new StringReader(source));
+        WikiPrinter printer = new DefaultWikiPrinter();
+        this.incrementalRenderer.render(xdom, new TransformationContext(xdom, Syntax.XWIKI_2_1), printer);
+
+        Assert.assertEquals(renderCompletely(source), printer.toString());
+    }
+
+    private String renderCompletely(String source) throws Exception
+    {
+        XDOM xdom = this.parser.parse(new StringReader(source));
+        MutableRenderingContext renderingContext = this.componentManager.getInstance(RenderingContext.class);
+        renderingContext.transformInContext(this.componentManager.<Transformation>getInstance(Transformation.class,
+            "macro"), new TransformationContext(xdom, Syntax.XWIKI_2_1), xdom);
+
+        WikiPrinter printer = new DefaultWikiPrinter();
+        this.componentManager.<BlockRenderer>getInstance(BlockRenderer.class, Syntax.XHTML_1_0.toIdString())
+            .render(xdom, printer);
+
+        return printer.toString();
+    }
+}
@@ -62,6 +62,7 @@ public abstract class AbstractMessageMacro extends AbstractMacro<Object>
     public AbstractMessageMacro(String macroName, String macroDescription)
     {
         super(macroName, macroDescription, new DefaultContentDescriptor(true));
+        setIsolated(true);
     }
 
     @Override
@@ -34,6 +34,7 @@
 import org.xwiki.rendering.listener.chaining.ListenerChain;
 import org.xwiki.rendering.listener.chaining.MetaDataStateChainingListener;
 import org.xwiki.rendering.renderer.AbstractChainingPrintRenderer;
+import org.xwiki.rendering.renderer.Resettable;
 
 /**
  * Generates Annotated HTML5 (ie HTML5 containing metadata information, for example macro definition or
@@ -47,7 +48,7 @@
 @Component
 @Named("annotatedhtml/5.0")
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
-public class AnnotatedHTML5Renderer extends AbstractChainingPrintRenderer implements Initializable
+public class AnnotatedHTML5Renderer extends AbstractChainingPrintRenderer implements Initializable, Resettable
 {
     /**
      * To render link events into annotated XHTML. This is done so that it's pluggable because link rendering depends
@@ -69,6 +70,26 @@ public class AnnotatedHTML5Renderer extends AbstractChainingPrintRenderer implem
 
     @Override
     public void initialize() throws InitializationException
+    {
+        initializeListenerChain();
+    }
+
+    @Override
+    public boolean reset()
+    {
+        // The link and image renderers are pluggable and might not support being reused
+        if (!(this.linkRenderer instanceof Resettable && ((Resettable) this.linkRenderer).reset())
+            || !(this.imageRenderer instanceof Resettable && ((Resettable) this.imageRenderer).reset())) {
+            return false;
+        }
+
+        resetPrinters();
+        initializeListenerChain();
+
+        return true;
+    }
+
+    private void initializeListenerChain()
     {
         ListenerChain chain = new ListenerChain();
         setListenerChain(chain);
@@ -28,6 +28,7 @@
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.renderer.Resettable;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 import org.xwiki.rendering.renderer.reference.ResourceReferenceSerializer;
 
@@ -41,7 +42,7 @@
 @Component
 @Named("annotated")
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
-public class AnnotatedXHTMLImageRenderer implements XHTMLImageRenderer
+public class AnnotatedXHTMLImageRenderer implements XHTMLImageRenderer, Resettable
 {
     /**
      * Used to print Image reference as XHTML comments.
@@ -68,6 +69,12 @@ public XHTMLWikiPrinter getXHTMLWikiPrinter()
         return this.defaultImageRenderer.getXHTMLWikiPrinter();
     }
 
+    @Override
+    public boolean reset()
+    {
+        return this.defaultImageRenderer instanceof Resettable && ((Resettable) this.defaultImageRenderer).reset();
+    }
+
     @Override
     public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
     {
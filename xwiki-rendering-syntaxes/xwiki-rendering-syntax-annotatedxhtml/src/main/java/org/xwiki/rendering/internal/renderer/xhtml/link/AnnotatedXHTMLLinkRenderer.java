@@ -28,6 +28,7 @@
 import org.xwiki.component.annotation.InstantiationStrategy;
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.renderer.Resettable;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 import org.xwiki.rendering.renderer.reference.ResourceReferenceSerializer;
 
@@ -41,7 +42,7 @@
 @Component
 @Named("annotated")
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
-public class AnnotatedXHTMLLinkRenderer implements XHTMLLinkRenderer
+public class AnnotatedXHTMLLinkRenderer implements XHTMLLinkRenderer, Resettable
 {
     /**
      * Used to print Image reference as XHTML comments.
@@ -95,4 +96,10 @@ public XHTMLWikiPrinter getXHTMLWikiPrinter()
     {
         return this.defaultLinkRenderer.getXHTMLWikiPrinter();
     }
+
+    @Override
+    public boolean reset()
+    {
+        return this.defaultLinkRenderer instanceof Resettable && ((Resettable) this.defaultLinkRenderer).reset();
+    }
 }
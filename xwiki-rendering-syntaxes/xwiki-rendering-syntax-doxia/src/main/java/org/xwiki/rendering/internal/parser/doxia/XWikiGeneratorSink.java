@@ -34,7 +34,7 @@
 import org.xwiki.rendering.listener.ListType;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.MetaData;
-import org.xwiki.rendering.listener.QueueListener;
+import org.xwiki.rendering.listener.RingBufferQueueListener;
 import org.xwiki.rendering.listener.VoidListener;
 import org.xwiki.rendering.listener.WrappingListener;
 import org.xwiki.rendering.listener.reference.ResourceReference;
@@ -729,7 +729,7 @@ public void sectionTitle(int level, SinkEventAttributes attributes)
 
         CompositeListener composite = new CompositeListener();
 
-        composite.addListener(new QueueListener());
+        composite.addListener(new RingBufferQueueListener());
         composite.addListener(this.plainRendererFactory.createRenderer(new DefaultWikiPrinter()));
 
         pushListener(composite);
@@ -750,7 +750,7 @@ public void sectionTitle_(int level)
 
         CompositeListener composite = (CompositeListener) getListener();
 
-        QueueListener queue = (QueueListener) composite.getListener(0);
+        RingBufferQueueListener queue = (RingBufferQueueListener) composite.getListener(0);
         PrintRenderer renderer = (PrintRenderer) composite.getListener(1);
 
         popListener();
@@ -25,7 +25,7 @@
 
 import org.apache.maven.doxia.sink.Sink;
 import org.xwiki.rendering.listener.Listener;
-import org.xwiki.rendering.listener.QueueListener;
+import org.xwiki.rendering.listener.RingBufferQueueListener;
 import org.xwiki.rendering.listener.WrappingListener;
 
 /**
@@ -92,7 +92,7 @@ public void beginTable(Map<String, String> parameters)
         } else {
             // Start stacking Events since we need to count the number of table rows
             if (this.tableCount == 0) {
-                pushListener(new QueueListener());
+                pushListener(new RingBufferQueueListener());
                 this.rowCountStack.push(0);
             }
             this.tableCount++;
@@ -111,7 +111,7 @@ public void endTable(Map<String, String> parameters)
             // Unstack if we're on the end table event of the first table
             if (this.tableCount == 0) {
                 // Stop stacking Events
-                QueueListener queueListener = (QueueListener) popListener();
+                RingBufferQueueListener queueListener = (RingBufferQueueListener) popListener();
 
                 // Send all stacked Events to the current listener so that we can handle nested tables.
                 this.unstacking = true;
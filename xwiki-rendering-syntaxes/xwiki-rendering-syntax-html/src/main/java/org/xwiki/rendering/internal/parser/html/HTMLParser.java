@@ -61,6 +61,8 @@ public Syntax getSyntax()
     @Override
     public XDOM parse(Reader source) throws ParseException
     {
+        // The cleaned DOM is serialized and parsed again (instead of being walked directly) since the HTML cleaner
+        // keeps the entities as text and only the XHTML parser resolves them
         return super.parse(new StringReader(HTMLUtils.toString(this.htmlCleaner.clean(source))));
     }
 
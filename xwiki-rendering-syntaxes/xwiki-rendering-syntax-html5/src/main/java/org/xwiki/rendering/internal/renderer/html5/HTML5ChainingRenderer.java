@@ -26,7 +26,9 @@
 import org.xwiki.rendering.internal.renderer.xhtml.image.XHTMLImageRenderer;
 import org.xwiki.rendering.internal.renderer.xhtml.link.XHTMLLinkRenderer;
 import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.chaining.ListenerChain;
+import org.xwiki.rendering.renderer.printer.PrecompiledXMLElement;
 
 /**
  * Convert listener events to HTML5.
@@ -46,6 +48,9 @@ public class HTML5ChainingRenderer extends XHTMLChainingRenderer
 
     private static final String FIGURE_CAPTION_TAG = "figcaption";
 
+    private static final PrecompiledXMLElement INLINE_VERBATIM =
+        new PrecompiledXMLElement(ELEM_SPAN, PROP_CLASS, "wikimodel-verbatim");
+
     /**
      * @param linkRenderer the object to render link events into XHTML. This is done so that it's pluggable because link
      * rendering depends on how the underlying system wants to handle it. For example for XWiki we check if the document
@@ -97,7 +102,7 @@ public void endFormat(Format format, Map<String, String> parameters)
             }
         } else {
             // Call the super class, with an empty parameters map to avoid closing the span element twice
-            super.endFormat(format, new HashMap<String, String>());
+            super.endFormat(format, Listener.EMPTY_PARAMETERS);
         }
     }
 
@@ -109,10 +114,9 @@ public void onVerbatim(String content, boolean inline, Map<String, String> param
             // paragraphs for example.
             // The class is what is expected by wikimodel to understand the span as meaning a verbatim and not a
             // Monospace element.
-            getXHTMLWikiPrinter().printXMLStartElement(ELEM_SPAN,
-                new String[][] { { PROP_CLASS, "wikimodel-verbatim" } });
+            getXHTMLWikiPrinter().printXMLStartElement(INLINE_VERBATIM);
             getXHTMLWikiPrinter().printXML(content);
-            getXHTMLWikiPrinter().printXMLEndElement(ELEM_SPAN);
+            getXHTMLWikiPrinter().printXMLEndElement(INLINE_VERBATIM);
         } else {
             getXHTMLWikiPrinter().printXMLStartElement(ELEM_PRE, parameters);
             getXHTMLWikiPrinter().printXML(content);
@@ -34,6 +34,7 @@
 import org.xwiki.rendering.listener.chaining.ListenerChain;
 import org.xwiki.rendering.listener.chaining.MetaDataStateChainingListener;
 import org.xwiki.rendering.renderer.AbstractChainingPrintRenderer;
+import org.xwiki.rendering.renderer.Resettable;
 
 /**
  * Generates HTML5 from a {@link org.xwiki.rendering.block.XDOM} object being traversed.
@@ -44,7 +45,7 @@
 @Component
 @Named("html/5.0")
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
-public class HTML5Renderer extends AbstractChainingPrintRenderer implements Initializable
+public class HTML5Renderer extends AbstractChainingPrintRenderer implements Initializable, Resettable
 {
     /**
      * To render link events into XHTML. This is done so that it's pluggable because link rendering depends on how the
@@ -64,6 +65,29 @@ public class HTML5Renderer extends AbstractChainingPrintRenderer implements Init
 
     @Override
     public void initialize() throws InitializationException
+    {
+        initializeListenerChain();
+    }
+
+    @Override
+    public boolean reset()
+    {
+        // The link and image renderers are pluggable and might not support being reused
+        if (!(this.linkRenderer instanceof Resettable && ((Resettable) this.linkRenderer).reset())
+            || !(this.imageRenderer instanceof Resettable && ((Resettable) this.imageRenderer).reset())) {
+            return false;
+        }
+
+        resetPrinters();
+
+        // The chaining listeners are cheap to create so it's simpler to start again with a new chain than to reset
+        // the state of each of them
+        initializeListenerChain();
+
+        return true;
+    }
+
+    private void initializeListenerChain()
     {
         ListenerChain chain = new ListenerChain();
         setListenerChain(chain);
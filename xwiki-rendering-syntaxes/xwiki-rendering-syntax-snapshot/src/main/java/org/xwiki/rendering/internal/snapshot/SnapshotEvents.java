@@ -0,0 +1,395 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.snapshot;
+
+/**
+ * The codes used to identify the events in a snapshot, as well as the other constants of the snapshot format.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public final class SnapshotEvents
+{
+    /**
+     * The bytes at the beginning of each snapshot.
+     */
+    public static final byte[] MAGIC = {'X', 'D', 'S'};
+
+    /**
+     * The version of the snapshot format. Snapshots are not meant to be stored durably so the version needs to be
+     * increased each time the format changes (including when a new event is added or the order of an enum changes).
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Marks the end of the events.
+     */
+    public static final int END = 0;
+
+    /**
+     * Code of the {@code beginDocument} event.
+     */
+    public static final int BEGIN_DOCUMENT = 1;
+
+    /**
+     * Code of the {@code endDocument} event.
+     */
+    public static final int END_DOCUMENT = 2;
+
+    /**
+     * Code of the {@code beginMetaData} event.
+     */
+    public static final int BEGIN_META_DATA = 3;
+
+    /**
+     * Code of the {@code endMetaData} event.
+     */
+    public static final int END_META_DATA = 4;
+
+    /**
+     * Code of the {@code beginGroup} event.
+     */
+    public static final int BEGIN_GROUP = 5;
+
+    /**
+     * Code of the {@code endGroup} event.
+     */
+    public static final int END_GROUP = 6;
+
+    /**
+     * Code of the {@code beginFormat} event.
+     */
+    public static final int BEGIN_FORMAT = 7;
+
+    /**
+     * Code of the {@code endFormat} event.
+     */
+    public static final int END_FORMAT = 8;
+
+    /**
+     * Code of the {@code beginParagraph} event.
+     */
+    public static final int BEGIN_PARAGRAPH = 9;
+
+    /**
+     * Code of the {@code endParagraph} event.
+     */
+    public static final int END_PARAGRAPH = 10;
+
+    /**
+     * Code of the {@code beginList} event.
+     */
+    public static final int BEGIN_LIST = 11;
+
+    /**
+     * Code of the {@code endList} event.
+     */
+    public static final int END_LIST = 12;
+
+    /**
+     * Code of the {@code beginDefinitionList} event.
+     */
+    public static final int BEGIN_DEFINITION_LIST = 13;
+
+    /**
+     * Code of the {@code endDefinitionList} event.
+     */
+    public static final int END_DEFINITION_LIST = 14;
+
+    /**
+     * Code of the {@code beginListItem} event.
+     */
+    public static final int BEGIN_LIST_ITEM = 15;
+
+    /**
+     * Code of the {@code beginListItem} event with parameters.
+     */
+    public static final int BEGIN_LIST_ITEM_WITH_PARAMETERS = 16;
+
+    /**
+     * Code of the {@code endListItem} event.
+     */
+    public static final int END_LIST_ITEM = 17;
+
+    /**
+     * Code of the {@code endListItem} event with parameters.
+     */
+    public static final int END_LIST_ITEM_WITH_PARAMETERS = 18;
+
+    /**
+     * Code of the {@code beginDefinitionTerm} event.
+     */
+    public static final int BEGIN_DEFINITION_TERM = 19;
+
+    /**
+     * Code of the {@code endDefinitionTerm} event.
+     */
+    public static final int END_DEFINITION_TERM = 20;
+
+    /**
+     * Code of the {@code beginDefinitionDescription} event.
+     */
+    public static final int BEGIN_DEFINITION_DESCRIPTION = 21;
+
+    /**
+     * Code of the {@code endDefinitionDescription} event.
+     */
+    public static final int END_DEFINITION_DESCRIPTION = 22;
+
+    /**
+     * Code of the {@code beginTable} event.
+     */
+    public static final int BEGIN_TABLE = 23;
+
+    /**
+     * Code of the {@code endTable} event.
+     */
+    public static final int END_TABLE = 24;
+
+    /**
+     * Code of the {@code beginTableRow} event.
+     */
+    public static final int BEGIN_TABLE_ROW = 25;
+
+    /**
+     * Code of the {@code endTableRow} event.
+     */
+    public static final int END_TABLE_ROW = 26;
+
+    /**
+     * Code of the {@code beginTableCell} event.
+     */
+    public static final int BEGIN_TABLE_CELL = 27;
+
+    /**
+     * Code of the {@code endTableCell} event.
+     */
+    public static final int END_TABLE_CELL = 28;
+
+    /**
+     * Code of the {@code beginTableHeadCell} event.
+     */
+    public static final int BEGIN_TABLE_HEAD_CELL = 29;
+
+    /**
+     * Code of the {@code endTableHeadCell} event.
+     */
+    public static final int END_TABLE_HEAD_CELL = 30;
+
+    /**
+     * Code of the {@code beginSection} event.
+     */
+    public static final int BEGIN_SECTION = 31;
+
+    /**
+     * Code of the {@code endSection} event.
+     */
+    public static final int END_SECTION = 32;
+
+    /**
+     * Code of the {@code beginHeader} event.
+     */
+    public static final int BEGIN_HEADER = 33;
+
+    /**
+     * Code of the {@code endHeader} event.
+     */
+    public static final int END_HEADER = 34;
+
+    /**
+     * Code of the {@code beginMacroMarker} event.
+     */
+    public static final int BEGIN_MACRO_MARKER = 35;
+
+    /**
+     * Code of the {@code endMacroMarker} event.
+     */
+    public static final int END_MACRO_MARKER = 36;
+
+    /**
+     * Code of the {@code beginQuotation} event.
+     */
+    public static final int BEGIN_QUOTATION = 37;
+
+    /**
+     * Code of the {@code endQuotation} event.
+     */
+    public static final int END_QUOTATION = 38;
+
+    /**
+     * Code of the {@code beginQuotationLine} event.
+     */
+    public static final int BEGIN_QUOTATION_LINE = 39;
+
+    /**
+     * Code of the {@code endQuotationLine} event.
+     */
+    public static final int END_QUOTATION_LINE = 40;
+
+    /**
+     * Code of the {@code beginFigure} event.
+     */
+    public static final int BEGIN_FIGURE = 41;
+
+    /**
+     * Code of the {@code endFigure} event.
+     */
+    public static final int END_FIGURE = 42;
+
+    /**
+     * Code of the {@code beginFigureCaption} event.
+     */
+    public static final int BEGIN_FIGURE_CAPTION = 43;
+
+    /**
+     * Code of the {@code endFigureCaption} event.
+     */
+    public static final int END_FIGURE_CAPTION = 44;
+
+    /**
+     * Code of the {@code beginLink} event.
+     */
+    public static final int BEGIN_LINK = 45;
+
+    /**
+     * Code of the {@code endLink} event.
+     */
+    public static final int END_LINK = 46;
+
+    /**
+     * Code of the {@code onNewLine} event.
+     */
+    public static final int ON_NEW_LINE = 47;
+
+    /**
+     * Code of the {@code onMacro} event.
+     */
+    public static final int ON_MACRO = 48;
+
+    /**
+     * Code of the {@code onWord} event.
+     */
+    public static final int ON_WORD = 49;
+
+    /**
+     * Code of the {@code onSpace} event.
+     */
+    public static final int ON_SPACE = 50;
+
+    /**
+     * Code of the {@code onSpecialSymbol} event.
+     */
+    public static final int ON_SPECIAL_SYMBOL = 51;
+
+    /**
+     * Code of the {@code onId} event.
+     */
+    public static final int ON_ID = 52;
+
+    /**
+     * Code of the {@code onHorizontalLine} event.
+     */
+    public static final int ON_HORIZONTAL_LINE = 53;
+
+    /**
+     * Code of the {@code onEmptyLines} event.
+     */
+    public static final int ON_EMPTY_LINES = 54;
+
+    /**
+     * Code of the {@code onVerbatim} event.
+     */
+    public static final int ON_VERBATIM = 55;
+
+    /**
+     * Code of the {@code onRawText} event.
+     */
+    public static final int ON_RAW_TEXT = 56;
+
+    /**
+     * Code of the {@code onImage} event.
+     */
+    public static final int ON_IMAGE = 57;
+
+    /**
+     * A {@code null} {@link org.xwiki.rendering.listener.MetaData} value.
+     */
+    public static final int VALUE_NULL = 0;
+
+    /**
+     * A {@link String} {@link org.xwiki.rendering.listener.MetaData} value.
+     */
+    public static final int VALUE_STRING = 1;
+
+    /**
+     * A {@link org.xwiki.rendering.syntax.Syntax} {@link org.xwiki.rendering.listener.MetaData} value.
+     */
+    public static final int VALUE_SYNTAX = 2;
+
+    /**
+     * A {@link Boolean} {@link org.xwiki.rendering.listener.MetaData} value.
+     */
+    public static final int VALUE_BOOLEAN = 3;
+
+    /**
+     * An {@link Integer} {@link org.xwiki.rendering.listener.MetaData} value.
+     */
+    public static final int VALUE_INTEGER = 4;
+
+    /**
+     * A {@link Long} {@link org.xwiki.rendering.listener.MetaData} value.
+     */
+    public static final int VALUE_LONG = 5;
+
+    /**
+     * A {@link org.xwiki.rendering.listener.reference.ResourceReference}.
+     */
+    public static final int REFERENCE_GENERIC = 0;
+
+    /**
+     * A {@link org.xwiki.rendering.listener.reference.DocumentResourceReference}.
+     */
+    public static final int REFERENCE_DOCUMENT = 1;
+
+    /**
+     * An {@link org.xwiki.rendering.listener.reference.AttachmentResourceReference}.
+     */
+    public static final int REFERENCE_ATTACHMENT = 2;
+
+    /**
+     * A {@link org.xwiki.rendering.listener.reference.SpaceResourceReference}.
+     */
+    public static final int REFERENCE_SPACE = 3;
+
+    /**
+     * A {@link org.xwiki.rendering.listener.reference.UserResourceReference}.
+     */
+    public static final int REFERENCE_USER = 4;
+
+    /**
+     * An {@link org.xwiki.rendering.listener.reference.InterWikiResourceReference}.
+     */
+    public static final int REFERENCE_INTERWIKI = 5;
+
+    private SnapshotEvents()
+    {
+        // Utility class
+    }
+}
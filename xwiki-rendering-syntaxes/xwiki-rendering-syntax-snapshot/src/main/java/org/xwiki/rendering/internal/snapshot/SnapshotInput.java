@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.snapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.parser.ParseException;
+
+/**
+ * Read the data written by a {@link SnapshotOutput}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class SnapshotInput
+{
+    private final byte[] buffer;
+
+    private int position;
+
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * @param buffer the data to read
+     */
+    public SnapshotInput(byte[] buffer)
+    {
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return true if there's nothing left to read
+     */
+    public boolean isEmpty()
+    {
+        return this.position >= this.buffer.length;
+    }
+
+    /**
+     * @return the read byte
+     * @throws ParseException when reaching the end of the data
+     */
+    public int readByte() throws ParseException
+    {
+        if (this.position >= this.buffer.length) {
+            throw new ParseException("Unexpected end of snapshot");
+        }
+
+        return this.buffer[this.position++] & 0xFF;
+    }
+
+    /**
+     * @return the read boolean
+     * @throws ParseException when reaching the end of the data
+     */
+    public boolean readBoolean() throws ParseException
+    {
+        return readByte() != 0;
+    }
+
+    /**
+     * @return the read positive integer
+     * @throws ParseException when reaching the end of the data
+     */
+    public int readInt() throws ParseException
+    {
+        int value = 0;
+        int shift = 0;
+        int current;
+        do {
+            current = readByte();
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+
+        return value;
+    }
+
+    /**
+     * @return the read string, possibly null
+     * @throws ParseException when the data is invalid
+     */
+    public String readString() throws ParseException
+    {
+        int index = readInt();
+
+        if (index == 0) {
+            return null;
+        } else if (index <= this.strings.size()) {
+            return this.strings.get(index - 1);
+        } else if (index == this.strings.size() + 1) {
+            int length = readInt();
+            if (this.position + length > this.buffer.length) {
+                throw new ParseException("Unexpected end of snapshot");
+            }
+
+            String value = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+            this.position += length;
+            this.strings.add(value);
+
+            return value;
+        }
+
+        throw new ParseException(String.format("Invalid string reference [%s] in snapshot", index));
+    }
+
+    /**
+     * @return the read map
+     * @throws ParseException when the data is invalid
+     */
+    public Map<String, String> readMap() throws ParseException
+    {
+        int size = readInt();
+
+        if (size == 0) {
+            return Listener.EMPTY_PARAMETERS;
+        }
+
+        Map<String, String> map = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; ++i) {
+            map.put(readString(), readString());
+        }
+
+        return map;
+    }
+}
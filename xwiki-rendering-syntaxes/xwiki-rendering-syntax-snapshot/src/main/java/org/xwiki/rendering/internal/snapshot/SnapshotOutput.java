@@ -0,0 +1,133 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.snapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Growable byte buffer used to write a snapshot. Integers are written as variable length quantities and each distinct
+ * string is written only once, the next occurrences being written as a reference to the first one.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class SnapshotOutput
+{
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    private int size;
+
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    /**
+     * @param value the byte to write
+     */
+    public void writeByte(int value)
+    {
+        ensureCapacity(1);
+
+        this.buffer[this.size++] = (byte) value;
+    }
+
+    /**
+     * @param value the boolean to write
+     */
+    public void writeBoolean(boolean value)
+    {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * @param value the positive integer to write
+     */
+    public void writeInt(int value)
+    {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        writeByte(remaining);
+    }
+
+    /**
+     * @param value the string to write, can be null
+     */
+    public void writeString(String value)
+    {
+        if (value == null) {
+            writeInt(0);
+        } else {
+            Integer index = this.strings.get(value);
+
+            if (index != null) {
+                writeInt(index);
+            } else {
+                index = this.strings.size() + 1;
+                this.strings.put(value, index);
+
+                // A new string is indicated by an index which is not yet known by the reader
+                writeInt(index);
+
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeInt(bytes.length);
+                ensureCapacity(bytes.length);
+                System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+                this.size += bytes.length;
+            }
+        }
+    }
+
+    /**
+     * @param map the map to write
+     */
+    public void writeMap(Map<String, String> map)
+    {
+        if (map == null) {
+            writeInt(0);
+        } else {
+            writeInt(map.size());
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the written bytes
+     */
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(this.buffer, this.size);
+    }
+
+    private void ensureCapacity(int length)
+    {
+        if (this.size + length > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.size + length));
+        }
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.snapshot;
+
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.reference.AttachmentResourceReference;
+import org.xwiki.rendering.listener.reference.DocumentResourceReference;
+import org.xwiki.rendering.listener.reference.InterWikiResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+import org.xwiki.rendering.listener.reference.SpaceResourceReference;
+import org.xwiki.rendering.listener.reference.UserResourceReference;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.syntax.SyntaxType;
+
+/**
+ * Replay the events stored in a {@link SnapshotInput} into a {@link Listener}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class SnapshotReader
+{
+    private static final Format[] FORMATS = Format.values();
+
+    private static final ListType[] LIST_TYPES = ListType.values();
+
+    private static final HeaderLevel[] HEADER_LEVELS = HeaderLevel.values();
+
+    private final SnapshotInput input;
+
+    /**
+     * @param input the data to read
+     */
+    public SnapshotReader(SnapshotInput input)
+    {
+        this.input = input;
+    }
+
+    /**
+     * Send the events until the end marker to the passed listener.
+     *
+     * @param listener the listener to which to send the events
+     * @throws ParseException when the data is invalid
+     */
+    public void read(Listener listener) throws ParseException
+    {
+        try {
+            for (int event = this.input.readByte(); event != SnapshotEvents.END; event = this.input.readByte()) {
+                read(event, listener);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new ParseException("Invalid enum value in snapshot", e);
+        }
+    }
+
+    private void read(int event, Listener listener) throws ParseException
+    {
+        switch (event) {
+            case SnapshotEvents.BEGIN_DOCUMENT:
+                listener.beginDocument(readMetaData());
+                break;
+            case SnapshotEvents.END_DOCUMENT:
+                listener.endDocument(readMetaData());
+                break;
+            case SnapshotEvents.BEGIN_META_DATA:
+                listener.beginMetaData(readMetaData());
+                break;
+            case SnapshotEvents.END_META_DATA:
+                listener.endMetaData(readMetaData());
+                break;
+            case SnapshotEvents.BEGIN_GROUP:
+                listener.beginGroup(this.input.readMap());
+                break;
+            case SnapshotEvents.END_GROUP:
+                listener.endGroup(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_FORMAT:
+                listener.beginFormat(FORMATS[this.input.readByte()], this.input.readMap());
+                break;
+            case SnapshotEvents.END_FORMAT:
+                listener.endFormat(FORMATS[this.input.readByte()], this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_PARAGRAPH:
+                listener.beginParagraph(this.input.readMap());
+                break;
+            case SnapshotEvents.END_PARAGRAPH:
+                listener.endParagraph(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_LIST:
+                listener.beginList(LIST_TYPES[this.input.readByte()], this.input.readMap());
+                break;
+            case SnapshotEvents.END_LIST:
+                listener.endList(LIST_TYPES[this.input.readByte()], this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_DEFINITION_LIST:
+                listener.beginDefinitionList(this.input.readMap());
+                break;
+            case SnapshotEvents.END_DEFINITION_LIST:
+                listener.endDefinitionList(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_LIST_ITEM:
+                listener.beginListItem();
+                break;
+            case SnapshotEvents.BEGIN_LIST_ITEM_WITH_PARAMETERS:
+                listener.beginListItem(this.input.readMap());
+                break;
+            case SnapshotEvents.END_LIST_ITEM:
+                listener.endListItem();
+                break;
+            case SnapshotEvents.END_LIST_ITEM_WITH_PARAMETERS:
+                listener.endListItem(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_DEFINITION_TERM:
+                listener.beginDefinitionTerm();
+                break;
+            case SnapshotEvents.END_DEFINITION_TERM:
+                listener.endDefinitionTerm();
+                break;
+            case SnapshotEvents.BEGIN_DEFINITION_DESCRIPTION:
+                listener.beginDefinitionDescription();
+                break;
+            case SnapshotEvents.END_DEFINITION_DESCRIPTION:
+                listener.endDefinitionDescription();
+                break;
+            case SnapshotEvents.BEGIN_TABLE:
+                listener.beginTable(this.input.readMap());
+                break;
+            case SnapshotEvents.END_TABLE:
+                listener.endTable(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_TABLE_ROW:
+                listener.beginTableRow(this.input.readMap());
+                break;
+            case SnapshotEvents.END_TABLE_ROW:
+                listener.endTableRow(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_TABLE_CELL:
+                listener.beginTableCell(this.input.readMap());
+                break;
+            case SnapshotEvents.END_TABLE_CELL:
+                listener.endTableCell(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_TABLE_HEAD_CELL:
+                listener.beginTableHeadCell(this.input.readMap());
+                break;
+            case SnapshotEvents.END_TABLE_HEAD_CELL:
+                listener.endTableHeadCell(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_SECTION:
+                listener.beginSection(this.input.readMap());
+                break;
+            case SnapshotEvents.END_SECTION:
+                listener.endSection(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_HEADER:
+                listener.beginHeader(HEADER_LEVELS[this.input.readByte()], this.input.readString(),
+                    this.input.readMap());
+                break;
+            case SnapshotEvents.END_HEADER:
+                listener.endHeader(HEADER_LEVELS[this.input.readByte()], this.input.readString(),
+                    this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_MACRO_MARKER:
+                listener.beginMacroMarker(this.input.readString(), this.input.readMap(), this.input.readString(),
+                    this.input.readBoolean());
+                break;
+            case SnapshotEvents.END_MACRO_MARKER:
+                listener.endMacroMarker(this.input.readString(), this.input.readMap(), this.input.readString(),
+                    this.input.readBoolean());
+                break;
+            case SnapshotEvents.BEGIN_QUOTATION:
+                listener.beginQuotation(this.input.readMap());
+                break;
+            case SnapshotEvents.END_QUOTATION:
+                listener.endQuotation(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_QUOTATION_LINE:
+                listener.beginQuotationLine();
+                break;
+            case SnapshotEvents.END_QUOTATION_LINE:
+                listener.endQuotationLine();
+                break;
+            case SnapshotEvents.BEGIN_FIGURE:
+                listener.beginFigure(this.input.readMap());
+                break;
+            case SnapshotEvents.END_FIGURE:
+                listener.endFigure(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_FIGURE_CAPTION:
+                listener.beginFigureCaption(this.input.readMap());
+                break;
+            case SnapshotEvents.END_FIGURE_CAPTION:
+                listener.endFigureCaption(this.input.readMap());
+                break;
+            case SnapshotEvents.BEGIN_LINK:
+                listener.beginLink(readReference(), this.input.readBoolean(), this.input.readMap());
+                break;
+            case SnapshotEvents.END_LINK:
+                listener.endLink(readReference(), this.input.readBoolean(), this.input.readMap());
+                break;
+            case SnapshotEvents.ON_NEW_LINE:
+                listener.onNewLine();
+                break;
+            case SnapshotEvents.ON_MACRO:
+                listener.onMacro(this.input.readString(), this.input.readMap(), this.input.readString(),
+                    this.input.readBoolean());
+                break;
+            case SnapshotEvents.ON_WORD:
+                listener.onWord(this.input.readString());
+                break;
+            case SnapshotEvents.ON_SPACE:
+                listener.onSpace();
+                break;
+            case SnapshotEvents.ON_SPECIAL_SYMBOL:
+                listener.onSpecialSymbol((char) this.input.readInt());
+                break;
+            case SnapshotEvents.ON_ID:
+                listener.onId(this.input.readString());
+                break;
+            case SnapshotEvents.ON_HORIZONTAL_LINE:
+                listener.onHorizontalLine(this.input.readMap());
+                break;
+            case SnapshotEvents.ON_EMPTY_LINES:
+                listener.onEmptyLines(this.input.readInt());
+                break;
+            case SnapshotEvents.ON_VERBATIM:
+                listener.onVerbatim(this.input.readString(), this.input.readBoolean(), this.input.readMap());
+                break;
+            case SnapshotEvents.ON_RAW_TEXT:
+                listener.onRawText(this.input.readString(), readSyntax());
+                break;
+            case SnapshotEvents.ON_IMAGE:
+                listener.onImage(readReference(), this.input.readBoolean(), this.input.readMap());
+                break;
+            default:
+                throw new ParseException(String.format("Unknown event [%s] in snapshot", event));
+        }
+    }
+
+    private MetaData readMetaData() throws ParseException
+    {
+        int size = this.input.readInt();
+
+        if (size == 0) {
+            return MetaData.EMPTY;
+        }
+
+        MetaData metaData = new MetaData();
+        for (int i = 0; i < size; ++i) {
+            metaData.addMetaData(this.input.readString(), readValue());
+        }
+
+        return metaData;
+    }
+
+    private Object readValue() throws ParseException
+    {
+        int type = this.input.readByte();
+
+        switch (type) {
+            case SnapshotEvents.VALUE_NULL:
+                return null;
+            case SnapshotEvents.VALUE_STRING:
+                return this.input.readString();
+            case SnapshotEvents.VALUE_SYNTAX:
+                return readSyntax();
+            case SnapshotEvents.VALUE_BOOLEAN:
+                return this.input.readBoolean();
+            case SnapshotEvents.VALUE_INTEGER:
+                return Integer.valueOf(this.input.readString());
+            case SnapshotEvents.VALUE_LONG:
+                return Long.valueOf(this.input.readString());
+            default:
+                throw new ParseException(String.format("Unknown meta data value type [%s] in snapshot", type));
+        }
+    }
+
+    private Syntax readSyntax() throws ParseException
+    {
+        if (!this.input.readBoolean()) {
+            return null;
+        }
+
+        SyntaxType type = new SyntaxType(this.input.readString(), this.input.readString());
+
+        return new Syntax(type, this.input.readString(), this.input.readString());
+    }
+
+    private ResourceReference readReference() throws ParseException
+    {
+        int kind = this.input.readByte();
+        ResourceType type = new ResourceType(this.input.readString());
+        String referenceString = this.input.readString();
+
+        ResourceReference reference;
+        switch (kind) {
+            case SnapshotEvents.REFERENCE_DOCUMENT:
+                reference = new DocumentResourceReference(referenceString);
+                break;
+            case SnapshotEvents.REFERENCE_ATTACHMENT:
+                reference = new AttachmentResourceReference(referenceString);
+                break;
+            case SnapshotEvents.REFERENCE_SPACE:
+                reference = new SpaceResourceReference(referenceString);
+                break;
+            case SnapshotEvents.REFERENCE_USER:
+                reference = new UserResourceReference(referenceString);
+                break;
+            case SnapshotEvents.REFERENCE_INTERWIKI:
+                reference = new InterWikiResourceReference(referenceString);
+                break;
+            default:
+                reference = new ResourceReference(referenceString, type);
+                break;
+        }
+        reference.setType(type);
+        reference.setTyped(this.input.readBoolean());
+
+        int baseReferenceCount = this.input.readInt();
+        for (int i = 0; i < baseReferenceCount; ++i) {
+            reference.addBaseReference(this.input.readString());
+        }
+
+        reference.setParameters(this.input.readMap());
+
+        return reference;
+    }
+}
@@ -0,0 +1,546 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.snapshot;
+
+import java.util.Map;
+
+import org.xwiki.rendering.listener.Format;
+import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.ListType;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.reference.AttachmentResourceReference;
+import org.xwiki.rendering.listener.reference.DocumentResourceReference;
+import org.xwiki.rendering.listener.reference.InterWikiResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.SpaceResourceReference;
+import org.xwiki.rendering.listener.reference.UserResourceReference;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Write the received events in a {@link SnapshotOutput}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class SnapshotWriterListener implements Listener
+{
+    private final SnapshotOutput output;
+
+    /**
+     * @param output where to write the events
+     */
+    public SnapshotWriterListener(SnapshotOutput output)
+    {
+        this.output = output;
+    }
+
+    @Override
+    public void beginDocument(MetaData metadata)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_DOCUMENT);
+        writeMetaData(metadata);
+    }
+
+    @Override
+    public void endDocument(MetaData metadata)
+    {
+        this.output.writeByte(SnapshotEvents.END_DOCUMENT);
+        writeMetaData(metadata);
+    }
+
+    @Override
+    public void beginMetaData(MetaData metadata)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_META_DATA);
+        writeMetaData(metadata);
+    }
+
+    @Override
+    public void endMetaData(MetaData metadata)
+    {
+        this.output.writeByte(SnapshotEvents.END_META_DATA);
+        writeMetaData(metadata);
+    }
+
+    @Override
+    public void beginGroup(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_GROUP);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endGroup(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_GROUP);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginFormat(Format format, Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_FORMAT);
+        this.output.writeByte(format.ordinal());
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endFormat(Format format, Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_FORMAT);
+        this.output.writeByte(format.ordinal());
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginParagraph(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_PARAGRAPH);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endParagraph(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_PARAGRAPH);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginList(ListType type, Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_LIST);
+        this.output.writeByte(type.ordinal());
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endList(ListType type, Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_LIST);
+        this.output.writeByte(type.ordinal());
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginDefinitionList(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_DEFINITION_LIST);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endDefinitionList(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_DEFINITION_LIST);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginListItem()
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_LIST_ITEM);
+    }
+
+    @Override
+    public void beginListItem(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_LIST_ITEM_WITH_PARAMETERS);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endListItem()
+    {
+        this.output.writeByte(SnapshotEvents.END_LIST_ITEM);
+    }
+
+    @Override
+    public void endListItem(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_LIST_ITEM_WITH_PARAMETERS);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginDefinitionTerm()
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_DEFINITION_TERM);
+    }
+
+    @Override
+    public void endDefinitionTerm()
+    {
+        this.output.writeByte(SnapshotEvents.END_DEFINITION_TERM);
+    }
+
+    @Override
+    public void beginDefinitionDescription()
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_DEFINITION_DESCRIPTION);
+    }
+
+    @Override
+    public void endDefinitionDescription()
+    {
+        this.output.writeByte(SnapshotEvents.END_DEFINITION_DESCRIPTION);
+    }
+
+    @Override
+    public void beginTable(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_TABLE);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endTable(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_TABLE);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginTableRow(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_TABLE_ROW);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endTableRow(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_TABLE_ROW);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginTableCell(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_TABLE_CELL);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endTableCell(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_TABLE_CELL);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginTableHeadCell(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_TABLE_HEAD_CELL);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endTableHeadCell(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_TABLE_HEAD_CELL);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginSection(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_SECTION);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endSection(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_SECTION);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_HEADER);
+        this.output.writeByte(level.ordinal());
+        this.output.writeString(id);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_HEADER);
+        this.output.writeByte(level.ordinal());
+        this.output.writeString(id);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginMacroMarker(String name, Map<String, String> parameters, String content, boolean inline)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_MACRO_MARKER);
+        this.output.writeString(name);
+        this.output.writeMap(parameters);
+        this.output.writeString(content);
+        this.output.writeBoolean(inline);
+    }
+
+    @Override
+    public void endMacroMarker(String name, Map<String, String> parameters, String content, boolean inline)
+    {
+        this.output.writeByte(SnapshotEvents.END_MACRO_MARKER);
+        this.output.writeString(name);
+        this.output.writeMap(parameters);
+        this.output.writeString(content);
+        this.output.writeBoolean(inline);
+    }
+
+    @Override
+    public void beginQuotation(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_QUOTATION);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endQuotation(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_QUOTATION);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginQuotationLine()
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_QUOTATION_LINE);
+    }
+
+    @Override
+    public void endQuotationLine()
+    {
+        this.output.writeByte(SnapshotEvents.END_QUOTATION_LINE);
+    }
+
+    @Override
+    public void beginFigure(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_FIGURE);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endFigure(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_FIGURE);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginFigureCaption(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_FIGURE_CAPTION);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endFigureCaption(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_FIGURE_CAPTION);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.BEGIN_LINK);
+        writeReference(reference);
+        this.output.writeBoolean(freestanding);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void endLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.END_LINK);
+        writeReference(reference);
+        this.output.writeBoolean(freestanding);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void onNewLine()
+    {
+        this.output.writeByte(SnapshotEvents.ON_NEW_LINE);
+    }
+
+    @Override
+    public void onMacro(String id, Map<String, String> parameters, String content, boolean inline)
+    {
+        this.output.writeByte(SnapshotEvents.ON_MACRO);
+        this.output.writeString(id);
+        this.output.writeMap(parameters);
+        this.output.writeString(content);
+        this.output.writeBoolean(inline);
+    }
+
+    @Override
+    public void onWord(String word)
+    {
+        this.output.writeByte(SnapshotEvents.ON_WORD);
+        this.output.writeString(word);
+    }
+
+    @Override
+    public void onSpace()
+    {
+        this.output.writeByte(SnapshotEvents.ON_SPACE);
+    }
+
+    @Override
+    public void onSpecialSymbol(char symbol)
+    {
+        this.output.writeByte(SnapshotEvents.ON_SPECIAL_SYMBOL);
+        this.output.writeInt(symbol);
+    }
+
+    @Override
+    public void onId(String name)
+    {
+        this.output.writeByte(SnapshotEvents.ON_ID);
+        this.output.writeString(name);
+    }
+
+    @Override
+    public void onHorizontalLine(Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.ON_HORIZONTAL_LINE);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void onEmptyLines(int count)
+    {
+        this.output.writeByte(SnapshotEvents.ON_EMPTY_LINES);
+        this.output.writeInt(count);
+    }
+
+    @Override
+    public void onVerbatim(String content, boolean inline, Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.ON_VERBATIM);
+        this.output.writeString(content);
+        this.output.writeBoolean(inline);
+        this.output.writeMap(parameters);
+    }
+
+    @Override
+    public void onRawText(String content, Syntax syntax)
+    {
+        this.output.writeByte(SnapshotEvents.ON_RAW_TEXT);
+        this.output.writeString(content);
+        writeSyntax(syntax);
+    }
+
+    @Override
+    public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        this.output.writeByte(SnapshotEvents.ON_IMAGE);
+        writeReference(reference);
+        this.output.writeBoolean(freestanding);
+        this.output.writeMap(parameters);
+    }
+
+    private void writeMetaData(MetaData metaData)
+    {
+        Map<String, Object> entries = metaData.getMetaData();
+
+        this.output.writeInt(entries.size());
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            this.output.writeString(entry.getKey());
+            writeValue(entry.getValue());
+        }
+    }
+
+    private void writeValue(Object value)
+    {
+        if (value == null) {
+            this.output.writeByte(SnapshotEvents.VALUE_NULL);
+        } else if (value instanceof String) {
+            this.output.writeByte(SnapshotEvents.VALUE_STRING);
+            this.output.writeString((String) value);
+        } else if (value instanceof Syntax) {
+            this.output.writeByte(SnapshotEvents.VALUE_SYNTAX);
+            writeSyntax((Syntax) value);
+        } else if (value instanceof Boolean) {
+            this.output.writeByte(SnapshotEvents.VALUE_BOOLEAN);
+            this.output.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            this.output.writeByte(SnapshotEvents.VALUE_INTEGER);
+            this.output.writeString(value.toString());
+        } else if (value instanceof Long) {
+            this.output.writeByte(SnapshotEvents.VALUE_LONG);
+            this.output.writeString(value.toString());
+        } else {
+            throw new IllegalArgumentException(
+                String.format("Unsupported meta data value type [%s]", value.getClass().getName()));
+        }
+    }
+
+    private void writeSyntax(Syntax syntax)
+    {
+        if (syntax == null) {
+            this.output.writeBoolean(false);
+        } else {
+            this.output.writeBoolean(true);
+            this.output.writeString(syntax.getType().getId());
+            this.output.writeString(syntax.getType().getName());
+            this.output.writeString(syntax.getVersion());
+            this.output.writeString(syntax.getQualifier());
+        }
+    }
+
+    private void writeReference(ResourceReference reference)
+    {
+        if (reference instanceof DocumentResourceReference) {
+            this.output.writeByte(SnapshotEvents.REFERENCE_DOCUMENT);
+        } else if (reference instanceof AttachmentResourceReference) {
+            this.output.writeByte(SnapshotEvents.REFERENCE_ATTACHMENT);
+        } else if (reference instanceof SpaceResourceReference) {
+            this.output.writeByte(SnapshotEvents.REFERENCE_SPACE);
+        } else if (reference instanceof UserResourceReference) {
+            this.output.writeByte(SnapshotEvents.REFERENCE_USER);
+        } else if (reference instanceof InterWikiResourceReference) {
+            this.output.writeByte(SnapshotEvents.REFERENCE_INTERWIKI);
+        } else {
+            this.output.writeByte(SnapshotEvents.REFERENCE_GENERIC);
+        }
+
+        this.output.writeString(reference.getType().getScheme());
+        this.output.writeString(reference.getReference());
+        this.output.writeBoolean(reference.isTyped());
+
+        this.output.writeInt(reference.getBaseReferences().size());
+        for (String baseReference : reference.getBaseReferences()) {
+            this.output.writeString(baseReference);
+        }
+
+        this.output.writeMap(reference.getParameters());
+    }
+}
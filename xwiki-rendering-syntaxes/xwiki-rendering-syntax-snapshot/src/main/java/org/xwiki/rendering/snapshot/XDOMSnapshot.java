@@ -0,0 +1,179 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.snapshot;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
+import org.xwiki.rendering.internal.snapshot.SnapshotEvents;
+import org.xwiki.rendering.internal.snapshot.SnapshotInput;
+import org.xwiki.rendering.internal.snapshot.SnapshotOutput;
+import org.xwiki.rendering.internal.snapshot.SnapshotReader;
+import org.xwiki.rendering.internal.snapshot.SnapshotWriterListener;
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.util.IdGenerator;
+
+/**
+ * Compact binary representation of a {@link XDOM}: the events produced by the {@link XDOM} (including the
+ * {@link org.xwiki.rendering.listener.reference.ResourceReference}s and the
+ * {@link org.xwiki.rendering.listener.MetaData}) and the state of its {@link IdGenerator}.
+ * <p>
+ * A snapshot can be replayed directly into a {@link Listener} (for example a
+ * {@link org.xwiki.rendering.renderer.PrintRenderer}) without creating any {@link org.xwiki.rendering.block.Block},
+ * which makes it a good candidate to cache the result of a parsing or a transformation. Note that only the information
+ * sent to listeners is kept: custom parameters set on blocks which don't emit them (a
+ * {@link org.xwiki.rendering.block.WordBlock} for example) are lost.
+ * <p>
+ * The format is not meant to be stored durably: it can change from one version to another.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public final class XDOMSnapshot
+{
+    private final byte[] data;
+
+    /**
+     * @param data the serialized snapshot, as returned by {@link #toByteArray()}
+     */
+    public XDOMSnapshot(byte[] data)
+    {
+        this.data = data;
+    }
+
+    /**
+     * @param xdom the {@link XDOM} to serialize
+     * @return the snapshot of the passed {@link XDOM}
+     * @throws IllegalArgumentException when the {@link XDOM} contains a meta data value which cannot be serialized
+     *             (only {@link String}, {@link org.xwiki.rendering.syntax.Syntax}, {@link Boolean}, {@link Integer}
+     *             and {@link Long} are supported)
+     */
+    public static XDOMSnapshot create(XDOM xdom)
+    {
+        SnapshotOutput output = new SnapshotOutput();
+
+        for (byte b : SnapshotEvents.MAGIC) {
+            output.writeByte(b);
+        }
+        output.writeInt(SnapshotEvents.VERSION);
+
+        if (xdom.getIdGenerator() != null) {
+            Set<String> ids = xdom.getIdGenerator().getGeneratedIds();
+            output.writeInt(ids.size());
+            for (String id : ids) {
+                output.writeString(id);
+            }
+        } else {
+            output.writeInt(0);
+        }
+
+        xdom.traverse(new SnapshotWriterListener(output));
+
+        output.writeByte(SnapshotEvents.END);
+
+        return new XDOMSnapshot(output.toByteArray());
+    }
+
+    /**
+     * @return the serialized snapshot
+     */
+    public byte[] toByteArray()
+    {
+        return Arrays.copyOf(this.data, this.data.length);
+    }
+
+    /**
+     * @return the size in bytes of the serialized snapshot
+     */
+    public int size()
+    {
+        return this.data.length;
+    }
+
+    /**
+     * Send the events of the {@link XDOM} to the passed listener.
+     *
+     * @param listener the listener to send the events to
+     * @throws ParseException when the snapshot is invalid
+     */
+    public void replay(Listener listener) throws ParseException
+    {
+        SnapshotInput input = new SnapshotInput(this.data);
+
+        readIdGenerator(input);
+
+        new SnapshotReader(input).read(listener);
+    }
+
+    /**
+     * @return a new {@link IdGenerator} with the state of the {@link XDOM}'s one
+     * @throws ParseException when the snapshot is invalid
+     */
+    public IdGenerator getIdGenerator() throws ParseException
+    {
+        return readIdGenerator(new SnapshotInput(this.data));
+    }
+
+    /**
+     * @return a new {@link XDOM} equivalent to the one used to create the snapshot
+     * @throws ParseException when the snapshot is invalid
+     */
+    public XDOM toXDOM() throws ParseException
+    {
+        SnapshotInput input = new SnapshotInput(this.data);
+
+        IdGenerator idGenerator = readIdGenerator(input);
+
+        XDOMGeneratorListener listener = new XDOMGeneratorListener();
+        new SnapshotReader(input).read(listener);
+
+        XDOM xdom = listener.getXDOM();
+        xdom.setIdGenerator(idGenerator);
+
+        return xdom;
+    }
+
+    private IdGenerator readIdGenerator(SnapshotInput input) throws ParseException
+    {
+        for (byte b : SnapshotEvents.MAGIC) {
+            if (input.readByte() != b) {
+                throw new ParseException("Invalid snapshot");
+            }
+        }
+
+        int version = input.readInt();
+        if (version != SnapshotEvents.VERSION) {
+            throw new ParseException(
+                String.format("Unsupported snapshot version [%s], expected [%s]", version, SnapshotEvents.VERSION));
+        }
+
+        IdGenerator idGenerator = new IdGenerator();
+
+        int size = input.readInt();
+        for (int i = 0; i < size; ++i) {
+            idGenerator.add(input.readString());
+        }
+
+        return idGenerator;
+    }
+}
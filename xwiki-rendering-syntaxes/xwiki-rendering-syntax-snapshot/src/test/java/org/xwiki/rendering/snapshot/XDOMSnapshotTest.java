@@ -0,0 +1,123 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.snapshot;
+
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.listener.VoidListener;
+import org.xwiki.rendering.parser.ParseException;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.test.ComponentManagerRule;
+import org.xwiki.test.annotation.AllComponents;
+
+/**
+ * Unit tests for {@link XDOMSnapshot}.
+ *
+ * @version $Id$
+ */
+@AllComponents
+public class XDOMSnapshotTest
+{
+    private static final String CONTENT = "= Title =\n\n"
+        + "Some **bold** and //italic// text with a [[link>>doc:Space.Page||class=\"link\"]] and an "
+        + "[[image:attach:Space.Page@image.png]] and an url http://www.xwiki.org and a {{macro param=\"value\"/}}\n\n"
+        + "* item 1\n** item 1.1\n* item 2\n\n"
+        + "|=Header|=Header 2\n|Cell|(% style=\"color:red\" %)Cell 2\n\n"
+        + "(% class=\"group\" %)(((\n{{{verbatim}}}\n\n----\n)))\n\n"
+        + "; term\n: definition\n\n"
+        + "= Title =\n\n"
+        + "> quote\n\n\n\n{{html}}<p>html</p>{{/html}}";
+
+    @Rule
+    public final ComponentManagerRule componentManager = new ComponentManagerRule();
+
+    private XDOM xdom;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Parser parser = this.componentManager.getInstance(Parser.class, Syntax.XWIKI_2_1.toIdString());
+        this.xdom = parser.parse(new StringReader(CONTENT));
+    }
+
+    private String renderEvents(XDOM xdom) throws Exception
+    {
+        WikiPrinter printer = new DefaultWikiPrinter();
+        BlockRenderer renderer =
+            this.componentManager.getInstance(BlockRenderer.class, Syntax.EVENT_1_0.toIdString());
+        renderer.render(xdom, printer);
+
+        return printer.toString();
+    }
+
+    @Test
+    public void replay() throws Exception
+    {
+        XDOMSnapshot snapshot = XDOMSnapshot.create(this.xdom);
+
+        PrintRendererFactory factory =
+            this.componentManager.getInstance(PrintRendererFactory.class, Syntax.EVENT_1_0.toIdString());
+        WikiPrinter printer = new DefaultWikiPrinter();
+        PrintRenderer renderer = factory.createRenderer(printer);
+
+        snapshot.replay(renderer);
+
+        Assert.assertEquals(renderEvents(this.xdom), printer.toString());
+    }
+
+    @Test
+    public void toXDOM() throws Exception
+    {
+        XDOMSnapshot snapshot = new XDOMSnapshot(XDOMSnapshot.create(this.xdom).toByteArray());
+
+        XDOM result = snapshot.toXDOM();
+
+        Assert.assertEquals(this.xdom, result);
+        Assert.assertEquals(renderEvents(this.xdom), renderEvents(result));
+        Assert.assertEquals(this.xdom.getMetaData(), result.getMetaData());
+    }
+
+    @Test
+    public void idGeneratorState() throws Exception
+    {
+        XDOMSnapshot snapshot = XDOMSnapshot.create(this.xdom);
+
+        Assert.assertEquals(this.xdom.getIdGenerator().getGeneratedIds(),
+            snapshot.getIdGenerator().getGeneratedIds());
+        Assert.assertEquals("HTitle-2", snapshot.toXDOM().getIdGenerator().generateUniqueId("H", "Title"));
+    }
+
+    @Test(expected = ParseException.class)
+    public void replayInvalidSnapshot() throws Exception
+    {
+        new XDOMSnapshot(new byte[] {'X', 'D', 'S', 1, 42}).replay(new VoidListener());
+    }
+}
@@ -19,6 +19,7 @@
  */
 package org.xwiki.rendering.internal.parser.wikimodel;
 
+import java.io.StringReader;
 import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.Deque;
@@ -34,10 +35,12 @@
 import org.xwiki.rendering.listener.CompositeListener;
 import org.xwiki.rendering.listener.Format;
 import org.xwiki.rendering.listener.HeaderLevel;
+import org.xwiki.rendering.listener.InlineFilterListener;
 import org.xwiki.rendering.listener.ListType;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.listener.MetaData;
-import org.xwiki.rendering.listener.QueueListener;
+import org.xwiki.rendering.listener.RingBufferQueueListener;
+import org.xwiki.rendering.listener.WrappingListener;
 import org.xwiki.rendering.listener.reference.DocumentResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.parser.ParseException;
@@ -49,9 +52,12 @@
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.util.IdGenerator;
 import org.xwiki.rendering.wikimodel.IWemConstants;
+import org.xwiki.rendering.wikimodel.IWikiInlineParser;
+import org.xwiki.rendering.wikimodel.IWikiParser;
 import org.xwiki.rendering.wikimodel.WikiFormat;
 import org.xwiki.rendering.wikimodel.WikiParameter;
 import org.xwiki.rendering.wikimodel.WikiParameters;
+import org.xwiki.rendering.wikimodel.WikiParserException;
 import org.xwiki.rendering.wikimodel.WikiReference;
 import org.xwiki.rendering.wikimodel.WikiStyle;
 
@@ -97,6 +103,13 @@ public class DefaultXWikiGeneratorListener implements XWikiGeneratorListener
 
     private StreamParser parser;
 
+    /**
+     * The parser used to parse link labels, reused for all the links of the document.
+     */
+    private IWikiInlineParser labelParser;
+
+    private boolean labelParserResolved;
+
     private ResourceReferenceParser linkReferenceParser;
 
     private ResourceReferenceParser imageReferenceParser;
@@ -436,7 +449,7 @@ public void beginHeader(int level, WikiParameters params)
         // For this:
         // buffer all events in a queue until the header ends, and also send them to a print renderer to generate the ID
         CompositeListener composite = new CompositeListener();
-        composite.addListener(new QueueListener());
+        composite.addListener(new RingBufferQueueListener());
         composite.addListener(this.plainRendererFactory.createRenderer(new DefaultWikiPrinter()));
 
         // These 2 listeners will receive all events from now on until the header ends
@@ -580,7 +593,7 @@ public void endHeader(int level, WikiParameters params)
         CompositeListener composite = (CompositeListener) getListener();
 
         // Get the listener where events inside the header were buffered
-        QueueListener queue = (QueueListener) composite.getListener(0);
+        RingBufferQueueListener queue = (RingBufferQueueListener) composite.getListener(0);
         // and the listener in which the id was generated
         PrintRenderer renderer = (PrintRenderer) composite.getListener(1);
 
@@ -834,9 +847,7 @@ protected void onReference(ResourceReference reference, String label, boolean fr
         getListener().beginLink(reference, freestanding, parameters);
         if (label != null) {
             try {
-                // TODO: Use an inline parser. See https://jira.xwiki.org/browse/XWIKI-2748
-                WikiModelParserUtils parserUtils = new WikiModelParserUtils();
-                parserUtils.parseInline(this.parser, label, getListener(), prefix);
+                parseLabel(label, prefix);
             } catch (ParseException e) {
                 // TODO what should we do here ?
             }
@@ -844,6 +855,48 @@ protected void onReference(ResourceReference reference, String label, boolean fr
         getListener().endLink(reference, freestanding, parameters);
     }
 
+    private void parseLabel(String label, boolean prefix) throws ParseException
+    {
+        IWikiInlineParser inlineParser = prefix ? getLabelParser() : null;
+
+        if (inlineParser != null) {
+            // Parse the label directly in inline mode with a reused scanner instead of parsing a full document with
+            // a fake prefix word
+            WrappingListener inlineFilterListener = new LabelInlineFilterListener();
+            inlineFilterListener.setWrappedListener(getListener());
+
+            try {
+                inlineParser.parseInline(new StringReader(label),
+                    ((WikiModelStreamParser) this.parser).createXWikiGeneratorListener(inlineFilterListener, null));
+            } catch (WikiParserException e) {
+                throw new ParseException("Failed to parse link label [" + label + "]", e);
+            }
+        } else {
+            WikiModelParserUtils parserUtils = new WikiModelParserUtils();
+            parserUtils.parseInline(this.parser, label, getListener(), prefix);
+        }
+    }
+
+    /**
+     * @return the WikiModel parser to use to parse link labels in inline mode or null if the link label parser
+     *         does not support it
+     */
+    private IWikiInlineParser getLabelParser() throws ParseException
+    {
+        if (!this.labelParserResolved) {
+            this.labelParserResolved = true;
+
+            if (this.parser instanceof AbstractWikiModelParser) {
+                IWikiParser wikiModelParser = ((AbstractWikiModelParser) this.parser).createWikiModelParser();
+                if (wikiModelParser instanceof IWikiInlineParser) {
+                    this.labelParser = (IWikiInlineParser) wikiModelParser;
+                }
+            }
+        }
+
+        return this.labelParser;
+    }
+
     @Override
     public void onImage(String reference)
     {
@@ -925,4 +978,23 @@ public void onWord(String str)
 
         getListener().onWord(str);
     }
+
+    /**
+     * Skip the block events of a link label and make sure macros and verbatim are inline: the inline scanner starts
+     * at the beginning of a line where they would otherwise be considered standalone.
+     */
+    private static class LabelInlineFilterListener extends InlineFilterListener
+    {
+        @Override
+        public void onMacro(String id, Map<String, String> parameters, String content, boolean inline)
+        {
+            super.onMacro(id, parameters, content, true);
+        }
+
+        @Override
+        public void onVerbatim(String content, boolean inline, Map<String, String> parameters)
+        {
+            super.onVerbatim(content, true, parameters);
+        }
+    }
 }
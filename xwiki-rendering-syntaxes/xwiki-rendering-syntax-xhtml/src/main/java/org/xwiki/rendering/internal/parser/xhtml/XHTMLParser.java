@@ -30,9 +30,15 @@
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.parser.XDOMGeneratorListener;
 import org.xwiki.rendering.internal.parser.wikimodel.AbstractWikiModelParser;
 import org.xwiki.rendering.internal.parser.wikimodel.XWikiGeneratorListener;
 import org.xwiki.rendering.internal.parser.xhtml.wikimodel.XHTMLXWikiGeneratorListener;
@@ -42,6 +48,7 @@
 import org.xwiki.rendering.internal.parser.xhtml.wikimodel.XWikiReferenceTagHandler;
 import org.xwiki.rendering.internal.parser.xhtml.wikimodel.XWikiSpanTagHandler;
 import org.xwiki.rendering.internal.parser.xhtml.wikimodel.XWikiTableDataTagHandler;
+import org.xwiki.rendering.internal.parser.xhtml.wikimodel.XWikiXHTMLWhitespaceXMLFilter;
 import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.parser.ParseException;
 import org.xwiki.rendering.parser.ResourceReferenceParser;
@@ -50,9 +57,13 @@
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.util.IdGenerator;
 import org.xwiki.rendering.wikimodel.IWikiParser;
+import org.xwiki.rendering.wikimodel.impl.WikiScannerCache;
 import org.xwiki.rendering.wikimodel.xhtml.XhtmlParser;
+import org.xwiki.rendering.wikimodel.xhtml.filter.AccumulationXMLFilter;
 import org.xwiki.rendering.wikimodel.xhtml.handler.DivisionTagHandler;
 import org.xwiki.rendering.wikimodel.xhtml.handler.TagHandler;
+import org.xwiki.rendering.wikimodel.xhtml.impl.DOMXMLReader;
+import org.xwiki.rendering.wikimodel.xhtml.impl.XhtmlHandler;
 import org.xwiki.xml.XMLReaderFactory;
 
 /**
@@ -64,7 +75,7 @@
 @Component
 @Named("xhtml/1.0")
 @Singleton
-public class XHTMLParser extends AbstractWikiModelParser
+public class XHTMLParser extends AbstractWikiModelParser implements Initializable
 {
     /**
      * The parser used for the link label parsing. For (x)html parsing, this will be an xwiki 2.0 parser, since it's
@@ -116,6 +127,16 @@ public class XHTMLParser extends AbstractWikiModelParser
     @Named("xwiki")
     private XMLReaderFactory xmlReaderFactory;
 
+    /**
+     * Creating a XML reader and its filters is expensive so we keep one per thread.
+     */
+    private final WikiScannerCache<XMLReader> xmlReaders = new WikiScannerCache<>();
+
+    /**
+     * The tag handlers don't keep any state so they are shared by all the parsings.
+     */
+    private Map<String, TagHandler> handlers;
+
     @Override
     public Syntax getSyntax()
     {
@@ -129,37 +150,53 @@ public StreamParser getLinkLabelParser()
     }
 
     @Override
-    public IWikiParser createWikiModelParser() throws ParseException
+    public void initialize() throws InitializationException
     {
         // Override some of the WikiModel XHTML parser tag handlers to introduce our own logic.
-        Map<String, TagHandler> handlers = new HashMap<>();
+        Map<String, TagHandler> extraHandlers = new HashMap<>();
         TagHandler handler = new XWikiHeaderTagHandler();
-        handlers.put("h1", handler);
-        handlers.put("h2", handler);
-        handlers.put("h3", handler);
-        handlers.put("h4", handler);
-        handlers.put("h5", handler);
-        handlers.put("h6", handler);
-        handlers.put("a", new XWikiReferenceTagHandler(this, this.xmlRenderer));
-        handlers.put("img", new XWikiImageTagHandler());
-        handlers.put("span", new XWikiSpanTagHandler());
+        extraHandlers.put("h1", handler);
+        extraHandlers.put("h2", handler);
+        extraHandlers.put("h3", handler);
+        extraHandlers.put("h4", handler);
+        extraHandlers.put("h5", handler);
+        extraHandlers.put("h6", handler);
+        extraHandlers.put("a", new XWikiReferenceTagHandler(this, this.xmlRenderer));
+        extraHandlers.put("img", new XWikiImageTagHandler());
+        extraHandlers.put("span", new XWikiSpanTagHandler());
         // Change the class value indicating that the division is an embedded document. We do this in order to be
         // independent of WikiModel in what we expose to the outside world. Thus if one day we need to change to
         // another implementation we won't be tied to WikiModel.
-        handlers.put("div", new DivisionTagHandler("xwiki-document"));
-        handlers.put("th", new XWikiTableDataTagHandler());
+        extraHandlers.put("div", new DivisionTagHandler("xwiki-document"));
+        extraHandlers.put("th", new XWikiTableDataTagHandler());
 
-        XhtmlParser parser = new XhtmlParser();
-        parser.setExtraHandlers(handlers);
-        parser.setCommentHandler(new XWikiCommentHandler(this.componentManager, this,
-            this.xmlRenderer, this.xhtmlMarkerResourceReferenceParser));
+        this.handlers = XhtmlHandler.createHandlers(extraHandlers);
+    }
 
+    @Override
+    public IWikiParser createWikiModelParser() throws ParseException
+    {
+        return createWikiModelParser(createXMLReader());
+    }
+
+    private XMLReader createXMLReader() throws ParseException
+    {
         // Construct our own XML filter chain since we want to use our own Comment filter.
         try {
-            parser.setXmlReader(this.xmlReaderFactory.createXMLReader());
+            return this.xmlReaderFactory.createXMLReader();
         } catch (Exception e) {
             throw new ParseException("Failed to create XML reader", e);
         }
+    }
+
+    private XhtmlParser createWikiModelParser(XMLReader xmlReader)
+    {
+        XhtmlParser parser = new XhtmlParser();
+        parser.setHandlers(this.handlers);
+        // The comment handler keeps the state of the parsing so we need a new one each time.
+        parser.setCommentHandler(new XWikiCommentHandler(this.componentManager, this,
+            this.xmlRenderer, this.xhtmlMarkerResourceReferenceParser));
+        parser.setXmlReader(xmlReader);
 
         return parser;
     }
@@ -214,7 +251,84 @@ protected void parse(Reader source, Listener listener, IdGenerator idGenerator)
     {
         Reader pushBackReader = getPushBackReader(source);
         if (pushBackReader != null) {
-            super.parse(pushBackReader, listener, idGenerator);
+            // The reader is removed from the cache while it's used so that a parsing started by a listener gets its own
+            // reader.
+            XMLReader xmlReader = this.xmlReaders.take();
+            if (xmlReader == null) {
+                xmlReader = createXMLReader();
+            }
+
+            try {
+                createWikiModelParser(xmlReader).parse(pushBackReader,
+                    createXWikiGeneratorListener(listener, idGenerator));
+            } catch (Exception e) {
+                throw new ParseException("Failed to parse input source", e);
+            } finally {
+                // Don't keep the last parsed content in memory. The filters reset their state when the next parsing
+                // starts.
+                xmlReader.setContentHandler(null);
+                this.xmlReaders.release(xmlReader);
+            }
+        }
+    }
+
+    /**
+     * Parse an already parsed XHTML document. The events are generated by walking the DOM so there's no need to
+     * serialize it and parse it again. The text nodes are used as is: entity references left as text (like the
+     * ones kept by the HTML cleaner) are not resolved.
+     *
+     * @param document the XHTML document to parse
+     * @return the XDOM corresponding to the document
+     * @throws ParseException if an unexpected error happens during the parsing
+     * @since 10.4RC1
+     */
+    public XDOM parse(Document document) throws ParseException
+    {
+        IdGenerator idGenerator = new IdGenerator();
+        XDOMGeneratorListener listener = new XDOMGeneratorListener();
+        parse(document, listener, idGenerator);
+
+        XDOM xdom = listener.getXDOM();
+        xdom.setIdGenerator(idGenerator);
+
+        return xdom;
+    }
+
+    /**
+     * Parse an already parsed XHTML document. The events are generated by walking the DOM so there's no need to
+     * serialize it and parse it again. The text nodes are used as is: entity references left as text (like the
+     * ones kept by the HTML cleaner) are not resolved.
+     *
+     * @param document the XHTML document to parse
+     * @param listener receive event for each element
+     * @throws ParseException if an unexpected error happens during the parsing
+     * @since 10.4RC1
+     */
+    public void parse(Document document, Listener listener) throws ParseException
+    {
+        parse(document, listener, new IdGenerator());
+    }
+
+    /**
+     * @param document the XHTML document to parse
+     * @param listener receive event for each element
+     * @param idGenerator unique id tool generator
+     * @throws ParseException if an unexpected error happens during the parsing
+     * @since 10.4RC1
+     */
+    protected void parse(Document document, Listener listener, IdGenerator idGenerator) throws ParseException
+    {
+        // Same filters as the ones of the "xwiki" XML reader factory, except for the DTD one since there's no DTD
+        // to parse.
+        XMLReader xmlReader =
+            new XWikiXHTMLWhitespaceXMLFilter(new AccumulationXMLFilter(new DOMXMLReader(document)));
+
+        XhtmlParser parser = createWikiModelParser(xmlReader);
+        try {
+            // The DOM reader doesn't read any input
+            parser.parse(new InputSource(), createXWikiGeneratorListener(listener, idGenerator));
+        } catch (Exception e) {
+            throw new ParseException("Failed to parse input document", e);
         }
     }
 
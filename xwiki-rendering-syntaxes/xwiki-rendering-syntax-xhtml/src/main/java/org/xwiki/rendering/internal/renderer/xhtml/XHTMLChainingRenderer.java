@@ -36,6 +36,7 @@
 import org.xwiki.rendering.listener.chaining.MetaDataStateChainingListener;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.renderer.AbstractChainingPrintRenderer;
+import org.xwiki.rendering.renderer.printer.PrecompiledXMLElement;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
@@ -60,12 +61,37 @@ public class XHTMLChainingRenderer extends AbstractChainingPrintRenderer
      */
     public static final String GENERATEDIDCLASS = "wikigeneratedid";
 
+    private static final PrecompiledXMLElement SPAN = new PrecompiledXMLElement("span");
+
+    private static final PrecompiledXMLElement DIV = new PrecompiledXMLElement("div");
+
+    private static final PrecompiledXMLElement BR = new PrecompiledXMLElement("br");
+
+    private static final PrecompiledXMLElement INLINE_VERBATIM =
+        new PrecompiledXMLElement("tt", "class", "wikimodel-verbatim");
+
+    private static final PrecompiledXMLElement EMPTY_LINE =
+        new PrecompiledXMLElement("div", "class", "wikimodel-emptyline");
+
+    private static final PrecompiledXMLElement[] HEADERS = new PrecompiledXMLElement[HeaderLevel.values().length];
+
+    static {
+        for (HeaderLevel level : HeaderLevel.values()) {
+            HEADERS[level.ordinal()] = new PrecompiledXMLElement("h" + level.getAsInt());
+        }
+    }
+
     private XHTMLLinkRenderer linkRenderer;
 
     private XHTMLImageRenderer imageRenderer;
 
     private XHTMLWikiPrinter xhtmlWikiPrinter;
 
+    /**
+     * Reused to compute the attributes of the elements which cannot be printed directly from the event parameters.
+     */
+    private final Map<String, String> reusedAttributes = new LinkedHashMap<String, String>();
+
     /**
      * @param linkRenderer the object to render link events into XHTML. This is done so that it's pluggable because link
      *            rendering depends on how the underlying system wants to handle it. For example for XWiki we check if
@@ -130,9 +156,7 @@ protected XHTMLWikiPrinter getXHTMLWikiPrinter()
     @Override
     public void beginGroup(Map<String, String> parameters)
     {
-        Map<String, String> clonedParameters = new LinkedHashMap<String, String>();
-        clonedParameters.putAll(parameters);
-        getXHTMLWikiPrinter().printXMLStartElement("div", clonedParameters);
+        getXHTMLWikiPrinter().printXMLStartElement("div", parameters);
     }
 
     @Override
@@ -228,7 +252,7 @@ public void endParagraph(Map<String, String> parameters)
     @Override
     public void onNewLine()
     {
-        getXHTMLWikiPrinter().printXMLElement("br");
+        getXHTMLWikiPrinter().printXMLElement(BR);
     }
 
     @Override
@@ -258,7 +282,7 @@ public void endLink(ResourceReference reference, boolean freestanding, Map<Strin
     @Override
     public void beginHeader(HeaderLevel level, String id, Map<String, String> parameters)
     {
-        Map<String, String> attributes = new LinkedHashMap<String, String>();
+        Map<String, String> attributes = getAttributes();
 
         attributes.put("id", id);
 
@@ -280,17 +304,17 @@ public void beginHeader(HeaderLevel level, String id, Map<String, String> parame
             addClassValue("class", GENERATEDHEADERCLASS, attributes);
         }
 
-        getXHTMLWikiPrinter().printXMLStartElement("h" + level.getAsInt(), attributes);
+        getXHTMLWikiPrinter().printXMLStartElement(HEADERS[level.ordinal()], attributes);
         // We generate a span so that CSS rules have a hook to perform some magic that wouldn't work on just a H
         // element. Like some IE6 magic and others.
-        getXHTMLWikiPrinter().printXMLStartElement("span");
+        getXHTMLWikiPrinter().printXMLStartElement(SPAN);
     }
 
     @Override
     public void endHeader(HeaderLevel level, String id, Map<String, String> parameters)
     {
-        getXHTMLWikiPrinter().printXMLEndElement("span");
-        getXHTMLWikiPrinter().printXMLEndElement("h" + level.getAsInt());
+        getXHTMLWikiPrinter().printXMLEndElement(SPAN);
+        getXHTMLWikiPrinter().printXMLEndElement(HEADERS[level.ordinal()]);
     }
 
     @Override
@@ -365,11 +389,11 @@ public void onId(String name)
         if (getBlockState().isInLine()) {
             // Note: We're using <span><span/> and not <span/> since some browsers do not support the
             // <span/> syntax (FF3) when the content type is set to HTML instead of XHTML.
-            getXHTMLWikiPrinter().printXMLStartElement("span", new String[][] { { "id", name } });
-            getXHTMLWikiPrinter().printXMLEndElement("span");
+            getXHTMLWikiPrinter().printXMLStartElement(SPAN, "id", name);
+            getXHTMLWikiPrinter().printXMLEndElement(SPAN);
         } else {
-            getXHTMLWikiPrinter().printXMLStartElement("div", new String[][] { { "id", name } });
-            getXHTMLWikiPrinter().printXMLEndElement("div");
+            getXHTMLWikiPrinter().printXMLStartElement(DIV, "id", name);
+            getXHTMLWikiPrinter().printXMLEndElement(DIV);
         }
     }
 
@@ -388,9 +412,9 @@ public void onVerbatim(String content, boolean inline, Map<String, String> param
             // tt is the closed to pre for inline.
             // The class is what is expected by wikimodel to understand the tt as meaning a verbatim and not a Monospace
             // element.
-            getXHTMLWikiPrinter().printXMLStartElement("tt", new String[][] { { "class", "wikimodel-verbatim" } });
+            getXHTMLWikiPrinter().printXMLStartElement(INLINE_VERBATIM);
             getXHTMLWikiPrinter().printXML(content);
-            getXHTMLWikiPrinter().printXMLEndElement("tt");
+            getXHTMLWikiPrinter().printXMLEndElement(INLINE_VERBATIM);
         } else {
             getXHTMLWikiPrinter().printXMLStartElement("pre", parameters);
             getXHTMLWikiPrinter().printXML(content);
@@ -406,8 +430,8 @@ public void onEmptyLines(int count)
         // Note: We're using <div><div/> and not <div/> since some browsers do not support the <div/> syntax (FF3)
         // when the content type is set to HTML instead of XHTML.
         for (int i = 0; i < count; ++i) {
-            getXHTMLWikiPrinter().printXMLStartElement("div", new String[][] { { "class", "wikimodel-emptyline" } });
-            getXHTMLWikiPrinter().printXMLEndElement("div");
+            getXHTMLWikiPrinter().printXMLStartElement(EMPTY_LINE);
+            getXHTMLWikiPrinter().printXMLEndElement(EMPTY_LINE);
         }
     }
 
@@ -515,7 +539,8 @@ public void beginTableHeadCell(Map<String, String> parameters)
         // Find proper scope attribute value
         Map<String, String> parametersWithScope;
         if (!parameters.containsKey("scope")) {
-            parametersWithScope = new LinkedHashMap<String, String>(parameters);
+            parametersWithScope = getAttributes();
+            parametersWithScope.putAll(parameters);
 
             if (getBlockState().getCellRow() == 0 || getBlockState().getCellCol() > 0) {
                 parametersWithScope.put("scope", "col");
@@ -600,6 +625,16 @@ public void endFigureCaption(Map<String, String> parameters)
         getXHTMLWikiPrinter().printXMLEndElement("p");
     }
 
+    /**
+     * @return the reused attributes map, emptied
+     */
+    private Map<String, String> getAttributes()
+    {
+        this.reusedAttributes.clear();
+
+        return this.reusedAttributes;
+    }
+
     private void addClassValue(String classAttributeName, String newClassValue, Map<String, String> attributes)
     {
         String classValue = attributes.get(classAttributeName);
@@ -27,7 +27,9 @@
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.internal.component.ComponentDispatchRegistry;
 import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.renderer.printer.PrecompiledXMLElement;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 import org.xwiki.rendering.renderer.reference.link.URILabelGenerator;
 
@@ -54,14 +56,33 @@ public abstract class AbstractXHTMLImageTypeRenderer implements XHTMLImageTypeRe
      */
     protected static final String TT = "tt";
 
+    private static final PrecompiledXMLElement ERROR =
+        new PrecompiledXMLElement(SPAN, CLASS, "xwikirenderingerror");
+
+    private static final PrecompiledXMLElement ERROR_DESCRIPTION =
+        new PrecompiledXMLElement(SPAN, CLASS, "xwikirenderingerrordescription hidden");
+
+    private static final PrecompiledXMLElement VERBATIM = new PrecompiledXMLElement(TT, CLASS, "wikimodel-verbatim");
+
     @Inject
     protected ComponentManager componentManager;
 
+    /**
+     * Used to find the {@link URILabelGenerator} components without looking them up for each image.
+     */
+    @Inject
+    private ComponentDispatchRegistry dispatchRegistry;
+
     /**
      * @see #setXHTMLWikiPrinter(XHTMLWikiPrinter)
      */
     private XHTMLWikiPrinter xhtmlPrinter;
 
+    /**
+     * Reused for the attributes of the IMG HTML element.
+     */
+    private final Map<String, String> imageAttributes = new LinkedHashMap<String, String>();
+
     @Override
     public void setXHTMLWikiPrinter(XHTMLWikiPrinter printer)
     {
@@ -84,7 +105,8 @@ public XHTMLWikiPrinter getXHTMLWikiPrinter()
     @Override
     public void onImage(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
     {
-        Map<String, String> attributes = new LinkedHashMap<String, String>();
+        Map<String, String> attributes = this.imageAttributes;
+        attributes.clear();
 
         try {
             // First we need to compute the image SRC attribute value.
@@ -110,17 +132,16 @@ public void onImage(ResourceReference reference, boolean freestanding, Map<Strin
             getXHTMLWikiPrinter().printXMLElement(XHTMLImageRenderer.IMG, attributes);
         } catch (Throwable e) {
             // Error title
-            getXHTMLWikiPrinter().printXMLStartElement(SPAN, new String[][] { { CLASS, "xwikirenderingerror" } });
+            getXHTMLWikiPrinter().printXMLStartElement(ERROR);
             getXHTMLWikiPrinter().printXML(e.getMessage());
-            getXHTMLWikiPrinter().printXMLEndElement(SPAN);
+            getXHTMLWikiPrinter().printXMLEndElement(ERROR);
 
             // Error details
-            getXHTMLWikiPrinter().printXMLStartElement(SPAN,
-                new String[][] { { CLASS, "xwikirenderingerrordescription hidden" } });
-            getXHTMLWikiPrinter().printXMLStartElement(TT, new String[][] { { CLASS, "wikimodel-verbatim" } });
+            getXHTMLWikiPrinter().printXMLStartElement(ERROR_DESCRIPTION);
+            getXHTMLWikiPrinter().printXMLStartElement(VERBATIM);
             getXHTMLWikiPrinter().printXML(ExceptionUtils.getStackTrace(e));
-            getXHTMLWikiPrinter().printXMLEndElement(TT);
-            getXHTMLWikiPrinter().printXMLEndElement(SPAN);
+            getXHTMLWikiPrinter().printXMLEndElement(VERBATIM);
+            getXHTMLWikiPrinter().printXMLEndElement(ERROR_DESCRIPTION);
         }
     }
 
@@ -128,14 +149,15 @@ public void onImage(ResourceReference reference, boolean freestanding, Map<Strin
 
     private String computeAltAttributeValue(ResourceReference reference)
     {
-        String label;
+        URILabelGenerator uriLabelGenerator = null;
         try {
-            URILabelGenerator uriLabelGenerator =
-                this.componentManager.getInstance(URILabelGenerator.class, reference.getType().getScheme());
-            label = uriLabelGenerator.generateLabel(reference);
+            uriLabelGenerator = this.dispatchRegistry
+                .<URILabelGenerator>getTable(this.componentManager, URILabelGenerator.class)
+                .getInstance(reference.getType().getScheme());
         } catch (ComponentLookupException e) {
-            label = reference.getReference();
+            // Use the full reference as the label
         }
-        return label;
+
+        return uriLabelGenerator != null ? uriLabelGenerator.generateLabel(reference) : reference.getReference();
     }
 }
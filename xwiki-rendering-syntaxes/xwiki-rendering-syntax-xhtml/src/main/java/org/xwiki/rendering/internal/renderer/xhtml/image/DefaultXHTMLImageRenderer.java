@@ -19,6 +19,7 @@
  */
 package org.xwiki.rendering.internal.renderer.xhtml.image;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -31,7 +32,10 @@
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.filter.annotation.Default;
+import org.xwiki.rendering.internal.component.ComponentDispatchRegistry;
+import org.xwiki.rendering.internal.component.ComponentDispatchTable;
 import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.renderer.Resettable;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 
 /**
@@ -44,7 +48,7 @@
  */
 @Component
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
-public class DefaultXHTMLImageRenderer implements XHTMLImageRenderer
+public class DefaultXHTMLImageRenderer implements XHTMLImageRenderer, Resettable
 {
     @Inject
     private XHTMLImageTypeRenderer defaultImageTypeRenderer;
@@ -53,6 +57,22 @@ public class DefaultXHTMLImageRenderer implements XHTMLImageRenderer
     @Named("context")
     protected Provider<ComponentManager> componentManagerProvider;
 
+    /**
+     * Used to find the image type renderers without looking them up for each image.
+     */
+    @Inject
+    private ComponentDispatchRegistry dispatchRegistry;
+
+    /**
+     * The image type renderers used by this renderer, indexed by resource type scheme.
+     */
+    private final Map<String, XHTMLImageTypeRenderer> imageTypeRenderers = new HashMap<>();
+
+    /**
+     * The snapshot of the available image type renderers from which {@link #imageTypeRenderers} have been taken.
+     */
+    private ComponentDispatchTable<XHTMLImageTypeRenderer> imageTypeRendererTable;
+
     /**
      * The XHTML printer to use to output images as XHTML.
      */
@@ -70,6 +90,18 @@ public XHTMLWikiPrinter getXHTMLWikiPrinter()
         return this.xhtmlPrinter;
     }
 
+    @Override
+    public boolean reset()
+    {
+        this.xhtmlPrinter = null;
+        this.defaultImageTypeRenderer.setXHTMLWikiPrinter(null);
+        for (XHTMLImageTypeRenderer imageTypeRenderer : this.imageTypeRenderers.values()) {
+            imageTypeRenderer.setXHTMLWikiPrinter(null);
+        }
+
+        return true;
+    }
+
     @Override
     public void onImage(ResourceReference reference, boolean freestanding, @Default("") Map<String, String> parameters)
     {
@@ -78,16 +110,29 @@ public void onImage(ResourceReference reference, boolean freestanding, @Default(
 
     private XHTMLImageTypeRenderer getXHTMLImageTypeRenderer(ResourceReference reference)
     {
-        XHTMLImageTypeRenderer renderer;
-
-        // TODO: This is probably not very performant since it's called at each onImage.
-        try {
-            renderer = this.componentManagerProvider.get().getInstance(XHTMLImageTypeRenderer.class,
-                reference.getType().getScheme());
-        } catch (ComponentLookupException e) {
-            // There's no specific XHTML Image Type Renderer for the passed link type, use the default renderer.
+        ComponentDispatchTable<XHTMLImageTypeRenderer> table =
+            this.dispatchRegistry.getTable(this.componentManagerProvider.get(), XHTMLImageTypeRenderer.class);
+        if (table != this.imageTypeRendererTable) {
+            // The available image type renderers have changed since the last image
+            this.imageTypeRenderers.clear();
+            this.imageTypeRendererTable = table;
+        }
+
+        String scheme = reference.getType().getScheme();
+        XHTMLImageTypeRenderer renderer = this.imageTypeRenderers.get(scheme);
+        if (renderer == null) {
             renderer = this.defaultImageTypeRenderer;
+            try {
+                XHTMLImageTypeRenderer imageTypeRenderer = table.getInstance(scheme);
+                if (imageTypeRenderer != null) {
+                    renderer = imageTypeRenderer;
+                }
+            } catch (ComponentLookupException e) {
+                // There's no usable XHTML Image Type Renderer for the passed image type, use the default renderer.
+            }
+            this.imageTypeRenderers.put(scheme, renderer);
         }
+
         renderer.setXHTMLWikiPrinter(getXHTMLWikiPrinter());
         return renderer;
     }
@@ -30,7 +30,9 @@
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.internal.component.ComponentDispatchRegistry;
 import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.renderer.printer.PrecompiledXMLElement;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 import org.xwiki.rendering.renderer.reference.link.URILabelGenerator;
 
@@ -58,6 +60,9 @@ public abstract class AbstractXHTMLLinkTypeRenderer implements XHTMLLinkTypeRend
 
     private static final String REL = "rel";
 
+    private static final PrecompiledXMLElement GENERATED_CONTENT =
+        new PrecompiledXMLElement(SPAN, CLASS, "wikigeneratedlinkcontent");
+
     /**
      * Used to look for {@link org.xwiki.rendering.renderer.reference.link.URILabelGenerator} component implementations
      * when computing labels.
@@ -65,6 +70,12 @@ public abstract class AbstractXHTMLLinkTypeRenderer implements XHTMLLinkTypeRend
     @Inject
     protected ComponentManager componentManager;
 
+    /**
+     * Used to find the {@link URILabelGenerator} components without looking them up for each link.
+     */
+    @Inject
+    private ComponentDispatchRegistry dispatchRegistry;
+
     /**
      * The XHTML printer to use to output links as XHTML.
      */
@@ -75,6 +86,16 @@ public abstract class AbstractXHTMLLinkTypeRenderer implements XHTMLLinkTypeRend
      */
     private boolean labelExist;
 
+    /**
+     * Reused for the attributes of the SPAN HTML element added around the ANCHOR HTML element.
+     */
+    private final Map<String, String> reusedSpanAttributes = new LinkedHashMap<String, String>();
+
+    /**
+     * Reused for the attributes of the ANCHOR HTML element.
+     */
+    private final Map<String, String> reusedAnchorAttributes = new LinkedHashMap<String, String>();
+
     /**
      * @return See {@link #setHasLabel(boolean)}
      */
@@ -125,22 +146,43 @@ protected String computeLabel(ResourceReference reference)
         // If not found then use the full reference as the label.
         // If there's no scheme separator then use the full reference as the label. Note that this can happen
         // when we're not in wiki mode (since all links are considered URIs when not in wiki mode).
-        String label;
+        URILabelGenerator uriLabelGenerator = null;
         try {
-            URILabelGenerator uriLabelGenerator =
-                this.componentManager.getInstance(URILabelGenerator.class, reference.getType().getScheme());
-            label = uriLabelGenerator.generateLabel(reference);
+            uriLabelGenerator = this.dispatchRegistry
+                .<URILabelGenerator>getTable(this.componentManager, URILabelGenerator.class)
+                .getInstance(reference.getType().getScheme());
         } catch (ComponentLookupException e) {
-            label = reference.getReference();
+            // Use the full reference as the label
         }
-        return label;
+
+        return uriLabelGenerator != null ? uriLabelGenerator.generateLabel(reference) : reference.getReference();
+    }
+
+    /**
+     * @return the reused attributes of the SPAN HTML element added around the ANCHOR HTML element, emptied
+     */
+    Map<String, String> getSpanAttributes()
+    {
+        this.reusedSpanAttributes.clear();
+
+        return this.reusedSpanAttributes;
+    }
+
+    /**
+     * @return the reused attributes of the ANCHOR HTML element, emptied
+     */
+    Map<String, String> getAnchorAttributes()
+    {
+        this.reusedAnchorAttributes.clear();
+
+        return this.reusedAnchorAttributes;
     }
 
     @Override
     public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
     {
-        Map<String, String> spanAttributes = new LinkedHashMap<String, String>();
-        Map<String, String> anchorAttributes = new LinkedHashMap<String, String>();
+        Map<String, String> spanAttributes = getSpanAttributes();
+        Map<String, String> anchorAttributes = getAnchorAttributes();
 
         // Add all parameters to the A attributes
         anchorAttributes.putAll(parameters);
@@ -221,9 +263,9 @@ public void endLink(ResourceReference reference, boolean freestanding, Map<Strin
     {
         // If there was no link content then generate it based on the passed reference
         if (!hasLabel()) {
-            getXHTMLWikiPrinter().printXMLStartElement(SPAN, new String[][] { { CLASS, "wikigeneratedlinkcontent" } });
+            getXHTMLWikiPrinter().printXMLStartElement(GENERATED_CONTENT);
             getXHTMLWikiPrinter().printXML(computeLabel(reference));
-            getXHTMLWikiPrinter().printXMLEndElement(SPAN);
+            getXHTMLWikiPrinter().printXMLEndElement(GENERATED_CONTENT);
         }
 
         getXHTMLWikiPrinter().printXMLEndElement(XHTMLLinkRenderer.ANCHOR);
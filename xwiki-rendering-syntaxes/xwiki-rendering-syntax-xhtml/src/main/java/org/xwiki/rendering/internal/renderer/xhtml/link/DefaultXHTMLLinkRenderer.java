@@ -19,6 +19,7 @@
  */
 package org.xwiki.rendering.internal.renderer.xhtml.link;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -31,7 +32,10 @@
 import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.internal.component.ComponentDispatchRegistry;
+import org.xwiki.rendering.internal.component.ComponentDispatchTable;
 import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.renderer.Resettable;
 import org.xwiki.rendering.renderer.printer.XHTMLWikiPrinter;
 
 /**
@@ -44,7 +48,7 @@
  */
 @Component
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
-public class DefaultXHTMLLinkRenderer implements XHTMLLinkRenderer
+public class DefaultXHTMLLinkRenderer implements XHTMLLinkRenderer, Resettable
 {
     @Inject
     private XHTMLLinkTypeRenderer defaultLinkTypeRenderer;
@@ -56,6 +60,22 @@ public class DefaultXHTMLLinkRenderer implements XHTMLLinkRenderer
     @Inject
     private Logger logger;
 
+    /**
+     * Used to find the link type renderers without looking them up for each link.
+     */
+    @Inject
+    private ComponentDispatchRegistry dispatchRegistry;
+
+    /**
+     * The link type renderers used by this renderer, indexed by resource type scheme.
+     */
+    private final Map<String, XHTMLLinkTypeRenderer> linkTypeRenderers = new HashMap<>();
+
+    /**
+     * The snapshot of the available link type renderers from which {@link #linkTypeRenderers} have been taken.
+     */
+    private ComponentDispatchTable<XHTMLLinkTypeRenderer> linkTypeRendererTable;
+
     /**
      * The XHTML printer to use to output links as XHTML.
      */
@@ -78,6 +98,19 @@ public void setXHTMLWikiPrinter(XHTMLWikiPrinter printer)
         this.xhtmlPrinter = printer;
     }
 
+    @Override
+    public boolean reset()
+    {
+        this.xhtmlPrinter = null;
+        this.hasLabel = false;
+        this.defaultLinkTypeRenderer.setXHTMLWikiPrinter(null);
+        for (XHTMLLinkTypeRenderer linkTypeRenderer : this.linkTypeRenderers.values()) {
+            linkTypeRenderer.setXHTMLWikiPrinter(null);
+        }
+
+        return true;
+    }
+
     @Override
     public XHTMLWikiPrinter getXHTMLWikiPrinter()
     {
@@ -98,18 +131,27 @@ public void endLink(ResourceReference reference, boolean freestanding, Map<Strin
 
     private XHTMLLinkTypeRenderer getXHTMLLinkTypeRenderer(ResourceReference reference)
     {
-        XHTMLLinkTypeRenderer renderer = this.defaultLinkTypeRenderer;
+        ComponentDispatchTable<XHTMLLinkTypeRenderer> table =
+            this.dispatchRegistry.getTable(this.componentManagerProvider.get(), XHTMLLinkTypeRenderer.class);
+        if (table != this.linkTypeRendererTable) {
+            // The available link type renderers have changed since the last link
+            this.linkTypeRenderers.clear();
+            this.linkTypeRendererTable = table;
+        }
 
-        // TODO: This is probably not very performant since it's called at each begin/endLink.
-        ComponentManager componentManager = this.componentManagerProvider.get();
-        if (componentManager.hasComponent(XHTMLLinkTypeRenderer.class, reference.getType().getScheme())) {
+        String scheme = reference.getType().getScheme();
+        XHTMLLinkTypeRenderer renderer = this.linkTypeRenderers.get(scheme);
+        if (renderer == null) {
+            renderer = this.defaultLinkTypeRenderer;
             try {
-                renderer =
-                    this.componentManagerProvider.get().getInstance(XHTMLLinkTypeRenderer.class,
-                        reference.getType().getScheme());
+                XHTMLLinkTypeRenderer linkTypeRenderer = table.getInstance(scheme);
+                if (linkTypeRenderer != null) {
+                    renderer = linkTypeRenderer;
+                }
             } catch (ComponentLookupException e) {
                 this.logger.error("Failed to initialize XHTML link type renderer", e);
             }
+            this.linkTypeRenderers.put(scheme, renderer);
         }
 
         renderer.setHasLabel(this.hasLabel);
@@ -19,7 +19,6 @@
  */
 package org.xwiki.rendering.internal.renderer.xhtml.link;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.inject.Inject;
@@ -113,8 +112,8 @@ protected void beginLinkExtraAttributes(ResourceReference reference, Map<String,
     private void beginInternalLink(ResourceReference reference, boolean freestanding,
         Map<String, String> parameters)
     {
-        Map<String, String> spanAttributes = new LinkedHashMap<String, String>();
-        Map<String, String> anchorAttributes = new LinkedHashMap<String, String>();
+        Map<String, String> spanAttributes = getSpanAttributes();
+        Map<String, String> anchorAttributes = getAnchorAttributes();
 
         // Add all parameters to the A attributes
         anchorAttributes.putAll(parameters);
@@ -26,20 +26,29 @@
 import org.jmock.Expectations;
 import org.junit.Test;
 import org.xwiki.component.descriptor.DefaultComponentDescriptor;
+import org.xwiki.component.manager.ComponentEventManager;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.ImageBlock;
 import org.xwiki.rendering.block.LinkBlock;
 import org.xwiki.rendering.block.MetaDataBlock;
+import org.xwiki.rendering.block.ParagraphBlock;
+import org.xwiki.rendering.block.SpaceBlock;
 import org.xwiki.rendering.block.WordBlock;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.component.ComponentDispatchRegistry;
 import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceType;
 import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.wiki.WikiModel;
 import org.xwiki.test.jmock.AbstractComponentTestCase;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
 /**
  * Unit tests for {@link XHTMLRenderer}.
  */
@@ -179,4 +188,64 @@ public void testOnImageDoesntUseSourceMetaDataIfBaseReferenceSpecified()
         this.renderer.setPrinter(new DefaultWikiPrinter());
         xdom.traverse(this.renderer);
     }
+
+    /**
+     * Verify that a released renderer is reused by the factory and produces the same output as a new renderer.
+     */
+    @Test
+    public void testRenderWithReleasedRenderer() throws Exception
+    {
+        // Renderers are only pooled when the component manager reports component changes
+        setComponentEventManager();
+
+        PrintRendererFactory factory = getComponentManager().getInstance(PrintRendererFactory.class, "xhtml/1.0");
+        XDOM xdom = new XDOM(Arrays.asList((Block) new ParagraphBlock(Arrays.asList(new WordBlock("word"),
+            new SpaceBlock(), new LinkBlock(Collections.<Block>emptyList(),
+                new ResourceReference("http://xwiki.org", ResourceType.URL), true)))));
+
+        DefaultWikiPrinter printer1 = new DefaultWikiPrinter();
+        PrintRenderer renderer1 = factory.createRenderer(printer1);
+        xdom.traverse(renderer1);
+        factory.releaseRenderer(renderer1);
+
+        DefaultWikiPrinter printer2 = new DefaultWikiPrinter();
+        PrintRenderer renderer2 = factory.createRenderer(printer2);
+        xdom.traverse(renderer2);
+
+        assertSame(renderer1, renderer2);
+        assertEquals(printer1.toString(), printer2.toString());
+        assertEquals("<p>word <span class=\"wikiexternallink\"><a class=\"wikimodel-freestanding\" "
+            + "href=\"http://xwiki.org\"><span class=\"wikigeneratedlinkcontent\">http://xwiki.org</span></a>"
+            + "</span></p>", printer2.toString());
+    }
+
+    /**
+     * Verify that the released renderers are not reused anymore once the components changed.
+     */
+    @Test
+    public void testReleasedRendererNotReusedAfterComponentChange() throws Exception
+    {
+        setComponentEventManager();
+
+        PrintRendererFactory factory = getComponentManager().getInstance(PrintRendererFactory.class, "xhtml/1.0");
+
+        PrintRenderer renderer1 = factory.createRenderer(new DefaultWikiPrinter());
+        factory.releaseRenderer(renderer1);
+
+        // What happens when a component is registered or unregistered
+        getComponentManager().<ComponentDispatchRegistry>getInstance(ComponentDispatchRegistry.class).invalidate();
+
+        PrintRenderer renderer2 = factory.createRenderer(new DefaultWikiPrinter());
+
+        assertNotSame(renderer1, renderer2);
+    }
+
+    private void setComponentEventManager() throws Exception
+    {
+        final ComponentEventManager eventManager = getMockery().mock(ComponentEventManager.class);
+        getMockery().checking(new Expectations() {{
+            ignoring(eventManager);
+        }});
+        getComponentManager().setComponentEventManager(eventManager);
+    }
 }
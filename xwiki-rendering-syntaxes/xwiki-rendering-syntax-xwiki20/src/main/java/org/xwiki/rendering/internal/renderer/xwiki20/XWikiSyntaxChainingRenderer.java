@@ -350,7 +350,7 @@ public void onNewLine()
         if (getBlockState().isInLine()) {
             if (getXWikiSyntaxListenerChain().getConsecutiveNewLineStateChainingListener().getNewLineCount() > 1) {
                 print("\\\\");
-            } else if (getXWikiSyntaxListenerChain().getLookaheadChainingListener().getNextEvent().eventType
+            } else if (getXWikiSyntaxListenerChain().getLookaheadChainingListener().getNextEventType()
                 .isInlineEnd()) {
                 print("\\\\");
             } else {
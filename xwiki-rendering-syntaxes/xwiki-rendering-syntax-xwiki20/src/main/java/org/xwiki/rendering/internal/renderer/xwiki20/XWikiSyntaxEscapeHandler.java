@@ -22,11 +22,16 @@
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.lang3.StringUtils;
 import org.xwiki.rendering.listener.chaining.BlockStateChainingListener;
 
 /**
  * Escape characters that would be confused for XWiki wiki syntax if they were not escaped.
+ * <p>
+ * All the escapes consist in inserting escape characters before some of the characters of the text. So instead of
+ * modifying the text for each kind of syntax to escape, the number of escape characters to insert before each character
+ * is computed in an array, by scanning the characters of the text, and the escaped text is written only once at the
+ * end. The syntaxes are still checked in the same order as before since each escape can prevent the following ones
+ * (for example "~{~{" is not a "{{" anymore).
  *
  * @version $Id$
  * @since 2.0M3
@@ -35,27 +40,38 @@
 {
     public static final Pattern STARLISTEND_PATTERN = Pattern.compile("(\\**([:;]*|1+\\.)?\\p{Blank})");
 
-    private static final Pattern LIST_PATTERN = Pattern
-        .compile("\\p{Blank}*((\\*+[:;]*)|([1*]+\\.[:;]*)|([:;]+))\\p{Blank}+");
-
-    private static final Pattern QUOTE_PATTERN = Pattern.compile("(\\>+)");
-
-    private static final Pattern HEADER_PATTERN = Pattern.compile("\\p{Blank}*(=+)");
+    public static final String ESCAPE_CHAR = "~";
 
-    private static final Pattern TABLE_PATTERN = Pattern.compile("\\p{Blank}*(\\||!!)");
+    private static final char ESCAPE = '~';
 
     /**
-     * Note that we take care to not match if the first character is preceded by an escape (i.e. '~).
+     * URIs for which the ":" is escaped, in "image:something", "attach:something" and "mailto:something".
      */
-    private static final Pattern DOUBLE_CHARS_PATTERN = Pattern.compile(
-        "(?<!~)\\/\\/|(?<!~)\\*\\*|(?<!~)__|(?<!~)--|(?<!~)\\^\\^|(?<!~),,|(?<!~)##|(?<!~)\\\\\\\\");
+    private static final char[][] URI_PREFIXES = { "image:".toCharArray(), "attach:".toCharArray(),
+        "mailto:".toCharArray() };
 
-    public static final String ESCAPE_CHAR = "~";
+    private static final int INITIAL_CAPACITY = 64;
 
     private boolean beforeLink;
 
     private boolean onNewLine = true;
 
+    /**
+     * The characters of the text being escaped (reused between calls).
+     */
+    private char[] chars = new char[INITIAL_CAPACITY];
+
+    /**
+     * The number of escape characters to insert before each character of the text being escaped (reused between
+     * calls).
+     */
+    private int[] escapes = new int[INITIAL_CAPACITY];
+
+    /**
+     * The number of characters of the text being escaped.
+     */
+    private int length;
+
     public void setOnNewLine(boolean onNewLine)
     {
         this.onNewLine = onNewLine;
@@ -71,93 +87,75 @@ public void escape(StringBuffer accumulatedBuffer, XWikiSyntaxListenerChain list
     {
         BlockStateChainingListener blockStateListener = listenerChain.getBlockStateChainingListener();
 
-        // Escape tilde symbol (i.e. the escape character).
-        // Note: This needs to be the first replacement since other replacements below also use the tilde symbol
-        replaceAll(accumulatedBuffer, ESCAPE_CHAR, ESCAPE_CHAR + ESCAPE_CHAR);
-
-        // Escape anything that looks like starting of custom parameters
-        replaceAll(accumulatedBuffer, "(%", ESCAPE_CHAR + "(%");
+        load(accumulatedBuffer);
+
+        // Escape the tilde symbol (i.e. the escape character), anything that looks like the start of custom
+        // parameters and the table cell separators when in a table.
+        boolean inTable = blockStateListener.isInTable();
+        for (int i = 0; i < this.length; ++i) {
+            char c = this.chars[i];
+            if (c == ESCAPE || (c == '(' && i + 1 < this.length && this.chars[i + 1] == '%')
+                || (inTable && c == '|')) {
+                ++this.escapes[i];
+            }
+        }
+        if (inTable) {
+            escapeSequences('!', 2, false);
+        }
 
         // When in a paragraph we need to escape symbols that are at beginning of lines and that could be confused
-        // with list items, headers or tables.
+        // with list items, headers, tables or quotes. Escaping the first character is enough.
         if (blockStateListener.isInLine() && isOnNewLine()) {
-
-            // Look for list pattern at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(LIST_PATTERN, accumulatedBuffer);
-
-            // Look for header pattern at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(HEADER_PATTERN, accumulatedBuffer);
-
-            // Look for table character patterns at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(TABLE_PATTERN, accumulatedBuffer);
-
-            // Look for quote pattern at beginning of line and escape the first character only (it's enough)
-            escapeFirstMatchedCharacter(QUOTE_PATTERN, accumulatedBuffer);
-        }
-
-        // Escape table characters
-        if (blockStateListener.isInTable()) {
-            replaceAll(accumulatedBuffer, "|", ESCAPE_CHAR + "|");
-            replaceAll(accumulatedBuffer, "!!", ESCAPE_CHAR + "!!");
+            int index = getLineStartSyntaxIndex();
+            if (index >= 0) {
+                ++this.escapes[index];
+            }
         }
 
         if (escapeFirstIfMatching != null) {
-            escapeFirstMatchedCharacter(escapeFirstIfMatching, accumulatedBuffer);
+            escapeFirstMatchedCharacter(escapeFirstIfMatching);
         }
 
         // When in a header we need to escape "=" symbols since otherwise they would be confused for end of section
         // characters.
         if (blockStateListener.isInHeader()) {
-            replaceAll(accumulatedBuffer, "=", ESCAPE_CHAR + "=");
+            for (int i = 0; i < this.length; ++i) {
+                if (this.chars[i] == '=') {
+                    ++this.escapes[i];
+                }
+            }
         }
 
-        // Escape verbatim "{{{"
-        replaceAll(accumulatedBuffer, "{{{", ESCAPE_CHAR + "{" + ESCAPE_CHAR + "{" + ESCAPE_CHAR + "{");
-
-        // Escape "{{"
-        replaceAll(accumulatedBuffer, "{{", ESCAPE_CHAR + "{" + ESCAPE_CHAR + "{");
+        // Escape verbatim "{{{", then macros "{{"
+        escapeSequences('{', 3, true);
+        escapeSequences('{', 2, true);
 
         // Escape groups
-        replaceAll(accumulatedBuffer, "(((", ESCAPE_CHAR + "(" + ESCAPE_CHAR + "(" + ESCAPE_CHAR + "(");
-        replaceAll(accumulatedBuffer, ")))", ESCAPE_CHAR + ")" + ESCAPE_CHAR + ")" + ESCAPE_CHAR + ")");
+        escapeSequences('(', 3, true);
+        escapeSequences(')', 3, true);
 
         // Escape reserved keywords
-        Matcher matcher = DOUBLE_CHARS_PATTERN.matcher(accumulatedBuffer.toString());
-        for (int i = 0; matcher.find(); i = i + 2) {
-            accumulatedBuffer.replace(matcher.start() + i, matcher.end() + i, ESCAPE_CHAR + matcher.group().charAt(0)
-                + ESCAPE_CHAR + matcher.group().charAt(1));
-        }
+        escapeDoubleChars();
 
         // Escape ":" in "image:something", "attach:something" and "mailto:something"
         // Note: even though there are some restriction in the URI specification as to what character is valid after
         // the ":" character following the scheme we only check for characters greater than the space symbol for
         // simplicity.
-        escapeURI(accumulatedBuffer, "image:");
-        escapeURI(accumulatedBuffer, "attach:");
-        escapeURI(accumulatedBuffer, "mailto:");
+        for (char[] uriPrefix : URI_PREFIXES) {
+            escapeURI(uriPrefix);
+        }
 
         // Escape last character if we're told to do so. This is to handle cases such as:
         // - onWord("hello:") followed by onFormat(ITALIC) which would lead to "hello://" if the ":" wasn't escaped
         // - onWord("{") followed by onMacro() which would lead to "{{{" if the "{" wasn't escaped
-        if (escapeLastChar) {
-            accumulatedBuffer.insert(accumulatedBuffer.length() - 1, '~');
+        if (escapeLastChar && this.length > 0) {
+            ++this.escapes[this.length - 1];
         }
 
         // Escape begin link
-        replaceAll(accumulatedBuffer, "[[", ESCAPE_CHAR + "[" + ESCAPE_CHAR + "[");
+        escapeSequences('[', 2, true);
 
-        // Escape link label
-        int linkLevel = getLinkLevel(listenerChain);
-
-        if (linkLevel > 0) {
-            // This need to be done after anything else because link label add another level of escaping (escaped as
-            // link label and then escaped as wiki content).
-            String escape = StringUtils.repeat(ESCAPE_CHAR, linkLevel);
-            replaceAll(accumulatedBuffer, ESCAPE_CHAR, escape + ESCAPE_CHAR);
-            replaceAll(accumulatedBuffer, "]]", escape + "]" + escape + "]");
-            replaceAll(accumulatedBuffer, ">>", escape + ">" + escape + ">");
-            replaceAll(accumulatedBuffer, "||", escape + "|" + escape + "|");
-        }
+        write(accumulatedBuffer, getLinkLevel(listenerChain));
     }
 
     private int getLinkLevel(XWikiSyntaxListenerChain listenerChain)
@@ -176,30 +174,278 @@ public void setBeforeLink(boolean beforeLink)
         this.beforeLink = beforeLink;
     }
 
-    private void escapeURI(StringBuffer accumulatedBuffer, String match)
+    private void load(StringBuffer accumulatedBuffer)
+    {
+        this.length = accumulatedBuffer.length();
+
+        if (this.chars.length < this.length) {
+            int capacity = Math.max(this.length, this.chars.length * 2);
+            this.chars = new char[capacity];
+            this.escapes = new int[capacity];
+        } else {
+            for (int i = 0; i < this.length; ++i) {
+                this.escapes[i] = 0;
+            }
+        }
+
+        accumulatedBuffer.getChars(0, this.length, this.chars, 0);
+    }
+
+    /**
+     * Write the escaped text.
+     * <p>
+     * When in a link label, the link label adds another level of escaping (escaped as link label and then escaped as
+     * wiki content): each escape character is repeated and the link label syntax ("]]", ">>" and "||") is escaped.
+     *
+     * @param accumulatedBuffer the buffer in which to write the escaped text
+     * @param linkLevel the number of links in which the text is located
+     */
+    private void write(StringBuffer accumulatedBuffer, int linkLevel)
+    {
+        int escapeLength = linkLevel > 0 ? linkLevel + 1 : 1;
+
+        accumulatedBuffer.setLength(0);
+
+        boolean inLinkSyntax = false;
+        for (int i = 0; i < this.length; ++i) {
+            char c = this.chars[i];
+
+            int escapeCount = this.escapes[i] * escapeLength;
+            if (linkLevel > 0) {
+                if (inLinkSyntax) {
+                    escapeCount += linkLevel;
+                    inLinkSyntax = false;
+                } else if ((c == ']' || c == '>' || c == '|') && isSequence(i, c, 2)) {
+                    escapeCount += linkLevel;
+                    inLinkSyntax = true;
+                }
+            }
+
+            appendEscapes(accumulatedBuffer, escapeCount);
+            if (c == ESCAPE) {
+                appendEscapes(accumulatedBuffer, escapeLength);
+            } else {
+                accumulatedBuffer.append(c);
+            }
+        }
+    }
+
+    private void appendEscapes(StringBuffer accumulatedBuffer, int count)
+    {
+        for (int i = 0; i < count; ++i) {
+            accumulatedBuffer.append(ESCAPE);
+        }
+    }
+
+    /**
+     * @param index the index of the first character of the sequence
+     * @param c the character repeated in the sequence
+     * @param count the length of the sequence
+     * @return true if the text contains the sequence at the passed index, without any escape character inside it
+     */
+    private boolean isSequence(int index, char c, int count)
+    {
+        if (index + count > this.length || this.chars[index] != c) {
+            return false;
+        }
+
+        for (int i = index + 1; i < index + count; ++i) {
+            if (this.chars[i] != c || this.escapes[i] > 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Escape all the sequences of a repeated character (e.g. "{{{"), from left to right.
+     *
+     * @param c the character repeated in the sequence
+     * @param count the length of the sequence
+     * @param all true if all the characters of the sequence should be escaped, false to escape only the first one
+     */
+    private void escapeSequences(char c, int count, boolean all)
     {
-        int pos = accumulatedBuffer.indexOf(match);
-        if (pos > -1) {
-            // Escape the ":" symbol
-            accumulatedBuffer.insert(pos + match.length() - 1, '~');
+        int i = 0;
+        while (i <= this.length - count) {
+            if (isSequence(i, c, count)) {
+                for (int j = i; j < (all ? i + count : i + 1); ++j) {
+                    ++this.escapes[j];
+                }
+                i += count;
+            } else {
+                ++i;
+            }
         }
     }
 
-    private void replaceAll(StringBuffer accumulatedBuffer, String match, String replacement)
+    /**
+     * Escape the reserved keywords ("//", "**", "__", "--", "^^", ",,", "##" and "\\"), taking care to not escape them
+     * if the first character is preceded by an escape.
+     */
+    private void escapeDoubleChars()
     {
-        int pos = -replacement.length();
-        while ((pos + replacement.length() < accumulatedBuffer.length())
-            && ((pos = accumulatedBuffer.indexOf(match, pos + replacement.length())) != -1)) {
-            accumulatedBuffer.replace(pos, pos + match.length(), replacement);
+        for (int i = 0; i < this.length - 1; ++i) {
+            char c = this.chars[i];
+            if (isDoubleChar(c) && this.escapes[i] == 0 && (i == 0 || this.chars[i - 1] != ESCAPE)
+                && isSequence(i, c, 2)) {
+                ++this.escapes[i];
+                ++this.escapes[++i];
+            }
         }
     }
 
-    private void escapeFirstMatchedCharacter(Pattern pattern, StringBuffer accumulatedBuffer)
+    private boolean isDoubleChar(char c)
     {
-        Matcher matcher = pattern.matcher(accumulatedBuffer);
-        if (matcher.lookingAt()) {
-            // Escape the first character
-            accumulatedBuffer.replace(matcher.start(1), matcher.start(1) + 1, ESCAPE_CHAR + matcher.group(1).charAt(0));
+        switch (c) {
+            case '/':
+            case '*':
+            case '_':
+            case '-':
+            case '^':
+            case ',':
+            case '#':
+            case '\\':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Escape the ":" of the first occurrence of the passed URI prefix.
+     *
+     * @param uriPrefix the URI prefix, including the ":"
+     */
+    private void escapeURI(char[] uriPrefix)
+    {
+        for (int i = 0; i <= this.length - uriPrefix.length; ++i) {
+            if (isURIPrefix(i, uriPrefix)) {
+                ++this.escapes[i + uriPrefix.length - 1];
+                break;
+            }
+        }
+    }
+
+    private boolean isURIPrefix(int index, char[] uriPrefix)
+    {
+        if (this.chars[index] != uriPrefix[0]) {
+            return false;
+        }
+
+        for (int i = 1; i < uriPrefix.length; ++i) {
+            if (this.chars[index + i] != uriPrefix[i] || this.escapes[index + i] > 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Look for list, header, table or quote syntax at the beginning of the text.
+     *
+     * @return the index of the first character of the syntax or -1 if the text doesn't start with such syntax
+     */
+    private int getLineStartSyntaxIndex()
+    {
+        int index = skipBlanks(0);
+        if (index == this.length) {
+            return -1;
+        }
+
+        char c = this.chars[index];
+        if (c == '=' || c == '|' || (c == '!' && index + 1 < this.length && this.chars[index + 1] == '!')
+            || (c == '>' && index == 0) || isListSyntax(index)) {
+            return index;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param index the index of the first non blank character of the text
+     * @return true if the text is a list item syntax followed by at least a blank, i.e. "*", "1.", "*.", ";" or ":"
+     *         optionally followed by ";" or ":" (e.g. "**", "11.", "*:", "1.;", ":;")
+     */
+    private boolean isListSyntax(int index)
+    {
+        int i = index;
+
+        // "*+[:;]*"
+        while (i < this.length && this.chars[i] == '*') {
+            ++i;
+        }
+        if (i > index && isBlank(skipListSeparators(i))) {
+            return true;
+        }
+
+        // "[1*]+\.[:;]*"
+        while (i < this.length && (this.chars[i] == '1' || this.chars[i] == '*')) {
+            ++i;
+        }
+        if (i > index && i < this.length && this.chars[i] == '.' && isBlank(skipListSeparators(i + 1))) {
+            return true;
+        }
+
+        // "[:;]+"
+        i = skipListSeparators(index);
+
+        return i > index && isBlank(i);
+    }
+
+    private int skipListSeparators(int index)
+    {
+        int i = index;
+        while (i < this.length && (this.chars[i] == ':' || this.chars[i] == ';')) {
+            ++i;
+        }
+
+        return i;
+    }
+
+    private int skipBlanks(int index)
+    {
+        int i = index;
+        while (isBlank(i)) {
+            ++i;
+        }
+
+        return i;
+    }
+
+    private boolean isBlank(int index)
+    {
+        return index < this.length && (this.chars[index] == ' ' || this.chars[index] == '\t');
+    }
+
+    /**
+     * Escape the first character of the first group matched by the passed pattern at the beginning of the text, as it
+     * is escaped so far.
+     *
+     * @param pattern the pattern to match
+     */
+    private void escapeFirstMatchedCharacter(Pattern pattern)
+    {
+        StringBuilder escapedText = new StringBuilder(this.length + INITIAL_CAPACITY);
+        for (int i = 0; i < this.length; ++i) {
+            for (int j = 0; j < this.escapes[i]; ++j) {
+                escapedText.append(ESCAPE);
+            }
+            escapedText.append(this.chars[i]);
+        }
+
+        Matcher matcher = pattern.matcher(escapedText);
+        if (matcher.lookingAt() && matcher.start(1) >= 0 && matcher.end(1) > matcher.start(1)) {
+            // Find the character before which the escape character should be inserted (inserting it before any of the
+            // escape characters already inserted before that character is the same)
+            int position = matcher.start(1);
+            int i = 0;
+            for (int end = this.escapes[0] + 1; end <= position; end += this.escapes[i] + 1) {
+                ++i;
+            }
+            ++this.escapes[i];
         }
     }
 }
@@ -26,6 +26,7 @@
 import org.junit.Test;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.rendering.internal.component.DefaultComponentDispatchRegistry;
 import org.xwiki.rendering.internal.parser.reference.type.AttachmentResourceReferenceTypeParser;
 import org.xwiki.rendering.internal.parser.reference.type.URLResourceReferenceTypeParser;
 import org.xwiki.rendering.listener.reference.ResourceReference;
@@ -49,6 +50,7 @@
 //@formatter:off
 @ComponentList({
     XWiki20ImageReferenceParser.class,
+    DefaultComponentDispatchRegistry.class,
     URLResourceReferenceTypeParser.class,
     AttachmentResourceReferenceTypeParser.class
 })
@@ -26,6 +26,7 @@
 import org.junit.Test;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.component.util.DefaultParameterizedType;
+import org.xwiki.rendering.internal.component.DefaultComponentDispatchRegistry;
 import org.xwiki.rendering.internal.parser.reference.DefaultUntypedLinkReferenceParser;
 import org.xwiki.rendering.internal.parser.reference.type.AttachmentResourceReferenceTypeParser;
 import org.xwiki.rendering.internal.parser.reference.type.DocumentResourceReferenceTypeParser;
@@ -57,6 +58,7 @@
 //@formatter:off
 @ComponentList({
     XWiki20LinkReferenceParser.class,
+    DefaultComponentDispatchRegistry.class,
     URLResourceReferenceTypeParser.class,
     MailtoResourceReferenceTypeParser.class,
     AttachmentResourceReferenceTypeParser.class,
@@ -0,0 +1,208 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.renderer.xwiki20;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.xwiki.rendering.listener.chaining.BlockStateChainingListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Differential tests for {@link XWikiSyntaxEscapeHandler}, verifying that it produces the same output as the previous
+ * implementation ({@link ReferenceXWikiSyntaxEscapeHandler}) for the texts of the XWiki 2.0 CTS tests and for random
+ * texts made of syntax characters, in all the supported block states.
+ *
+ * @version $Id$
+ */
+public class XWikiSyntaxEscapeHandlerTest
+{
+    private static final String SYNTAX_CHARACTERS = "~(%)*{}[]|!=<>:;1.#/_-^,\\ \tabcegilmot@\n";
+
+    private static final Pattern[] ESCAPE_FIRST_PATTERNS =
+        new Pattern[] { null, XWikiSyntaxEscapeHandler.STARLISTEND_PATTERN };
+
+    private static final int MAX_LINK_DEPTH = 3;
+
+    private List<XWikiSyntaxListenerChain> listenerChains;
+
+    @Test
+    public void escapeSpecificTexts()
+    {
+        verify("image:x attach:y mailto:z image:x");
+        verify("~**~//");
+        verify("((%(%{{{{(((()))]]]>>>||[[[");
+        verify("  * item");
+        verify("1.; item");
+        verify("=|!!>");
+    }
+
+    @Test
+    public void escapeCTSTexts() throws IOException, URISyntaxException
+    {
+        Set<String> texts = new LinkedHashSet<>();
+
+        Path root = Paths.get(getClass().getResource("/xwiki20").toURI());
+        try (Stream<Path> paths = Files.walk(root)) {
+            Iterator<Path> iterator = paths.iterator();
+            while (iterator.hasNext()) {
+                Path path = iterator.next();
+                if (Files.isRegularFile(path) && path.toString().endsWith(".txt")) {
+                    String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+                    texts.add(content);
+                    for (String line : content.split("\n")) {
+                        texts.add(line);
+                        for (String word : line.split(" ")) {
+                            texts.add(word);
+                        }
+                    }
+                }
+            }
+        }
+        texts.remove("");
+
+        assertTrue(texts.size() > 100);
+
+        for (String text : texts) {
+            verify(text);
+        }
+    }
+
+    @Test
+    public void escapeRandomTexts()
+    {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 5000; ++i) {
+            StringBuilder text = new StringBuilder();
+            for (int length = 1 + random.nextInt(12); length > 0; --length) {
+                text.append(SYNTAX_CHARACTERS.charAt(random.nextInt(SYNTAX_CHARACTERS.length())));
+            }
+
+            verify(text.toString());
+        }
+    }
+
+    private void verify(String text)
+    {
+        ReferenceXWikiSyntaxEscapeHandler referenceHandler = new ReferenceXWikiSyntaxEscapeHandler();
+        XWikiSyntaxEscapeHandler handler = new XWikiSyntaxEscapeHandler();
+
+        for (XWikiSyntaxListenerChain listenerChain : getListenerChains()) {
+            for (int flags = 0; flags < 8; ++flags) {
+                boolean beforeLink = (flags & 1) != 0;
+                boolean onNewLine = (flags & 2) != 0;
+                boolean escapeLastChar = (flags & 4) != 0;
+
+                for (Pattern escapeFirstIfMatching : ESCAPE_FIRST_PATTERNS) {
+                    referenceHandler.setBeforeLink(beforeLink);
+                    referenceHandler.setOnNewLine(onNewLine);
+                    StringBuffer expected = new StringBuffer(text);
+                    referenceHandler.escape(expected, listenerChain, escapeLastChar, escapeFirstIfMatching);
+
+                    handler.setBeforeLink(beforeLink);
+                    handler.setOnNewLine(onNewLine);
+                    StringBuffer actual = new StringBuffer(text);
+                    handler.escape(actual, listenerChain, escapeLastChar, escapeFirstIfMatching);
+
+                    assertEquals("Wrong escaping of [" + text + "] with flags [" + flags + "]", expected.toString(),
+                        actual.toString());
+                }
+            }
+        }
+    }
+
+    private List<XWikiSyntaxListenerChain> getListenerChains()
+    {
+        if (this.listenerChains == null) {
+            this.listenerChains = new ArrayList<>();
+            for (int state = 0; state < 8; ++state) {
+                for (int linkDepth = 0; linkDepth < MAX_LINK_DEPTH; ++linkDepth) {
+                    XWikiSyntaxListenerChain listenerChain =
+                        new StubListenerChain((state & 1) != 0, (state & 2) != 0, (state & 4) != 0, linkDepth);
+
+                    this.listenerChains.add(listenerChain);
+                }
+            }
+        }
+
+        return this.listenerChains;
+    }
+
+    /**
+     * Listener chain returning a fixed block state. Mocks aren't used since they would record the millions of
+     * invocations made by the tests.
+     */
+    private static class StubListenerChain extends XWikiSyntaxListenerChain
+    {
+        private final BlockStateChainingListener blockStateListener;
+
+        StubListenerChain(final boolean inLine, final boolean inTable, final boolean inHeader, final int linkDepth)
+        {
+            this.blockStateListener = new BlockStateChainingListener(this)
+            {
+                @Override
+                public boolean isInLine()
+                {
+                    return inLine;
+                }
+
+                @Override
+                public boolean isInTable()
+                {
+                    return inTable;
+                }
+
+                @Override
+                public boolean isInHeader()
+                {
+                    return inHeader;
+                }
+
+                @Override
+                public int getLinkDepth()
+                {
+                    return linkDepth;
+                }
+            };
+        }
+
+        @Override
+        public BlockStateChainingListener getBlockStateChainingListener()
+        {
+            return this.blockStateListener;
+        }
+    }
+}
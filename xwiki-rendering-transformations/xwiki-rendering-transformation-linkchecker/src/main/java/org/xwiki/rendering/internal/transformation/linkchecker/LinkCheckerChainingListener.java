@@ -0,0 +1,119 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.linkchecker;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.chaining.AbstractChainingListener;
+import org.xwiki.rendering.listener.chaining.ListenerChain;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceType;
+
+/**
+ * Add the external URLs found in the streamed links to the queue of links to check, see
+ * {@link LinkCheckerTransformation}. The events are forwarded untouched to the next listener.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class LinkCheckerChainingListener extends AbstractChainingListener
+{
+    private final LinkCheckerTransformation transformation;
+
+    private final boolean enabled;
+
+    /**
+     * The references of the source contents the current event is located in, the closest one first.
+     */
+    private final Deque<String> sources = new ArrayDeque<>();
+
+    /**
+     * @param listenerChain the chain this listener is part of
+     * @param transformation the transformation holding the queue of links to check
+     * @param enabled false if the links should not be added to the queue (anti-flood mechanism)
+     */
+    public LinkCheckerChainingListener(ListenerChain listenerChain, LinkCheckerTransformation transformation,
+        boolean enabled)
+    {
+        setListenerChain(listenerChain);
+        this.transformation = transformation;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void beginDocument(MetaData metadata)
+    {
+        pushSource(metadata);
+
+        super.beginDocument(metadata);
+    }
+
+    @Override
+    public void endDocument(MetaData metadata)
+    {
+        super.endDocument(metadata);
+
+        popSource(metadata);
+    }
+
+    @Override
+    public void beginMetaData(MetaData metadata)
+    {
+        pushSource(metadata);
+
+        super.beginMetaData(metadata);
+    }
+
+    @Override
+    public void endMetaData(MetaData metadata)
+    {
+        super.endMetaData(metadata);
+
+        popSource(metadata);
+    }
+
+    @Override
+    public void beginLink(ResourceReference reference, boolean freestanding, Map<String, String> parameters)
+    {
+        if (this.enabled && reference.getType().equals(ResourceType.URL)) {
+            // This is a link pointing to an external URL, add it to the queue for processing (i.e. checking).
+            this.transformation.addLinkToCheck(reference.getReference(), this.sources.peek());
+        }
+
+        super.beginLink(reference, freestanding, parameters);
+    }
+
+    private void pushSource(MetaData metadata)
+    {
+        if (metadata.contains(MetaData.SOURCE)) {
+            this.sources.push((String) metadata.getMetaData(MetaData.SOURCE));
+        }
+    }
+
+    private void popSource(MetaData metadata)
+    {
+        if (metadata.contains(MetaData.SOURCE)) {
+            this.sources.pop();
+        }
+    }
+}
@@ -39,8 +39,11 @@
 import org.xwiki.rendering.block.match.ClassBlockMatcher;
 import org.xwiki.rendering.block.match.MetadataBlockMatcher;
 import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.chaining.ChainingListener;
+import org.xwiki.rendering.listener.chaining.ListenerChain;
 import org.xwiki.rendering.listener.reference.ResourceType;
 import org.xwiki.rendering.transformation.AbstractTransformation;
+import org.xwiki.rendering.transformation.StreamingTransformation;
 import org.xwiki.rendering.transformation.TransformationContext;
 import org.xwiki.rendering.transformation.TransformationException;
 import org.xwiki.rendering.transformation.linkchecker.LinkContextDataProvider;
@@ -55,7 +58,8 @@
 @Component
 @Named("linkchecker")
 @Singleton
-public class LinkCheckerTransformation extends AbstractTransformation implements Initializable
+public class LinkCheckerTransformation extends AbstractTransformation
+    implements StreamingTransformation, Initializable
 {
     /**
      * Anti-flood mechanism. We only allow adding links to check in the queue if it currently has less than
@@ -108,20 +112,20 @@ public void transform(Block source, TransformationContext context) throws Transf
             {
                 if (linkBlock.getReference().getType().equals(ResourceType.URL)) {
                     // This is a link pointing to an external URL, add it to the queue for processing (i.e. checking).
-                    String linkReference = linkBlock.getReference().getReference();
-                    String contentReference = extractSourceContentReference(linkBlock);
-                    // If there's no content reference then use a default name of "default"
-                    if (contentReference == null) {
-                        contentReference = "default";
-                    }
-                    // Add Link Context Data
-                    Map<String, Object> linkContextData = createLinkContextData(linkReference, contentReference);
-                    this.linkQueue.add(new LinkQueueItem(linkReference, contentReference, linkContextData));
+                    addLinkToCheck(linkBlock.getReference().getReference(),
+                        extractSourceContentReference(linkBlock));
                 }
             }
         }
     }
 
+    @Override
+    public ChainingListener createChainingListener(ListenerChain listenerChain, TransformationContext context)
+    {
+        // Same anti-flood mechanism as in transform(), decided once for the whole content being streamed
+        return new LinkCheckerChainingListener(listenerChain, this, getLinkQueue().size() < MAX_LINKS_IN_QUEUE);
+    }
+
     /**
      * Stops the checking thread. Should be called when the application is stopped for a clean shutdown.
      *
@@ -142,6 +146,22 @@ public Queue<LinkQueueItem> getLinkQueue()
         return this.linkQueue;
     }
 
+    /**
+     * Add a link to the queue of links to check.
+     *
+     * @param linkReference the reference to the link to check (usually a URL)
+     * @param contentReference the reference to the content containing the link to check, null if unknown
+     */
+    void addLinkToCheck(String linkReference, String contentReference)
+    {
+        // If there's no content reference then use a default name of "default"
+        String reference = contentReference != null ? contentReference : "default";
+
+        // Add Link Context Data
+        Map<String, Object> linkContextData = createLinkContextData(linkReference, reference);
+        this.linkQueue.add(new LinkQueueItem(linkReference, reference, linkContextData));
+    }
+
     /**
      * @param linkReference the reference to the link to check (usually a URL)
      * @param contentReference the reference to the content containing the link to check
@@ -30,7 +30,10 @@
 import org.xwiki.observation.ObservationManager;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.listener.chaining.ChainingListener;
+import org.xwiki.rendering.listener.chaining.ListenerChain;
 import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.transformation.StreamingTransformation;
 import org.xwiki.rendering.transformation.Transformation;
 import org.xwiki.rendering.transformation.TransformationContext;
 import org.xwiki.rendering.transformation.linkchecker.InvalidURLEvent;
@@ -209,6 +212,32 @@ public void transformWithSourceMetaData() throws Exception
         assertNotNull(linkStateManager.getLinkStates().get("http://ok").get("source"));
     }
 
+    @Test
+    public void transformWhileStreamingWithSourceMetaData() throws Exception
+    {
+        Parser parser = this.componentManager.getInstance(Parser.class, "xwiki/2.0");
+        XDOM xdom = parser.parse(new StringReader("[[http://ok]]"));
+
+        MetaData metaData = new MetaData();
+        metaData.addMetaData(MetaData.SOURCE, "source");
+        XDOM newXDOM = new XDOM(xdom.getChildren(), metaData);
+
+        HTTPChecker httpChecker = this.componentManager.registerMockComponent(HTTPChecker.class);
+        when(httpChecker.check("http://ok")).thenReturn(200);
+
+        StreamingTransformation transformation =
+            this.componentManager.getInstance(Transformation.class, "linkchecker");
+        ListenerChain chain = new ListenerChain();
+        ChainingListener listener = transformation.createChainingListener(chain, new TransformationContext());
+        chain.addListener(listener);
+        newXDOM.traverse(listener);
+
+        LinkStateManager linkStateManager = this.componentManager.getInstance(LinkStateManager.class);
+        wait(linkStateManager, 1);
+
+        assertNotNull(linkStateManager.getLinkStates().get("http://ok").get("source"));
+    }
+
     /**
      * Verify that when the Observation Manager is available we send an InvalidURLEvent event when there's an invalid
      * URL.
@@ -0,0 +1,174 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.macro;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.renderer.parallel.RecordingWikiPrinter;
+import org.xwiki.rendering.listener.MetaData;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+/**
+ * Render successive versions of a document, printing again the output of the top-level blocks which were already
+ * rendered after the same previous sibling.
+ * <p>
+ * Like the parallel block renderer, this assumes that the state of the renderer at the start of a top-level block only
+ * depends on the previous sibling. It's the case of the renderers of the XWiki Rendering: the state they keep across
+ * blocks (list item indexes, table cell positions, quotation lines, etc.) is reset at the end of the enclosing
+ * container, which is at most a top-level block. A renderer keeping a state across all the top-level blocks (numbering
+ * them for example) would print outdated output for the reused blocks and must not be used with this class.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+class CachingXDOMRenderer
+{
+    private final PrintRendererFactory printRendererFactory;
+
+    /**
+     * The output of the top-level blocks of the previous version, indexed by block.
+     */
+    private Map<Block, RenderedBlock> renderedBlocks = new IdentityHashMap<>();
+
+    /**
+     * The metadata of the previous version, which impacts the output of the first and last top-level blocks.
+     */
+    private MetaData metaData;
+
+    /**
+     * @param printRendererFactory the factory used to create the renderers
+     */
+    CachingXDOMRenderer(PrintRendererFactory printRendererFactory)
+    {
+        this.printRendererFactory = printRendererFactory;
+    }
+
+    /**
+     * Render the passed document. Its top-level blocks must not be modified after the call.
+     *
+     * @param xdom the document to render
+     * @param printer the printer to print the result to
+     */
+    void render(XDOM xdom, WikiPrinter printer)
+    {
+        Map<Block, RenderedBlock> previousRenderedBlocks = this.renderedBlocks;
+        if (!xdom.getMetaData().equals(this.metaData)) {
+            previousRenderedBlocks = Collections.emptyMap();
+            this.metaData = new MetaData(xdom.getMetaData().getMetaData());
+        }
+        this.renderedBlocks = new IdentityHashMap<>();
+
+        List<Block> children = xdom.getChildren();
+        if (children.isEmpty()) {
+            PrintRenderer renderer = this.printRendererFactory.createRenderer(printer);
+            xdom.traverse(renderer);
+            flush(renderer);
+            this.printRendererFactory.releaseRenderer(renderer);
+            return;
+        }
+
+        Block previous = null;
+        for (int i = 0; i < children.size(); ++i) {
+            Block child = children.get(i);
+            boolean last = i == children.size() - 1;
+
+            RenderedBlock rendered = previousRenderedBlocks.get(child);
+            if (rendered == null || rendered.previous != previous || rendered.last != last) {
+                rendered = new RenderedBlock(previous, last, render(xdom, previous, child, last));
+            }
+            this.renderedBlocks.put(child, rendered);
+            rendered.output.replay(printer);
+
+            previous = child;
+        }
+    }
+
+    /**
+     * Render a top-level block, using the same technique as the parallel block renderer to put the renderer in the
+     * state it would have at the start of the block.
+     */
+    private RecordingWikiPrinter render(XDOM xdom, Block previous, Block block, boolean last)
+    {
+        RecordingWikiPrinter output = new RecordingWikiPrinter();
+        PrintRenderer renderer = this.printRendererFactory.createRenderer(output);
+
+        // Only the first block prints the start of the document
+        output.setEnabled(previous == null);
+        xdom.before(renderer);
+        if (previous != null) {
+            previous.traverse(renderer);
+        }
+
+        output.setEnabled(true);
+        block.traverse(renderer);
+
+        // Only the last block prints the end of the document and what the renderer kept for the end
+        output.setEnabled(last);
+        xdom.after(renderer);
+        flush(renderer);
+        this.printRendererFactory.releaseRenderer(renderer);
+
+        return output;
+    }
+
+    private static void flush(PrintRenderer renderer)
+    {
+        if (renderer instanceof Flushable) {
+            try {
+                ((Flushable) renderer).flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to flush renderer [" + renderer + "]", e);
+            }
+        }
+    }
+
+    /**
+     * The output of a top-level block.
+     */
+    private static final class RenderedBlock
+    {
+        /**
+         * The previous sibling of the block when it was rendered, which determines the state of the renderer at the
+         * start of the block.
+         */
+        private final Block previous;
+
+        private final boolean last;
+
+        private final RecordingWikiPrinter output;
+
+        RenderedBlock(Block previous, boolean last, RecordingWikiPrinter output)
+        {
+            this.previous = previous;
+            this.last = last;
+            this.output = output;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.macro;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.HeaderBlock;
+import org.xwiki.rendering.block.IdBlock;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MacroMarkerBlock;
+import org.xwiki.rendering.block.StructuralHash;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.transformation.MutableRenderingContext;
+import org.xwiki.rendering.macro.MacroId;
+import org.xwiki.rendering.macro.MacroLookupException;
+import org.xwiki.rendering.macro.MacroManager;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.RenderingContext;
+import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationException;
+import org.xwiki.rendering.transformation.macro.IncrementalRenderer;
+
+/**
+ * Default implementation of {@link IncrementalRenderer}.
+ * <p>
+ * The top-level blocks of the new version are matched with the top-level blocks of the previous version using their
+ * structural hash (see {@link Block#getStructuralHash()}) which, contrary to {@link Block#equals(Object)}, takes the
+ * class of the blocks into account (a space is equal to a new line for example).
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class DefaultIncrementalRenderer implements IncrementalRenderer
+{
+    private static final String ID_PARAMETER = "id";
+
+    private final CachingXDOMRenderer xdomRenderer;
+
+    private final Transformation macroTransformation;
+
+    private final MacroManager macroManager;
+
+    private final RenderingContext renderingContext;
+
+    /**
+     * The top-level blocks of the previous version, in document order.
+     */
+    private List<CachedBlock> cachedBlocks = Collections.emptyList();
+
+    /**
+     * @param printRendererFactory the factory used to create the renderers
+     * @param macroTransformation the macro transformation
+     * @param macroManager used to find out if the macros are isolated
+     * @param renderingContext the rendering context to update during the transformation
+     */
+    public DefaultIncrementalRenderer(PrintRendererFactory printRendererFactory, Transformation macroTransformation,
+        MacroManager macroManager, RenderingContext renderingContext)
+    {
+        this.xdomRenderer = new CachingXDOMRenderer(printRendererFactory);
+        this.macroTransformation = macroTransformation;
+        this.macroManager = macroManager;
+        this.renderingContext = renderingContext;
+    }
+
+    @Override
+    public void render(XDOM xdom, TransformationContext context, WikiPrinter printer) throws TransformationException
+    {
+        Map<StructuralHash, List<CachedBlock>> candidates = indexReusableBlocks();
+
+        // Replace the unchanged top-level blocks by their previous transformed version
+        List<Block> sources = xdom.getChildren();
+        List<CachedBlock> blocks = new ArrayList<>(sources.size());
+        List<Block> children = new ArrayList<>(sources.size());
+        boolean dirty = false;
+        boolean reused = false;
+        for (Block source : sources) {
+            StructuralHash hash = source.getStructuralHash();
+            CachedBlock block = pollReusableBlock(candidates.get(hash));
+            if (block != null) {
+                for (String id : block.ids) {
+                    xdom.getIdGenerator().add(id);
+                }
+                children.add(block.transformed);
+                reused = true;
+            } else {
+                block = new CachedBlock(hash);
+                children.add(source);
+                dirty = true;
+            }
+            blocks.add(block);
+        }
+        if (reused) {
+            xdom.setChildren(children);
+        }
+
+        // Execute the macros of the changed blocks, with the whole document as context
+        if (dirty) {
+            TransformationContext macroContext = context.clone();
+            macroContext.setXDOM(xdom);
+            ((MutableRenderingContext) this.renderingContext).transformInContext(this.macroTransformation,
+                macroContext, xdom);
+        }
+
+        updateCachedBlocks(xdom, blocks, children, context.getSyntax());
+
+        this.xdomRenderer.render(xdom, printer);
+    }
+
+    private Map<StructuralHash, List<CachedBlock>> indexReusableBlocks()
+    {
+        Map<StructuralHash, List<CachedBlock>> candidates = new HashMap<>();
+        for (CachedBlock block : this.cachedBlocks) {
+            if (block.reusable) {
+                List<CachedBlock> sameHash = candidates.get(block.hash);
+                if (sameHash == null) {
+                    sameHash = new ArrayList<>(1);
+                    candidates.put(block.hash, sameHash);
+                }
+                sameHash.add(block);
+            }
+        }
+
+        return candidates;
+    }
+
+    private static CachedBlock pollReusableBlock(List<CachedBlock> sameHash)
+    {
+        return sameHash != null && !sameHash.isEmpty() ? sameHash.remove(0) : null;
+    }
+
+    private void updateCachedBlocks(XDOM xdom, List<CachedBlock> blocks, List<Block> children, Syntax syntax)
+    {
+        // The macro transformation replaces each top-level macro block by a single macro marker block, anything else
+        // (blocks removed or inserted by a macro) prevents from associating the transformed blocks with their sources
+        List<Block> transformedChildren = xdom.getChildren();
+        if (transformedChildren.size() < children.size()) {
+            this.cachedBlocks = Collections.emptyList();
+            return;
+        }
+        for (int i = 0; i < children.size(); ++i) {
+            Block transformed = transformedChildren.get(i);
+            Block child = children.get(i);
+            if (transformed != child && !(transformed instanceof MacroMarkerBlock && child instanceof MacroBlock)) {
+                this.cachedBlocks = Collections.emptyList();
+                return;
+            }
+        }
+
+        Map<String, Boolean> isolatedMacros = new HashMap<>();
+        for (int i = 0; i < blocks.size(); ++i) {
+            CachedBlock block = blocks.get(i);
+            if (block.transformed == null) {
+                block.transformed = transformedChildren.get(i);
+                block.reusable = isReusable(block.transformed, syntax, isolatedMacros);
+                if (block.reusable) {
+                    collectIds(block.transformed, block.ids);
+                }
+            }
+        }
+        this.cachedBlocks = blocks;
+    }
+
+    /**
+     * @return true if all the macros of the passed transformed block are isolated, in which case the block does not
+     *         depend on the rest of the document
+     */
+    private boolean isReusable(Block block, Syntax syntax, Map<String, Boolean> isolatedMacros)
+    {
+        if (block instanceof MacroBlock) {
+            // The macro was not executed
+            return false;
+        } else if (block instanceof MacroMarkerBlock && !isIsolated(((MacroMarkerBlock) block).getId(), syntax,
+            isolatedMacros)) {
+            return false;
+        }
+
+        for (Block child : block.getChildren()) {
+            if (!isReusable(child, syntax, isolatedMacros)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isIsolated(String macroId, Syntax syntax, Map<String, Boolean> isolatedMacros)
+    {
+        Boolean isolated = isolatedMacros.get(macroId);
+        if (isolated == null) {
+            try {
+                isolated = this.macroManager.getMacro(new MacroId(macroId, syntax)).getDescriptor().isIsolated();
+            } catch (MacroLookupException e) {
+                isolated = false;
+            }
+            isolatedMacros.put(macroId, isolated);
+        }
+
+        return isolated;
+    }
+
+    private static void collectIds(Block block, List<String> ids)
+    {
+        if (block instanceof HeaderBlock) {
+            addId(((HeaderBlock) block).getId(), ids);
+        } else if (block instanceof IdBlock) {
+            addId(((IdBlock) block).getName(), ids);
+        }
+        addId(block.getParameter(ID_PARAMETER), ids);
+
+        for (Block child : block.getChildren()) {
+            collectIds(child, ids);
+        }
+    }
+
+    private static void addId(String id, List<String> ids)
+    {
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
+    /**
+     * A top-level block of the previous version.
+     */
+    private static final class CachedBlock
+    {
+        /**
+         * The structural hash of the block as it was before the transformation.
+         */
+        private final StructuralHash hash;
+
+        /**
+         * The block after the transformation, {@code null} until the block is transformed.
+         */
+        private Block transformed;
+
+        /**
+         * True if the transformed block can be reused when the source block does not change.
+         */
+        private boolean reusable;
+
+        /**
+         * The identifiers used in the transformed block, to reserve when the block is reused.
+         */
+        private final List<String> ids = new ArrayList<>();
+
+        CachedBlock(StructuralHash hash)
+        {
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.macro;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.rendering.macro.MacroManager;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.rendering.transformation.RenderingContext;
+import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.macro.IncrementalRenderer;
+import org.xwiki.rendering.transformation.macro.IncrementalRendererFactory;
+
+/**
+ * Default implementation of {@link IncrementalRendererFactory}.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Component
+@Singleton
+public class DefaultIncrementalRendererFactory implements IncrementalRendererFactory
+{
+    /**
+     * Used to lookup the print renderer factories.
+     */
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    @Named("macro")
+    private Transformation macroTransformation;
+
+    @Inject
+    private MacroManager macroManager;
+
+    @Inject
+    private RenderingContext renderingContext;
+
+    @Override
+    public IncrementalRenderer createRenderer(String hint) throws ComponentLookupException
+    {
+        return createRenderer(
+            this.componentManagerProvider.get().<PrintRendererFactory>getInstance(PrintRendererFactory.class, hint));
+    }
+
+    @Override
+    public IncrementalRenderer createRenderer(PrintRendererFactory printRendererFactory)
+    {
+        return new DefaultIncrementalRenderer(printRendererFactory, this.macroTransformation, this.macroManager,
+            this.renderingContext);
+    }
+}
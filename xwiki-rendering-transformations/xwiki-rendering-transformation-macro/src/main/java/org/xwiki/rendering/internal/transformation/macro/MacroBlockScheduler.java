@@ -0,0 +1,499 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.macro;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.macro.Macro;
+import org.xwiki.rendering.macro.MacroId;
+import org.xwiki.rendering.macro.MacroLookupException;
+import org.xwiki.rendering.macro.MacroManager;
+import org.xwiki.rendering.syntax.Syntax;
+
+/**
+ * Keep track of the {@link MacroBlock}s to execute in a given tree of blocks, sorted by macro priority and then by
+ * document order, so that {@link MacroTransformation} doesn't have to walk the whole tree again each time it needs to
+ * find the next macro to execute.
+ * <p>
+ * The tree is scanned once when the scheduler is created. The blocks generated by the execution of a macro are then
+ * indexed by {@link #replace(MacroBlock, Block)}. A macro can also modify the tree outside of the blocks it returns
+ * (for example the footnote macro adds a {@code putfootnotes} macro at the end of the document): such modifications
+ * are detected with {@link XDOM#getModificationCount()} and the tree is then scanned again before the next macro is
+ * returned, so that the macros are executed in the same order as if the tree was scanned before each macro. When the
+ * root of the tree is not a {@link XDOM} the modifications can't be detected and the tree is scanned before each
+ * macro. The tree is also scanned again when there's nothing left in the index, in case it was modified without going
+ * through the methods of {@link Block}.
+ * <p>
+ * Not thread safe: a new instance must be created for each transformation.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+class MacroBlockScheduler
+{
+    /**
+     * A macro block and the macro to use to execute it.
+     */
+    static class MacroHolder
+    {
+        private final MacroBlock macroBlock;
+
+        private final Macro<?> macro;
+
+        MacroHolder(MacroBlock macroBlock, Macro<?> macro)
+        {
+            this.macroBlock = macroBlock;
+            this.macro = macro;
+        }
+
+        /**
+         * @return the macro block to execute
+         */
+        public MacroBlock getMacroBlock()
+        {
+            return this.macroBlock;
+        }
+
+        /**
+         * @return the macro associated with the macro block
+         */
+        public Macro<?> getMacro()
+        {
+            return this.macro;
+        }
+    }
+
+    /**
+     * A macro block for which the macro lookup failed.
+     */
+    static class MacroLookupExceptionElement
+    {
+        private final MacroBlock macroBlock;
+
+        private final MacroLookupException exception;
+
+        MacroLookupExceptionElement(MacroBlock macroBlock, MacroLookupException exception)
+        {
+            this.macroBlock = macroBlock;
+            this.exception = exception;
+        }
+
+        /**
+         * @return the macro block which could not be resolved
+         */
+        public MacroBlock getMacroBlock()
+        {
+            return this.macroBlock;
+        }
+
+        /**
+         * @return the lookup error
+         */
+        public MacroLookupException getException()
+        {
+            return this.exception;
+        }
+    }
+
+    private static final ClassBlockMatcher MACRO_MATCHER = new ClassBlockMatcher(MacroBlock.class);
+
+    private static final Comparator<Macro<?>> PRIORITY_COMPARATOR = new Comparator<Macro<?>>()
+    {
+        @Override
+        public int compare(Macro<?> macro1, Macro<?> macro2)
+        {
+            return macro1.compareTo(macro2);
+        }
+    };
+
+    private final Block rootBlock;
+
+    private final Syntax syntax;
+
+    private final MacroManager macroManager;
+
+    /**
+     * Cache known macros since getting them again and again from the ComponentManager might be expensive.
+     */
+    private final Map<String, Macro<?>> knownMacros = new HashMap<>();
+
+    /**
+     * The scheduled macro blocks grouped by priority (macros comparing equal share the same entry). Each list is sorted
+     * in reverse document order so that the next block to execute can be removed from the end of the list, which is
+     * also where the blocks generated by that macro are inserted most of the time.
+     */
+    private final TreeMap<Macro<?>, List<MacroHolder>> priorities = new TreeMap<>(PRIORITY_COMPARATOR);
+
+    /**
+     * The blocks currently scheduled, used to not index twice the same block.
+     */
+    private final Map<MacroBlock, MacroHolder> scheduled = new IdentityHashMap<>();
+
+    private List<MacroLookupExceptionElement> errors;
+
+    /**
+     * The document containing the tree when it was last looked at, {@code null} if the root of the tree is not a
+     * {@link XDOM}.
+     */
+    private XDOM document;
+
+    /**
+     * The modification count of {@link #document} when the tree was last looked at.
+     */
+    private int modificationCount;
+
+    /**
+     * @param rootBlock the block containing the macros to execute
+     * @param syntax the syntax used to resolve the macros
+     * @param macroManager the manager used to resolve the macros
+     */
+    MacroBlockScheduler(Block rootBlock, Syntax syntax, MacroManager macroManager)
+    {
+        this.rootBlock = rootBlock;
+        this.syntax = syntax;
+        this.macroManager = macroManager;
+
+        scan();
+    }
+
+    /**
+     * Replace an executed macro block with the blocks it generated and index the macro blocks located in these blocks.
+     *
+     * @param macroBlock the executed macro block
+     * @param resultBlock the block wrapping the blocks generated by the execution of the macro
+     */
+    public void replace(MacroBlock macroBlock, Block resultBlock)
+    {
+        // The tree can only have been modified by the executed macros since it was last looked at
+        boolean modified = isModified();
+
+        macroBlock.getParent().replaceChild(resultBlock, macroBlock);
+
+        if (!modified) {
+            schedule(resultBlock, Block.Axes.DESCENDANT_OR_SELF);
+            markUnmodified();
+        }
+        // Otherwise the whole tree is scanned again before the next macro is returned
+    }
+
+    /**
+     * Remove and return the next macro to execute, i.e. the first macro in document order among the macros with the
+     * highest priority.
+     *
+     * @return the next macro to execute or null if there's none left
+     */
+    public MacroHolder poll()
+    {
+        boolean modified = isModified();
+        if (modified) {
+            // A macro modified the tree outside of the blocks it generated
+            scan();
+        }
+
+        MacroHolder holder = pollIndexed();
+
+        if (holder == null && !modified) {
+            // Make sure the tree was not modified without going through the methods of Block
+            scan();
+
+            holder = pollIndexed();
+        }
+
+        return holder;
+    }
+
+    /**
+     * Remove and return the next macro to execute if it has the same priority as the passed macro and it's isolated
+     * (see {@link org.xwiki.rendering.macro.descriptor.MacroDescriptor#isIsolated()}). The tree is not scanned again.
+     *
+     * @param macro the macro with the priority to match
+     * @return the next macro to execute, or null if there's none or it's not an isolated macro with the same priority
+     */
+    public MacroHolder pollIsolated(Macro<?> macro)
+    {
+        while (!this.priorities.isEmpty()) {
+            Map.Entry<Macro<?>, List<MacroHolder>> entry = this.priorities.firstEntry();
+            if (PRIORITY_COMPARATOR.compare(entry.getKey(), macro) != 0) {
+                return null;
+            }
+
+            List<MacroHolder> holders = entry.getValue();
+            MacroHolder holder = holders.get(holders.size() - 1);
+            if (!holder.getMacro().getDescriptor().isIsolated()) {
+                return null;
+            }
+
+            holders.remove(holders.size() - 1);
+            if (holders.isEmpty()) {
+                this.priorities.remove(entry.getKey());
+            }
+            this.scheduled.remove(holder.getMacroBlock());
+
+            // The block might have been removed from the tree by a previously executed macro
+            if (isAttached(holder.getMacroBlock())) {
+                return holder;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the macro lookup errors found since the last call, null if there's none
+     */
+    public List<MacroLookupExceptionElement> pollErrors()
+    {
+        List<MacroLookupExceptionElement> currentErrors = this.errors;
+
+        this.errors = null;
+
+        return currentErrors;
+    }
+
+    private MacroHolder pollIndexed()
+    {
+        while (!this.priorities.isEmpty()) {
+            Map.Entry<Macro<?>, List<MacroHolder>> entry = this.priorities.firstEntry();
+            List<MacroHolder> holders = entry.getValue();
+
+            MacroHolder holder = holders.remove(holders.size() - 1);
+            if (holders.isEmpty()) {
+                this.priorities.remove(entry.getKey());
+            }
+            this.scheduled.remove(holder.getMacroBlock());
+
+            // The block might have been removed from the tree by a previously executed macro
+            if (isAttached(holder.getMacroBlock())) {
+                return holder;
+            }
+        }
+
+        return null;
+    }
+
+    private void scan()
+    {
+        this.priorities.clear();
+        this.scheduled.clear();
+        // Lookup errors are found again
+        this.errors = null;
+
+        schedule(this.rootBlock, Block.Axes.DESCENDANT);
+        markUnmodified();
+    }
+
+    /**
+     * @return true if the tree might have been modified since it was last looked at
+     */
+    private boolean isModified()
+    {
+        Block root = this.rootBlock.getRoot();
+
+        return this.document == null || root != this.document
+            || this.document.getModificationCount() != this.modificationCount;
+    }
+
+    private void markUnmodified()
+    {
+        Block root = this.rootBlock.getRoot();
+        if (root instanceof XDOM) {
+            this.document = (XDOM) root;
+            this.modificationCount = this.document.getModificationCount();
+        } else {
+            this.document = null;
+        }
+    }
+
+    private void schedule(Block block, Block.Axes axes)
+    {
+        for (Block macroBlock : block.<Block>getBlocks(MACRO_MATCHER, axes)) {
+            add((MacroBlock) macroBlock);
+        }
+    }
+
+    private void add(MacroBlock macroBlock)
+    {
+        // The block was moved: remove it from its old position
+        MacroHolder previous = this.scheduled.remove(macroBlock);
+        if (previous != null) {
+            List<MacroHolder> holders = this.priorities.get(previous.getMacro());
+            holders.remove(previous);
+            if (holders.isEmpty()) {
+                this.priorities.remove(previous.getMacro());
+            }
+        }
+
+        Macro<?> macro;
+        try {
+            macro = getMacro(macroBlock);
+        } catch (MacroLookupException e) {
+            if (this.errors == null) {
+                this.errors = new LinkedList<>();
+            }
+
+            this.errors.add(new MacroLookupExceptionElement(macroBlock, e));
+
+            return;
+        }
+
+        MacroHolder holder = new MacroHolder(macroBlock, macro);
+
+        List<MacroHolder> holders = this.priorities.get(macro);
+        if (holders == null) {
+            holders = new ArrayList<>();
+            this.priorities.put(macro, holders);
+        }
+        holders.add(indexOf(holders, macroBlock), holder);
+
+        this.scheduled.put(macroBlock, holder);
+    }
+
+    private Macro<?> getMacro(MacroBlock macroBlock) throws MacroLookupException
+    {
+        // Try to find a known macros
+        Macro<?> macro = this.knownMacros.get(macroBlock.getId());
+
+        // If not found use the macro manager
+        if (macro == null) {
+            macro = this.macroManager.getMacro(new MacroId(macroBlock.getId(), this.syntax));
+
+            // Cache the found macro for later
+            this.knownMacros.put(macroBlock.getId(), macro);
+        }
+
+        return macro;
+    }
+
+    /**
+     * @return the position where to insert the passed block in the passed list sorted in reverse document order
+     */
+    private int indexOf(List<MacroHolder> holders, MacroBlock macroBlock)
+    {
+        // Fast path: most of the time the new block is located before all the others (the list is initially filled in
+        // document order and the blocks generated by a macro are located where the first block used to be)
+        if (holders.isEmpty()
+            || compareDocumentOrder(holders.get(holders.size() - 1).getMacroBlock(), macroBlock) > 0) {
+            return holders.size();
+        }
+
+        int low = 0;
+        int high = holders.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compareDocumentOrder(holders.get(middle).getMacroBlock(), macroBlock) > 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return a negative integer, zero, or a positive integer as the first block is located before, at the same place,
+     *         or after the second block in the tree
+     */
+    private int compareDocumentOrder(Block block1, Block block2)
+    {
+        List<Block> path1 = getPath(block1);
+        List<Block> path2 = getPath(block2);
+
+        int size = Math.min(path1.size(), path2.size());
+        int index = 0;
+        while (index < size && path1.get(index) == path2.get(index)) {
+            ++index;
+        }
+
+        int result;
+        if (index == 0) {
+            // Not in the same tree
+            result = 0;
+        } else if (index == path1.size()) {
+            // The first block is an ancestor of (or is) the second block
+            result = index == path2.size() ? 0 : -1;
+        } else if (index == path2.size()) {
+            result = 1;
+        } else {
+            List<Block> siblings = path1.get(index - 1).getChildren();
+            result = indexOfBlock(path1.get(index), siblings) - indexOfBlock(path2.get(index), siblings);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the ancestors of the passed block, starting from the root, followed by the block itself
+     */
+    private List<Block> getPath(Block block)
+    {
+        List<Block> path = new ArrayList<>();
+        for (Block current = block; current != null; current = current.getParent()) {
+            path.add(current);
+        }
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    private boolean isAttached(Block block)
+    {
+        Block current = block;
+        while (current != this.rootBlock) {
+            Block parent = current.getParent();
+            if (parent == null || indexOfBlock(current, parent.getChildren()) == -1) {
+                return false;
+            }
+            current = parent;
+        }
+
+        return true;
+    }
+
+    /**
+     * Can't use {@link List#indexOf(Object)} since it's using {@link Object#equals(Object)} internally which is not
+     * what we want since two blocks can be equal without being the same.
+     */
+    private int indexOfBlock(Block block, List<Block> blocks)
+    {
+        int position = 0;
+
+        for (Block child : blocks) {
+            if (child == block) {
+                return position;
+            }
+            ++position;
+        }
+
+        return -1;
+    }
+}
@@ -19,10 +19,12 @@
  */
 package org.xwiki.rendering.internal.transformation.macro;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -36,14 +38,13 @@
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.MacroBlock;
 import org.xwiki.rendering.block.MacroMarkerBlock;
-import org.xwiki.rendering.block.match.BlockMatcher;
+import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.internal.transformation.MutableRenderingContext;
+import org.xwiki.rendering.internal.transformation.macro.MacroBlockScheduler.MacroHolder;
+import org.xwiki.rendering.internal.transformation.macro.MacroBlockScheduler.MacroLookupExceptionElement;
 import org.xwiki.rendering.macro.Macro;
-import org.xwiki.rendering.macro.MacroId;
-import org.xwiki.rendering.macro.MacroLookupException;
 import org.xwiki.rendering.macro.MacroManager;
 import org.xwiki.rendering.macro.MacroNotFoundException;
-import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.transformation.AbstractTransformation;
 import org.xwiki.rendering.transformation.MacroTransformationContext;
 import org.xwiki.rendering.transformation.RenderingContext;
@@ -67,100 +68,6 @@
 @Singleton
 public class MacroTransformation extends AbstractTransformation implements Initializable
 {
-    private static class MacroLookupExceptionElement
-    {
-        private MacroBlock macroBlock;
-
-        private MacroLookupException exception;
-
-        public MacroLookupExceptionElement(MacroBlock macroBlock, MacroLookupException exception)
-        {
-            this.macroBlock = macroBlock;
-            this.exception = exception;
-        }
-
-        public MacroBlock getMacroBlock()
-        {
-            return macroBlock;
-        }
-
-        public MacroLookupException getException()
-        {
-            return exception;
-        }
-    }
-
-    private class PriorityMacroBlockMatcher implements BlockMatcher
-    {
-        private final Syntax syntax;
-
-        private MacroBlock block;
-
-        private Macro<?> blockMacro;
-
-        private List<MacroLookupExceptionElement> errors;
-
-        // Cache known macros since getting them again and again from the ComponentManager might be expensive
-        private final Map<String, Macro<?>> knownMacros = new HashMap<>();
-
-        PriorityMacroBlockMatcher(Syntax syntax)
-        {
-            this.syntax = syntax;
-        }
-
-        public MacroBlock getBlock()
-        {
-            return block;
-        }
-
-        public Macro<?> getBlockMacro()
-        {
-            return blockMacro;
-        }
-
-        public List<MacroLookupExceptionElement> getErrors()
-        {
-            return errors;
-        }
-
-        @Override
-        public boolean match(Block block)
-        {
-            if (block instanceof MacroBlock) {
-                MacroBlock macroBlock = (MacroBlock) block;
-
-                try {
-                    // Try to find a known macros
-                    Macro<?> macro = this.knownMacros.get(macroBlock.getId());
-
-                    // If not found use the macro manager
-                    if (macro == null) {
-                        macro =
-                            MacroTransformation.this.macroManager
-                                .getMacro(new MacroId(macroBlock.getId(), this.syntax));
-
-                        // Cache the found macro for later
-                        this.knownMacros.put(macroBlock.getId(), macro);
-                    }
-
-                    // Find higher priority macro
-                    if (this.block == null || this.blockMacro.compareTo(macro) > 0) {
-                        this.block = macroBlock;
-                        this.blockMacro = macro;
-                    }
-                } catch (MacroLookupException e) {
-                    if (this.errors == null) {
-                        this.errors = new LinkedList<MacroLookupExceptionElement>();
-                    }
-
-                    this.errors.add(new MacroLookupExceptionElement(macroBlock, e));
-                }
-            }
-
-            return false;
-        }
-    }
-
     /**
      * Number of times a macro can generate another macro before considering that we are in a loop. Such a loop can
      * happen if a macro generates itself for example.
@@ -220,15 +127,41 @@ public void transform(Block rootBlock, TransformationContext context) throws Tra
         MacroTransformationContext macroContext = new MacroTransformationContext(context);
         macroContext.setTransformation(this);
 
+        // Macros like the table of contents or the footnotes search the whole document, possibly many times: index it
+        // while the macros are executed
+        XDOM indexedXDOM = null;
+        Block root = rootBlock.getRoot();
+        if (root instanceof XDOM && ((XDOM) root).getIndex() == null) {
+            indexedXDOM = (XDOM) root;
+            indexedXDOM.setIndexed(true);
+        }
+
+        try {
+            transform(rootBlock, context, macroContext);
+        } finally {
+            if (indexedXDOM != null) {
+                indexedXDOM.setIndexed(false);
+            }
+        }
+    }
+
+    private void transform(Block rootBlock, TransformationContext context, MacroTransformationContext macroContext)
+    {
+        // Index the macros to execute once instead of looking for the next one in the whole tree at each iteration
+        MacroBlockScheduler scheduler = new MacroBlockScheduler(rootBlock, context.getSyntax(), this.macroManager);
+
+        // Used to execute the isolated macros concurrently, null to execute all the macros in the current thread
+        ExecutorService executor = context.getExecutor();
+
         // Counter to prevent infinite recursion if a macro generates the same macro for example.
         for (int recursions = 0; recursions < this.maxRecursions;) {
             // 1) Get highest priority macro
-            PriorityMacroBlockMatcher priorityMacroBlockMatcher = new PriorityMacroBlockMatcher(context.getSyntax());
-            rootBlock.getFirstBlock(priorityMacroBlockMatcher, Block.Axes.DESCENDANT);
+            MacroHolder macroHolder = scheduler.poll();
 
             // 2) Apply macros lookup errors
-            if (priorityMacroBlockMatcher.getErrors() != null) {
-                for (MacroLookupExceptionElement error : priorityMacroBlockMatcher.getErrors()) {
+            List<MacroLookupExceptionElement> errors = scheduler.pollErrors();
+            if (errors != null) {
+                for (MacroLookupExceptionElement error : errors) {
                     if (error.getException() instanceof MacroNotFoundException) {
                         // Macro cannot be found. Generate an error message instead of the macro execution result.
                         // TODO: make it internationalized
@@ -244,81 +177,216 @@ public void transform(Block rootBlock, TransformationContext context) throws Tra
                 }
             }
 
-            MacroBlock macroBlock = priorityMacroBlockMatcher.getBlock();
-
-            if (macroBlock == null) {
+            if (macroHolder == null) {
                 // Nothing left to do
                 return;
             }
 
-            Macro<?> macro = priorityMacroBlockMatcher.getBlockMacro();
+            if (executor != null && macroHolder.getMacro().getDescriptor().isIsolated()) {
+                recursions += executeIsolated(macroHolder, this.maxRecursions - recursions, executor, scheduler,
+                    macroContext);
+            } else if (execute(macroHolder, scheduler, macroContext)) {
+                ++recursions;
+            }
+        }
+    }
 
-            boolean incrementRecursions = macroBlock.getParent() instanceof MacroMarkerBlock;
+    /**
+     * Execute a macro in the current thread.
+     *
+     * @return true if the execution of the macro should be counted as a recursion
+     */
+    private boolean execute(MacroHolder macroHolder, MacroBlockScheduler scheduler,
+        MacroTransformationContext macroContext)
+    {
+        MacroBlock macroBlock = macroHolder.getMacroBlock();
+        Macro<?> macro = macroHolder.getMacro();
+
+        boolean incrementRecursions = macroBlock.getParent() instanceof MacroMarkerBlock;
+
+        List<Block> newBlocks;
+        try {
+            // 3) Verify if we're in macro inline mode and if the macro supports it. If not, send an error.
+            if (!checkInlineMode(macroBlock, macro)) {
+                return false;
+            }
+            macroContext.setInline(macroBlock.isInline());
+
+            // 4) Execute the highest priority macro
+            macroContext.setCurrentMacroBlock(macroBlock);
+            ((MutableRenderingContext) this.renderingContext).setCurrentBlock(macroBlock);
+
+            // Populate and validate macro parameters.
+            Object macroParameters = populateParameters(macroBlock, macro);
+            if (macroParameters == null) {
+                return false;
+            }
+
+            newBlocks = ((Macro) macro).execute(macroParameters, macroBlock.getContent(), macroContext);
+        } catch (Throwable e) {
+            generateExecutionError(macroBlock, e);
+            return false;
+        } finally {
+            ((MutableRenderingContext) this.renderingContext).setCurrentBlock(null);
+        }
+
+        replace(macroBlock, newBlocks, scheduler);
+
+        return incrementRecursions;
+    }
+
+    /**
+     * Execute concurrently the passed isolated macro and the following isolated macros with the same priority, and
+     * replace them with their result in document order.
+     *
+     * @param maxBatchRecursions the maximum number of executions counted as recursions the batch can contain, the
+     *            following isolated macros are left to the next iterations
+     * @return the number of macro executions which should be counted as recursions
+     */
+    private int executeIsolated(MacroHolder firstHolder, int maxBatchRecursions, ExecutorService executor,
+        MacroBlockScheduler scheduler, MacroTransformationContext macroContext)
+    {
+        List<MacroBlock> macroBlocks = new ArrayList<>();
+        List<Callable<List<Block>>> executions = new ArrayList<>();
+
+        // Prepare the executions in document order
+        int batchRecursions = 0;
+        MacroHolder macroHolder = firstHolder;
+        while (macroHolder != null) {
+            MacroBlock macroBlock = macroHolder.getMacroBlock();
+            Macro<?> macro = macroHolder.getMacro();
+
+            if (macroBlock.getParent() instanceof MacroMarkerBlock) {
+                ++batchRecursions;
+            }
 
-            List<Block> newBlocks;
             try {
-                // 3) Verify if we're in macro inline mode and if the macro supports it. If not, send an error.
-                if (macroBlock.isInline()) {
-                    macroContext.setInline(true);
-                    if (!macro.supportsInlineMode()) {
-                        // The macro doesn't support inline mode, raise a warning but continue.
-                        // The macro will not be executed and we generate an error message instead of the macro
-                        // execution result.
-                        this.macroErrorManager.generateError(macroBlock, String.format(
-                            "The [%s] macro is a standalone macro and it cannot be used inline",
-                            macroBlock.getId()),
-                            "This macro generates standalone content. As a consequence you need to make sure to use a "
-                            + "syntax that separates your macro from the content before and after it so that it's on a "
-                            + "line by itself. For example in XWiki Syntax 2.0+ this means having 2 newline characters "
-                            + "(a.k.a line breaks) separating your macro from the content before and after it.");
-                        continue;
+                if (checkInlineMode(macroBlock, macro)) {
+                    Object macroParameters = populateParameters(macroBlock, macro);
+                    if (macroParameters != null) {
+                        // Each execution gets its own context since it holds the current macro block
+                        MacroTransformationContext executionContext = macroContext.clone();
+                        executionContext.setInline(macroBlock.isInline());
+                        executionContext.setCurrentMacroBlock(macroBlock);
+
+                        Callable<List<Block>> execution = ((MutableRenderingContext) this.renderingContext).wrap(
+                            new MacroExecution(macro, macroParameters, macroBlock.getContent(), executionContext),
+                            macroBlock);
+
+                        executions.add(execution);
+                        macroBlocks.add(macroBlock);
                     }
-                } else {
-                    macroContext.setInline(false);
                 }
+            } catch (Throwable e) {
+                generateExecutionError(macroBlock, e);
+            }
 
-                // 4) Execute the highest priority macro
-                macroContext.setCurrentMacroBlock(macroBlock);
-                ((MutableRenderingContext) this.renderingContext).setCurrentBlock(macroBlock);
-
-                // Populate and validate macro parameters.
-                Object macroParameters = macro.getDescriptor().getParametersBeanClass().newInstance();
-                try {
-                    this.beanManager.populate(macroParameters, macroBlock.getParameters());
-                } catch (Throwable e) {
-                    // One macro parameter was invalid.
-                    // The macro will not be executed and we generate an error message instead of the macro
-                    // execution result.
-                    this.macroErrorManager.generateError(macroBlock,
-                        String.format("Invalid macro parameters used for the \"%s\" macro", macroBlock.getId()), e);
-                    continue;
-                }
+            // Don't go past the maximum number of recursions
+            macroHolder =
+                batchRecursions < maxBatchRecursions ? scheduler.pollIsolated(firstHolder.getMacro()) : null;
+        }
 
-                newBlocks = ((Macro) macro).execute(macroParameters, macroBlock.getContent(), macroContext);
-            } catch (Throwable e) {
-                // The Macro failed to execute.
-                // The macro will not be executed and we generate an error message instead of the macro
-                // execution result.
-                // Note: We catch any Exception because we want to never break the whole rendering.
-                this.macroErrorManager.generateError(macroBlock,
-                    String.format("Failed to execute the [%s] macro", macroBlock.getId()), e);
-                continue;
-            } finally {
-                ((MutableRenderingContext) this.renderingContext).setCurrentBlock(null);
+        // Wait for all the executions to be finished before modifying the XDOM since macros are allowed to look at
+        // the ancestors of their macro block (e.g. to find the current syntax)
+        List<Future<List<Block>>> results;
+        try {
+            results = executor.invokeAll(executions);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (MacroBlock macroBlock : macroBlocks) {
+                generateExecutionError(macroBlock, e);
             }
+            return 0;
+        }
 
-            // We wrap the blocks generated by the macro execution with MacroMarker blocks so that listeners/renderers
-            // who wish to know the group of blocks that makes up the executed macro can. For example this is useful for
-            // the XWiki Syntax renderer so that it can reconstruct the macros from the transformed XDOM.
-            Block resultBlock = wrapInMacroMarker(macroBlock, newBlocks);
+        // Apply the results in document order
+        int recursions = 0;
+        for (int i = 0; i < macroBlocks.size(); ++i) {
+            MacroBlock macroBlock = macroBlocks.get(i);
+            boolean incrementRecursions = macroBlock.getParent() instanceof MacroMarkerBlock;
 
-            // 5) Replace the MacroBlock by the Blocks generated by the execution of the Macro
-            macroBlock.getParent().replaceChild(resultBlock, macroBlock);
+            List<Block> newBlocks;
+            try {
+                newBlocks = results.get(i).get();
+            } catch (ExecutionException | InterruptedException e) {
+                generateExecutionError(macroBlock, e instanceof ExecutionException ? e.getCause() : e);
+                continue;
+            }
+
+            replace(macroBlock, newBlocks, scheduler);
 
             if (incrementRecursions) {
                 ++recursions;
             }
         }
+
+        return recursions;
+    }
+
+    /**
+     * @return false if the macro can't be executed because it's used inline and doesn't support it, in which case an
+     *         error is generated
+     */
+    private boolean checkInlineMode(MacroBlock macroBlock, Macro<?> macro)
+    {
+        if (macroBlock.isInline() && !macro.supportsInlineMode()) {
+            // The macro doesn't support inline mode, raise a warning but continue.
+            // The macro will not be executed and we generate an error message instead of the macro
+            // execution result.
+            this.macroErrorManager.generateError(macroBlock, String.format(
+                "The [%s] macro is a standalone macro and it cannot be used inline",
+                macroBlock.getId()),
+                "This macro generates standalone content. As a consequence you need to make sure to use a "
+                + "syntax that separates your macro from the content before and after it so that it's on a "
+                + "line by itself. For example in XWiki Syntax 2.0+ this means having 2 newline characters "
+                + "(a.k.a line breaks) separating your macro from the content before and after it.");
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the macro parameters or null if they are invalid, in which case an error is generated
+     */
+    private Object populateParameters(MacroBlock macroBlock, Macro<?> macro) throws Exception
+    {
+        Object macroParameters = macro.getDescriptor().getParametersBeanClass().newInstance();
+        try {
+            this.beanManager.populate(macroParameters, macroBlock.getParameters());
+        } catch (Throwable e) {
+            // One macro parameter was invalid.
+            // The macro will not be executed and we generate an error message instead of the macro
+            // execution result.
+            this.macroErrorManager.generateError(macroBlock,
+                String.format("Invalid macro parameters used for the \"%s\" macro", macroBlock.getId()), e);
+            return null;
+        }
+
+        return macroParameters;
+    }
+
+    private void generateExecutionError(MacroBlock macroBlock, Throwable e)
+    {
+        // The Macro failed to execute.
+        // The macro will not be executed and we generate an error message instead of the macro
+        // execution result.
+        // Note: We catch any Exception because we want to never break the whole rendering.
+        this.macroErrorManager.generateError(macroBlock,
+            String.format("Failed to execute the [%s] macro", macroBlock.getId()), e);
+    }
+
+    private void replace(MacroBlock macroBlock, List<Block> newBlocks, MacroBlockScheduler scheduler)
+    {
+        // We wrap the blocks generated by the macro execution with MacroMarker blocks so that listeners/renderers
+        // who wish to know the group of blocks that makes up the executed macro can. For example this is useful for
+        // the XWiki Syntax renderer so that it can reconstruct the macros from the transformed XDOM.
+        Block resultBlock = wrapInMacroMarker(macroBlock, newBlocks);
+
+        // 5) Replace the MacroBlock by the Blocks generated by the execution of the Macro and schedule the macros they
+        // contain
+        scheduler.replace(macroBlock, resultBlock);
     }
 
     /**
@@ -341,4 +409,32 @@ public void setMaxRecursions(int maxRecursions)
     {
         this.maxRecursions = maxRecursions;
     }
+
+    /**
+     * Execute a macro, possibly in another thread.
+     */
+    private static final class MacroExecution implements Callable<List<Block>>
+    {
+        private final Macro<?> macro;
+
+        private final Object parameters;
+
+        private final String content;
+
+        private final MacroTransformationContext context;
+
+        MacroExecution(Macro<?> macro, Object parameters, String content, MacroTransformationContext context)
+        {
+            this.macro = macro;
+            this.parameters = parameters;
+            this.content = content;
+            this.context = context;
+        }
+
+        @Override
+        public List<Block> call() throws Exception
+        {
+            return ((Macro) this.macro).execute(this.parameters, this.content, this.context);
+        }
+    }
 }
@@ -113,6 +113,11 @@
      */
     private String defaultCategory;
 
+    /**
+     * @see MacroDescriptor#isIsolated()
+     */
+    private boolean isolated;
+
     /**
      * Creates a new {@link Macro} instance.
      *
@@ -188,6 +193,7 @@ public void initialize() throws InitializationException
         DefaultMacroDescriptor descriptor = new DefaultMacroDescriptor(macroId, this.name, this.description,
             this.contentDescriptor, this.beanManager.getBeanDescriptor(this.parametersBeanClass));
         descriptor.setDefaultCategory(this.defaultCategory);
+        descriptor.setIsolated(this.isolated);
         setDescriptor(descriptor);
     }
 
@@ -245,4 +251,20 @@ protected void setDefaultCategory(String defaultCategory)
             ((AbstractMacroDescriptor) getDescriptor()).setDefaultCategory(defaultCategory);
         }
     }
+
+    /**
+     * Allows sub classes to indicate that the macro is isolated (see {@link MacroDescriptor#isIsolated()}). This method
+     * only has an effect if the internal {@link MacroDescriptor} is of type {@link AbstractMacroDescriptor}.
+     *
+     * @param isolated true if the macro is isolated
+     * @since 10.4RC1
+     */
+    protected void setIsolated(boolean isolated)
+    {
+        this.isolated = isolated;
+
+        if (getDescriptor() instanceof AbstractMacroDescriptor) {
+            ((AbstractMacroDescriptor) getDescriptor()).setIsolated(isolated);
+        }
+    }
 }
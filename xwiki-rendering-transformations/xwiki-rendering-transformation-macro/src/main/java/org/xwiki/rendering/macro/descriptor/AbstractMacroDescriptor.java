@@ -65,6 +65,11 @@ public abstract class AbstractMacroDescriptor implements MacroDescriptor
      */
     private String defaultCategory;
 
+    /**
+     * @see #isIsolated()
+     */
+    private boolean isolated;
+
     /**
      * A map containing the {@link ParameterDescriptor} for each parameters supported for this macro.
      * <p>
@@ -187,4 +192,20 @@ public void setDefaultCategory(String defaultCategory)
     {
         this.defaultCategory = defaultCategory;
     }
+
+    @Override
+    public boolean isIsolated()
+    {
+        return this.isolated;
+    }
+
+    /**
+     * @param isolated true if the macro is isolated
+     * @see MacroDescriptor#isIsolated()
+     * @since 10.4RC1
+     */
+    public void setIsolated(boolean isolated)
+    {
+        this.isolated = isolated;
+    }
 }
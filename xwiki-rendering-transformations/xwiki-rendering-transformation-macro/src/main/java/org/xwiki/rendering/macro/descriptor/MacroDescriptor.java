@@ -22,6 +22,7 @@
 import java.util.Map;
 
 import org.xwiki.rendering.macro.MacroId;
+import org.xwiki.stability.Unstable;
 
 /**
  * Describe a Macro (macro description and macro parameters description).
@@ -81,4 +82,19 @@
      * @since 2.0M3
      */
     String getDefaultCategory();
+
+    /**
+     * An isolated macro only reads its parameters, its content and the {@link
+     * org.xwiki.rendering.transformation.MacroTransformationContext} it receives: it doesn't look at or modify the rest
+     * of the XDOM and doesn't depend on the execution of other macros. Such macros can be executed concurrently by the
+     * macro transformation.
+     *
+     * @return true if the macro is isolated, false otherwise
+     * @since 10.4RC1
+     */
+    @Unstable
+    default boolean isIsolated()
+    {
+        return false;
+    }
 }
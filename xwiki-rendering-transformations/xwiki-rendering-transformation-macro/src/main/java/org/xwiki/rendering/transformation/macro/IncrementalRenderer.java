@@ -0,0 +1,63 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.transformation.macro;
+
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationException;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Execute the macros of successive versions of the same document and render them, reusing the result of the previous
+ * calls for the top-level blocks which did not change.
+ * <p>
+ * A top-level block is reused when it's structurally identical to a top-level block of the previous version and all
+ * the macros it contains are isolated (see {@link org.xwiki.rendering.macro.descriptor.MacroDescriptor#isIsolated()}).
+ * The other blocks are transformed again, with the complete {@link XDOM} as context so that global macros (table of
+ * contents, footnotes, etc.) see the whole document, and the identifiers used by the reused blocks are reserved in the
+ * {@link org.xwiki.rendering.util.IdGenerator} of the new {@link XDOM}. The cached output of a top-level block is
+ * printed again when the block and its previous sibling are both reused.
+ * <p>
+ * Only the macro transformation is executed. Non isolated macros are expected to only modify the blocks they generate
+ * and the blocks generated by other non isolated macros (which is the case of the footnote macros).
+ * <p>
+ * An incremental renderer keeps the state of the previous call so a different instance should be used for each
+ * document. It's not thread safe.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public interface IncrementalRenderer
+{
+    /**
+     * Execute the macros of the passed document and render it.
+     * <p>
+     * The passed {@link XDOM} is modified: its unchanged top-level blocks are replaced by the transformed blocks of the
+     * previous call and the other blocks are transformed.
+     *
+     * @param xdom the new version of the document, as returned by the parser
+     * @param context the context of the macro transformation
+     * @param printer the printer to print the result to
+     * @throws TransformationException when the macro transformation fails
+     */
+    void render(XDOM xdom, TransformationContext context, WikiPrinter printer) throws TransformationException;
+}
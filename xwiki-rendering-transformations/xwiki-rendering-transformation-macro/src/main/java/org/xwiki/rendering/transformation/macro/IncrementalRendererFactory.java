@@ -0,0 +1,55 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.transformation.macro;
+
+import org.xwiki.component.annotation.Role;
+import org.xwiki.component.manager.ComponentLookupException;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Create {@link IncrementalRenderer}s.
+ * <p>
+ * The output is identical to the output of the complete transformation and rendering of the document as long as the
+ * state of the {@link org.xwiki.rendering.renderer.PrintRenderer} at the start of a top-level block only depends on the
+ * previous sibling (see {@link org.xwiki.rendering.renderer.ParallelBlockRendererFactory}) and the rendering of a block
+ * does not depend on anything else than the block itself.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Role
+@Unstable
+public interface IncrementalRendererFactory
+{
+    /**
+     * @param hint the hint of the {@link PrintRendererFactory} component to use (usually the syntax id, e.g.
+     *            "xhtml/1.0")
+     * @return a new incremental renderer
+     * @throws ComponentLookupException when no print renderer factory can be found for the passed hint
+     */
+    IncrementalRenderer createRenderer(String hint) throws ComponentLookupException;
+
+    /**
+     * @param printRendererFactory the factory used to create the renderers
+     * @return a new incremental renderer
+     */
+    IncrementalRenderer createRenderer(PrintRendererFactory printRendererFactory);
+}
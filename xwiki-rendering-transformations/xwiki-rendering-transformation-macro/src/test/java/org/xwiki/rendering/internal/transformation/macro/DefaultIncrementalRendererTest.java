@@ -0,0 +1,146 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.macro;
+
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.internal.transformation.MutableRenderingContext;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.RenderingContext;
+import org.xwiki.rendering.transformation.Transformation;
+import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.macro.IncrementalRenderer;
+import org.xwiki.rendering.transformation.macro.IncrementalRendererFactory;
+import org.xwiki.test.ComponentManagerRule;
+import org.xwiki.test.annotation.AllComponents;
+
+/**
+ * Unit tests for {@link DefaultIncrementalRenderer}.
+ *
+ * @version $Id$
+ */
+@AllComponents
+public class DefaultIncrementalRendererTest
+{
+    @Rule
+    public final ComponentManagerRule componentManager = new ComponentManagerRule();
+
+    private Parser parser;
+
+    private IncrementalRenderer incrementalRenderer;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        this.parser = this.componentManager.getInstance(Parser.class, Syntax.XWIKI_2_1.toIdString());
+        this.incrementalRenderer = this.componentManager.<IncrementalRendererFactory>getInstance(
+            IncrementalRendererFactory.class).createRenderer(Syntax.EVENT_1_0.toIdString());
+    }
+
+    @Test
+    public void renderSameDocument() throws Exception
+    {
+        String source = "= title =\n\n{{testisolatedmacro}}isolated{{/testisolatedmacro}}\n\nparagraph";
+
+        XDOM first = assertRendering(source);
+        XDOM second = assertRendering(source);
+
+        Assert.assertEquals(first.getChildren(), second.getChildren());
+        for (int i = 0; i < first.getChildren().size(); ++i) {
+            Assert.assertSame(first.getChildren().get(i), second.getChildren().get(i));
+        }
+    }
+
+    @Test
+    public void reuseUnchangedBlocksWithIsolatedMacros() throws Exception
+    {
+        XDOM first = assertRendering(
+            "{{testisolatedmacro}}isolated{{/testisolatedmacro}}\n\nfirst paragraph\n\n{{testsimplemacro/}}");
+        XDOM second = assertRendering(
+            "{{testisolatedmacro}}isolated{{/testisolatedmacro}}\n\nsecond longer paragraph\n\n{{testsimplemacro/}}");
+
+        // The isolated macro is not executed again
+        Assert.assertSame(first.getChildren().get(0), second.getChildren().get(0));
+        // The simple macro counts the words of the whole document so it's executed again
+        Assert.assertNotSame(first.getChildren().get(2), second.getChildren().get(2));
+    }
+
+    @Test
+    public void executeAgainNonIsolatedMacros() throws Exception
+    {
+        XDOM first = assertRendering("{{testappendingmacro/}}\n\nfirst paragraph");
+        XDOM second = assertRendering("{{testappendingmacro/}}\n\nsecond paragraph");
+        assertRendering("{{testappendingmacro/}}\n\nsecond paragraph");
+
+        Assert.assertNotSame(first.getChildren().get(0), second.getChildren().get(0));
+    }
+
+    @Test
+    public void renderBlocksEqualExceptForTheirClasses() throws Exception
+    {
+        // A space block is equal to a new line block
+        assertRendering("first second");
+        assertRendering("first\nsecond");
+    }
+
+    @Test
+    public void renderDocumentWithGeneratedHeaderIds() throws Exception
+    {
+        assertRendering("= title =\n\nfirst\n\n= title =\n\nsecond");
+        // Edit one paragraph
+        assertRendering("= title =\n\nfirst edited\n\n= title =\n\nsecond");
+        // Insert a header with the same title before the reused ones
+        assertRendering("= title =\n\nnew\n\n= title =\n\nfirst edited\n\n= title =\n\nsecond");
+    }
+
+    private XDOM assertRendering(String source) throws Exception
+    {
+        XDOM xdom = this.parser.parse(new StringReader(source));
+        WikiPrinter printer = new DefaultWikiPrinter();
+        this.incrementalRenderer.render(xdom, new TransformationContext(xdom, Syntax.XWIKI_2_1), printer);
+
+        Assert.assertEquals(renderCompletely(source), printer.toString());
+
+        return xdom;
+    }
+
+    private String renderCompletely(String source) throws Exception
+    {
+        XDOM xdom = this.parser.parse(new StringReader(source));
+        MutableRenderingContext renderingContext = this.componentManager.getInstance(RenderingContext.class);
+        renderingContext.transformInContext(this.componentManager.<Transformation>getInstance(Transformation.class,
+            "macro"), new TransformationContext(xdom, Syntax.XWIKI_2_1), xdom);
+
+        WikiPrinter printer = new DefaultWikiPrinter();
+        this.componentManager.<BlockRenderer>getInstance(BlockRenderer.class, Syntax.EVENT_1_0.toIdString())
+            .render(xdom, printer);
+
+        return printer.toString();
+    }
+}
@@ -23,19 +23,28 @@
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
 import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.Block.Axes;
 import org.xwiki.rendering.block.MacroBlock;
+import org.xwiki.rendering.block.MacroMarkerBlock;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.block.match.ClassBlockMatcher;
+import org.xwiki.rendering.internal.transformation.MutableRenderingContext;
 import org.xwiki.rendering.renderer.BlockRenderer;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.rendering.transformation.RenderingContext;
 import org.xwiki.rendering.transformation.Transformation;
 import org.xwiki.rendering.transformation.TransformationContext;
 import org.xwiki.test.ComponentManagerRule;
@@ -79,6 +88,9 @@ public void transformSimpleMacro() throws Exception
 
         this.transformation.transform(dom, new TransformationContext(dom, Syntax.XWIKI_2_0));
 
+        // The document is only indexed while the macros are executed
+        Assert.assertNull(dom.getIndex());
+
         WikiPrinter printer = new DefaultWikiPrinter();
         BlockRenderer eventBlockRenderer =
             this.componentManager.getInstance(BlockRenderer.class, Syntax.EVENT_1_0.toIdString());
@@ -267,6 +279,102 @@ public void macroWithSamePriorityExecuteOnPageOrder() throws Exception
         Assert.assertEquals(expected, printer.toString());
     }
 
+    /**
+     * Test that the macros generated by a macro are executed before the following macros with the same priority.
+     */
+    @Test
+    public void transformGeneratedMacroBeforeFollowingMacroWithSamePriority() throws Exception
+    {
+        XDOM dom = new XDOM(Arrays.<Block>asList(
+            new MacroBlock("testnestedmacro", Collections.<String, String>emptyMap(), false),
+            new MacroBlock("testsimplemacro", Collections.<String, String>emptyMap(), false)));
+
+        this.transformation.transform(dom, new TransformationContext(dom, Syntax.XWIKI_2_0));
+
+        WikiPrinter printer = new DefaultWikiPrinter();
+        BlockRenderer eventBlockRenderer =
+            this.componentManager.getInstance(BlockRenderer.class, Syntax.EVENT_1_0.toIdString());
+        eventBlockRenderer.render(dom, printer);
+
+        String expected = "beginDocument\n"
+            + "beginMacroMarkerStandalone [testnestedmacro] []\n"
+            + "beginMacroMarkerStandalone [testsimplemacro] []\n"
+            + "beginParagraph\n"
+            + "onWord [simplemacro0]\n"
+            + "endParagraph\n"
+            + "endMacroMarkerStandalone [testsimplemacro] []\n"
+            + "endMacroMarkerStandalone [testnestedmacro] []\n"
+            + "beginMacroMarkerStandalone [testsimplemacro] []\n"
+            + "beginParagraph\n"
+            + "onWord [simplemacro1]\n"
+            + "endParagraph\n"
+            + "endMacroMarkerStandalone [testsimplemacro] []\n"
+            + "endDocument";
+        Assert.assertEquals(expected, printer.toString());
+    }
+
+    /**
+     * Test that a macro added by another macro outside of the blocks it generates is executed too.
+     */
+    @Test
+    public void transformMacroAddedOutsideOfMacroResult() throws Exception
+    {
+        XDOM dom = new XDOM(Arrays.<Block>asList(
+            new MacroBlock("testappendingmacro", Collections.<String, String>emptyMap(), false)));
+
+        this.transformation.transform(dom, new TransformationContext(dom, Syntax.XWIKI_2_0));
+
+        WikiPrinter printer = new DefaultWikiPrinter();
+        BlockRenderer eventBlockRenderer =
+            this.componentManager.getInstance(BlockRenderer.class, Syntax.EVENT_1_0.toIdString());
+        eventBlockRenderer.render(dom, printer);
+
+        String expected = "beginDocument\n"
+            + "beginMacroMarkerStandalone [testappendingmacro] []\n"
+            + "onWord [appending]\n"
+            + "endMacroMarkerStandalone [testappendingmacro] []\n"
+            + "beginMacroMarkerStandalone [testsimplemacro] []\n"
+            + "beginParagraph\n"
+            + "onWord [simplemacro1]\n"
+            + "endParagraph\n"
+            + "endMacroMarkerStandalone [testsimplemacro] []\n"
+            + "endDocument";
+        Assert.assertEquals(expected, printer.toString());
+    }
+
+    @Test
+    public void transformHigherPriorityMacroAddedOutsideOfMacroResult() throws Exception
+    {
+        // The appended priority macro must be executed before the simple macro, which counts the words of the document
+        XDOM dom = new XDOM(Arrays.<Block>asList(
+            new MacroBlock("testappendingmacro", Collections.<String, String>emptyMap(), "testprioritymacro", false),
+            new MacroBlock("testsimplemacro", Collections.<String, String>emptyMap(), false)));
+
+        this.transformation.transform(dom, new TransformationContext(dom, Syntax.XWIKI_2_0));
+
+        WikiPrinter printer = new DefaultWikiPrinter();
+        BlockRenderer eventBlockRenderer =
+            this.componentManager.getInstance(BlockRenderer.class, Syntax.EVENT_1_0.toIdString());
+        eventBlockRenderer.render(dom, printer);
+
+        String expected = "beginDocument\n"
+            + "beginMacroMarkerStandalone [testappendingmacro] [] [testprioritymacro]\n"
+            + "onWord [appending]\n"
+            + "endMacroMarkerStandalone [testappendingmacro] [] [testprioritymacro]\n"
+            + "beginMacroMarkerStandalone [testsimplemacro] []\n"
+            + "beginParagraph\n"
+            + "onWord [simplemacro2]\n"
+            + "endParagraph\n"
+            + "endMacroMarkerStandalone [testsimplemacro] []\n"
+            + "beginMacroMarkerStandalone [testprioritymacro] []\n"
+            + "beginParagraph\n"
+            + "onWord [word]\n"
+            + "endParagraph\n"
+            + "endMacroMarkerStandalone [testprioritymacro] []\n"
+            + "endDocument";
+        Assert.assertEquals(expected, printer.toString());
+    }
+
     /**
      * Test that a not existing macro generate an error in the XDOM.
      */
@@ -296,4 +404,79 @@ public void transformNotExistingMacro() throws Exception
         eventBlockRenderer.render(dom, printer);
         Assert.assertEquals(expected, printer.toString());
     }
+
+    /**
+     * Test that isolated macros executed concurrently are replaced in document order.
+     */
+    @Test
+    public void transformIsolatedMacrosConcurrently() throws Exception
+    {
+        // Required to track the current block
+        Execution execution = this.componentManager.getInstance(Execution.class);
+        execution.setContext(new ExecutionContext());
+
+        List<Block> blocks = new ArrayList<>();
+        StringBuilder expected = new StringBuilder("beginDocument\n");
+        for (int i = 0; i < 20; ++i) {
+            blocks.add(new MacroBlock("testisolatedmacro", Collections.<String, String>emptyMap(), "word" + i, false));
+            expected.append("beginMacroMarkerStandalone [testisolatedmacro] [] [word" + i + "]\n");
+            expected.append("beginParagraph\n");
+            expected.append("onWord [word" + i + "]\n");
+            expected.append("endParagraph\n");
+            expected.append("endMacroMarkerStandalone [testisolatedmacro] [] [word" + i + "]\n");
+        }
+        expected.append("endDocument");
+        XDOM dom = new XDOM(blocks);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            TransformationContext context = new TransformationContext(dom, Syntax.XWIKI_2_0);
+            context.setExecutor(executor);
+            MutableRenderingContext renderingContext = this.componentManager.getInstance(RenderingContext.class);
+            renderingContext.transformInContext(this.transformation, context, dom);
+        } finally {
+            executor.shutdown();
+        }
+
+        WikiPrinter printer = new DefaultWikiPrinter();
+        BlockRenderer eventBlockRenderer =
+            this.componentManager.getInstance(BlockRenderer.class, Syntax.EVENT_1_0.toIdString());
+        eventBlockRenderer.render(dom, printer);
+        Assert.assertEquals(expected.toString(), printer.toString());
+    }
+
+    /**
+     * Test that a batch of isolated macros executed concurrently doesn't go past the maximum number of recursions.
+     */
+    @Test
+    public void transformIsolatedMacrosConcurrentlyWithMaxRecursions() throws Exception
+    {
+        // Required to track the current block
+        Execution execution = this.componentManager.getInstance(Execution.class);
+        execution.setContext(new ExecutionContext());
+
+        // Macros generated by another macro count as recursions
+        List<Block> blocks = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            blocks.add(new MacroBlock("testisolatedmacro", Collections.<String, String>emptyMap(), "word" + i, false));
+        }
+        XDOM dom = new XDOM(Arrays.<Block>asList(
+            new MacroMarkerBlock("testcontentmacro", Collections.<String, String>emptyMap(), blocks, false)));
+
+        this.transformation.setMaxRecursions(4);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            TransformationContext context = new TransformationContext(dom, Syntax.XWIKI_2_0);
+            context.setExecutor(executor);
+            MutableRenderingContext renderingContext = this.componentManager.getInstance(RenderingContext.class);
+            renderingContext.transformInContext(this.transformation, context, dom);
+        } finally {
+            executor.shutdown();
+        }
+
+        // The parent macro marker and the 4 executed macros
+        Assert.assertEquals(5, dom.getBlocks(new ClassBlockMatcher(MacroMarkerBlock.class), Axes.DESCENDANT).size());
+        Assert.assertEquals(6, dom.getBlocks(new ClassBlockMatcher(MacroBlock.class), Axes.DESCENDANT).size());
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.transformation.wikiword;
+
+import java.util.Map;
+
+import org.xwiki.rendering.listener.Listener;
+import org.xwiki.rendering.listener.chaining.AbstractChainingListener;
+import org.xwiki.rendering.listener.chaining.ChainingListener;
+import org.xwiki.rendering.listener.chaining.ListenerChain;
+import org.xwiki.rendering.listener.reference.DocumentResourceReference;
+import org.xwiki.rendering.listener.reference.ResourceReference;
+
+/**
+ * Replace words representing Wiki Words with a link while the events are streamed, outside of protected content (code
+ * macro markers).
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class WikiWordChainingListener extends AbstractChainingListener
+{
+    private static final String PROTECTED_MACRO = "code";
+
+    /**
+     * The number of protected macro markers the current event is located in.
+     */
+    private int protectedDepth;
+
+    /**
+     * @param listenerChain the chain this listener is part of
+     */
+    public WikiWordChainingListener(ListenerChain listenerChain)
+    {
+        setListenerChain(listenerChain);
+    }
+
+    @Override
+    public void beginMacroMarker(String name, Map<String, String> parameters, String content, boolean isInline)
+    {
+        if (PROTECTED_MACRO.equals(name)) {
+            ++this.protectedDepth;
+        }
+
+        super.beginMacroMarker(name, parameters, content, isInline);
+    }
+
+    @Override
+    public void endMacroMarker(String name, Map<String, String> parameters, String content, boolean isInline)
+    {
+        super.endMacroMarker(name, parameters, content, isInline);
+
+        if (PROTECTED_MACRO.equals(name)) {
+            --this.protectedDepth;
+        }
+    }
+
+    @Override
+    public void onWord(String word)
+    {
+        if (this.protectedDepth == 0 && WikiWordTransformation.WIKIWORD_PATTERN.matcher(word).matches()) {
+            ChainingListener next = getListenerChain().getNextListener(getClass());
+            if (next != null) {
+                ResourceReference linkReference = new DocumentResourceReference(word);
+                next.beginLink(linkReference, false, Listener.EMPTY_PARAMETERS);
+                next.endLink(linkReference, false, Listener.EMPTY_PARAMETERS);
+            }
+        } else {
+            super.onWord(word);
+        }
+    }
+}
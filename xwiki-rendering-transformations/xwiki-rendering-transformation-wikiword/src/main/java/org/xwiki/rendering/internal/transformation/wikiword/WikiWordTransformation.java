@@ -30,14 +30,18 @@
 import org.xwiki.rendering.block.LinkBlock;
 import org.xwiki.rendering.block.WordBlock;
 import org.xwiki.rendering.internal.block.ProtectedBlockFilter;
+import org.xwiki.rendering.listener.chaining.ChainingListener;
+import org.xwiki.rendering.listener.chaining.ListenerChain;
 import org.xwiki.rendering.listener.reference.DocumentResourceReference;
 import org.xwiki.rendering.listener.reference.ResourceReference;
 import org.xwiki.rendering.transformation.AbstractTransformation;
+import org.xwiki.rendering.transformation.StreamingTransformation;
 import org.xwiki.rendering.transformation.TransformationContext;
 import org.xwiki.rendering.transformation.TransformationException;
 
 /**
- * Automatically replace words representing Wiki Words with a link.
+ * Automatically replace words representing Wiki Words with a link. Can also be executed while the content is parsed,
+ * see {@link WikiWordChainingListener}.
  *
  * @version $Id$
  * @since 2.6RC1
@@ -45,12 +49,12 @@
 @Component
 @Named("wikiword")
 @Singleton
-public class WikiWordTransformation extends AbstractTransformation
+public class WikiWordTransformation extends AbstractTransformation implements StreamingTransformation
 {
     /**
      * Regex Pattern to recognize a WikiWord.
      */
-    private static final Pattern WIKIWORD_PATTERN = Pattern.compile(
+    static final Pattern WIKIWORD_PATTERN = Pattern.compile(
         "\\p{javaUpperCase}+\\p{javaLowerCase}+(\\p{javaUpperCase}\\p{javaLowerCase}*)+");
 
     /**
@@ -71,4 +75,10 @@ public void transform(Block block, TransformationContext transformationContext)
             }
         }
     }
+
+    @Override
+    public ChainingListener createChainingListener(ListenerChain listenerChain, TransformationContext context)
+    {
+        return new WikiWordChainingListener(listenerChain);
+    }
 }
@@ -31,13 +31,20 @@
 import org.xwiki.rendering.block.MacroMarkerBlock;
 import org.xwiki.rendering.block.WordBlock;
 import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.configuration.RenderingConfiguration;
+import org.xwiki.rendering.internal.configuration.DefaultRenderingConfiguration;
+import org.xwiki.rendering.listener.Listener;
 import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.parser.StreamParser;
 import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.PrintRenderer;
+import org.xwiki.rendering.renderer.PrintRendererFactory;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
 import org.xwiki.rendering.renderer.printer.WikiPrinter;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.transformation.Transformation;
 import org.xwiki.rendering.transformation.TransformationContext;
+import org.xwiki.rendering.transformation.TransformationManager;
 import org.xwiki.test.ComponentManagerRule;
 import org.xwiki.test.annotation.AllComponents;
 
@@ -102,4 +109,57 @@ public void testWikiWordTransformationIgnoresProtectedContent() throws Exception
         eventBlockRenderer.render(xdom, printer);
         Assert.assertEquals(expected, printer.toString());
     }
+
+    @Test
+    public void testStreamingWikiWordTransformation() throws Exception
+    {
+        String testInput = "This is a WikiWord, Another\u00D9ne, XWikiEnterprise, not one: XWiki";
+
+        WikiPrinter printer = new DefaultWikiPrinter();
+        StreamParser parser = this.componentManager.getInstance(StreamParser.class, "xwiki/2.1");
+        parser.parse(new StringReader(testInput), createStreamingListener(Syntax.XWIKI_2_1, printer));
+        Assert.assertEquals("This is a [[doc:WikiWord]], [[doc:Another\u00D9ne]], [[doc:XWikiEnterprise]], "
+            + "not one: XWiki", printer.toString());
+    }
+
+    @Test
+    public void testStreamingWikiWordTransformationIgnoresProtectedContent() throws Exception
+    {
+        String expected = "beginDocument\n"
+            + "beginMacroMarkerStandalone [code] []\n"
+            + "onWord [WikiWord]\n"
+            + "endMacroMarkerStandalone [code] []\n"
+            + "beginMacroMarkerStandalone [other] []\n"
+            + "beginLink [Typed = [true] Type = [doc] Reference = [WikiWord]] [false]\n"
+            + "endLink [Typed = [true] Type = [doc] Reference = [WikiWord]] [false]\n"
+            + "endMacroMarkerStandalone [other] []\n"
+            + "endDocument";
+
+        XDOM xdom = new XDOM(Arrays.asList(
+            (Block) new MacroMarkerBlock("code", Collections.<String, String>emptyMap(),
+                Arrays.asList((Block) new WordBlock("WikiWord")), false),
+            new MacroMarkerBlock("other", Collections.<String, String>emptyMap(),
+                Arrays.asList((Block) new WordBlock("WikiWord")), false)));
+
+        WikiPrinter printer = new DefaultWikiPrinter();
+        xdom.traverse(createStreamingListener(Syntax.EVENT_1_0, printer));
+        Assert.assertEquals(expected, printer.toString());
+    }
+
+    private Listener createStreamingListener(Syntax targetSyntax, WikiPrinter printer) throws Exception
+    {
+        DefaultRenderingConfiguration configuration =
+            this.componentManager.getInstance(RenderingConfiguration.class);
+        configuration.setTransformationNames(Arrays.asList("wikiword"));
+
+        PrintRendererFactory rendererFactory =
+            this.componentManager.getInstance(PrintRendererFactory.class, targetSyntax.toIdString());
+        PrintRenderer renderer = rendererFactory.createRenderer(printer);
+
+        TransformationManager transformationManager = this.componentManager.getInstance(TransformationManager.class);
+        TransformationContext context = new TransformationContext();
+        context.setTargetSyntax(targetSyntax);
+
+        return transformationManager.createStreamingListener(renderer, context);
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.wikimodel;
+
+import java.io.Reader;
+
+/**
+ * A parser able to parse inline content (like a link label) without the content being recognized as block syntax.
+ * Implementations may reuse the same scanner for successive calls so they are not thread safe.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public interface IWikiInlineParser extends IWikiParser
+{
+    /**
+     * @param reader the inline content to parse
+     * @param listener the listener receiving the parsed events
+     * @throws WikiParserException when failing to parse the content
+     */
+    void parseInline(Reader reader, IWemListener listener) throws WikiParserException;
+}
@@ -24,6 +24,7 @@
 import org.xwiki.rendering.wikimodel.IWemListener;
 import org.xwiki.rendering.wikimodel.IWikiParser;
 import org.xwiki.rendering.wikimodel.WikiParserException;
+import org.xwiki.rendering.wikimodel.impl.WikiScannerCache;
 import org.xwiki.rendering.wikimodel.impl.WikiScannerContext;
 import org.xwiki.rendering.wikimodel.internal.creole.javacc.CreoleWikiScanner;
 import org.xwiki.rendering.wikimodel.internal.creole.javacc.ParseException;
@@ -34,6 +35,11 @@
  */
 public class CreoleWikiParser implements IWikiParser
 {
+    /**
+     * The scanners reused by the successive parsings on each thread.
+     */
+    private static final WikiScannerCache<CreoleWikiScanner> SCANNERS = new WikiScannerCache<CreoleWikiScanner>();
+
     /**
      *
      */
@@ -49,12 +55,20 @@ public CreoleWikiParser()
     public void parse(Reader reader, IWemListener listener)
         throws WikiParserException
     {
+        CreoleWikiScanner scanner = SCANNERS.take();
+        if (scanner == null) {
+            scanner = new CreoleWikiScanner(reader);
+        } else {
+            scanner.ReInit(reader);
+        }
         try {
-            CreoleWikiScanner scanner = new CreoleWikiScanner(reader);
             WikiScannerContext context = new WikiScannerContext(listener);
             scanner.parse(context);
         } catch (ParseException e) {
             throw new WikiParserException(e);
+        } finally {
+            scanner.release();
+            SCANNERS.release(scanner);
         }
     }
 }
@@ -24,6 +24,7 @@
 import org.xwiki.rendering.wikimodel.IWemListener;
 import org.xwiki.rendering.wikimodel.IWikiParser;
 import org.xwiki.rendering.wikimodel.WikiParserException;
+import org.xwiki.rendering.wikimodel.impl.WikiScannerCache;
 import org.xwiki.rendering.wikimodel.impl.WikiScannerContext;
 import org.xwiki.rendering.wikimodel.internal.gwiki.javacc.GWikiScanner;
 import org.xwiki.rendering.wikimodel.internal.gwiki.javacc.ParseException;
@@ -34,6 +35,11 @@
  */
 public class GWikiParser implements IWikiParser
 {
+    /**
+     * The scanners reused by the successive parsings on each thread.
+     */
+    private static final WikiScannerCache<GWikiScanner> SCANNERS = new WikiScannerCache<GWikiScanner>();
+
     /**
      *
      */
@@ -49,12 +55,20 @@ public GWikiParser()
     public void parse(Reader reader, IWemListener listener)
         throws WikiParserException
     {
+        GWikiScanner scanner = SCANNERS.take();
+        if (scanner == null) {
+            scanner = new GWikiScanner(reader);
+        } else {
+            scanner.ReInit(reader);
+        }
         try {
-            GWikiScanner scanner = new GWikiScanner(reader);
             WikiScannerContext context = new WikiScannerContext(listener);
             scanner.parse(context);
         } catch (ParseException e) {
             throw new WikiParserException(e);
+        } finally {
+            scanner.release();
+            SCANNERS.release(scanner);
         }
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.wikimodel.impl;
+
+/**
+ * Keep one scanner (or any other reusable parsing object, like a XML reader) per thread so that parsing many small
+ * contents (macro contents, table cells, etc.) isn't dominated by the allocation of the buffers of a new scanner each
+ * time. A scanner is removed from the cache while it's used: a parsing started on the same thread during another
+ * parsing (for example from a listener) gets {@code null} from {@link #take()} and creates its own scanner.
+ *
+ * @param <S> the type of the cached scanners
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class WikiScannerCache<S>
+{
+    private final ThreadLocal<S> scanners = new ThreadLocal<S>();
+
+    /**
+     * @return the scanner cached for the current thread, {@code null} if there is none
+     */
+    public S take()
+    {
+        S scanner = this.scanners.get();
+        if (scanner != null) {
+            this.scanners.set(null);
+        }
+
+        return scanner;
+    }
+
+    /**
+     * @param scanner the scanner to cache for the current thread, once it doesn't reference the last parsed content
+     *            anymore
+     */
+    public void release(S scanner)
+    {
+        this.scanners.set(scanner);
+    }
+}
@@ -24,6 +24,7 @@
 import org.xwiki.rendering.wikimodel.IWemListener;
 import org.xwiki.rendering.wikimodel.IWikiParser;
 import org.xwiki.rendering.wikimodel.WikiParserException;
+import org.xwiki.rendering.wikimodel.impl.WikiScannerCache;
 import org.xwiki.rendering.wikimodel.impl.WikiScannerContext;
 import org.xwiki.rendering.wikimodel.internal.jspwiki.javacc.JspWikiScanner;
 import org.xwiki.rendering.wikimodel.internal.jspwiki.javacc.ParseException;
@@ -34,6 +35,11 @@
  */
 public class JspWikiParser implements IWikiParser
 {
+    /**
+     * The scanners reused by the successive parsings on each thread.
+     */
+    private static final WikiScannerCache<JspWikiScanner> SCANNERS = new WikiScannerCache<JspWikiScanner>();
+
     /**
      *
      */
@@ -49,12 +55,20 @@ public JspWikiParser()
     public void parse(Reader reader, IWemListener listener)
         throws WikiParserException
     {
+        JspWikiScanner scanner = SCANNERS.take();
+        if (scanner == null) {
+            scanner = new JspWikiScanner(reader);
+        } else {
+            scanner.ReInit(reader);
+        }
         try {
-            JspWikiScanner scanner = new JspWikiScanner(reader);
             WikiScannerContext context = new WikiScannerContext(listener);
             scanner.parse(context);
         } catch (ParseException e) {
             throw new WikiParserException(e);
+        } finally {
+            scanner.release();
+            SCANNERS.release(scanner);
         }
     }
 }
@@ -38,6 +38,7 @@
 import org.xwiki.rendering.wikimodel.xhtml.filter.XHTMLWhitespaceXMLFilter;
 import org.xwiki.rendering.wikimodel.xhtml.handler.CommentHandler;
 import org.xwiki.rendering.wikimodel.xhtml.handler.TagHandler;
+import org.xwiki.rendering.wikimodel.xhtml.impl.TagStack;
 import org.xwiki.rendering.wikimodel.xhtml.impl.XhtmlHandler;
 import org.xwiki.xml.internal.LocalEntityResolver;
 
@@ -47,7 +48,10 @@
  */
 public class XhtmlParser implements IWikiParser
 {
-    private Map<String, TagHandler> fExtraHandlers;
+    /**
+     * All the tag handlers, the default ones included.
+     */
+    private Map<String, TagHandler> fHandlers;
 
     private CommentHandler fCommentHandler;
 
@@ -61,7 +65,8 @@ public class XhtmlParser implements IWikiParser
 
     public XhtmlParser()
     {
-        fExtraHandlers = Collections.<String, TagHandler>emptyMap();
+        fHandlers = XhtmlHandler.createHandlers(
+            Collections.<String, TagHandler>emptyMap());
         fCommentHandler = new CommentHandler();
     }
 
@@ -77,7 +82,21 @@ public void setNamespacesEnabled(boolean namespacesEnabled)
 
     public void setExtraHandlers(Map<String, TagHandler> extraHandlers)
     {
-        fExtraHandlers = extraHandlers;
+        fHandlers = XhtmlHandler.createHandlers(extraHandlers);
+    }
+
+    /**
+     * Same as {@link #setExtraHandlers(Map)} but with a table which already
+     * contains the default handlers, so that it can be created only once for
+     * many parsers.
+     *
+     * @param handlers the tag handlers to use, as returned by
+     * {@link XhtmlHandler#createHandlers(Map)}
+     * @since 10.4RC1
+     */
+    public void setHandlers(Map<String, TagHandler> handlers)
+    {
+        fHandlers = handlers;
     }
 
     public void setCommentHandler(CommentHandler commentHandler)
@@ -101,9 +120,7 @@ public DefaultHandler getHandler(IWemListener listener)
     {
         WikiScannerContext context = new WikiScannerContext(listener);
         XhtmlHandler handler = new XhtmlHandler(
-            context,
-            fExtraHandlers,
-            fCommentHandler);
+            new TagStack(context, fHandlers, fCommentHandler));
         return handler;
     }
 
@@ -113,6 +130,23 @@ public DefaultHandler getHandler(IWemListener listener)
      */
     public void parse(Reader reader, IWemListener listener)
         throws WikiParserException
+    {
+        parse(new InputSource(reader), listener);
+    }
+
+    /**
+     * Same as {@link #parse(Reader, IWemListener)} but with an input source.
+     * It's useful when the XML reader doesn't need any input, like a
+     * {@link org.xwiki.rendering.wikimodel.xhtml.impl.DOMXMLReader}.
+     *
+     * @param source the XML to parse
+     * @param listener the listener object wich will be used to report about
+     * all structural elements on the wiki page
+     * @throws WikiParserException if the XML cannot be parsed
+     * @since 10.4RC1
+     */
+    public void parse(InputSource source, IWemListener listener)
+        throws WikiParserException
     {
         try {
             XMLReader xmlReader = getXMLReader();
@@ -128,7 +162,6 @@ public void parse(Reader reader, IWemListener listener)
                 "http://xml.org/sax/properties/lexical-handler",
                 handler);
 
-            InputSource source = new InputSource(reader);
             xmlReader.parse(source);
         } catch (Exception e) {
             throw new WikiParserException(e);
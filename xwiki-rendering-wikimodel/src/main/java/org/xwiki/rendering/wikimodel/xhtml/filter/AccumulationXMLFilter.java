@@ -47,6 +47,14 @@ public AccumulationXMLFilter(XMLReader reader)
         super(reader);
     }
 
+    @Override
+    public void startDocument() throws SAXException
+    {
+        // The reader may be reused after a parsing which failed
+        fAccumulationBuffer.setLength(0);
+        super.startDocument();
+    }
+
     /**
      * @see org.xml.sax.helpers.DefaultHandler#characters(char[], int, int)
      */
@@ -46,6 +46,14 @@ public DTDXMLFilter(XMLReader reader)
         super(reader);
     }
 
+    @Override
+    public void startDocument() throws SAXException
+    {
+        // The reader may be reused after a parsing which failed inside the DTD
+        fIsInDTD = false;
+        super.startDocument();
+    }
+
     /**
      * @see org.xml.sax.helpers.DefaultHandler#characters(char[], int, int)
      */
@@ -26,8 +26,6 @@
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -49,21 +47,16 @@
  *   <li><b>UC5</b>: Visible empty element like img count as text when grouping white spaces</li>
  *   <li><b>UC6</b>: Semantic comment count as text when grouping white spaces</li>
  * </ul>
+ * The events are streamed: an event is held back only while the fate of a
+ * preceding white space can't be decided yet, i.e. for the inline elements
+ * and comments following a text which ends with a space. The held back
+ * events and their attributes are recycled once sent.
  *
  * @version $Id$
  * @since 4.0M1
  */
 public class XHTMLWhitespaceXMLFilter extends DefaultXMLFilter
 {
-    private static final Pattern HTML_WHITESPACE_DUPLICATES_PATTERN = Pattern
-        .compile("\\s{2,}|[\\t\\n\\x0B\\f\\r]+");
-
-    private static final Pattern HTML_WHITESPACE_HEAD_PATTERN = Pattern
-        .compile("^\\s+");
-
-    private static final Pattern HTML_WHITESPACE_TAIL_PATTERN = Pattern
-        .compile("\\s+$");
-
     private static final Set<String> NONINLINE_ELEMENTS = new HashSet<>(
         Arrays.asList("address", "blockquote", "div", "dl", "dt", "dd",
             "fieldset", "form", "h1", "h2", "h3", "h4", "h5", "h6", "hr",
@@ -82,6 +75,11 @@ public class XHTMLWhitespaceXMLFilter extends DefaultXMLFilter
      */
     private static final Set<String> EMPTYVISIBLE_ELEMENTS = new HashSet<>(Arrays.asList("img"));
 
+    /**
+     * The maximum number of recycled events kept for reuse.
+     */
+    private static final int EVENT_POOL_SIZE = 16;
+
     /**
      * State indicating if the white spaces has to be cleaned. It's an int to support &lt;pre&gt;pre&lt;/pre&gt;
      * inside &lt;tt class=&quot;wikimodel-verbatim&quot;&gt;pre&lt;/tt&gt;.
@@ -94,11 +92,16 @@ public class XHTMLWhitespaceXMLFilter extends DefaultXMLFilter
     private StringBuffer fContent = new StringBuffer();
 
     /**
-     * Bufferized current inline text. It contains only text (and no inline start/end element, comment or CDATA) to be
-     * able know if a leading space has to be removed because the previous text ends with it or if there is no previous
-     * text.
+     * Indicate if some inline text (and no inline start/end element, comment or CDATA) was seen since the last
+     * flush. With {@link #fPreviousInlineTextEndsWithSpace} it's all we need to know about the previous inline text
+     * to decide if a leading space has to be removed, so there's no need to keep the text itself.
      */
-    private StringBuffer fPreviousInlineText = new StringBuffer();
+    private boolean fPreviousInlineText;
+
+    /**
+     * Indicate if the previous inline text ends with a space.
+     */
+    private boolean fPreviousInlineTextEndsWithSpace;
 
     /**
      * The previous content to send. Buffurized waiting to know if its trailing space has to be removed when it's the
@@ -110,9 +113,23 @@ public class XHTMLWhitespaceXMLFilter extends DefaultXMLFilter
      * Previous inline elements. These are the elements before the previous content. It's buffered to support space
      * group cleaning betwen different inline elements.
      */
-    private List<Event> fPreviousElements = new ArrayList<Event>();
+    private final List<Event> fPreviousElements = new ArrayList<Event>();
+
+    /**
+     * The events which have been sent and can be reused.
+     */
+    private final Deque<Event> fEventPool = new ArrayDeque<Event>();
+
+    /**
+     * Indicate for each opened element if its content is preserved, see
+     * {@link #preservedInlineContent(String, Attributes)}.
+     */
+    private final Deque<Boolean> fPreservedElements = new ArrayDeque<Boolean>();
 
-    private Deque<Attributes> fAttributes = new ArrayDeque<Attributes>();
+    /**
+     * Reused to send the content.
+     */
+    private char[] fCharacters = new char[64];
 
     public XHTMLWhitespaceXMLFilter()
     {
@@ -123,6 +140,24 @@ public XHTMLWhitespaceXMLFilter(XMLReader reader)
         super(reader);
     }
 
+    @Override
+    public void startDocument() throws SAXException
+    {
+        // The reader may be reused after a parsing which failed
+        fNoCleanUpLevel = 0;
+        getContent().setLength(0);
+        fPreviousInlineText = false;
+        fPreviousInlineTextEndsWithSpace = false;
+        fPreviousContent = null;
+        for (Event event : fPreviousElements) {
+            releaseEvent(event);
+        }
+        fPreviousElements.clear();
+        fPreservedElements.clear();
+
+        super.startDocument();
+    }
+
     @Override
     public void characters(char[] ch, int start, int length)
         throws SAXException
@@ -134,8 +169,8 @@ public void characters(char[] ch, int start, int length)
     public void startElement(String uri, String localName, String qName,
         Attributes atts) throws SAXException
     {
-        Attributes clonedAtts = new AttributesImpl(atts);
-        fAttributes.push(clonedAtts);
+        boolean preserved = preservedInlineContent(qName, atts);
+        fPreservedElements.push(preserved);
 
         if (NONVISIBLE_ELEMENTS.contains(qName)) {
             startNonVisibleElement();
@@ -159,8 +194,8 @@ public void startElement(String uri, String localName, String qName,
 
                 super.startElement(uri, localName, qName, atts);
             } else {
-                appendInlineEvent(new Event(uri, localName, qName, clonedAtts));
-                if (preservedInlineContent(qName, atts)) {
+                appendInlineEvent(acquireEvent(Event.Type.BEGIN_ELEMENT, uri, localName, qName, atts));
+                if (preserved) {
                     ++fNoCleanUpLevel;
                 }
             }
@@ -171,6 +206,8 @@ public void startElement(String uri, String localName, String qName,
     public void endElement(String uri, String localName, String qName)
         throws SAXException
     {
+        boolean preserved = fPreservedElements.pop();
+
         if (NONVISIBLE_ELEMENTS.contains(qName)) {
             endNonVisibleElement();
 
@@ -193,14 +230,12 @@ public void endElement(String uri, String localName, String qName)
 
                 super.endElement(uri, localName, qName);
             } else {
-                appendInlineEvent(new Event(uri, localName, qName));
-                if (preservedInlineContent(qName, fAttributes.peek())) {
+                appendInlineEvent(acquireEvent(Event.Type.END_ELEMENT, uri, localName, qName, null));
+                if (preserved) {
                     --fNoCleanUpLevel;
                 }
             }
         }
-
-        fAttributes.pop();
     }
 
     private boolean preservedInlineContent(String name, Attributes atts)
@@ -254,7 +289,9 @@ public void comment(char[] ch, int start, int length) throws SAXException
 
                 super.comment(ch, start, length);
             } else {
-                appendInlineEvent(new Event(comment));
+                Event event = acquireEvent(Event.Type.COMMENT, null, null, null, null);
+                event.content = comment;
+                appendInlineEvent(event);
             }
         } else {
             super.comment(ch, start, length);
@@ -283,7 +320,7 @@ protected void sendPreviousContent(boolean trimTrailing)
                 fPreviousContent = trimTrailingWhiteSpaces(fPreviousContent);
             }
 
-            sendCharacters(fPreviousContent.toCharArray());
+            sendCharacters(fPreviousContent);
             fPreviousContent = null;
         }
 
@@ -293,6 +330,9 @@ protected void sendPreviousContent(boolean trimTrailing)
         fPreviousElements.clear();
     }
 
+    /**
+     * Send an inline event and recycle it.
+     */
     private void sendInlineEvent(Event event) throws SAXException
     {
         if (event.type == Event.Type.BEGIN_ELEMENT) {
@@ -304,6 +344,42 @@ private void sendInlineEvent(Event event) throws SAXException
             super.comment(event.content.toCharArray(), 0, event.content
                 .length());
         }
+
+        releaseEvent(event);
+    }
+
+    private Event acquireEvent(Event.Type type, String uri, String localName,
+        String qName, Attributes atts)
+    {
+        Event event = fEventPool.poll();
+        if (event == null) {
+            event = new Event();
+        }
+
+        event.type = type;
+        event.uri = uri;
+        event.localName = localName;
+        event.qName = qName;
+        if (atts != null) {
+            // The attributes have to be copied since the parser is allowed to
+            // reuse them once the event is handled
+            for (int i = 0; i < atts.getLength(); i++) {
+                event.atts.addAttribute(atts.getURI(i), atts.getLocalName(i),
+                    atts.getQName(i), atts.getType(i), atts.getValue(i));
+            }
+        }
+
+        return event;
+    }
+
+    private void releaseEvent(Event event)
+    {
+        event.atts.clear();
+        event.content = null;
+
+        if (fEventPool.size() < EVENT_POOL_SIZE) {
+            fEventPool.push(event);
+        }
     }
 
     /**
@@ -333,12 +409,13 @@ protected void flushContent(boolean trimTrailing) throws SAXException
 
         // Send current content
         if (getContent().length() > 0) {
-            sendCharacters(getContent().toString().toCharArray());
+            sendContent();
             getContent().setLength(0);
         }
 
         // Reinit inline text buffer
-        fPreviousInlineText.setLength(0);
+        fPreviousInlineText = false;
+        fPreviousInlineTextEndsWithSpace = false;
     }
 
     /**
@@ -353,19 +430,19 @@ private void appendInlineEvent(Event event) throws SAXException
         if (getContent().length() > 0) {
             sendPreviousContent(false);
 
-            fPreviousInlineText.append(getContent());
+            appendPreviousInlineText(getContent());
 
             if (getContent().charAt(getContent().length() - 1) == ' ') {
                 fPreviousContent = getContent().toString();
                 fPreviousElements.add(event);
             } else {
-                sendCharacters(getContent().toString().toCharArray());
+                sendContent();
                 sendInlineEvent(event);
             }
 
             getContent().setLength(0);
         } else {
-            if (fPreviousInlineText.length() == 0) {
+            if (!fPreviousInlineText) {
                 // There is no inline text before this inline element
                 sendInlineEvent(event);
             } else {
@@ -375,6 +452,14 @@ private void appendInlineEvent(Event event) throws SAXException
         }
     }
 
+    private void appendPreviousInlineText(CharSequence text)
+    {
+        if (text.length() > 0) {
+            fPreviousInlineText = true;
+            fPreviousInlineTextEndsWithSpace = text.charAt(text.length() - 1) == ' ';
+        }
+    }
+
     protected void startEmptyVisibleElement() throws SAXException
     {
         cleanContentLeadingSpaces();
@@ -384,11 +469,11 @@ protected void startEmptyVisibleElement() throws SAXException
         sendPreviousContent(false);
 
         // Send content
-        sendCharacters(getContent().toString().toCharArray());
-        fPreviousInlineText.append(getContent());
+        sendContent();
 
         // Add visible element as part of the inline text
-        fPreviousInlineText.append("EmptyVisibleElement");
+        fPreviousInlineText = true;
+        fPreviousInlineTextEndsWithSpace = false;
 
         getContent().setLength(0);
     }
@@ -397,7 +482,7 @@ protected void endEmptyVisibleElement() throws SAXException
     {
         // Send current content
         if (getContent().length() > 0) {
-            sendCharacters(getContent().toString().toCharArray());
+            sendContent();
             getContent().setLength(0);
         }
     }
@@ -414,12 +499,12 @@ protected void startNonVisibleElement() throws SAXException
             if (getContent().length() > 0) {
                 sendPreviousContent(false);
 
-                fPreviousInlineText.append(getContent());
+                appendPreviousInlineText(getContent());
 
                 if (getContent().charAt(getContent().length() - 1) == ' ') {
                     fPreviousContent = getContent().toString();
                 } else {
-                    sendCharacters(getContent().toString().toCharArray());
+                    sendContent();
                 }
             }
 
@@ -433,7 +518,7 @@ protected void startNonVisibleElement() throws SAXException
             }
         } else {
             // Send current content
-            sendCharacters(getContent().toString().toCharArray());
+            sendContent();
         }
 
         getContent().setLength(0);
@@ -449,11 +534,32 @@ protected void endNonVisibleElement() throws SAXException
     {
         // Send current content
         if (getContent().length() > 0) {
-            sendCharacters(getContent().toString().toCharArray());
+            sendContent();
             getContent().setLength(0);
         }
     }
 
+    /**
+     * Send the current content without copying it to a new array each time.
+     */
+    private void sendContent() throws SAXException
+    {
+        sendCharacters(getContent());
+    }
+
+    private void sendCharacters(CharSequence characters) throws SAXException
+    {
+        int length = characters.length();
+        if (length > fCharacters.length) {
+            fCharacters = new char[Math.max(length, fCharacters.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            fCharacters[i] = characters.charAt(i);
+        }
+
+        sendCharacters(fCharacters, 0, length);
+    }
+
     protected void sendCharacters(char ch[]) throws SAXException
     {
         sendCharacters(ch, 0, ch.length);
@@ -477,10 +583,7 @@ protected void sendCharacters(char ch[], int start, int length)
     private void cleanContentLeadingSpaces()
     {
         if (getContent().length() > 0) {
-            if (fPreviousInlineText.length() == 0
-                || fPreviousInlineText
-                .charAt(fPreviousInlineText.length() - 1) == ' ')
-            {
+            if (!fPreviousInlineText || fPreviousInlineTextEndsWithSpace) {
                 trimLeadingWhiteSpaces();
             }
         }
@@ -493,11 +596,24 @@ protected void cleanContentExtraWhiteSpaces()
     {
         if (getContent().length() > 0) {
             if (shouldRemoveWhiteSpaces()) {
-                Matcher matcher = HTML_WHITESPACE_DUPLICATES_PATTERN
-                    .matcher(getContent());
-                String result = matcher.replaceAll(" ");
-                getContent().setLength(0);
-                getContent().append(result);
+                StringBuffer content = getContent();
+
+                // Replace each group of white spaces by a single space, in place
+                int length = 0;
+                boolean inGroup = false;
+                for (int i = 0; i < content.length(); i++) {
+                    char c = content.charAt(i);
+                    if (isWhiteSpace(c)) {
+                        if (!inGroup) {
+                            content.setCharAt(length++, ' ');
+                            inGroup = true;
+                        }
+                    } else {
+                        content.setCharAt(length++, c);
+                        inGroup = false;
+                    }
+                }
+                content.setLength(length);
             }
         }
     }
@@ -507,9 +623,7 @@ protected void cleanContentExtraWhiteSpaces()
     protected void trimLeadingWhiteSpaces()
     {
         if (shouldRemoveWhiteSpaces() && getContent().length() > 0) {
-            String result = trimLeadingWhiteSpaces(getContent());
-            getContent().setLength(0);
-            getContent().append(result);
+            getContent().delete(0, getLeadingWhiteSpacesEnd(getContent()));
         }
     }
 
@@ -518,8 +632,8 @@ protected String trimLeadingWhiteSpaces(CharSequence content)
         String trimedContent;
 
         if (shouldRemoveWhiteSpaces() && content.length() > 0) {
-            Matcher matcher = HTML_WHITESPACE_HEAD_PATTERN.matcher(content);
-            trimedContent = matcher.replaceAll("");
+            trimedContent = content.subSequence(
+                getLeadingWhiteSpacesEnd(content), content.length()).toString();
         } else {
             trimedContent = content.toString();
         }
@@ -530,9 +644,9 @@ protected String trimLeadingWhiteSpaces(CharSequence content)
     protected void trimTrailingWhiteSpaces()
     {
         if (shouldRemoveWhiteSpaces() && getContent().length() > 0) {
-            String result = trimTrailingWhiteSpaces(getContent());
-            getContent().setLength(0);
-            getContent().append(result);
+            StringBuffer content = getContent();
+            int end = getTrailingWhiteSpacesEnd(content);
+            content.delete(getTrailingWhiteSpacesStart(content, end), end);
         }
     }
 
@@ -541,8 +655,11 @@ protected String trimTrailingWhiteSpaces(CharSequence content)
         String trimedContent;
 
         if (shouldRemoveWhiteSpaces() && content.length() > 0) {
-            Matcher matcher = HTML_WHITESPACE_TAIL_PATTERN.matcher(content);
-            trimedContent = matcher.replaceAll("");
+            int end = getTrailingWhiteSpacesEnd(content);
+            int start = getTrailingWhiteSpacesStart(content, end);
+            trimedContent = new StringBuilder(content.length() - end + start)
+                .append(content, 0, start)
+                .append(content, end, content.length()).toString();
         } else {
             trimedContent = content.toString();
         }
@@ -550,6 +667,60 @@ protected String trimTrailingWhiteSpaces(CharSequence content)
         return trimedContent;
     }
 
+    /**
+     * @return the index of the first non white space character
+     */
+    private int getLeadingWhiteSpacesEnd(CharSequence content)
+    {
+        int index = 0;
+        while (index < content.length() && isWhiteSpace(content.charAt(index))) {
+            index++;
+        }
+
+        return index;
+    }
+
+    /**
+     * Like the {@code \s+$} pattern the trailing white spaces end either at
+     * the end of the content or before a final line terminator.
+     *
+     * @return the index of the end of the trailing white spaces
+     */
+    private int getTrailingWhiteSpacesEnd(CharSequence content)
+    {
+        int end = content.length();
+
+        char last = content.charAt(end - 1);
+        if (last == '\u0085' || last == '\u2028' || last == '\u2029') {
+            end--;
+        }
+
+        return end;
+    }
+
+    /**
+     * @return the index of the start of the white spaces ending at the
+     *         given index
+     */
+    private int getTrailingWhiteSpacesStart(CharSequence content, int end)
+    {
+        int start = end;
+        while (start > 0 && isWhiteSpace(content.charAt(start - 1))) {
+            start--;
+        }
+
+        return start;
+    }
+
+    /**
+     * @return true if the character is matched by the {@code \s} pattern
+     */
+    private boolean isWhiteSpace(char c)
+    {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+            || c == '\f' || c == '\r';
+    }
+
     protected StringBuffer getContent()
     {
         return fContent;
@@ -567,6 +738,9 @@ protected boolean isSemanticComment(String comment)
             || comment.startsWith("stopmacro");
     }
 
+    /**
+     * A mutable event, recycled once sent.
+     */
     private static class Event
     {
         public enum Type
@@ -582,31 +756,8 @@ protected boolean isSemanticComment(String comment)
 
         public String qName;
 
-        public Attributes atts;
+        public final AttributesImpl atts = new AttributesImpl();
 
         String content;
-
-        public Event(String uri, String localName, String qName, Attributes atts)
-        {
-            this.type = Type.BEGIN_ELEMENT;
-            this.uri = uri;
-            this.localName = localName;
-            this.qName = qName;
-            this.atts = atts;
-        }
-
-        public Event(String uri, String localName, String qName)
-        {
-            this.type = Type.END_ELEMENT;
-            this.uri = uri;
-            this.localName = localName;
-            this.qName = qName;
-        }
-
-        public Event(String content)
-        {
-            this.type = Type.COMMENT;
-            this.content = content;
-        }
     }
 }
@@ -25,6 +25,7 @@
 import org.xwiki.rendering.wikimodel.WikiParameter;
 import org.xwiki.rendering.wikimodel.WikiParameters;
 import org.xwiki.rendering.wikimodel.WikiStyle;
+import org.xwiki.rendering.wikimodel.impl.WikiScannerCache;
 import org.xwiki.rendering.wikimodel.xhtml.impl.TagContext;
 
 import com.steadystate.css.dom.CSSStyleDeclarationImpl;
@@ -43,14 +44,13 @@ public abstract class AbstractFormatTagHandler extends TagHandler
 
     public static final String FORMATSTYLEPARAMETER = "formatStyleParameter";
 
-    private final WikiStyle style;
-
     /**
-     * The object used to parse the style attribute. Explicitly specify the
-     * parser to use, since otherwise cssparser overrides the default parser
-     * used in the JVM, breaking css4j.
+     * The objects used to parse the style attributes. A CSS parser is not thread safe and the tag handlers are shared
+     * between threads so we keep one per thread.
      */
-    private final CSSOMParser cssParser = new CSSOMParser(new SACParserCSS21());
+    private static final WikiScannerCache<CSSOMParser> CSS_PARSERS = new WikiScannerCache<CSSOMParser>();
+
+    private final WikiStyle style;
 
     public AbstractFormatTagHandler()
     {
@@ -125,22 +125,33 @@ private CSSStyleDeclarationImpl mergeStyle(
     {
         CSSStyleDeclarationImpl currentStyle = new CSSStyleDeclarationImpl();
 
-        if (parentStyle == null) {
+        CSSOMParser cssParser = CSS_PARSERS.take();
+        if (cssParser == null) {
+            // Explicitly specify the parser to use, since otherwise cssparser
+            // overrides the default parser used in the JVM, breaking css4j.
+            cssParser = new CSSOMParser(new SACParserCSS21());
+        }
+
+        try {
+            if (parentStyle == null) {
+                try {
+                    cssParser.parseStyleDeclaration(currentStyle,
+                        new InputSource(new StringReader(parentStyleValue)));
+                } catch (Exception e) {
+                    return parentStyle;
+                }
+            } else {
+                currentStyle.setProperties(parentStyle.getProperties());
+            }
+
             try {
-                this.cssParser.parseStyleDeclaration(currentStyle,
-                    new InputSource(new StringReader(parentStyleValue)));
+                cssParser.parseStyleDeclaration(currentStyle, new InputSource(
+                    new StringReader(styleValue)));
             } catch (Exception e) {
                 return parentStyle;
             }
-        } else {
-            currentStyle.setProperties(parentStyle.getProperties());
-        }
-
-        try {
-            this.cssParser.parseStyleDeclaration(currentStyle, new InputSource(
-                new StringReader(styleValue)));
-        } catch (Exception e) {
-            return parentStyle;
+        } finally {
+            CSS_PARSERS.release(cssParser);
         }
 
         return currentStyle;
@@ -0,0 +1,372 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.wikimodel.xhtml.impl;
+
+import java.io.IOException;
+
+import javax.xml.XMLConstants;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.Attributes2Impl;
+import org.xml.sax.ext.LexicalHandler;
+
+/**
+ * A {@link XMLReader} generating the SAX events of an already parsed DOM instead of parsing XML. It allows to use the
+ * XHTML parser and its filters on a DOM (like the result of an HTML cleaning) without serializing it to a String and
+ * parsing it again.
+ * <p>
+ * The events are the ones the SAX parser of a default {@code SAXParserFactory} would generate for the serialized DOM
+ * (both the namespaces and the namespace prefixes features can be changed): all attributes are specified and the
+ * document type is ignored. The {@link InputSource} passed to {@link #parse(InputSource)} is ignored.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class DOMXMLReader implements XMLReader
+{
+    private static final String SAX_NAMESPACES_FEATURE = "http://xml.org/sax/features/namespaces";
+
+    private static final String SAX_NAMESPACE_PREFIXES_FEATURE = "http://xml.org/sax/features/namespace-prefixes";
+
+    private static final String SAX_LEXICAL_HANDLER_PROPERTY = "http://xml.org/sax/properties/lexical-handler";
+
+    private static final String CDATA = "CDATA";
+
+    private Node node;
+
+    private boolean namespaces = true;
+
+    /**
+     * Enabled by default, like in the parsers created by a {@code SAXParserFactory} which is not namespace aware.
+     */
+    private boolean namespacePrefixes = true;
+
+    private ContentHandler contentHandler;
+
+    private LexicalHandler lexicalHandler;
+
+    private DTDHandler dtdHandler;
+
+    private EntityResolver entityResolver;
+
+    private ErrorHandler errorHandler;
+
+    /**
+     * @param node the document (or element) to generate events for
+     */
+    public DOMXMLReader(Node node)
+    {
+        this.node = node;
+    }
+
+    /**
+     * @return the document (or element) to generate events for
+     */
+    public Node getNode()
+    {
+        return this.node;
+    }
+
+    /**
+     * @param node the document (or element) to generate events for
+     */
+    public void setNode(Node node)
+    {
+        this.node = node;
+    }
+
+    @Override
+    public boolean getFeature(String name) throws SAXNotRecognizedException
+    {
+        if (SAX_NAMESPACES_FEATURE.equals(name)) {
+            return this.namespaces;
+        } else if (SAX_NAMESPACE_PREFIXES_FEATURE.equals(name)) {
+            return this.namespacePrefixes;
+        }
+
+        throw new SAXNotRecognizedException(name);
+    }
+
+    @Override
+    public void setFeature(String name, boolean value) throws SAXNotRecognizedException
+    {
+        if (SAX_NAMESPACES_FEATURE.equals(name)) {
+            this.namespaces = value;
+        } else if (SAX_NAMESPACE_PREFIXES_FEATURE.equals(name)) {
+            this.namespacePrefixes = value;
+        } else {
+            throw new SAXNotRecognizedException(name);
+        }
+    }
+
+    @Override
+    public Object getProperty(String name) throws SAXNotRecognizedException
+    {
+        if (SAX_LEXICAL_HANDLER_PROPERTY.equals(name)) {
+            return this.lexicalHandler;
+        }
+
+        throw new SAXNotRecognizedException(name);
+    }
+
+    @Override
+    public void setProperty(String name, Object value) throws SAXNotRecognizedException
+    {
+        if (SAX_LEXICAL_HANDLER_PROPERTY.equals(name)) {
+            this.lexicalHandler = (LexicalHandler) value;
+        } else {
+            throw new SAXNotRecognizedException(name);
+        }
+    }
+
+    @Override
+    public void setEntityResolver(EntityResolver resolver)
+    {
+        this.entityResolver = resolver;
+    }
+
+    @Override
+    public EntityResolver getEntityResolver()
+    {
+        return this.entityResolver;
+    }
+
+    @Override
+    public void setDTDHandler(DTDHandler handler)
+    {
+        this.dtdHandler = handler;
+    }
+
+    @Override
+    public DTDHandler getDTDHandler()
+    {
+        return this.dtdHandler;
+    }
+
+    @Override
+    public void setContentHandler(ContentHandler handler)
+    {
+        this.contentHandler = handler;
+    }
+
+    @Override
+    public ContentHandler getContentHandler()
+    {
+        return this.contentHandler;
+    }
+
+    @Override
+    public void setErrorHandler(ErrorHandler handler)
+    {
+        this.errorHandler = handler;
+    }
+
+    @Override
+    public ErrorHandler getErrorHandler()
+    {
+        return this.errorHandler;
+    }
+
+    @Override
+    public void parse(InputSource input) throws IOException, SAXException
+    {
+        parse();
+    }
+
+    @Override
+    public void parse(String systemId) throws IOException, SAXException
+    {
+        parse();
+    }
+
+    private void parse() throws SAXException
+    {
+        this.contentHandler.startDocument();
+        if (this.node.getNodeType() == Node.DOCUMENT_NODE) {
+            visitChildren(this.node);
+        } else {
+            visit(this.node);
+        }
+        this.contentHandler.endDocument();
+    }
+
+    private void visitChildren(Node parent) throws SAXException
+    {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            visit(child);
+        }
+    }
+
+    private void visit(Node current) throws SAXException
+    {
+        switch (current.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                visitElement(current);
+                break;
+            case Node.TEXT_NODE:
+                characters(current.getNodeValue());
+                break;
+            case Node.CDATA_SECTION_NODE:
+                if (this.lexicalHandler != null) {
+                    this.lexicalHandler.startCDATA();
+                }
+                characters(current.getNodeValue());
+                if (this.lexicalHandler != null) {
+                    this.lexicalHandler.endCDATA();
+                }
+                break;
+            case Node.COMMENT_NODE:
+                if (this.lexicalHandler != null) {
+                    char[] comment = current.getNodeValue().toCharArray();
+                    this.lexicalHandler.comment(comment, 0, comment.length);
+                }
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                this.contentHandler.processingInstruction(current.getNodeName(), current.getNodeValue());
+                break;
+            case Node.ENTITY_REFERENCE_NODE:
+                // The entity is expanded, like a parser would do
+                visitChildren(current);
+                break;
+            default:
+                // The document type and the other nodes don't produce content events
+                break;
+        }
+    }
+
+    private void visitElement(Node element) throws SAXException
+    {
+        String qName = element.getNodeName();
+        String uri = this.namespaces ? getNamespaceURI(element) : "";
+        String localName = this.namespaces ? getLocalName(element) : "";
+
+        this.contentHandler.startElement(uri, localName, qName, getAttributes(element));
+        visitChildren(element);
+        this.contentHandler.endElement(uri, localName, qName);
+    }
+
+    private Attributes2Impl getAttributes(Node element)
+    {
+        Attributes2Impl attributes = new Attributes2Impl();
+
+        NamedNodeMap map = element.getAttributes();
+        for (int i = 0; i < map.getLength(); i++) {
+            Attr attribute = (Attr) map.item(i);
+            String qName = attribute.getName();
+
+            if (this.namespaces) {
+                boolean declaration = XMLConstants.XMLNS_ATTRIBUTE.equals(qName)
+                    || qName.startsWith(XMLConstants.XMLNS_ATTRIBUTE + ':');
+                if (!declaration) {
+                    attributes.addAttribute(getAttributeNamespaceURI(attribute), getLocalName(attribute), qName,
+                        CDATA, attribute.getValue());
+                } else if (this.namespacePrefixes) {
+                    attributes.addAttribute("", "", qName, CDATA, attribute.getValue());
+                }
+            } else {
+                attributes.addAttribute("", "", qName, CDATA, attribute.getValue());
+            }
+        }
+
+        return attributes;
+    }
+
+    private void characters(String text) throws SAXException
+    {
+        if (text.length() > 0) {
+            char[] characters = text.toCharArray();
+            this.contentHandler.characters(characters, 0, characters.length);
+        }
+    }
+
+    private String getNamespaceURI(Node element)
+    {
+        String uri = element.getNamespaceURI();
+        if (uri == null) {
+            // The DOM was not built with namespace support: resolve the prefix using the xmlns attributes
+            uri = lookupNamespaceURI(element, getPrefix(element.getNodeName()));
+        }
+
+        return uri != null ? uri : "";
+    }
+
+    private String getAttributeNamespaceURI(Attr attribute)
+    {
+        String uri = attribute.getNamespaceURI();
+        if (uri == null) {
+            // Unprefixed attributes don't belong to the default namespace
+            String prefix = getPrefix(attribute.getName());
+            if (XMLConstants.XML_NS_PREFIX.equals(prefix)) {
+                uri = XMLConstants.XML_NS_URI;
+            } else if (prefix != null) {
+                uri = lookupNamespaceURI(attribute.getOwnerElement(), prefix);
+            }
+        }
+
+        return uri != null ? uri : "";
+    }
+
+    /**
+     * {@link Node#lookupNamespaceURI(String)} ignores the attributes of a DOM which was not built with namespace
+     * support so we look for the namespace declaration attributes ourselves.
+     */
+    private String lookupNamespaceURI(Node element, String prefix)
+    {
+        String name = prefix != null ? XMLConstants.XMLNS_ATTRIBUTE + ':' + prefix : XMLConstants.XMLNS_ATTRIBUTE;
+
+        for (Node current = element; current != null && current.getNodeType() == Node.ELEMENT_NODE;
+            current = current.getParentNode()) {
+            Node declaration = current.getAttributes().getNamedItem(name);
+            if (declaration != null) {
+                return declaration.getNodeValue();
+            }
+        }
+
+        return null;
+    }
+
+    private String getLocalName(Node current)
+    {
+        String localName = current.getLocalName();
+        if (localName == null) {
+            String name = current.getNodeName();
+            localName = name.substring(name.indexOf(':') + 1);
+        }
+
+        return localName;
+    }
+
+    private String getPrefix(String qName)
+    {
+        int index = qName.indexOf(':');
+
+        return index > 0 ? qName.substring(0, index) : null;
+    }
+}
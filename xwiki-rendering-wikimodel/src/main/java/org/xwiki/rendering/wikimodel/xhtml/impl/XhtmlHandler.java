@@ -20,6 +20,7 @@
 package org.xwiki.rendering.wikimodel.xhtml.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -89,6 +90,31 @@ public XhtmlHandler(
         WikiScannerContext context,
         Map<String, TagHandler> extraHandlers,
         CommentHandler commentHandler)
+    {
+        this(new TagStack(context, createHandlers(extraHandlers), commentHandler));
+    }
+
+    /**
+     * @param stack the stack to send the events to, the tag handlers it uses
+     * can be created once with {@link #createHandlers(Map)}
+     * @since 10.4RC1
+     */
+    public XhtmlHandler(TagStack stack)
+    {
+        fStack = stack;
+    }
+
+    /**
+     * The tag handlers don't keep any state so the returned table can be
+     * shared by all the parsings.
+     *
+     * @param extraHandlers the handlers to add to (or to use instead of) the
+     * default ones
+     * @return the tag handlers to use, indexed by tag name
+     * @since 10.4RC1
+     */
+    public static Map<String, TagHandler> createHandlers(
+        Map<String, TagHandler> extraHandlers)
     {
         Map<String, TagHandler> handlers = new HashMap<String, TagHandler>();
 
@@ -166,8 +192,7 @@ public XhtmlHandler(
         // Prepare extra handlers
         handlers.putAll(extraHandlers);
 
-        // Initialize the TagStack and handlers
-        fStack = new TagStack(context, handlers, commentHandler);
+        return Collections.unmodifiableMap(handlers);
     }
 
     /**
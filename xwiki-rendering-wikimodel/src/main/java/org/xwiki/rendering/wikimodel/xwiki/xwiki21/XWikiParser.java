@@ -22,8 +22,9 @@
 import java.io.Reader;
 
 import org.xwiki.rendering.wikimodel.IWemListener;
-import org.xwiki.rendering.wikimodel.IWikiParser;
+import org.xwiki.rendering.wikimodel.IWikiInlineParser;
 import org.xwiki.rendering.wikimodel.WikiParserException;
+import org.xwiki.rendering.wikimodel.impl.WikiScannerCache;
 import org.xwiki.rendering.wikimodel.impl.WikiScannerContext;
 import org.xwiki.rendering.wikimodel.internal.xwiki.xwiki21.javacc.ParseException;
 import org.xwiki.rendering.wikimodel.internal.xwiki.xwiki21.javacc.XWikiScanner;
@@ -32,18 +33,52 @@
  * @version $Id$
  * @since 4.0M1
  */
-public class XWikiParser implements IWikiParser
+public class XWikiParser implements IWikiInlineParser
 {
+    /**
+     * The scanners reused by the successive parsings on each thread.
+     */
+    private static final WikiScannerCache<XWikiScanner> SCANNERS = new WikiScannerCache<XWikiScanner>();
+
+    /**
+     * The scanner reused for each inline content.
+     */
+    private XWikiScanner inlineScanner;
+
     @Override
     public void parse(Reader reader, IWemListener listener)
         throws WikiParserException
     {
+        XWikiScanner scanner = SCANNERS.take();
+        if (scanner == null) {
+            scanner = new XWikiScanner(reader);
+        } else {
+            scanner.ReInit(reader);
+        }
         try {
-            XWikiScanner scanner = new XWikiScanner(reader);
             WikiScannerContext context = new WikiScannerContext(listener);
             scanner.parse(context);
         } catch (ParseException e) {
             throw new WikiParserException(e);
+        } finally {
+            scanner.release();
+            SCANNERS.release(scanner);
+        }
+    }
+
+    @Override
+    public void parseInline(Reader reader, IWemListener listener) throws WikiParserException
+    {
+        try {
+            if (this.inlineScanner == null) {
+                this.inlineScanner = new XWikiScanner(reader);
+            } else {
+                this.inlineScanner.ReInit(reader);
+            }
+            WikiScannerContext context = new WikiScannerContext(listener);
+            this.inlineScanner.parseInline(context);
+        } catch (ParseException e) {
+            throw new WikiParserException(e);
         }
     }
 }
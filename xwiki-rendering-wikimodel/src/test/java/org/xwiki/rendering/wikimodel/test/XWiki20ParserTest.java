@@ -22,6 +22,7 @@
 import java.io.StringReader;
 
 import org.xwiki.rendering.wikimodel.IWemListener;
+import org.xwiki.rendering.wikimodel.IWikiInlineParser;
 import org.xwiki.rendering.wikimodel.IWikiParser;
 import org.xwiki.rendering.wikimodel.IWikiPrinter;
 import org.xwiki.rendering.wikimodel.WikiParserException;
@@ -500,6 +501,22 @@ public void testMacro() throws WikiParserException
         test("a{{a}}{{b}}", "<p>a<span class='wikimodel-macro' macroName='a'><![CDATA[{{b}}]]></span></p>");
         test("a{{a}}{{b}}{", "<p>a<span class='wikimodel-macro' macroName='a'><![CDATA[{{b}}{]]></span></p>");
 
+        // Escaped and partial macro markers in the content
+        test("{{toto}}~{{/toto}}{{/toto}}",
+            "<pre class='wikimodel-macro' macroName='toto'><![CDATA[~{{/toto}}]]></pre>");
+        test("{{toto}}~~{{/toto}}", "<pre class='wikimodel-macro' macroName='toto'><![CDATA[~~]]></pre>");
+        test("{{toto}}{{{a}}}{ {{/toto}}",
+            "<pre class='wikimodel-macro' macroName='toto'><![CDATA[{{{a}}}{ ]]></pre>");
+
+        // Large content
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; ++i) {
+            content.append("x { y } ~{{/toto}} {{{z}}} {{toto}}{{/toto}}\n");
+        }
+        content.append("end");
+        test("{{toto}}" + content + "{{/toto}}",
+            "<pre class='wikimodel-macro' macroName='toto'><![CDATA[" + content + "]]></pre>");
+
         // escaping
         test("{{toto param1=\"val~\"ue1\" param2=\"v~~al~}}ue2\"}}a{{/toto}}",
             "<pre class='wikimodel-macro' macroName='toto' param1='val&#x22;ue1' param2='v~al}}ue2'><![CDATA[a]]></pre>");
@@ -739,6 +756,66 @@ public void testVerbatim() throws WikiParserException
         test("{{{ ~{~{{ }}}", "<pre> {{{ </pre>");
         test("{{{ ~ }}}", "<pre> ~ </pre>");
         test("{{{ ~}~}~}", "<pre> }}}</pre>");
+
+        // Large content
+        StringBuilder content = new StringBuilder();
+        StringBuilder unescapedContent = new StringBuilder();
+        for (int i = 0; i < 2000; ++i) {
+            content.append("a { b } c ~}}} {{d}} {{{e}}} ");
+            unescapedContent.append("a { b } c }}} {{d}} {{{e}}} ");
+        }
+        test("{{{" + content + "}}}", "<pre>" + unescapedContent + "</pre>");
+    }
+
+    public void testSuccessiveParsings() throws WikiParserException
+    {
+        // The scanner reused for the next parsing is left inside unclosed elements
+        test("{{toto}}{{toto}}a", "<pre class='wikimodel-macro' macroName='toto'><![CDATA[{{toto}}a]]></pre>");
+        test("before{{toto}}a{{/toto}}",
+            "<p>before<span class='wikimodel-macro' macroName='toto'><![CDATA[a]]></span></p>");
+        test("{{{{{{abc", "<pre>{{{abc</pre>");
+        test("(% a=b %)(((\n(((\n{{{abc");
+        test("= title =", "<h1>title</h1>");
+    }
+
+    public void testParsingTwiceOnTheSameThread() throws WikiParserException
+    {
+        String content = "= title =\n\n|a|b\n\n(% a=b %)\n{{macro}}content{{/macro}}\n\n* item [[label>>reference]]"
+            + "\n\n(((\n{{{verbatim}}}\n)))";
+        String expected = parse(newWikiParser(), content);
+
+        // Each parsing stops in a different lexical state, which must not leak into the next parsing of the thread
+        String[] unclosed =
+            {"", "= title", "|a|b", "(% a=b %)", "{{toto}}", "{{toto}}a{{toto}}", "{{{abc", "(((\n(((\n", "[[label"};
+        for (String previous : unclosed) {
+            parse(newWikiParser(), previous);
+            assertEquals("After [" + previous + "]", expected, parse(newWikiParser(), content));
+        }
+
+        // Same for the inline parsing, which keeps its scanner in the parser
+        IWikiInlineParser parser = (IWikiInlineParser) newWikiParser();
+        String inline = "a **b** {{c/}} [[d]]";
+        String expectedInline = parseInline(parser, inline);
+        for (String previous : unclosed) {
+            parseInline(parser, previous);
+            assertEquals("After [" + previous + "]", expectedInline, parseInline(parser, inline));
+        }
+    }
+
+    private String parse(IWikiParser parser, String content) throws WikiParserException
+    {
+        StringBuffer buf = new StringBuffer();
+        parser.parse(new StringReader(content), newParserListener(buf));
+
+        return buf.toString();
+    }
+
+    private String parseInline(IWikiInlineParser parser, String content) throws WikiParserException
+    {
+        StringBuffer buf = new StringBuffer();
+        parser.parseInline(new StringReader(content), newParserListener(buf));
+
+        return buf.toString();
     }
 
     public void testLink() throws WikiParserException
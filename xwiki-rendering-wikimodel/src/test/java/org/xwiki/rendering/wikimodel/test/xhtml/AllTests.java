@@ -32,6 +32,7 @@ public static Test suite()
     {
         TestSuite suite = new TestSuite("Test for the XHTML module");
         // $JUnit-BEGIN$
+        suite.addTestSuite(DOMXMLReaderTest.class);
         suite.addTestSuite(XHTMLWhitespaceXMLFilterTest.class);
         suite.addTestSuite(XHtmlParserTest.class);
         // $JUnit-END$
@@ -0,0 +1,114 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.wikimodel.test.xhtml;
+
+import java.io.StringReader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.Attributes2;
+import org.xwiki.rendering.wikimodel.xhtml.filter.AccumulationXMLFilter;
+import org.xwiki.rendering.wikimodel.xhtml.filter.XHTMLWhitespaceXMLFilter;
+import org.xwiki.rendering.wikimodel.xhtml.impl.DOMXMLReader;
+
+import junit.framework.TestCase;
+
+/**
+ * Verify that walking a DOM produces the same events as parsing its XML.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class DOMXMLReaderTest extends TestCase
+{
+    public void testEvents() throws Exception
+    {
+        assertSameEvents("<html><p>one <b>two</b></p></html>");
+        assertSameEvents("<html xmlns=\"http://www.w3.org/1999/xhtml\"><p class=\"a\" id=\"b\">text</p></html>");
+        assertSameEvents("<html><p xml:lang=\"en\">one<!--comment-->two<![CDATA[three]]></p></html>");
+        assertSameEvents("<html xmlns:svg=\"http://www.w3.org/2000/svg\"><svg:rect svg:width=\"1\"/></html>");
+        assertSameEvents("<html><p>&lt;escaped&gt; &amp; <?target data?></p></html>");
+    }
+
+    public void testWhiteSpaceStripping() throws Exception
+    {
+        assertSameEvents("<html>  <p>  one  two  <b> three </b>  </p>\n<ul>  <li>a</li> </ul>  </html>");
+        assertSameEvents("<html><p>one <!--comment-->  two<![CDATA[ three ]]></p><pre>\n  one  \n</pre></html>");
+        assertSameEvents("<html><p>one <tt class=\"wikimodel-verbatim\">  two  </tt> three</p></html>");
+    }
+
+    private void assertSameEvents(String xml) throws Exception
+    {
+        XMLReader saxReader = SAXParserFactory.newInstance().newSAXParser().getXMLReader();
+
+        assertEquals(getEvents(saxReader, xml), getEvents(new DOMXMLReader(parse(xml, true)), xml));
+        assertEquals(getEvents(saxReader, xml), getEvents(new DOMXMLReader(parse(xml, false)), xml));
+    }
+
+    private Document parse(String xml, boolean namespaceAware) throws Exception
+    {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(namespaceAware);
+        factory.setCoalescing(false);
+
+        return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+    }
+
+    private String getEvents(XMLReader reader, String xml) throws Exception
+    {
+        XHTMLWhitespaceXMLFilter filter = new XHTMLWhitespaceXMLFilter(new AccumulationXMLFilter(reader));
+        EventWriter writer = new EventWriter();
+
+        filter.setFeature("http://xml.org/sax/features/namespaces", true);
+        filter.setContentHandler(writer);
+        filter.setProperty("http://xml.org/sax/properties/lexical-handler", writer);
+        filter.parse(new InputSource(new StringReader(xml)));
+
+        return writer.getBuffer();
+    }
+
+    private static class EventWriter extends XMLWriter
+    {
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts)
+        {
+            fBuffer.append('<').append(uri).append('|').append(localName).append('|').append(qName);
+            for (int i = 0; i < atts.getLength(); i++) {
+                fBuffer.append(' ').append(atts.getURI(i)).append('|').append(atts.getLocalName(i)).append('|')
+                    .append(atts.getQName(i)).append("=\"").append(atts.getValue(i)).append('"');
+                if (atts instanceof Attributes2 && !((Attributes2) atts).isSpecified(i)) {
+                    fBuffer.append("(default)");
+                }
+            }
+            fBuffer.append('>');
+        }
+
+        @Override
+        public void processingInstruction(String target, String data)
+        {
+            fBuffer.append("<?").append(target).append(' ').append(data).append("?>");
+        }
+    }
+}
@@ -24,6 +24,7 @@
 import javax.xml.parsers.SAXParserFactory;
 
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
 import org.xml.sax.XMLReader;
 import org.xwiki.rendering.wikimodel.xhtml.filter.XHTMLWhitespaceXMLFilter;
 
@@ -160,6 +161,35 @@ public void testWhiteSpaceStrippingForBlockElements() throws Exception
         assertCleanedHTML("<table></table><p></p>", "<table></table> <p></p>");
     }
 
+    public void testLargeInlineContent() throws Exception
+    {
+        StringBuilder expected = new StringBuilder("<p>");
+        StringBuilder content = new StringBuilder("<p>");
+        for (int i = 0; i < 10000; i++) {
+            expected.append("one <b>two</b> <!--comment-->");
+            content.append("one  <b>two</b>\n<!--comment-->  ");
+        }
+        // The last space is at the end of the paragraph
+        expected.delete(expected.length() - " <!--comment-->".length(), expected.length());
+        expected.append("<!--comment--></p>");
+        content.append("</p>");
+
+        assertCleanedHTML(expected.toString(), content.toString());
+    }
+
+    public void testReuseAfterFailure() throws Exception
+    {
+        try {
+            whitespaceFilter.parse(new InputSource(new StringReader("<html><p>one <b>two  <pre> three")));
+            fail("The content is not well formed");
+        } catch (SAXParseException e) {
+            // Expected
+        }
+        writerFilter.reset();
+
+        assertCleanedHTML("<p>one two</p>", "<p>  one  two  </p>");
+    }
+
     private void assertCleanedHTML(String expected, String originalContent)
         throws Exception
     {
@@ -0,0 +1,128 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.renderer.printer;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.xwiki.rendering.xml.internal.renderer.printer.XHTMLMarkupWriter;
+import org.xwiki.stability.Unstable;
+
+/**
+ * An XML element with constant attributes whose start, end and empty tags are escaped once, when it's created, so that
+ * printing them is a plain copy. Meant to be kept in constants by the renderers for the elements they often print.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+@Unstable
+public final class PrecompiledXMLElement
+{
+    private static final String TAG_CLOSE = ">";
+
+    private final String name;
+
+    private final char[] startTagOpening;
+
+    private final char[] startTag;
+
+    private final char[] endTag;
+
+    private final char[] emptyTag;
+
+    /**
+     * @param name the name of the element
+     * @param attributes the constant attributes of the element as a flat list of names and values, for example
+     *            {@code "class", "wikimodel-emptyline"}
+     */
+    public PrecompiledXMLElement(String name, String... attributes)
+    {
+        if (attributes.length % 2 != 0) {
+            throw new IllegalArgumentException("Missing the value of attribute [" + attributes[attributes.length - 1]
+                + "] for element [" + name + "]");
+        }
+
+        String[][] attributePairs = new String[attributes.length / 2][];
+        for (int i = 0; i < attributePairs.length; i++) {
+            attributePairs[i] = new String[] { attributes[i * 2], attributes[i * 2 + 1] };
+        }
+
+        this.name = name;
+
+        try {
+            StringWriter writer = new StringWriter();
+            new XHTMLMarkupWriter(writer).writeStartElement(name, attributePairs);
+            this.startTag = writer.toString().toCharArray();
+            this.startTagOpening = writer.toString().substring(0, this.startTag.length - TAG_CLOSE.length())
+                .toCharArray();
+
+            writer.getBuffer().setLength(0);
+            new XHTMLMarkupWriter(writer).writeEndElement(name);
+            this.endTag = writer.toString().toCharArray();
+
+            writer.getBuffer().setLength(0);
+            new XHTMLMarkupWriter(writer).writeEmptyElement(name, attributePairs);
+            this.emptyTag = writer.toString().toCharArray();
+        } catch (IOException e) {
+            // Cannot happen with a StringWriter
+            throw new IllegalStateException("Failed to precompile element [" + name + "]", e);
+        }
+    }
+
+    /**
+     * @return the name of the element
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * @return the start tag without its closing character, to append dynamic attributes to
+     */
+    char[] getStartTagOpening()
+    {
+        return this.startTagOpening;
+    }
+
+    /**
+     * @return the complete start tag
+     */
+    char[] getStartTag()
+    {
+        return this.startTag;
+    }
+
+    /**
+     * @return the end tag
+     */
+    char[] getEndTag()
+    {
+        return this.endTag;
+    }
+
+    /**
+     * @return the empty element tag
+     */
+    char[] getEmptyTag()
+    {
+        return this.emptyTag;
+    }
+}
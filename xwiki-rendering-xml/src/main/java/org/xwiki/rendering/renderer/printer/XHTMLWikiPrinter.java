@@ -81,6 +81,13 @@ public void printXMLElement(String name, Map<String, String> attributes)
         super.printXMLElement(name, attributes);
     }
 
+    @Override
+    public void printXMLElement(PrecompiledXMLElement element)
+    {
+        handleSpaceWhenStartElement();
+        super.printXMLElement(element);
+    }
+
     @Override
     public void printXMLStartElement(String name)
     {
@@ -109,6 +116,27 @@ public void printXMLStartElement(String name, Attributes attributes)
         super.printXMLStartElement(name, attributes);
     }
 
+    @Override
+    public void printXMLStartElement(PrecompiledXMLElement element)
+    {
+        handleSpaceWhenStartElement();
+        super.printXMLStartElement(element);
+    }
+
+    @Override
+    public void printXMLStartElement(PrecompiledXMLElement element, Map<String, String> attributes)
+    {
+        handleSpaceWhenStartElement();
+        super.printXMLStartElement(element, attributes);
+    }
+
+    @Override
+    public void printXMLStartElement(PrecompiledXMLElement element, String attributeName, String attributeValue)
+    {
+        handleSpaceWhenStartElement();
+        super.printXMLStartElement(element, attributeName, attributeValue);
+    }
+
     @Override
     public void printXMLEndElement(String name)
     {
@@ -117,6 +145,14 @@ public void printXMLEndElement(String name)
         this.elementEnded = true;
     }
 
+    @Override
+    public void printXMLEndElement(PrecompiledXMLElement element)
+    {
+        handleSpaceWhenEndlement();
+        super.printXMLEndElement(element);
+        this.elementEnded = true;
+    }
+
     @Override
     public void printXMLComment(String content)
     {
@@ -22,16 +22,12 @@
 import java.io.IOException;
 import java.util.Map;
 
-import org.dom4j.Element;
 import org.dom4j.io.XMLWriter;
-import org.dom4j.tree.DefaultComment;
-import org.dom4j.tree.DefaultElement;
-import org.dom4j.tree.DefaultEntity;
 import org.xml.sax.Attributes;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.AttributesImpl;
 import org.xwiki.rendering.internal.renderer.printer.WikiWriter;
+import org.xwiki.rendering.xml.internal.renderer.printer.XHTMLMarkupWriter;
 import org.xwiki.rendering.xml.internal.renderer.printer.XHTMLWriter;
+import org.xwiki.stability.Unstable;
 import org.xwiki.xml.XMLUtils;
 
 /**
@@ -44,8 +40,15 @@
 {
     protected WikiWriter wikiWriter;
 
+    /**
+     * @deprecated since 10.4RC1, the printer does not use DOM4J anymore, use {@link #getXMLWriter()} if you really
+     *             need it
+     */
+    @Deprecated
     protected XMLWriter xmlWriter;
 
+    private final XHTMLMarkupWriter markupWriter;
+
     /**
      * @param printer the object to which to write the XHTML output to
      */
@@ -53,9 +56,16 @@ public XMLWikiPrinter(WikiPrinter printer)
     {
         this.wikiWriter = new WikiWriter(printer);
 
+        // Still created eagerly since extending classes may access the field directly
         this.xmlWriter = new XHTMLWriter(this.wikiWriter);
+        this.markupWriter = new XHTMLMarkupWriter(this.wikiWriter);
     }
 
+    /**
+     * @return a DOM4J writer sending its output to the same printer
+     * @deprecated since 10.4RC1, the printer does not use DOM4J anymore, use the various print methods instead
+     */
+    @Deprecated
     public XMLWriter getXMLWriter()
     {
         return this.xmlWriter;
@@ -74,7 +84,7 @@ public void setWikiPrinter(WikiPrinter printer)
     public void printXML(String str)
     {
         try {
-            this.xmlWriter.write(str);
+            this.markupWriter.writeText(str);
         } catch (IOException e) {
             // TODO: add error log here
         }
@@ -98,16 +108,8 @@ public void printXMLElement(String name)
      */
     public void printXMLElement(String name, String[][] attributes)
     {
-        Element element = new DefaultElement(name);
-
-        if (attributes != null && attributes.length > 0) {
-            for (String[] entry : attributes) {
-                element.addAttribute(entry[0], entry[1]);
-            }
-        }
-
         try {
-            this.xmlWriter.write(element);
+            this.markupWriter.writeEmptyElement(name, attributes);
         } catch (IOException e) {
             // TODO: add error log here
         }
@@ -121,16 +123,24 @@ public void printXMLElement(String name, String[][] attributes)
      */
     public void printXMLElement(String name, Map<String, String> attributes)
     {
-        Element element = new DefaultElement(name);
-
-        if (attributes != null && !attributes.isEmpty()) {
-            for (Map.Entry<String, String> entry : attributes.entrySet()) {
-                element.addAttribute(entry.getKey(), entry.getValue());
-            }
+        try {
+            this.markupWriter.writeEmptyElement(name, attributes);
+        } catch (IOException e) {
+            // TODO: add error log here
         }
+    }
 
+    /**
+     * Print the precompiled xml element. In the form {@code <name att1="value1" att2="value2"/>}.
+     *
+     * @param element the xml element to print
+     * @since 10.4RC1
+     */
+    @Unstable
+    public void printXMLElement(PrecompiledXMLElement element)
+    {
         try {
-            this.xmlWriter.write(element);
+            this.markupWriter.writeRaw(element.getEmptyTag());
         } catch (IOException e) {
             // TODO: add error log here
         }
@@ -143,7 +153,11 @@ public void printXMLElement(String name, Map<String, String> attributes)
      */
     public void printXMLStartElement(String name)
     {
-        printXMLStartElement(name, new AttributesImpl());
+        try {
+            this.markupWriter.writeStartElement(name);
+        } catch (IOException e) {
+            // TODO: add error log here
+        }
     }
 
     /**
@@ -154,7 +168,11 @@ public void printXMLStartElement(String name)
      */
     public void printXMLStartElement(String name, String[][] attributes)
     {
-        printXMLStartElement(name, createAttributes(attributes));
+        try {
+            this.markupWriter.writeStartElement(name, attributes);
+        } catch (IOException e) {
+            // TODO: add error log here
+        }
     }
 
     /**
@@ -165,7 +183,11 @@ public void printXMLStartElement(String name, String[][] attributes)
      */
     public void printXMLStartElement(String name, Map<String, String> attributes)
     {
-        printXMLStartElement(name, createAttributes(attributes));
+        try {
+            this.markupWriter.writeStartElement(name, attributes);
+        } catch (IOException e) {
+            // TODO: add error log here
+        }
     }
 
     /**
@@ -177,8 +199,63 @@ public void printXMLStartElement(String name, Map<String, String> attributes)
     public void printXMLStartElement(String name, Attributes attributes)
     {
         try {
-            this.xmlWriter.startElement("", name, name, attributes);
-        } catch (SAXException e) {
+            this.markupWriter.writeStartElement(name, attributes);
+        } catch (IOException e) {
+            // TODO: add error log here
+        }
+    }
+
+    /**
+     * Print the start tag of the precompiled xml element. In the form {@code <name att1="value1" att2="value2">}.
+     *
+     * @param element the xml element to print
+     * @since 10.4RC1
+     */
+    @Unstable
+    public void printXMLStartElement(PrecompiledXMLElement element)
+    {
+        try {
+            this.markupWriter.writeRaw(element.getStartTag());
+        } catch (IOException e) {
+            // TODO: add error log here
+        }
+    }
+
+    /**
+     * Print the start tag of the precompiled xml element followed by the passed attributes. In the form
+     * {@code <name att1="value1" att2="value2">} where att1 is a constant attribute of the element and att2 one of the
+     * passed attributes.
+     *
+     * @param element the xml element to print
+     * @param attributes the xml attributes to add to the constant attributes of the element
+     * @since 10.4RC1
+     */
+    @Unstable
+    public void printXMLStartElement(PrecompiledXMLElement element, Map<String, String> attributes)
+    {
+        try {
+            this.markupWriter.writeStartElement(element.getStartTagOpening(), attributes);
+        } catch (IOException e) {
+            // TODO: add error log here
+        }
+    }
+
+    /**
+     * Print the start tag of the precompiled xml element followed by the passed attribute. In the form
+     * {@code <name att1="value1" att2="value2">} where att1 is a constant attribute of the element and att2 the passed
+     * attribute.
+     *
+     * @param element the xml element to print
+     * @param attributeName the name of the xml attribute to add to the constant attributes of the element
+     * @param attributeValue the value of the xml attribute to add to the constant attributes of the element
+     * @since 10.4RC1
+     */
+    @Unstable
+    public void printXMLStartElement(PrecompiledXMLElement element, String attributeName, String attributeValue)
+    {
+        try {
+            this.markupWriter.writeStartElement(element.getStartTagOpening(), attributeName, attributeValue);
+        } catch (IOException e) {
             // TODO: add error log here
         }
     }
@@ -191,8 +268,24 @@ public void printXMLStartElement(String name, Attributes attributes)
     public void printXMLEndElement(String name)
     {
         try {
-            this.xmlWriter.endElement("", name, name);
-        } catch (SAXException e) {
+            this.markupWriter.writeEndElement(name);
+        } catch (IOException e) {
+            // TODO: add error log here
+        }
+    }
+
+    /**
+     * Print the end tag of the precompiled xml element. In the form {@code </name>}.
+     *
+     * @param element the xml element to print
+     * @since 10.4RC1
+     */
+    @Unstable
+    public void printXMLEndElement(PrecompiledXMLElement element)
+    {
+        try {
+            this.markupWriter.writeRaw(element.getEndTag());
+        } catch (IOException e) {
             // TODO: add error log here
         }
     }
@@ -219,7 +312,7 @@ public void printXMLComment(String content)
     public void printXMLComment(String content, boolean escape)
     {
         try {
-            this.xmlWriter.write(new DefaultComment(escape ? XMLUtils.escapeXMLComment(content) : content));
+            this.markupWriter.writeComment(escape ? XMLUtils.escapeXMLComment(content) : content);
         } catch (IOException e) {
             // TODO: add error log here
         }
@@ -231,9 +324,8 @@ public void printXMLComment(String content, boolean escape)
     public void printXMLStartCData()
     {
         try {
-            this.xmlWriter.startCDATA();
-            // Ensure that characters inside CDATA sections are not escaped
-            this.xmlWriter.setEscapeText(false);
+            // Characters inside CDATA sections are not escaped
+            this.markupWriter.startCData();
         } catch (Exception e) {
             // TODO: handle exception
         }
@@ -245,8 +337,7 @@ public void printXMLStartCData()
     public void printXMLEndCData()
     {
         try {
-            this.xmlWriter.setEscapeText(true);
-            this.xmlWriter.endCDATA();
+            this.markupWriter.endCData();
         } catch (Exception e) {
             // TODO: handle exception
         }
@@ -255,7 +346,7 @@ public void printXMLEndCData()
     public void printEntity(String entity)
     {
         try {
-            this.xmlWriter.write(new DefaultEntity(entity, entity));
+            this.markupWriter.writeRaw(entity);
         } catch (Exception e) {
             // TODO: handle exception
         }
@@ -275,41 +366,4 @@ public void printRaw(String row)
             // TODO: handle exception
         }
     }
-
-    /**
-     * Convert provided table into {@link Attributes} to use in xml writer.
-     */
-    private Attributes createAttributes(String[][] parameters)
-    {
-        AttributesImpl attributes = new AttributesImpl();
-
-        if (parameters != null && parameters.length > 0) {
-            for (String[] entry : parameters) {
-                attributes.addAttribute(null, null, entry[0], null, entry[1]);
-            }
-        }
-
-        return attributes;
-    }
-
-    /**
-     * Convert provided map into {@link Attributes} to use in xml writer.
-     */
-    private Attributes createAttributes(Map<String, String> parameters)
-    {
-        AttributesImpl attributes = new AttributesImpl();
-
-        if (parameters != null && !parameters.isEmpty()) {
-            for (Map.Entry<String, String> entry : parameters.entrySet()) {
-                String value = entry.getValue();
-                String key = entry.getKey();
-
-                if (key != null && value != null) {
-                    attributes.addAttribute(null, null, key, null, value);
-                }
-            }
-        }
-
-        return attributes;
-    }
 }
@@ -0,0 +1,441 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.xml.internal.renderer.printer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+
+/**
+ * Streaming writer producing the same XHTML as {@link XHTMLWriter} for the constructs printed by
+ * {@link org.xwiki.rendering.renderer.printer.XMLWikiPrinter}, without creating any DOM4J node, SAX attributes or
+ * intermediate escaped {@link String}.
+ * <p>
+ * Escaping is driven by lookup tables indexed by character: only a few ASCII characters have to be escaped, all the
+ * other characters are written as is.
+ *
+ * @version $Id$
+ * @since 10.4RC1
+ */
+public class XHTMLMarkupWriter
+{
+    private static final int ENTITIES_SIZE = 128;
+
+    private static final String[] TEXT_ENTITIES = new String[ENTITIES_SIZE];
+
+    private static final String[] ATTRIBUTE_ENTITIES = new String[ENTITIES_SIZE];
+
+    private static final String XMLNS = "xmlns";
+
+    private static final String XMLNS_PREFIX = "xmlns:";
+
+    private static final String START_TAG_OPEN = "<";
+
+    private static final String END_TAG_OPEN = "</";
+
+    private static final String TAG_CLOSE = ">";
+
+    private static final String EMPTY_TAG_CLOSE = "/>";
+
+    private static final String ATTRIBUTE_OPEN = "=\"";
+
+    private static final String ATTRIBUTE_CLOSE = "\"";
+
+    private static final String SPACE = " ";
+
+    static {
+        // Standard whitespaces are kept but all other control characters are encoded
+        for (char c = 0; c < ' '; c++) {
+            if (c != '\t' && c != '\n' && c != '\r') {
+                TEXT_ENTITIES[c] = "&#" + (int) c + ';';
+            }
+        }
+        TEXT_ENTITIES['<'] = "&lt;";
+        TEXT_ENTITIES['>'] = "&gt;";
+        TEXT_ENTITIES['&'] = "&amp;";
+        // Prepare the generated html for use between {{html}} {{/html}} in XWiki 2.x syntax
+        TEXT_ENTITIES['{'] = "&#123;";
+
+        System.arraycopy(TEXT_ENTITIES, 0, ATTRIBUTE_ENTITIES, 0, ENTITIES_SIZE);
+        ATTRIBUTE_ENTITIES['"'] = "&quot;";
+    }
+
+    private final Writer writer;
+
+    private boolean escapeText = true;
+
+    /**
+     * @param writer the writer to send the XHTML to
+     */
+    public XHTMLMarkupWriter(Writer writer)
+    {
+        this.writer = writer;
+    }
+
+    /**
+     * Write text, escaped unless inside a CDATA section.
+     *
+     * @param text the text to write
+     * @throws IOException when failing to write
+     */
+    public void writeText(String text) throws IOException
+    {
+        if (text != null && !text.isEmpty()) {
+            if (this.escapeText) {
+                writeEscaped(text, TEXT_ENTITIES);
+            } else {
+                this.writer.write(text);
+            }
+        }
+    }
+
+    /**
+     * Write content without escaping anything.
+     *
+     * @param content the content to write
+     * @throws IOException when failing to write
+     */
+    public void writeRaw(String content) throws IOException
+    {
+        this.writer.write(content);
+    }
+
+    /**
+     * Write already escaped markup.
+     *
+     * @param markup the markup to write
+     * @throws IOException when failing to write
+     */
+    public void writeRaw(char[] markup) throws IOException
+    {
+        this.writer.write(markup);
+    }
+
+    /**
+     * Complete an already written start tag opening (the tag name and its constant attributes) with dynamic
+     * attributes. Entries with a {@code null} key or value are ignored.
+     *
+     * @param startTagOpening the escaped start tag without its closing character
+     * @param attributes the dynamic attributes of the element
+     * @throws IOException when failing to write
+     */
+    public void writeStartElement(char[] startTagOpening, Map<String, String> attributes) throws IOException
+    {
+        this.writer.write(startTagOpening);
+        writeAttributes(attributes);
+        this.writer.write(TAG_CLOSE);
+    }
+
+    /**
+     * Complete an already written start tag opening (the tag name and its constant attributes) with one dynamic
+     * attribute.
+     *
+     * @param startTagOpening the escaped start tag without its closing character
+     * @param attributeName the name of the dynamic attribute
+     * @param attributeValue the value of the dynamic attribute, {@code null} producing an empty attribute
+     * @throws IOException when failing to write
+     */
+    public void writeStartElement(char[] startTagOpening, String attributeName, String attributeValue)
+        throws IOException
+    {
+        this.writer.write(startTagOpening);
+        writeAttribute(attributeName, attributeValue);
+        this.writer.write(TAG_CLOSE);
+    }
+
+    /**
+     * Write a start tag without attributes.
+     *
+     * @param name the name of the element
+     * @throws IOException when failing to write
+     */
+    public void writeStartElement(String name) throws IOException
+    {
+        this.writer.write(START_TAG_OPEN);
+        this.writer.write(name);
+        this.writer.write(TAG_CLOSE);
+    }
+
+    /**
+     * Write a start tag. Each attribute is written in order, a {@code null} value producing an empty attribute.
+     *
+     * @param name the name of the element
+     * @param attributes the attributes of the element as a list of name/value pairs
+     * @throws IOException when failing to write
+     */
+    public void writeStartElement(String name, String[][] attributes) throws IOException
+    {
+        this.writer.write(START_TAG_OPEN);
+        this.writer.write(name);
+        if (attributes != null) {
+            for (String[] entry : attributes) {
+                writeAttribute(entry[0], entry[1]);
+            }
+        }
+        this.writer.write(TAG_CLOSE);
+    }
+
+    /**
+     * Write a start tag. Entries with a {@code null} key or value are ignored.
+     *
+     * @param name the name of the element
+     * @param attributes the attributes of the element
+     * @throws IOException when failing to write
+     */
+    public void writeStartElement(String name, Map<String, String> attributes) throws IOException
+    {
+        this.writer.write(START_TAG_OPEN);
+        this.writer.write(name);
+        writeAttributes(attributes);
+        this.writer.write(TAG_CLOSE);
+    }
+
+    /**
+     * Write a start tag.
+     *
+     * @param name the name of the element
+     * @param attributes the attributes of the element
+     * @throws IOException when failing to write
+     */
+    public void writeStartElement(String name, Attributes attributes) throws IOException
+    {
+        this.writer.write(START_TAG_OPEN);
+        this.writer.write(name);
+        for (int i = 0; i < attributes.getLength(); i++) {
+            writeAttribute(attributes.getQName(i), attributes.getValue(i));
+        }
+        this.writer.write(TAG_CLOSE);
+    }
+
+    /**
+     * Write an end tag.
+     *
+     * @param name the name of the element
+     * @throws IOException when failing to write
+     */
+    public void writeEndElement(String name) throws IOException
+    {
+        this.writer.write(END_TAG_OPEN);
+        this.writer.write(name);
+        this.writer.write(TAG_CLOSE);
+    }
+
+    /**
+     * Write an empty element. Like with a DOM element, an attribute set several times keeps its first position and
+     * its last value, and a {@code null} value removes the attribute.
+     *
+     * @param name the name of the element
+     * @param attributes the attributes of the element as a list of name/value pairs
+     * @throws IOException when failing to write
+     */
+    public void writeEmptyElement(String name, String[][] attributes) throws IOException
+    {
+        this.writer.write(START_TAG_OPEN);
+        this.writer.write(name);
+        if (attributes != null) {
+            if (hasDuplicatedNames(attributes)) {
+                for (String[] entry : mergeAttributes(attributes)) {
+                    writeElementAttribute(entry[0], entry[1]);
+                }
+            } else {
+                for (String[] entry : attributes) {
+                    if (entry[0] != null && entry[1] != null) {
+                        writeElementAttribute(entry[0], entry[1]);
+                    }
+                }
+            }
+        }
+        this.writer.write(EMPTY_TAG_CLOSE);
+    }
+
+    /**
+     * Write an empty element. Entries with a {@code null} key or value are ignored.
+     *
+     * @param name the name of the element
+     * @param attributes the attributes of the element
+     * @throws IOException when failing to write
+     */
+    public void writeEmptyElement(String name, Map<String, String> attributes) throws IOException
+    {
+        this.writer.write(START_TAG_OPEN);
+        this.writer.write(name);
+        if (attributes != null) {
+            for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                String key = entry.getKey();
+                String value = entry.getValue();
+                if (key != null && value != null) {
+                    writeElementAttribute(key, value);
+                }
+            }
+        }
+        this.writer.write(EMPTY_TAG_CLOSE);
+    }
+
+    /**
+     * Write a comment. The content is written as is.
+     *
+     * @param content the content of the comment
+     * @throws IOException when failing to write
+     */
+    public void writeComment(String content) throws IOException
+    {
+        this.writer.write("<!--");
+        this.writer.write(content);
+        this.writer.write("-->");
+    }
+
+    /**
+     * Start a CDATA section. The text written until {@link #endCData()} is not escaped.
+     *
+     * @throws IOException when failing to write
+     */
+    public void startCData() throws IOException
+    {
+        this.writer.write("<![CDATA[");
+        this.escapeText = false;
+    }
+
+    /**
+     * End a CDATA section.
+     *
+     * @throws IOException when failing to write
+     */
+    public void endCData() throws IOException
+    {
+        this.escapeText = true;
+        this.writer.write("]]>");
+    }
+
+    private void writeAttributes(Map<String, String> attributes) throws IOException
+    {
+        if (attributes != null) {
+            for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                String key = entry.getKey();
+                String value = entry.getValue();
+                if (key != null && value != null) {
+                    writeAttribute(key, value);
+                }
+            }
+        }
+    }
+
+    private void writeAttribute(String name, String value) throws IOException
+    {
+        this.writer.write(SPACE);
+        this.writer.write(name);
+        this.writer.write(ATTRIBUTE_OPEN);
+        if (value != null) {
+            writeEscaped(value, ATTRIBUTE_ENTITIES);
+        }
+        this.writer.write(ATTRIBUTE_CLOSE);
+    }
+
+    /**
+     * Same as {@link #writeAttribute(String, String)} but with the namespace declarations handling of a DOM element:
+     * the default namespace cannot be redeclared and prefixed namespaces are written without escaping.
+     */
+    private void writeElementAttribute(String name, String value) throws IOException
+    {
+        if (name.startsWith(XMLNS_PREFIX)) {
+            // An empty prefix would redeclare the default namespace
+            if (name.length() > XMLNS_PREFIX.length()) {
+                this.writer.write(SPACE);
+                this.writer.write(name);
+                this.writer.write(ATTRIBUTE_OPEN);
+                this.writer.write(value);
+                this.writer.write(ATTRIBUTE_CLOSE);
+            }
+        } else if (!name.equals(XMLNS)) {
+            writeAttribute(name, value);
+        }
+    }
+
+    private void writeEscaped(String text, String[] entities) throws IOException
+    {
+        int length = text.length();
+        int last = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < ENTITIES_SIZE && entities[c] != null) {
+                if (i > last) {
+                    this.writer.write(text, last, i - last);
+                }
+                this.writer.write(entities[c]);
+                last = i + 1;
+            }
+        }
+
+        if (last == 0) {
+            this.writer.write(text);
+        } else if (last < length) {
+            this.writer.write(text, last, length - last);
+        }
+    }
+
+    private static boolean hasDuplicatedNames(String[][] attributes)
+    {
+        for (int i = 1; i < attributes.length; i++) {
+            String name = attributes[i][0];
+            for (int j = 0; j < i; j++) {
+                if (name != null && name.equals(attributes[j][0])) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static List<String[]> mergeAttributes(String[][] attributes)
+    {
+        List<String[]> merged = new ArrayList<>(attributes.length);
+        for (String[] entry : attributes) {
+            if (entry[0] != null) {
+                int index = indexOf(merged, entry[0]);
+                if (entry[1] == null) {
+                    if (index >= 0) {
+                        merged.remove(index);
+                    }
+                } else if (index >= 0) {
+                    merged.set(index, entry);
+                } else {
+                    merged.add(entry);
+                }
+            }
+        }
+
+        return merged;
+    }
+
+    private static int indexOf(List<String[]> attributes, String name)
+    {
+        for (int i = 0; i < attributes.size(); i++) {
+            if (name.equals(attributes.get(i)[0])) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.xml.internal.renderer.printer;
+
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.dom4j.Element;
+import org.dom4j.tree.DefaultElement;
+import org.junit.Test;
+import org.xml.sax.helpers.AttributesImpl;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Validate that {@link XHTMLMarkupWriter} produces the same XHTML as the DOM4J based {@link XHTMLWriter}.
+ *
+ * @version $Id$
+ */
+public class XHTMLMarkupWriterTest
+{
+    private static final String TEXT =
+        "control\u0000\u0001\u001f whitespaces\t\n\r markup<>& curly{{/html}} quotes\"' non asciié😀";
+
+    private final StringWriter markupOutput = new StringWriter();
+
+    private final XHTMLMarkupWriter markupWriter = new XHTMLMarkupWriter(this.markupOutput);
+
+    private final StringWriter dom4jOutput = new StringWriter();
+
+    private final XHTMLWriter dom4jWriter = new XHTMLWriter(this.dom4jOutput);
+
+    private void assertSameOutput() throws Exception
+    {
+        this.dom4jWriter.flush();
+
+        assertEquals(this.dom4jOutput.toString(), this.markupOutput.toString());
+    }
+
+    @Test
+    public void writeText() throws Exception
+    {
+        this.markupWriter.writeText(TEXT);
+        this.dom4jWriter.write(TEXT);
+
+        assertSameOutput();
+    }
+
+    @Test
+    public void writeTextInCData() throws Exception
+    {
+        this.markupWriter.startCData();
+        this.markupWriter.writeText(TEXT);
+        this.markupWriter.endCData();
+        this.markupWriter.writeText(TEXT);
+
+        this.dom4jWriter.startCDATA();
+        this.dom4jWriter.setEscapeText(false);
+        this.dom4jWriter.write(TEXT);
+        this.dom4jWriter.setEscapeText(true);
+        this.dom4jWriter.endCDATA();
+        this.dom4jWriter.write(TEXT);
+
+        assertSameOutput();
+    }
+
+    @Test
+    public void writeStartAndEndElement() throws Exception
+    {
+        String[][] attributes = new String[][] { { "class", TEXT }, { "title", "&amp; {" } };
+
+        this.markupWriter.writeStartElement("p", attributes);
+        this.markupWriter.writeEndElement("p");
+        this.markupWriter.writeStartElement("div");
+        this.markupWriter.writeEndElement("div");
+
+        AttributesImpl dom4jAttributes = new AttributesImpl();
+        for (String[] entry : attributes) {
+            dom4jAttributes.addAttribute(null, null, entry[0], null, entry[1]);
+        }
+        this.dom4jWriter.startElement("", "p", "p", dom4jAttributes);
+        this.dom4jWriter.endElement("", "p", "p");
+        this.dom4jWriter.startElement("", "div", "div", new AttributesImpl());
+        this.dom4jWriter.endElement("", "div", "div");
+
+        assertSameOutput();
+    }
+
+    @Test
+    public void writeStartElementWithMap() throws Exception
+    {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("class", TEXT);
+        attributes.put("ignored", null);
+        attributes.put("id", "\"quoted\"");
+
+        this.markupWriter.writeStartElement("span", attributes);
+
+        AttributesImpl dom4jAttributes = new AttributesImpl();
+        dom4jAttributes.addAttribute(null, null, "class", null, TEXT);
+        dom4jAttributes.addAttribute(null, null, "id", null, "\"quoted\"");
+        this.dom4jWriter.startElement("", "span", "span", dom4jAttributes);
+
+        assertSameOutput();
+    }
+
+    @Test
+    public void writeEmptyElement() throws Exception
+    {
+        String[][] attributes = new String[][] { { "src", "a&b.png" }, { "alt", TEXT }, { "title", null } };
+
+        this.markupWriter.writeEmptyElement("img", attributes);
+        this.markupWriter.writeEmptyElement("br", (String[][]) null);
+
+        this.dom4jWriter.write(createElement("img", attributes));
+        this.dom4jWriter.write(new DefaultElement("br"));
+
+        assertSameOutput();
+    }
+
+    @Test
+    public void writeEmptyElementWithDuplicatedAttributes() throws Exception
+    {
+        // The first position and the last value are kept, a null value removes the attribute
+        String[][] attributes = new String[][] { { "class", "first" }, { "src", "image.png" }, { "alt", "alt" },
+            { "class", "last{" }, { "alt", null } };
+
+        this.markupWriter.writeEmptyElement("img", attributes);
+
+        this.dom4jWriter.write(createElement("img", attributes));
+
+        assertSameOutput();
+    }
+
+    @Test
+    public void writeEmptyElementWithNamespaces() throws Exception
+    {
+        // The default namespace can't be redeclared and the prefixed namespaces are not escaped
+        String[][] attributes = new String[][] { { "xmlns", "http://www.w3.org/1999/xhtml" },
+            { "xmlns:", "empty" }, { "xmlns:svg", "http://www.w3.org/2000/svg?a&b" }, { "class", "c" } };
+
+        this.markupWriter.writeEmptyElement("svg", attributes);
+
+        this.dom4jWriter.write(createElement("svg", attributes));
+
+        assertSameOutput();
+    }
+
+    @Test
+    public void writeEmptyElementWithMap() throws Exception
+    {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("src", "a&b.png");
+        attributes.put("ignored", null);
+        attributes.put("alt", TEXT);
+
+        this.markupWriter.writeEmptyElement("img", attributes);
+
+        Element element = new DefaultElement("img");
+        element.addAttribute("src", "a&b.png");
+        element.addAttribute("alt", TEXT);
+        this.dom4jWriter.write(element);
+
+        assertSameOutput();
+    }
+
+    private Element createElement(String name, String[][] attributes)
+    {
+        Element element = new DefaultElement(name);
+        for (String[] entry : attributes) {
+            element.addAttribute(entry[0], entry[1]);
+        }
+
+        return element;
+    }
+}